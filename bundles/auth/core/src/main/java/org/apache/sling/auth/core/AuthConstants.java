@@ -124,6 +124,39 @@ public final class AuthConstants {
      */
     public static final String AUTH_REQUIREMENTS = "sling.auth.requirements";
 
+    /**
+     * Property in the
+     * {@link org.apache.sling.auth.core.spi.AuthenticationInfo} object returned
+     * by the
+     * {@link org.apache.sling.auth.core.spi.AuthenticationHandler#extractCredentials(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * method identifying the credentials, for example a signed login token.
+     * <p>
+     * If the authenticator is configured to pool resource resolvers, requests
+     * presenting credentials with the same key may reuse the resource resolver
+     * of an earlier request instead of logging in again. Therefore an
+     * {@link org.apache.sling.auth.core.spi.AuthenticationHandler} must only
+     * set this property if the credentials cannot be forged and are validated
+     * during the login.
+     * <p>
+     * The type of this property, if present, is <code>String</code>.
+     *
+     * @since 1.3
+     */
+    public static final String AUTH_INFO_REUSE_KEY = "$$auth.info.reuse.key$$";
+
+    /**
+     * Optional property in the
+     * {@link org.apache.sling.auth.core.spi.AuthenticationInfo} object
+     * providing the time in milliseconds since the epoch at which the
+     * credentials identified by the {@link #AUTH_INFO_REUSE_KEY} expire.
+     * A pooled resource resolver is not reused after this time.
+     * <p>
+     * The type of this property, if present, is <code>Long</code>.
+     *
+     * @since 1.3
+     */
+    public static final String AUTH_INFO_REUSE_EXPIRES = "$$auth.info.reuse.expires$$";
+
     private AuthConstants() {
     }
 
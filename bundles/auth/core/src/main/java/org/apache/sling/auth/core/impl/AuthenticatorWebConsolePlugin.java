@@ -142,5 +142,18 @@ public class AuthenticatorWebConsolePlugin extends HttpServlet {
         pw.println("<td class='content'>Anonymous User Name</td>");
         pw.printf("<td class='content' colspan='2'>%s</td>%n", (anonUser == null) ? "(default)" : ResponseUtil.escapeXml(anonUser));
         pw.println("</tr>");
+
+        final ResourceResolverPool pool = slingAuthenticator.getResolverPool();
+        pw.println("<tr>");
+        pw.println("<td class='content'>Resource Resolver Pool</td>");
+        if (pool == null) {
+            pw.println("<td class='content' colspan='2'>(disabled)</td>");
+        } else {
+            final long hits = pool.getHits();
+            final long total = hits + pool.getMisses();
+            pw.printf("<td class='content' colspan='2'>%d of %d resolvers pooled, %d of %d requests reused a resolver (%d%%), %d evicted</td>%n",
+                pool.getSize(), pool.getMaxSize(), hits, total, (total == 0 ? 0 : hits * 100 / total), pool.getEvictions());
+        }
+        pw.println("</tr>");
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>ResourceResolverPool</code> keeps the resource resolvers of
+ * finished requests to be reused by later requests presenting the same
+ * validated credentials, for example the same form authentication token.
+ * <p>
+ * A resource resolver is only used by one request at a time: it is taken
+ * out of the pool by {@link #acquire(String, String, long)} and put back by
+ * {@link #release(Lease)} once the request has finished. Resolvers with
+ * unsaved changes are never put back. The pool is bounded, removing the
+ * resolvers of the least recently used credentials first, and a resolver
+ * is not used any more once its maximum age or the expiry time of the
+ * credentials has passed.
+ */
+class ResourceResolverPool {
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(ResourceResolverPool.class);
+
+    /**
+     * A resource resolver taken from the pool or to be added to the pool
+     * once the request has finished.
+     */
+    static final class Lease {
+
+        private final String key;
+
+        private final String userId;
+
+        private final long expires;
+
+        private final long generation;
+
+        private ResourceResolver resolver;
+
+        private Lease(final String key, final String userId, final long expires, final long generation) {
+            this.key = key;
+            this.userId = userId;
+            this.expires = expires;
+            this.generation = generation;
+        }
+
+        /**
+         * The pooled resource resolver or <code>null</code> if no resolver
+         * was available and a new resolver has to be set.
+         */
+        ResourceResolver getResolver() {
+            return resolver;
+        }
+
+        void setResolver(final ResourceResolver resolver) {
+            this.resolver = resolver;
+        }
+    }
+
+    private final int maxSize;
+
+    private final long maxAge;
+
+    /** The idle leases per key, the least recently used key first */
+    private final LinkedHashMap<String, LinkedList<Lease>> idle = new LinkedHashMap<String, LinkedList<Lease>>(16, 0.75f, true);
+
+    private int size;
+
+    /** Incremented to drop all leases created before */
+    private volatile long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize The maximum number of idle resource resolvers
+     * @param maxAge The maximum time in ms a resource resolver is used
+     */
+    ResourceResolverPool(final int maxSize, final long maxAge) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Take a resource resolver for the credentials out of the pool.
+     *
+     * @param key The key identifying the validated credentials
+     * @param userId The id of the user
+     * @param credentialsExpiry The time the credentials expire or a negative
+     *            value if they don't expire
+     * @return The lease. Its resource resolver is a refreshed pooled resolver
+     *         or <code>null</code> if a new resolver has to be created
+     */
+    Lease acquire(final String key, final String userId, final long credentialsExpiry) {
+        final long now = System.currentTimeMillis();
+        final List<Lease> expired = new ArrayList<Lease>();
+        Lease lease = null;
+        synchronized (idle) {
+            final LinkedList<Lease> leases = idle.get(key);
+            if (leases != null) {
+                while (lease == null && !leases.isEmpty()) {
+                    final Lease candidate = leases.removeFirst();
+                    size--;
+                    if (candidate.expires > now && candidate.generation == generation) {
+                        lease = candidate;
+                    } else {
+                        expired.add(candidate);
+                    }
+                }
+                if (leases.isEmpty()) {
+                    idle.remove(key);
+                }
+            }
+        }
+        close(expired);
+
+        if (lease != null) {
+            try {
+                lease.resolver.refresh();
+                if (lease.resolver.isLive()) {
+                    hits.incrementAndGet();
+                    return lease;
+                }
+            } catch (final RuntimeException re) {
+                log.debug("acquire: Cannot refresh pooled resource resolver, dropping it", re);
+            }
+            close(lease.resolver);
+        }
+
+        misses.incrementAndGet();
+        long expires = now + maxAge;
+        if (credentialsExpiry >= 0 && credentialsExpiry < expires) {
+            expires = credentialsExpiry;
+        }
+        return new Lease(key, userId, expires, generation);
+    }
+
+    /**
+     * Put the resource resolver of the lease back into the pool once the
+     * request has finished. The resolver is closed if it cannot be reused.
+     */
+    void release(final Lease lease) {
+        final ResourceResolver resolver = lease.resolver;
+        if (resolver == null || !resolver.isLive()) {
+            return;
+        }
+        boolean reusable = lease.expires > System.currentTimeMillis() && lease.generation == generation;
+        if (reusable) {
+            try {
+                reusable = !resolver.hasChanges();
+            } catch (final RuntimeException re) {
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            close(resolver);
+            return;
+        }
+
+        final List<Lease> evicted = new ArrayList<Lease>();
+        synchronized (idle) {
+            LinkedList<Lease> leases = idle.get(lease.key);
+            if (leases == null) {
+                leases = new LinkedList<Lease>();
+                idle.put(lease.key, leases);
+            }
+            leases.addFirst(lease);
+            size++;
+
+            final Iterator<LinkedList<Lease>> iter = idle.values().iterator();
+            while (size > maxSize && iter.hasNext()) {
+                final LinkedList<Lease> eldest = iter.next();
+                while (size > maxSize && !eldest.isEmpty()) {
+                    evicted.add(eldest.removeLast());
+                    size--;
+                }
+                if (eldest.isEmpty()) {
+                    iter.remove();
+                }
+            }
+        }
+        evictions.addAndGet(evicted.size());
+        close(evicted);
+    }
+
+    /**
+     * Close the idle resource resolvers of the user, for example after the
+     * user logged out.
+     */
+    void invalidateUser(final String userId) {
+        final List<Lease> removed = new ArrayList<Lease>();
+        synchronized (idle) {
+            final Iterator<LinkedList<Lease>> iter = idle.values().iterator();
+            while (iter.hasNext()) {
+                final LinkedList<Lease> leases = iter.next();
+                final Iterator<Lease> leaseIter = leases.iterator();
+                while (leaseIter.hasNext()) {
+                    final Lease lease = leaseIter.next();
+                    if (lease.userId != null && lease.userId.equals(userId)) {
+                        removed.add(lease);
+                        leaseIter.remove();
+                        size--;
+                    }
+                }
+                if (leases.isEmpty()) {
+                    iter.remove();
+                }
+            }
+        }
+        close(removed);
+    }
+
+    /**
+     * Close all idle resource resolvers and make sure resolvers currently
+     * used by requests are not put back into the pool, for example after
+     * access control has changed.
+     */
+    void invalidateAll() {
+        final List<Lease> removed = new ArrayList<Lease>();
+        synchronized (idle) {
+            generation++;
+            for (final LinkedList<Lease> leases : idle.values()) {
+                removed.addAll(leases);
+            }
+            idle.clear();
+            size = 0;
+        }
+        close(removed);
+    }
+
+    int getSize() {
+        synchronized (idle) {
+            return size;
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    private void close(final List<Lease> leases) {
+        for (final Lease lease : leases) {
+            close(lease.resolver);
+        }
+    }
+
+    private void close(final ResourceResolver resolver) {
+        try {
+            resolver.close();
+        } catch (final RuntimeException re) {
+            log.debug("close: Problem closing resource resolver", re);
+        }
+    }
+
+    /** Create the pool key for the credentials of a user */
+    static String createKey(final String authType, final String userId, final String credentialsKey) {
+        return authType + '\n' + userId + '\n' + credentialsKey;
+    }
+}
@@ -72,6 +72,8 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.osgi.service.http.HttpContext;
 import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
@@ -183,6 +185,31 @@ public class SlingAuthenticator implements Authenticator,
     @Property(value = DEFAULT_AUTH_URI_SUFFIX, unbounded = PropertyUnbounded.ARRAY)
     public static final String PAR_AUTH_URI_SUFFIX = "auth.uri.suffix";
 
+    /** The default maximum number of pooled resource resolvers, 0 disables pooling */
+    private static final int DEFAULT_RESOLVER_POOL_SIZE = 0;
+
+    @Property(intValue = DEFAULT_RESOLVER_POOL_SIZE)
+    private static final String PAR_RESOLVER_POOL_SIZE = "auth.resolver.pool.size";
+
+    /** The default maximum age of a pooled resource resolver in seconds */
+    private static final int DEFAULT_RESOLVER_POOL_MAX_AGE = 60;
+
+    @Property(intValue = DEFAULT_RESOLVER_POOL_MAX_AGE)
+    private static final String PAR_RESOLVER_POOL_MAX_AGE = "auth.resolver.pool.maxage";
+
+    /**
+     * Request attribute holding the
+     * {@link ResourceResolverPool.Lease} of a pooled resource resolver
+     */
+    private static final String REQUEST_ATTRIBUTE_RESOLVER_LEASE = SlingAuthenticator.class.getName() + ".resolverLease";
+
+    /**
+     * Changes to these resources invalidate all pooled resource resolvers:
+     * access control policies and users and groups.
+     */
+    private static final String ACCESS_CONTROL_CHANGE_FILTER = "(|(" + SlingConstants.PROPERTY_PATH + "=*/rep:policy)("
+        + SlingConstants.PROPERTY_PATH + "=*/rep:policy/*)(" + SlingConstants.PROPERTY_PATH + "=/home/*))";
+
     /**
      * The name of the {@link AuthenticationInfo} property providing the option
      * {@link org.apache.sling.auth.core.spi.AuthenticationFeedbackHandler}
@@ -239,6 +266,15 @@ public class SlingAuthenticator implements Authenticator,
     /** Web Console Plugin service registration */
     private ServiceRegistration webConsolePlugin;
 
+    /**
+     * The pool of resource resolvers reused for requests with the same
+     * credentials or <code>null</code> if pooling is disabled.
+     */
+    private volatile ResourceResolverPool resolverPool;
+
+    /** Event handler invalidating the resolver pool on access control changes */
+    private ServiceRegistration accessControlChangeHandler;
+
     /**
      * The listener for services registered with "sling.auth.requirements" to
      * update the internal authentication requirements
@@ -296,6 +332,28 @@ public class SlingAuthenticator implements Authenticator,
             bundleContext, authHandlerCache);
         authInfoPostProcessorTracker = new ServiceTracker(bundleContext, AuthenticationInfoPostProcessor.SERVICE_NAME, null);
         authInfoPostProcessorTracker.open();
+
+        final Hashtable<String, Object> handlerProps = new Hashtable<String, Object>();
+        handlerProps.put(EventConstants.EVENT_TOPIC, new String[] {
+            SlingConstants.TOPIC_RESOURCE_ADDED, SlingConstants.TOPIC_RESOURCE_CHANGED,
+            SlingConstants.TOPIC_RESOURCE_REMOVED });
+        handlerProps.put(EventConstants.EVENT_FILTER, ACCESS_CONTROL_CHANGE_FILTER);
+        handlerProps.put(Constants.SERVICE_DESCRIPTION,
+            "Sling Request Authenticator Resource Resolver Pool Invalidation");
+        handlerProps.put(Constants.SERVICE_VENDOR,
+            properties.get(Constants.SERVICE_VENDOR));
+        accessControlChangeHandler = bundleContext.registerService(
+            EventHandler.class.getName(), new EventHandler() {
+
+                public void handleEvent(final Event event) {
+                    final ResourceResolverPool pool = resolverPool;
+                    if (pool != null) {
+                        log.debug("handleEvent: Access control change at {}, dropping pooled resource resolvers",
+                            event.getProperty(SlingConstants.PROPERTY_PATH));
+                        pool.invalidateAll();
+                    }
+                }
+            }, handlerProps);
     }
 
     @Modified
@@ -378,6 +436,19 @@ public class SlingAuthenticator implements Authenticator,
             final String realm = OsgiUtil.toString(properties.get(PAR_REALM_NAME), DEFAULT_REALM);
             httpBasicHandler = new HttpBasicAuthenticationHandler(realm, HTTP_AUTH_ENABLED.equals(http));
         }
+
+        final ResourceResolverPool oldPool = this.resolverPool;
+        final int poolSize = OsgiUtil.toInteger(properties.get(PAR_RESOLVER_POOL_SIZE), DEFAULT_RESOLVER_POOL_SIZE);
+        if (poolSize > 0) {
+            final int maxAge = OsgiUtil.toInteger(properties.get(PAR_RESOLVER_POOL_MAX_AGE), DEFAULT_RESOLVER_POOL_MAX_AGE);
+            this.resolverPool = new ResourceResolverPool(poolSize, maxAge * 1000L);
+            log.debug("modified: Pooling up to {} resource resolvers for at most {} seconds", poolSize, maxAge);
+        } else {
+            this.resolverPool = null;
+        }
+        if (oldPool != null) {
+            oldPool.invalidateAll();
+        }
     }
 
     @SuppressWarnings("unused")
@@ -402,6 +473,17 @@ public class SlingAuthenticator implements Authenticator,
             webConsolePlugin.unregister();
             webConsolePlugin = null;
         }
+
+        if (accessControlChangeHandler != null) {
+            accessControlChangeHandler.unregister();
+            accessControlChangeHandler = null;
+        }
+
+        final ResourceResolverPool pool = this.resolverPool;
+        if (pool != null) {
+            this.resolverPool = null;
+            pool.invalidateAll();
+        }
     }
 
     // --------- AuthenticationSupport interface
@@ -572,6 +654,12 @@ public class SlingAuthenticator implements Authenticator,
         // make sure impersonation is dropped
         setSudoCookie(request, response, new AuthenticationInfo("dummy", request.getRemoteUser()));
 
+        // drop the pooled resource resolvers of the user
+        final ResourceResolverPool pool = this.resolverPool;
+        if (pool != null && request.getRemoteUser() != null) {
+            pool.invalidateUser(request.getRemoteUser());
+        }
+
         final String path = getHandlerSelectionPath(request);
         final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
                 .findApplicableHolder(request);
@@ -612,8 +700,17 @@ public class SlingAuthenticator implements Authenticator,
         ServletRequest request = sre.getServletRequest();
         Object resolverAttr = request.getAttribute(REQUEST_ATTRIBUTE_RESOLVER);
         if (resolverAttr instanceof ResourceResolver) {
-            ((ResourceResolver) resolverAttr).close();
+            final Object leaseAttr = request.getAttribute(REQUEST_ATTRIBUTE_RESOLVER_LEASE);
+            final ResourceResolverPool pool = this.resolverPool;
+            if (pool != null && leaseAttr instanceof ResourceResolverPool.Lease
+                && ((ResourceResolverPool.Lease) leaseAttr).getResolver() == resolverAttr) {
+                // put the resolver back instead of closing it
+                pool.release((ResourceResolverPool.Lease) leaseAttr);
+            } else {
+                ((ResourceResolver) resolverAttr).close();
+            }
             request.removeAttribute(REQUEST_ATTRIBUTE_RESOLVER);
+            request.removeAttribute(REQUEST_ATTRIBUTE_RESOLVER_LEASE);
         }
     }
 
@@ -667,6 +764,14 @@ public class SlingAuthenticator implements Authenticator,
         return sudoParameterName;
     }
 
+    /**
+     * Returns the resource resolver pool or <code>null</code> if resource
+     * resolvers are not pooled.
+     */
+    ResourceResolverPool getResolverPool() {
+        return resolverPool;
+    }
+
     // ---------- internal
 
     private String getPath(HttpServletRequest request) {
@@ -760,7 +865,14 @@ public class SlingAuthenticator implements Authenticator,
         // try to connect
         try {
             handleImpersonation(request, authInfo);
-            ResourceResolver resolver = resourceResolverFactory.getResourceResolver(authInfo);
+            ResourceResolver resolver = getPooledResolver(request, authInfo);
+            if (resolver == null) {
+                resolver = resourceResolverFactory.getResourceResolver(authInfo);
+                final Object lease = request.getAttribute(REQUEST_ATTRIBUTE_RESOLVER_LEASE);
+                if (lease instanceof ResourceResolverPool.Lease) {
+                    ((ResourceResolverPool.Lease) lease).setResolver(resolver);
+                }
+            }
             final boolean impersChanged = setSudoCookie(request, response, authInfo);
 
             if (sendLoginEvent != null) {
@@ -818,6 +930,37 @@ public class SlingAuthenticator implements Authenticator,
 
     }
 
+    /**
+     * Returns a pooled resource resolver for the credentials of the
+     * authentication info or <code>null</code> if a new resource resolver has
+     * to be created. If the resource resolver may be pooled once the request
+     * has finished, a {@link ResourceResolverPool.Lease} is set as a request
+     * attribute.
+     * <p>
+     * Resource resolvers are only pooled for <code>GET</code> and
+     * <code>HEAD</code> requests without impersonation whose authentication
+     * info provides a {@link AuthConstants#AUTH_INFO_REUSE_KEY}.
+     */
+    private ResourceResolver getPooledResolver(final HttpServletRequest request,
+            final AuthenticationInfo authInfo) {
+        // never pass the reuse information on to the login
+        final Object reuseKey = authInfo.remove(AuthConstants.AUTH_INFO_REUSE_KEY);
+        final Object reuseExpires = authInfo.remove(AuthConstants.AUTH_INFO_REUSE_EXPIRES);
+
+        final ResourceResolverPool pool = this.resolverPool;
+        if (pool == null || !(reuseKey instanceof String) || authInfo.getUser() == null
+            || authInfo.get(ResourceResolverFactory.USER_IMPERSONATION) != null
+            || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return null;
+        }
+
+        final String key = ResourceResolverPool.createKey(authInfo.getAuthType(), authInfo.getUser(), (String) reuseKey);
+        final long expires = (reuseExpires instanceof Long) ? (Long) reuseExpires : -1;
+        final ResourceResolverPool.Lease lease = pool.acquire(key, authInfo.getUser(), expires);
+        request.setAttribute(REQUEST_ATTRIBUTE_RESOLVER_LEASE, lease);
+        return lease.getResolver();
+    }
+
     private boolean expectAuthenticationHandler(final HttpServletRequest request) {
         if (this.authUriSuffices != null) {
             final String requestUri = request.getRequestURI();
@@ -22,9 +22,9 @@
  * of utility functions in the {@link org.apache.sling.auth.core.AuthUtil}
  * class.
  *
- * @version 1.2
+ * @version 1.3
  */
-@Version("1.2")
+@Version("1.3")
 @Export(optional = "provide:=true")
 package org.apache.sling.auth.core;
 
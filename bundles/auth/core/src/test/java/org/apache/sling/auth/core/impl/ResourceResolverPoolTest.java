@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+public class ResourceResolverPoolTest extends TestCase {
+
+    public void test_reuse() {
+        final ResourceResolverPool pool = new ResourceResolverPool(10, 60000);
+
+        ResourceResolverPool.Lease lease = pool.acquire("key", "user", -1);
+        assertNull(lease.getResolver());
+        final TestResolver resolver = new TestResolver();
+        lease.setResolver(resolver.proxy);
+        pool.release(lease);
+        assertEquals(1, pool.getSize());
+
+        lease = pool.acquire("key", "user", -1);
+        assertSame(resolver.proxy, lease.getResolver());
+        assertEquals(1, resolver.refreshed);
+        assertEquals(0, pool.getSize());
+
+        // other credentials
+        assertNull(pool.acquire("other", "user", -1).getResolver());
+
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+
+    public void test_changes_not_pooled() {
+        final ResourceResolverPool pool = new ResourceResolverPool(10, 60000);
+        final ResourceResolverPool.Lease lease = pool.acquire("key", "user", -1);
+        final TestResolver resolver = new TestResolver();
+        resolver.hasChanges = true;
+        lease.setResolver(resolver.proxy);
+        pool.release(lease);
+
+        assertEquals(0, pool.getSize());
+        assertFalse(resolver.live);
+    }
+
+    public void test_expired_not_pooled() {
+        final ResourceResolverPool pool = new ResourceResolverPool(10, 60000);
+        final ResourceResolverPool.Lease lease = pool.acquire("key", "user", System.currentTimeMillis() - 1);
+        final TestResolver resolver = new TestResolver();
+        lease.setResolver(resolver.proxy);
+        pool.release(lease);
+
+        assertEquals(0, pool.getSize());
+        assertFalse(resolver.live);
+    }
+
+    public void test_eviction() {
+        final ResourceResolverPool pool = new ResourceResolverPool(2, 60000);
+        final TestResolver[] resolvers = new TestResolver[3];
+        for (int i = 0; i < resolvers.length; i++) {
+            final ResourceResolverPool.Lease lease = pool.acquire("key" + i, "user", -1);
+            resolvers[i] = new TestResolver();
+            lease.setResolver(resolvers[i].proxy);
+            pool.release(lease);
+        }
+
+        assertEquals(2, pool.getSize());
+        assertEquals(1, pool.getEvictions());
+        assertFalse(resolvers[0].live);
+        assertTrue(resolvers[1].live);
+        assertTrue(resolvers[2].live);
+    }
+
+    public void test_invalidate() {
+        final ResourceResolverPool pool = new ResourceResolverPool(10, 60000);
+        final TestResolver first = new TestResolver();
+        ResourceResolverPool.Lease lease = pool.acquire("key1", "user1", -1);
+        lease.setResolver(first.proxy);
+        pool.release(lease);
+        final TestResolver second = new TestResolver();
+        lease = pool.acquire("key2", "user2", -1);
+        lease.setResolver(second.proxy);
+        pool.release(lease);
+
+        pool.invalidateUser("user1");
+        assertEquals(1, pool.getSize());
+        assertFalse(first.live);
+
+        // a resolver in use is not put back after invalidation
+        lease = pool.acquire("key2", "user2", -1);
+        assertSame(second.proxy, lease.getResolver());
+        pool.invalidateAll();
+        pool.release(lease);
+        assertEquals(0, pool.getSize());
+        assertFalse(second.live);
+    }
+
+    private static final class TestResolver implements InvocationHandler {
+
+        final ResourceResolver proxy = (ResourceResolver) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { ResourceResolver.class }, this);
+
+        boolean live = true;
+
+        boolean hasChanges;
+
+        int refreshed;
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final String name = method.getName();
+            if ("isLive".equals(name)) {
+                return live;
+            } else if ("hasChanges".equals(name)) {
+                return hasChanges;
+            } else if ("refresh".equals(name)) {
+                refreshed++;
+            } else if ("close".equals(name)) {
+                live = false;
+            }
+            return null;
+        }
+    }
+}
@@ -247,6 +247,21 @@ public class FormAuthenticationHandler extends DefaultAuthenticationFeedbackHand
      */
     private static final long MINUTES = 60L * 1000L;
 
+    /**
+     * Key in the AuthenticationInfo map identifying the validated auth data
+     * to allow the authenticator to reuse resource resolvers. This is the
+     * value of <code>AuthConstants.AUTH_INFO_REUSE_KEY</code> (Auth Core 1.3)
+     * which is not referenced directly to stay compatible with older Auth
+     * Core bundles which just ignore it.
+     */
+    private static final String AUTH_INFO_REUSE_KEY = "$$auth.info.reuse.key$$";
+
+    /**
+     * Key in the AuthenticationInfo map containing the expiry time of the
+     * auth data, the value of <code>AuthConstants.AUTH_INFO_REUSE_EXPIRES</code>.
+     */
+    private static final String AUTH_INFO_REUSE_EXPIRES = "$$auth.info.reuse.expires$$";
+
     /** default log */
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -625,6 +640,14 @@ public class FormAuthenticationHandler extends DefaultAuthenticationFeedbackHand
             HttpServletRequest.FORM_AUTH, userId);
         info.put(attrCookieAuthData, authData);
 
+        // the auth data has been validated and may be used to reuse a
+        // resource resolver until it expires
+        info.put(AUTH_INFO_REUSE_KEY, authData);
+        final long expires = getExpires(authData);
+        if (expires > 0) {
+            info.put(AUTH_INFO_REUSE_EXPIRES, expires);
+        }
+
         return info;
     }
 
@@ -750,6 +773,9 @@ public class FormAuthenticationHandler extends DefaultAuthenticationFeedbackHand
             loginModule.unregister();
             loginModule = null;
         }
+        if (tokenStore != null) {
+            tokenStore.flush();
+        }
     }
 
     /**
@@ -806,6 +832,22 @@ public class FormAuthenticationHandler extends DefaultAuthenticationFeedbackHand
         return null;
     }
 
+    /**
+     * Returns the expiry time encoded in the authentication data or -1 if
+     * the authentication data cannot be parsed.
+     */
+    private long getExpires(final String authData) {
+        final String[] parts = TokenStore.split(authData);
+        if (parts != null && parts.length == 3 && parts[1].length() > 1) {
+            try {
+                return Long.parseLong(parts[1].substring(1));
+            } catch (final NumberFormatException nfe) {
+                // not expected for valid auth data
+            }
+        }
+        return -1;
+    }
+
     /**
      * Refresh the cookie periodically.
      *
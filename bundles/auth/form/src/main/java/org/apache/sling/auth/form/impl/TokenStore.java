@@ -28,6 +28,11 @@ import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -40,6 +45,12 @@ import org.slf4j.LoggerFactory;
  * The <code>TokenStore</code> class provides the secure token hash
  * implementation used by the {@link FormAuthenticationHandler} to generate,
  * validate and persist secure tokens.
+ * <p>
+ * The secret keys are kept in an immutable {@link Keys} snapshot which is
+ * replaced atomically when a new key is created, so encoding and
+ * validating tokens does not need to synchronize. Initialized
+ * <code>Mac</code> instances are pooled per secret key and new keys are
+ * written to the token file in the background.
  */
 class TokenStore {
 
@@ -65,7 +76,7 @@ class TokenStore {
      */
     private static final String UTF_8 = "UTF-8";
 
-    /** The number of secret keys in the token buffer currentTokens */
+    /** The number of secret keys in the ring of tokens */
     private static final int TOKEN_BUFFER_SIZE = 5;
 
     public final Logger log = LoggerFactory.getLogger(TokenStore.class);
@@ -76,19 +87,14 @@ class TokenStore {
     private final long ttl;
 
     /**
-     * The time when a new token should be created.
-     */
-    private long nextUpdate = System.currentTimeMillis();
-
-    /**
-     * The location of the current token.
+     * The current ring of secret keys.
      */
-    private volatile int currentToken = 0;
+    private final AtomicReference<Keys> keys = new AtomicReference<Keys>();
 
     /**
-     * A ring of tokens used to encrypt.
+     * Set while the secret keys are scheduled to be written to the token file.
      */
-    private volatile SecretKey[] currentTokens;
+    private final AtomicBoolean savePending = new AtomicBoolean();
 
     /**
      * A secure random used for generating new tokens.
@@ -158,23 +164,26 @@ class TokenStore {
     String encode(final long expires, final String userId)
             throws IllegalStateException, UnsupportedEncodingException,
             NoSuchAlgorithmException, InvalidKeyException {
-        int token = getActiveToken();
-        SecretKey key = currentTokens[token];
-        return encode(expires, userId, token, key);
+        final Keys active = getActiveKeys();
+        final int token = active.current;
+        return encode(expires, userId, token, active.keys[token]);
     }
 
     private String encode(final long expires, final String userId,
-            final int token, final SecretKey key) throws IllegalStateException,
+            final int token, final Key key) throws IllegalStateException,
             UnsupportedEncodingException, NoSuchAlgorithmException,
             InvalidKeyException {
 
         String cookiePayload = String.valueOf(token) + String.valueOf(expires)
             + "@" + userId;
-        Mac m = Mac.getInstance(HMAC_SHA1);
-        m.init(key);
-        m.update(cookiePayload.getBytes(UTF_8));
-        String cookieValue = byteToHex(m.doFinal());
-        return cookieValue + "@" + cookiePayload;
+        final Mac m = key.getMac();
+        try {
+            m.update(cookiePayload.getBytes(UTF_8));
+            String cookieValue = byteToHex(m.doFinal());
+            return cookieValue + "@" + cookiePayload;
+        } finally {
+            key.releaseMac(m);
+        }
     }
 
     /**
@@ -214,17 +223,20 @@ class TokenStore {
         if (parts != null) {
 
             // single digit token number
+            final Key[] currentKeys = keys.get().keys;
             int tokenNumber = parts[1].charAt(0) - '0';
-            if (tokenNumber >= 0 && tokenNumber < currentTokens.length) {
+            if (tokenNumber >= 0 && tokenNumber < currentKeys.length) {
 
                 long cookieTime = Long.parseLong(parts[1].substring(1));
                 if (System.currentTimeMillis() < cookieTime) {
 
                     try {
-                        SecretKey secretKey = currentTokens[tokenNumber];
-                        String hmac = encode(cookieTime, parts[2], tokenNumber,
-                            secretKey);
-                        return value.equals(hmac);
+                        final Key secretKey = currentKeys[tokenNumber];
+                        if (secretKey != null) {
+                            String hmac = encode(cookieTime, parts[2], tokenNumber,
+                                secretKey);
+                            return value.equals(hmac);
+                        }
                     } catch (ArrayIndexOutOfBoundsException e) {
                         log.error(e.getMessage(), e);
                     } catch (InvalidKeyException e) {
@@ -260,35 +272,75 @@ class TokenStore {
 
     /**
      * Maintain a circular buffer to tokens, and return the current one.
+     * A new secret key is created once the current key is due to be
+     * replaced. If several threads find the key to be due at the same time
+     * only one of them succeeds in replacing the ring of keys, the others
+     * use the new ring.
      *
-     * @return the current token.
+     * @return the current ring of keys.
      */
-    private synchronized int getActiveToken() {
-        if (System.currentTimeMillis() > nextUpdate
-            || currentTokens[currentToken] == null) {
+    private Keys getActiveKeys() throws NoSuchAlgorithmException,
+            InvalidKeyException {
+        while (true) {
+            final Keys active = keys.get();
+            if (System.currentTimeMillis() <= active.nextUpdate
+                && active.keys[active.current] != null) {
+                return active;
+            }
+
             // cycle so that during a typical ttl the tokens get completely
             // refreshed.
-            nextUpdate = System.currentTimeMillis() + ttl
-                / (currentTokens.length - 1);
+            final long newNextUpdate = System.currentTimeMillis() + ttl
+                / (active.keys.length - 1);
             byte[] b = new byte[20];
             random.nextBytes(b);
 
-            SecretKey newToken = new SecretKeySpec(b, HMAC_SHA1);
-            int nextToken = currentToken + 1;
-            if (nextToken == currentTokens.length) {
+            final Key[] newKeys = active.keys.clone();
+            int nextToken = active.current + 1;
+            if (nextToken == newKeys.length) {
                 nextToken = 0;
             }
-            currentTokens[nextToken] = newToken;
-            currentToken = nextToken;
+            newKeys[nextToken] = new Key(new SecretKeySpec(b, HMAC_SHA1));
+            final Keys rotated = new Keys(newKeys, nextToken, newNextUpdate);
+            if (keys.compareAndSet(active, rotated)) {
+                scheduleSave();
+                return rotated;
+            }
+        }
+    }
+
+    /**
+     * Schedules writing the current set of tokens to the token file in the
+     * background. Key rotations happening before the write starts are
+     * written together.
+     */
+    private void scheduleSave() {
+        if (savePending.compareAndSet(false, true)) {
+            final Thread writer = new Thread("Apache Sling Form Authentication Token Writer") {
+                @Override
+                public void run() {
+                    flush();
+                }
+            };
+            writer.start();
+        }
+    }
+
+    /**
+     * Writes pending changes of the tokens to the token file. Returns once
+     * a write of the tokens in progress has finished.
+     */
+    synchronized void flush() {
+        if (savePending.compareAndSet(true, false)) {
             saveTokens();
         }
-        return currentToken;
     }
 
     /**
      * Stores the current set of tokens to the token file
      */
     private void saveTokens() {
+        final Keys current = keys.get();
         FileOutputStream fout = null;
         DataOutputStream keyOutputStream = null;
         try {
@@ -299,14 +351,14 @@ class TokenStore {
             }
             fout = new FileOutputStream(tmpTokenFile);
             keyOutputStream = new DataOutputStream(fout);
-            keyOutputStream.writeInt(currentToken);
-            keyOutputStream.writeLong(nextUpdate);
-            for (int i = 0; i < currentTokens.length; i++) {
-                if (currentTokens[i] == null) {
+            keyOutputStream.writeInt(current.current);
+            keyOutputStream.writeLong(current.nextUpdate);
+            for (int i = 0; i < current.keys.length; i++) {
+                if (current.keys[i] == null) {
                     keyOutputStream.writeInt(0);
                 } else {
                     keyOutputStream.writeInt(1);
-                    byte[] b = currentTokens[i].getEncoded();
+                    byte[] b = current.keys[i].secretKey.getEncoded();
                     keyOutputStream.writeInt(b.length);
                     keyOutputStream.write(b);
                 }
@@ -342,23 +394,21 @@ class TokenStore {
                 keyInputStream = new DataInputStream(fin);
                 int newCurrentToken = keyInputStream.readInt();
                 long newNextUpdate = keyInputStream.readLong();
-                SecretKey[] newKeys = new SecretKey[TOKEN_BUFFER_SIZE];
+                Key[] newKeys = new Key[TOKEN_BUFFER_SIZE];
                 for (int i = 0; i < newKeys.length; i++) {
                     int isNull = keyInputStream.readInt();
                     if (isNull == 1) {
                         int l = keyInputStream.readInt();
                         byte[] b = new byte[l];
                         keyInputStream.read(b);
-                        newKeys[i] = new SecretKeySpec(b, HMAC_SHA1);
+                        newKeys[i] = new Key(new SecretKeySpec(b, HMAC_SHA1));
                     } else {
                         newKeys[i] = null;
                     }
                 }
 
                 // assign the tokes and schedule a next update
-                nextUpdate = newNextUpdate;
-                currentToken = newCurrentToken;
-                currentTokens = newKeys;
+                keys.set(new Keys(newKeys, newCurrentToken, newNextUpdate));
 
             } catch (IOException e) {
 
@@ -381,10 +431,9 @@ class TokenStore {
         }
 
         // if there was a failure to read the current tokens, create new ones
-        if (currentTokens == null) {
-            currentTokens = new SecretKey[TOKEN_BUFFER_SIZE];
-            nextUpdate = System.currentTimeMillis();
-            currentToken = 0;
+        if (keys.get() == null) {
+            keys.set(new Keys(new Key[TOKEN_BUFFER_SIZE], 0,
+                System.currentTimeMillis()));
         }
     }
 
@@ -465,4 +514,54 @@ class TokenStore {
             value >>= 8;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * An immutable ring of secret keys with the current key and the time a
+     * new key should be created.
+     */
+    private static final class Keys {
+
+        final Key[] keys;
+
+        final int current;
+
+        final long nextUpdate;
+
+        Keys(final Key[] keys, final int current, final long nextUpdate) {
+            this.keys = keys;
+            this.current = current;
+            this.nextUpdate = nextUpdate;
+        }
+    }
+
+    /**
+     * A secret key with a pool of <code>Mac</code> instances initialized
+     * with the key. The pool grows to the number of threads concurrently
+     * using the key.
+     */
+    private static final class Key {
+
+        final SecretKey secretKey;
+
+        private final Queue<Mac> macs = new ConcurrentLinkedQueue<Mac>();
+
+        Key(final SecretKey secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        Mac getMac() throws NoSuchAlgorithmException, InvalidKeyException {
+            Mac m = macs.poll();
+            if (m == null) {
+                m = Mac.getInstance(HMAC_SHA1);
+                m.init(secretKey);
+            }
+            return m;
+        }
+
+        void releaseMac(final Mac m) {
+            // make sure no partial data is left over on failures
+            m.reset();
+            macs.offer(m);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.form.impl;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Measures the throughput of encoding and validating tokens with a number
+ * of concurrent threads.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=TokenStoreBenchmark</code>.
+ */
+public class TokenStoreBenchmark {
+
+    private static final int THREADS = 8;
+
+    private static final int WARMUP = 20000;
+
+    private static final int RUNS = 100000;
+
+    @Test
+    public void test_encode_isValid() throws Exception {
+        final File tokenFile = File.createTempFile("tokenstore", ".bin");
+        tokenFile.delete();
+        try {
+            final TokenStore store = new TokenStore(tokenFile, 60000, true);
+            final long expires = System.currentTimeMillis() + 60000;
+            assertTrue(store.isValid(store.encode(expires, "admin")));
+
+            run(store, expires, WARMUP);
+            final long start = System.nanoTime();
+            run(store, expires, RUNS);
+            final long time = System.nanoTime() - start;
+
+            System.out.println("TokenStore with " + THREADS + " threads: "
+                + (THREADS * RUNS * 1000000000L / time) + " encode/isValid pairs/sec");
+        } finally {
+            tokenFile.delete();
+        }
+    }
+
+    private void run(final TokenStore store, final long expires, final int runs) throws InterruptedException {
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            final String userId = "user" + i;
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < runs; j++) {
+                            store.isValid(store.encode(expires, userId));
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+    }
+}
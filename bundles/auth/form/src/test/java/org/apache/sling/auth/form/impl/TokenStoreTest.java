@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.form.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenStoreTest {
+
+    private File tokenFile;
+
+    @Before
+    public void setup() throws IOException {
+        tokenFile = File.createTempFile("tokenstore", ".bin");
+        tokenFile.delete();
+    }
+
+    @After
+    public void teardown() {
+        tokenFile.delete();
+        new File(tokenFile + ".tmp").delete();
+    }
+
+    @Test
+    public void test_encode_isValid() throws Exception {
+        final TokenStore store = new TokenStore(tokenFile, 60000, true);
+        final long expires = System.currentTimeMillis() + 60000;
+        final String token = store.encode(expires, "admin");
+
+        assertTrue(store.isValid(token));
+        assertFalse(store.isValid(token.replace("@admin", "@anonymous")));
+        assertFalse(store.isValid("x" + token));
+        assertFalse(store.isValid(store.encode(System.currentTimeMillis() - 1, "admin")));
+    }
+
+    @Test
+    public void test_persisted_tokens() throws Exception {
+        final TokenStore store = new TokenStore(tokenFile, 60000, true);
+        final String token = store.encode(System.currentTimeMillis() + 60000, "admin");
+        store.flush();
+
+        final TokenStore reloaded = new TokenStore(tokenFile, 60000, true);
+        assertTrue(reloaded.isValid(token));
+    }
+
+    @Test
+    public void test_concurrent_encode() throws Exception {
+        final TokenStore store = new TokenStore(tokenFile, 60000, true);
+        final long expires = System.currentTimeMillis() + 60000;
+        final AtomicInteger valid = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final String userId = "user" + i;
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++) {
+                            if (store.isValid(store.encode(expires, userId))) {
+                                valid.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        // counted as invalid
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        assertEquals(400, valid.get());
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A JSONPullParser reads a JSON text from a {@link Reader} one token at a
+ * time. Unlike the {@link JSONTokener}, which needs the complete text as a
+ * string and is used to build the complete {@link JSONObject} or
+ * {@link JSONArray}, the pull parser only keeps the current token and the
+ * nesting of the enclosing objects and arrays in memory. This allows to
+ * process large JSON texts, for example content imports, incrementally.
+ * <p>
+ * Each call of {@link #next()} returns the next {@link Event}. The name of a
+ * key is available through {@link #getKey()} after a {@link Event#KEY} event,
+ * a value through {@link #getValue()} after a {@link Event#VALUE} event. Small
+ * subtrees can be read completely with {@link #readValue()}.
+ * <p>
+ * The parser accepts the same non-standard forms as the {@link JSONTokener}:
+ * comments, single quoted and unquoted strings, <code>=</code> and
+ * <code>=&gt;</code> after keys, <code>;</code> as separator and trailing
+ * separators. Values are converted in the same way.
+ * <p>
+ * The parser does not close the reader.
+ */
+public class JSONPullParser {
+
+    /**
+     * The events reported by {@link JSONPullParser#next()}.
+     */
+    public enum Event {
+        /** The start of an object, <code>{</code> */
+        START_OBJECT,
+        /** The end of an object, <code>}</code> */
+        END_OBJECT,
+        /** The start of an array, <code>[</code> */
+        START_ARRAY,
+        /** The end of an array, <code>]</code> */
+        END_ARRAY,
+        /** The key of an object member, followed by the events of its value */
+        KEY,
+        /** A value which is neither an object nor an array */
+        VALUE,
+        /** The end of the JSON text */
+        END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int bufferIndex;
+
+    private int bufferLength;
+
+    /** The number of characters read, for error messages */
+    private long character;
+
+    /** The last character returned by {@link #nextChar()} */
+    private char previous;
+
+    /** Whether {@link #nextChar()} has to return the previous character again */
+    private boolean usePrevious;
+
+    /** The enclosing objects and arrays, <code>{</code> or <code>[</code> */
+    private char[] stack = new char[16];
+
+    private int depth;
+
+    /** Whether no member or element of the current object or array has been read yet */
+    private boolean first;
+
+    /** Whether the value of the current key has to be read next */
+    private boolean afterKey;
+
+    private boolean started;
+
+    private Event event;
+
+    private String key;
+
+    private Object value;
+
+    /**
+     * Construct a JSONPullParser reading from a reader. The reader does not
+     * need to be buffered.
+     *
+     * @param reader The reader providing the JSON text.
+     */
+    public JSONPullParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next token.
+     *
+     * @return The event for the token, {@link Event#END_DOCUMENT} once the
+     *         outermost value has been read.
+     * @throws JSONException If there is a syntax error or the reader fails.
+     */
+    public Event next() throws JSONException {
+        this.key = null;
+        this.value = null;
+        if (this.depth == 0) {
+            if (this.started) {
+                return setEvent(Event.END_DOCUMENT);
+            }
+            this.started = true;
+            final char c = nextClean();
+            if (c == 0) {
+                throw syntaxError("A JSON text must not be empty");
+            }
+            return startValue(c);
+        }
+        if (this.afterKey) {
+            this.afterKey = false;
+            return startValue(nextClean());
+        }
+
+        final boolean inObject = this.stack[this.depth - 1] == '{';
+        final char end = inObject ? '}' : ']';
+        char c = nextClean();
+        if (this.first) {
+            this.first = false;
+            if (c == end) {
+                return endContainer();
+            }
+        } else if (c == ',' || c == ';') {
+            c = nextClean();
+            if (c == end) {
+                return endContainer();
+            }
+        } else if (c == end) {
+            return endContainer();
+        } else {
+            throw syntaxError("Expected a ',' or '" + end + "'");
+        }
+
+        if (!inObject) {
+            if (c == ',') {
+                // an omitted element is null
+                back();
+                return setEvent(Event.VALUE);
+            }
+            return startValue(c);
+        }
+
+        if (c == 0) {
+            throw syntaxError("A JSONObject text must end with '}'");
+        }
+        if (c == '{' || c == '[') {
+            throw syntaxError("Expected a key");
+        }
+        this.key = nextScalar(c).toString();
+
+        // the key is followed by ':', we also tolerate '=' or '=>'
+        c = nextClean();
+        if (c == '=') {
+            if (nextChar() != '>') {
+                back();
+            }
+        } else if (c != ':') {
+            throw syntaxError("Expected a ':' after a key");
+        }
+        this.afterKey = true;
+        return setEvent(Event.KEY);
+    }
+
+    /**
+     * Returns the event returned by the last call of {@link #next()} or
+     * <code>null</code> if {@link #next()} has not been called yet.
+     */
+    public Event getEvent() {
+        return this.event;
+    }
+
+    /**
+     * Returns the key after a {@link Event#KEY} event, <code>null</code>
+     * otherwise.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the value after a {@link Event#VALUE} event: a Boolean, Double,
+     * Integer, Long, String, the {@link JSONObject#NULL} object or
+     * <code>null</code> for an omitted array element.
+     */
+    public Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns the number of objects and arrays enclosing the current token.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Read the value started by the current event completely. For a
+     * {@link Event#VALUE} event this is the value, for a
+     * {@link Event#START_OBJECT} or {@link Event#START_ARRAY} event the
+     * object or array is read up to its end and returned as a
+     * {@link JSONObject} or {@link JSONArray}.
+     *
+     * @return The value.
+     * @throws JSONException If there is a syntax error or the current event
+     *             does not start a value.
+     */
+    public Object readValue() throws JSONException {
+        switch (this.event) {
+        case VALUE:
+            return this.value;
+        case START_OBJECT:
+            final JSONObject object = new JSONObject();
+            while (next() != Event.END_OBJECT) {
+                final String k = this.key;
+                next();
+                object.put(k, readValue());
+            }
+            return object;
+        case START_ARRAY:
+            final JSONArray array = new JSONArray();
+            while (next() != Event.END_ARRAY) {
+                array.put(readValue());
+            }
+            return array;
+        default:
+            throw syntaxError("Expected a value instead of " + this.event);
+        }
+    }
+
+    /**
+     * Read the next value completely, see {@link #readValue()}.
+     *
+     * @return The value.
+     * @throws JSONException If there is a syntax error.
+     */
+    public Object nextValue() throws JSONException {
+        next();
+        return readValue();
+    }
+
+    /**
+     * Make a JSONException to signal a syntax error.
+     *
+     * @param message The error message.
+     * @return  A JSONException object, suitable for throwing
+     */
+    public JSONException syntaxError(String message) {
+        return new JSONException(message + toString());
+    }
+
+    /**
+     * Make a printable string of this JSONPullParser.
+     *
+     * @return " at character [number of characters read]"
+     */
+    @Override
+    public String toString() {
+        return " at character " + this.character;
+    }
+
+    // ---------- internal -----------------------------------------------------
+
+    private Event setEvent(final Event e) {
+        this.event = e;
+        return e;
+    }
+
+    private Event startValue(final char c) throws JSONException {
+        if (c == '{' || c == '[') {
+            if (this.depth == this.stack.length) {
+                final char[] newStack = new char[this.stack.length * 2];
+                System.arraycopy(this.stack, 0, newStack, 0, this.depth);
+                this.stack = newStack;
+            }
+            this.stack[this.depth++] = c;
+            this.first = true;
+            return setEvent(c == '{' ? Event.START_OBJECT : Event.START_ARRAY);
+        }
+        this.value = nextScalar(c);
+        return setEvent(Event.VALUE);
+    }
+
+    private Event endContainer() {
+        this.depth--;
+        this.first = false;
+        return setEvent(this.stack[this.depth] == '{' ? Event.END_OBJECT : Event.END_ARRAY);
+    }
+
+    /**
+     * Read a string, boolean, null or number starting with the character,
+     * see {@link JSONTokener#nextValue()}.
+     */
+    private Object nextScalar(char c) throws JSONException {
+        if (c == '"' || c == '\'') {
+            return nextString(c);
+        }
+
+        // accumulate characters until we reach the end of the text or a
+        // formatting character.
+        final StringBuilder sb = new StringBuilder();
+        final char b = c;
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            sb.append(c);
+            c = nextChar();
+        }
+        back();
+
+        final String s = sb.toString().trim();
+        if (s.equals("")) {
+            throw syntaxError("Missing value.");
+        }
+        if (s.equalsIgnoreCase("true")) {
+            return Boolean.TRUE;
+        }
+        if (s.equalsIgnoreCase("false")) {
+            return Boolean.FALSE;
+        }
+        if (s.equalsIgnoreCase("null")) {
+            return JSONObject.NULL;
+        }
+
+        if ((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+') {
+            if (b == '0') {
+                if (s.length() > 2 &&
+                        (s.charAt(1) == 'x' || s.charAt(1) == 'X')) {
+                    try {
+                        return new Integer(Integer.parseInt(s.substring(2), 16));
+                    } catch (Exception e) {
+                        /* Ignore the error */
+                    }
+                } else {
+                    try {
+                        return new Integer(Integer.parseInt(s, 8));
+                    } catch (Exception e) {
+                        /* Ignore the error */
+                    }
+                }
+            }
+            try {
+                return new Integer(s);
+            } catch (Exception e) {
+                try {
+                    return new Long(s);
+                } catch (Exception f) {
+                    try {
+                        return new Double(s);
+                    }  catch (Exception g) {
+                        return s;
+                    }
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Return the characters up to the next close quote character,
+     * see {@link JSONTokener#nextString(char)}.
+     */
+    private String nextString(final char quote) throws JSONException {
+        final StringBuilder sb = new StringBuilder();
+        for (;;) {
+            char c = nextChar();
+            switch (c) {
+            case 0:
+            case '\n':
+            case '\r':
+                throw syntaxError("Unterminated string");
+            case '\\':
+                c = nextChar();
+                switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(nextChars(4), 16));
+                    break;
+                case 'x' :
+                    sb.append((char) Integer.parseInt(nextChars(2), 16));
+                    break;
+                default:
+                    sb.append(c);
+                }
+                break;
+            default:
+                if (c == quote) {
+                    return sb.toString();
+                }
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Get the next char, skipping whitespace and comments (slashslash,
+     * slashstar, and hash), see {@link JSONTokener#nextClean()}.
+     */
+    private char nextClean() throws JSONException {
+        for (;;) {
+            char c = nextChar();
+            if (c == '/') {
+                switch (nextChar()) {
+                case '/':
+                    do {
+                        c = nextChar();
+                    } while (c != '\n' && c != '\r' && c != 0);
+                    break;
+                case '*':
+                    for (;;) {
+                        c = nextChar();
+                        if (c == 0) {
+                            throw syntaxError("Unclosed comment.");
+                        }
+                        if (c == '*') {
+                            if (nextChar() == '/') {
+                                break;
+                            }
+                            back();
+                        }
+                    }
+                    break;
+                default:
+                    back();
+                    return '/';
+                }
+            } else if (c == '#') {
+                do {
+                    c = nextChar();
+                } while (c != '\n' && c != '\r' && c != 0);
+            } else if (c == 0 || c > ' ') {
+                return c;
+            }
+        }
+    }
+
+    private String nextChars(final int n) throws JSONException {
+        final char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            chars[i] = nextChar();
+            if (chars[i] == 0) {
+                throw syntaxError("Substring bounds error");
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Get the next character or 0 at the end of the text.
+     */
+    private char nextChar() throws JSONException {
+        if (this.usePrevious) {
+            this.usePrevious = false;
+            return this.previous;
+        }
+        if (this.bufferIndex == this.bufferLength) {
+            try {
+                this.bufferLength = this.reader.read(this.buffer);
+            } catch (final IOException ioe) {
+                throw new JSONException(ioe);
+            }
+            this.bufferIndex = 0;
+            if (this.bufferLength <= 0) {
+                this.bufferLength = 0;
+                this.previous = 0;
+                return 0;
+            }
+        }
+        this.character++;
+        this.previous = this.buffer[this.bufferIndex++];
+        return this.previous;
+    }
+
+    /**
+     * Back up one character, the next call of {@link #nextChar()} returns
+     * the last character again.
+     */
+    private void back() {
+        this.usePrevious = true;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.apache.sling.commons.json.JSONPullParser.Event;
+import org.junit.Test;
+
+public class JSONPullParserTest {
+
+    private JSONPullParser parser(String json) {
+        return new JSONPullParser(new StringReader(json));
+    }
+
+    private void assertEvent(JSONPullParser p, Event expected) throws JSONException {
+        assertEquals(expected, p.next());
+    }
+
+    @Test
+    public void testEvents() throws JSONException {
+        final JSONPullParser p = parser("{\"a\":1, \"b\":[true, \"x\"], \"c\":{}}");
+        assertEvent(p, Event.START_OBJECT);
+        assertEvent(p, Event.KEY);
+        assertEquals("a", p.getKey());
+        assertEvent(p, Event.VALUE);
+        assertEquals(1, p.getValue());
+        assertEvent(p, Event.KEY);
+        assertEquals("b", p.getKey());
+        assertEvent(p, Event.START_ARRAY);
+        assertEquals(2, p.getDepth());
+        assertEvent(p, Event.VALUE);
+        assertEquals(Boolean.TRUE, p.getValue());
+        assertEvent(p, Event.VALUE);
+        assertEquals("x", p.getValue());
+        assertEvent(p, Event.END_ARRAY);
+        assertEvent(p, Event.KEY);
+        assertEquals("c", p.getKey());
+        assertEvent(p, Event.START_OBJECT);
+        assertEvent(p, Event.END_OBJECT);
+        assertEvent(p, Event.END_OBJECT);
+        assertEquals(0, p.getDepth());
+        assertEvent(p, Event.END_DOCUMENT);
+    }
+
+    @Test
+    public void testValues() throws JSONException {
+        final JSONPullParser p = parser("[12, 12345678901, 1.5, 0x1F, null, 'single', unquoted, \"\\u0041\\n\"]");
+        assertEvent(p, Event.START_ARRAY);
+        final Object[] expected = new Object[] {12, 12345678901L, 1.5, 31, JSONObject.NULL, "single", "unquoted", "A\n"};
+        for (Object value : expected) {
+            assertEvent(p, Event.VALUE);
+            assertEquals(value, p.getValue());
+        }
+        assertEvent(p, Event.END_ARRAY);
+    }
+
+    @Test
+    public void testLenientSyntax() throws JSONException {
+        final String json = "# comment\n{ a = 1; 'b' => [1,,2,], /* c */ c: {d: x}, }";
+        final Object value = parser(json).nextValue();
+        assertEquals(new JSONObject(json).toString(), value.toString());
+    }
+
+    @Test
+    public void testReadValue() throws JSONException {
+        final JSONPullParser p = parser("{\"acl\":[{\"principal\":\"everyone\",\"granted\":[\"jcr:read\"]}],\"p\":1}");
+        assertEvent(p, Event.START_OBJECT);
+        assertEvent(p, Event.KEY);
+        assertEvent(p, Event.START_ARRAY);
+        final JSONArray acl = (JSONArray) p.readValue();
+        assertEquals("everyone", acl.getJSONObject(0).getString("principal"));
+        assertEquals("jcr:read", acl.getJSONObject(0).getJSONArray("granted").getString(0));
+        assertEvent(p, Event.KEY);
+        assertEquals("p", p.getKey());
+        assertNull(p.getValue());
+        assertEquals(1, p.nextValue());
+        assertEvent(p, Event.END_OBJECT);
+    }
+
+    @Test
+    public void testLargeDocument() throws JSONException {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            sb.append("{\"name\":\"node").append(i).append("\"},");
+        }
+        sb.append("]");
+        final JSONPullParser p = parser(sb.toString());
+        assertEvent(p, Event.START_ARRAY);
+        int count = 0;
+        while (p.next() == Event.START_OBJECT) {
+            assertEquals("node" + count, ((JSONObject) p.readValue()).getString("name"));
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(Event.END_ARRAY, p.getEvent());
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        for (String json : new String[] {"", "{\"a\" 1}", "{\"a\":1", "{\"a\":}", "[1, 2", "{[1]:2}", "'unterminated"}) {
+            try {
+                parser(json).nextValue();
+                fail("Expected syntax error for " + json);
+            } catch (JSONException expected) {
+                // expected
+            }
+        }
+    }
+}
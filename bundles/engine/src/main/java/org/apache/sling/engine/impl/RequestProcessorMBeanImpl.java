@@ -28,174 +28,151 @@ import org.apache.sling.engine.jmx.RequestProcessorMBean;
  */
 class RequestProcessorMBeanImpl extends StandardMBean implements RequestProcessorMBean {
 
-    // number of requests
-    private volatile long n;
+    /** The window of the percentiles */
+    private static final long WINDOW_MSEC = 60 * 1000;
 
-    // shortest request
-    private volatile long durationMsecMin;
+    /** The number of slots of the percentile window */
+    private static final int WINDOW_SLOTS = 6;
 
-    // longest request
-    private volatile long durationMsecMax;
+    private final StripedStatistics durationMsec = new StripedStatistics();
 
-    // sum of request durations
-    private volatile double durationMsecSumX;
+    private final StripedStatistics servletCallCount = new StripedStatistics();
 
-    // sum of squared request durations
-    private volatile double durationMsecSumX2;
+    private final StripedStatistics peakRecursionDepth = new StripedStatistics();
 
-    private volatile int servletCallCountMin;
+    private final SlidingWindowHistogram durationMsecHistogram = new SlidingWindowHistogram(WINDOW_MSEC, WINDOW_SLOTS);
 
-    private volatile int servletCallCountMax;
+    private final SlidingWindowHistogram servletCallCountHistogram = new SlidingWindowHistogram(WINDOW_MSEC, WINDOW_SLOTS);
 
-    private volatile double servletCallCountSumX;
-
-    private volatile double servletCallCountSumX2;
-
-    private volatile int peakRecursionDepthMin;
-
-    private volatile int peakRecursionDepthMax;
-
-    private volatile double peakRecursionDepthSumX;
-
-    private volatile double peakRecursionDepthSumX2;
+    private final SlidingWindowHistogram peakRecursionDepthHistogram = new SlidingWindowHistogram(WINDOW_MSEC, WINDOW_SLOTS);
 
     RequestProcessorMBeanImpl() throws NotCompliantMBeanException {
         super(RequestProcessorMBean.class);
         resetStatistics();
     }
 
-    synchronized void addRequestData(final RequestData data) {
-        this.n++;
-        
+    void addRequestData(final RequestData data) {
         final long duration = data.getElapsedTimeMsec();
         final int servletCallCount = data.getServletCallCount();
         final int peakRecursionDepth = data.getPeakRecusionDepth();
 
-        if (duration < this.durationMsecMin) {
-            this.durationMsecMin = duration;
-        }
-        if (duration > this.durationMsecMax) {
-            this.durationMsecMax = duration;
-        }
-
-        this.durationMsecSumX += duration;
-        this.durationMsecSumX2 += (duration * duration);
-        
-        if (servletCallCount < this.servletCallCountMin) {
-            this.servletCallCountMin = servletCallCount;
-        }
-        if (servletCallCount > this.servletCallCountMax) {
-            this.servletCallCountMax = servletCallCount;
-        }
-        this.servletCallCountSumX += servletCallCount;
-        this.servletCallCountSumX2 += (servletCallCount * servletCallCount);
-        
-        if (peakRecursionDepth < this.peakRecursionDepthMin) {
-            this.peakRecursionDepthMin = peakRecursionDepth;
-        }
-        if (peakRecursionDepth > this.peakRecursionDepthMax) {
-            this.peakRecursionDepthMax = peakRecursionDepth;
-        }
-        this.peakRecursionDepthSumX += peakRecursionDepth;
-        this.peakRecursionDepthSumX2 += (peakRecursionDepth * peakRecursionDepth);
+        this.durationMsec.addValue(duration);
+        this.servletCallCount.addValue(servletCallCount);
+        this.peakRecursionDepth.addValue(peakRecursionDepth);
+
+        final long now = System.currentTimeMillis();
+        this.durationMsecHistogram.record(duration, now);
+        this.servletCallCountHistogram.record(servletCallCount, now);
+        this.peakRecursionDepthHistogram.record(peakRecursionDepth, now);
     }
 
     public long getRequestsCount() {
-        return this.n;
+        return this.durationMsec.getCount();
     }
 
     public long getMinRequestDurationMsec() {
-        return this.durationMsecMin;
+        return this.durationMsec.getMin();
     }
 
     public long getMaxRequestDurationMsec() {
-        return this.durationMsecMax;
+        return this.durationMsec.getMax();
+    }
+
+    public double getStandardDeviationDurationMsec() {
+        return this.durationMsec.getStandardDeviation();
+    }
+
+    public double getMeanRequestDurationMsec() {
+        return this.durationMsec.getMean();
     }
 
-    public synchronized double getStandardDeviationDurationMsec() {
-        if (this.n > 1) {
-            // algorithm taken from
-            // http://de.wikipedia.org/wiki/Standardabweichung section
-            // "Berechnung fuer auflaufende Messwerte"
-            return Math.sqrt((this.durationMsecSumX2 - this.durationMsecSumX * this.durationMsecSumX / this.n) / (this.n - 1));
-        }
+    public long getRequestDurationMsecPercentile50() {
+        return this.durationMsecHistogram.getPercentile(0.5);
+    }
 
-        // single data point has no deviation
-        return 0;
+    public long getRequestDurationMsecPercentile95() {
+        return this.durationMsecHistogram.getPercentile(0.95);
     }
 
-    public synchronized double getMeanRequestDurationMsec() {
-        if (this.n > 0) {
-            return this.durationMsecSumX / this.n;
-        } else {
-            return 0;
-        }
+    public long getRequestDurationMsecPercentile99() {
+        return this.durationMsecHistogram.getPercentile(0.99);
     }
 
-    public synchronized void resetStatistics() {
-        this.durationMsecMin = Long.MAX_VALUE;
-        this.durationMsecMax = 0;
-        this.servletCallCountMin = Integer.MAX_VALUE;
-        this.servletCallCountMax = 0;
-        this.peakRecursionDepthMin = Integer.MAX_VALUE;
-        this.peakRecursionDepthMax = 0;
-        this.durationMsecSumX=0d;
-        this.durationMsecSumX2=0d;
-        this.peakRecursionDepthSumX=0d;
-        this.peakRecursionDepthSumX2=0d;
-        this.servletCallCountSumX=0d;
-        this.servletCallCountSumX2=0d;
-        this.n = 0;
+    public long getRequestDurationMsecPercentile999() {
+        return this.durationMsecHistogram.getPercentile(0.999);
+    }
+
+    public void resetStatistics() {
+        this.durationMsec.reset();
+        this.servletCallCount.reset();
+        this.peakRecursionDepth.reset();
+        this.durationMsecHistogram.reset();
+        this.servletCallCountHistogram.reset();
+        this.peakRecursionDepthHistogram.reset();
     }
 
     public int getMaxPeakRecursionDepth() {
-        return peakRecursionDepthMax;
+        return (int) this.peakRecursionDepth.getMax();
     }
 
     public int getMinPeakRecursionDepth() {
-        return peakRecursionDepthMin;
+        return (int) Math.min(Integer.MAX_VALUE, this.peakRecursionDepth.getMin());
     }
 
     public double getMeanPeakRecursionDepth() {
-        if (this.n > 0) {
-            return this.peakRecursionDepthSumX / this.n;
-        } else {
-            return 0;
-        }
+        return this.peakRecursionDepth.getMean();
     }
 
     public double getStandardDeviationPeakRecursionDepth() {
-        if (this.n > 1) {
-            return Math.sqrt((this.peakRecursionDepthSumX2 - this.peakRecursionDepthSumX * this.peakRecursionDepthSumX / this.n) / (this.n - 1));
-        }
+        return this.peakRecursionDepth.getStandardDeviation();
+    }
 
-        // single data point has no deviation
-        return 0;
+    public int getPeakRecursionDepthPercentile50() {
+        return (int) this.peakRecursionDepthHistogram.getPercentile(0.5);
+    }
+
+    public int getPeakRecursionDepthPercentile95() {
+        return (int) this.peakRecursionDepthHistogram.getPercentile(0.95);
+    }
+
+    public int getPeakRecursionDepthPercentile99() {
+        return (int) this.peakRecursionDepthHistogram.getPercentile(0.99);
+    }
+
+    public int getPeakRecursionDepthPercentile999() {
+        return (int) this.peakRecursionDepthHistogram.getPercentile(0.999);
     }
 
     public int getMaxServletCallCount() {
-        return this.servletCallCountMax;
+        return (int) this.servletCallCount.getMax();
     }
 
     public int getMinServletCallCount() {
-        return this.servletCallCountMin;
+        return (int) Math.min(Integer.MAX_VALUE, this.servletCallCount.getMin());
     }
 
     public double getMeanServletCallCount() {
-        if (this.n > 0) {
-            return this.servletCallCountSumX / this.n;
-        } else {
-            return 0;
-        }
+        return this.servletCallCount.getMean();
     }
 
     public double getStandardDeviationServletCallCount() {
-        if (this.n > 1) {
-            return Math.sqrt((this.servletCallCountSumX2 - this.servletCallCountSumX * this.servletCallCountSumX / this.n) / (this.n - 1));
-        }
+        return this.servletCallCount.getStandardDeviation();
+    }
+
+    public int getServletCallCountPercentile50() {
+        return (int) this.servletCallCountHistogram.getPercentile(0.5);
+    }
+
+    public int getServletCallCountPercentile95() {
+        return (int) this.servletCallCountHistogram.getPercentile(0.95);
+    }
+
+    public int getServletCallCountPercentile99() {
+        return (int) this.servletCallCountHistogram.getPercentile(0.99);
+    }
 
-        // single data point has no deviation
-        return 0;
+    public int getServletCallCountPercentile999() {
+        return (int) this.servletCallCountHistogram.getPercentile(0.999);
     }
 
 }
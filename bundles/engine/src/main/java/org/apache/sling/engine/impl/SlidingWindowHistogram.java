@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.engine.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The <code>SlidingWindowHistogram</code> records non-negative values into
+ * buckets of logarithmically growing width and provides percentiles of the
+ * values recorded within a sliding time window.
+ * <p>
+ * Values below 32 are recorded exactly. Larger values are recorded into one
+ * of 16 buckets per power of two, so a percentile is at most about 6% larger
+ * than the exact value.
+ * <p>
+ * The window is split into slots, each holding the counts of one period. A
+ * slot is cleared when it is reused for a new period, so the percentiles
+ * cover the values of the current and the previous periods of the window.
+ * Recording a value does not lock.
+ */
+class SlidingWindowHistogram {
+
+    /** Number of sub buckets per power of two */
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Values below this are recorded exactly */
+    private static final long LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+    private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private static final class Slot {
+
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        /** The period this slot currently records */
+        volatile long period = -1;
+    }
+
+    private final Slot[] slots;
+
+    private final long periodMillis;
+
+    /**
+     * @param windowMillis The length of the window in milliseconds
+     * @param slots The number of periods the window is split into
+     */
+    SlidingWindowHistogram(final long windowMillis, final int slots) {
+        this.periodMillis = Math.max(1, windowMillis / slots);
+        this.slots = new Slot[slots];
+        for (int i = 0; i < slots; i++) {
+            this.slots[i] = new Slot();
+        }
+    }
+
+    void record(final long value) {
+        record(value, System.currentTimeMillis());
+    }
+
+    void record(final long value, final long now) {
+        final long period = now / this.periodMillis;
+        final Slot slot = this.slots[(int) (period % this.slots.length)];
+        if (slot.period != period) {
+            synchronized (slot) {
+                if (slot.period != period) {
+                    for (int i = 0; i < BUCKETS; i++) {
+                        slot.counts.set(i, 0);
+                    }
+                    slot.period = period;
+                }
+            }
+        }
+        slot.counts.incrementAndGet(bucketIndex(Math.max(0, value)));
+    }
+
+    void reset() {
+        for (final Slot slot : this.slots) {
+            synchronized (slot) {
+                slot.period = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the value below or at which the given fraction of the values
+     * recorded within the window lie, or 0 if no value has been recorded.
+     *
+     * @param fraction The fraction, e.g. 0.99 for the 99th percentile
+     */
+    long getPercentile(final double fraction) {
+        return getPercentile(fraction, System.currentTimeMillis());
+    }
+
+    long getPercentile(final double fraction, final long now) {
+        final long period = now / this.periodMillis;
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (final Slot slot : this.slots) {
+            final long slotPeriod = slot.period;
+            if (slotPeriod > period - this.slots.length && slotPeriod <= period) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    final long count = slot.counts.get(i);
+                    counts[i] += count;
+                    total += count;
+                }
+            }
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(BUCKETS - 1);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        // value >> shift is in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >> shift);
+    }
+
+    /**
+     * Returns the highest value recorded into the bucket.
+     */
+    static long highestValue(final int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = ((long) (index % SUB_BUCKETS + SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.engine.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>StripedStatistics</code> collects the number, minimum, maximum,
+ * sum and sum of squares of a series of values without locking.
+ * <p>
+ * The number and sums are spread over a set of cells selected by the id of
+ * the calling thread, so concurrent threads usually update different cells.
+ * The minimum and maximum are only written if a new extreme value is
+ * found. Values read while values are added or while the statistics are
+ * reset are not guaranteed to be consistent with each other.
+ */
+class StripedStatistics {
+
+    private static final class Cell {
+
+        final AtomicLong count = new AtomicLong();
+
+        /** bits of the double sum */
+        final AtomicLong sum = new AtomicLong();
+
+        /** bits of the double sum of squares */
+        final AtomicLong sumSquares = new AtomicLong();
+
+        void reset() {
+            count.set(0);
+            sum.set(Double.doubleToRawLongBits(0d));
+            sumSquares.set(Double.doubleToRawLongBits(0d));
+        }
+    }
+
+    private final Cell[] cells;
+
+    private final int mask;
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong(0);
+
+    StripedStatistics() {
+        // the next power of two of twice the number of processors
+        int size = 1;
+        while (size < 2 * Runtime.getRuntime().availableProcessors()) {
+            size <<= 1;
+        }
+        this.cells = new Cell[size];
+        for (int i = 0; i < size; i++) {
+            this.cells[i] = new Cell();
+        }
+        this.mask = size - 1;
+    }
+
+    void addValue(final long value) {
+        final Cell cell = this.cells[(int) Thread.currentThread().getId() & this.mask];
+        cell.count.incrementAndGet();
+        add(cell.sum, value);
+        add(cell.sumSquares, (double) value * value);
+
+        long current = this.min.get();
+        while (value < current && !this.min.compareAndSet(current, value)) {
+            current = this.min.get();
+        }
+        current = this.max.get();
+        while (value > current && !this.max.compareAndSet(current, value)) {
+            current = this.max.get();
+        }
+    }
+
+    void reset() {
+        for (final Cell cell : this.cells) {
+            cell.reset();
+        }
+        this.min.set(Long.MAX_VALUE);
+        this.max.set(0);
+    }
+
+    long getCount() {
+        long count = 0;
+        for (final Cell cell : this.cells) {
+            count += cell.count.get();
+        }
+        return count;
+    }
+
+    long getMin() {
+        return this.min.get();
+    }
+
+    long getMax() {
+        return this.max.get();
+    }
+
+    double getMean() {
+        long n = 0;
+        double sumX = 0;
+        for (final Cell cell : this.cells) {
+            n += cell.count.get();
+            sumX += Double.longBitsToDouble(cell.sum.get());
+        }
+        if (n > 0) {
+            return sumX / n;
+        }
+        return 0;
+    }
+
+    double getStandardDeviation() {
+        long n = 0;
+        double sumX = 0;
+        double sumX2 = 0;
+        for (final Cell cell : this.cells) {
+            n += cell.count.get();
+            sumX += Double.longBitsToDouble(cell.sum.get());
+            sumX2 += Double.longBitsToDouble(cell.sumSquares.get());
+        }
+        if (n > 1) {
+            // algorithm taken from
+            // http://de.wikipedia.org/wiki/Standardabweichung section
+            // "Berechnung fuer auflaufende Messwerte"
+            return Math.sqrt((sumX2 - sumX * sumX / n) / (n - 1));
+        }
+
+        // single data point has no deviation
+        return 0;
+    }
+
+    private static void add(final AtomicLong bits, final double value) {
+        long current;
+        long next;
+        do {
+            current = bits.get();
+            next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+        } while (!bits.compareAndSet(current, next));
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.request.RequestProgressTracker;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +54,14 @@ public class RequestProgressTrackerLogFilter implements Filter {
 
     private static final Logger log = LoggerFactory.getLogger(RequestProgressTrackerLogFilter.class);
 
+    /**
+     * The resource resolver attributes providing the hits and misses of the
+     * resource lookup cache since the resolver has been created, if enabled.
+     */
+    private static final String ATTR_RESOURCE_CACHE_HITS = "sling.resource.cache.hits";
+
+    private static final String ATTR_RESOURCE_CACHE_MISSES = "sling.resource.cache.misses";
+
     private int requestCounter;
 
     public void init(FilterConfig filterConfig) throws ServletException {
@@ -61,10 +70,19 @@ public class RequestProgressTrackerLogFilter implements Filter {
     public void doFilter(ServletRequest request, ServletResponse response,
             FilterChain chain) throws IOException, ServletException {
 
+        // the resolver might be reused across requests, so only the
+        // difference of the counts is logged
+        final long[] cacheCountsBefore = getResourceCacheCounts(request);
+
         chain.doFilter(request, response);
 
         if (request instanceof SlingHttpServletRequest) {
             final RequestProgressTracker t = ((SlingHttpServletRequest) request).getRequestProgressTracker();
+            final long[] cacheCountsAfter = getResourceCacheCounts(request);
+            if (cacheCountsBefore != null && cacheCountsAfter != null) {
+                t.log("Resource Cache: {0} hits, {1} misses",
+                    cacheCountsAfter[0] - cacheCountsBefore[0], cacheCountsAfter[1] - cacheCountsBefore[1]);
+            }
             t.done();
 
             if (log.isDebugEnabled()) {
@@ -80,6 +98,24 @@ public class RequestProgressTrackerLogFilter implements Filter {
         }
     }
 
+    /**
+     * Get the hits and misses of the resource lookup cache of the resolver
+     * of the request or <code>null</code> if the cache is not enabled.
+     */
+    private long[] getResourceCacheCounts(final ServletRequest request) {
+        if (request instanceof SlingHttpServletRequest) {
+            final ResourceResolver resolver = ((SlingHttpServletRequest) request).getResourceResolver();
+            if (resolver != null && resolver.isLive()) {
+                final Object hits = resolver.getAttribute(ATTR_RESOURCE_CACHE_HITS);
+                final Object misses = resolver.getAttribute(ATTR_RESOURCE_CACHE_MISSES);
+                if (hits instanceof Long && misses instanceof Long) {
+                    return new long[] { (Long) hits, (Long) misses };
+                }
+            }
+        }
+        return null;
+    }
+
     public void destroy() {
     }
 
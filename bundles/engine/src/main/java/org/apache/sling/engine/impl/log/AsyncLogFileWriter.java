@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>AsyncLogFileWriter</code> writes log messages to a file from a
+ * background thread. Request threads only add the message to a bounded
+ * queue without locking; the background thread writes the queued messages
+ * in batches through a buffer which is flushed when it is full, when the
+ * flush interval has passed or when no more messages are queued.
+ * <p>
+ * If the queue is full, a message is either dropped or the calling thread
+ * waits until the background thread has made room, depending on the
+ * configured overflow policy.
+ */
+class AsyncLogFileWriter implements Runnable {
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final File file;
+
+    private final Writer output;
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<String>();
+
+    /** The number of queued messages, maintained separately as the queue size is not constant time */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int capacity;
+
+    private final long flushIntervalNanos;
+
+    private final boolean dropOnOverflow;
+
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param file The file to append the messages to
+     * @param capacity The maximum number of queued messages
+     * @param flushIntervalMsec The maximum time in milliseconds written
+     *            messages are buffered before being flushed to the file
+     * @param bufferSize The size of the write buffer in characters
+     * @param dropOnOverflow Whether to drop messages if the queue is full
+     *            instead of waiting for room.
+     * @throws IOException If the file cannot be opened
+     */
+    AsyncLogFileWriter(final File file, final int capacity, final long flushIntervalMsec, final int bufferSize,
+            final boolean dropOnOverflow) throws IOException {
+        this.file = file;
+        file.getParentFile().mkdirs();
+        this.output = new BufferedWriter(new FileWriter(file, true), Math.max(1, bufferSize));
+        this.capacity = Math.max(1, capacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMsec));
+        this.dropOnOverflow = dropOnOverflow;
+
+        this.writerThread = new Thread(this, "Sling Request Log Writer " + file.getName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the message for writing.
+     *
+     * @return <code>false</code> if the message has been dropped.
+     */
+    boolean write(final String message) {
+        if (!this.running) {
+            return false;
+        }
+
+        int size = this.queued.get();
+        while (true) {
+            if (size >= this.capacity) {
+                if (this.dropOnOverflow) {
+                    this.dropped.incrementAndGet();
+                    return false;
+                }
+                // wait for the writer to make room
+                LockSupport.unpark(this.writerThread);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                if (!this.running) {
+                    return false;
+                }
+                size = this.queued.get();
+            } else if (this.queued.compareAndSet(size, size + 1)) {
+                break;
+            } else {
+                size = this.queued.get();
+            }
+        }
+
+        this.queue.offer(message);
+        if (size == 0) {
+            // the writer may be waiting for messages
+            LockSupport.unpark(this.writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the background thread after it has written all queued messages
+     * and closes the file.
+     */
+    void close() {
+        this.running = false;
+        LockSupport.unpark(this.writerThread);
+        try {
+            this.writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    File getFile() {
+        return this.file;
+    }
+
+    long getQueuedCount() {
+        return this.queued.get();
+    }
+
+    long getWrittenCount() {
+        return this.written.get();
+    }
+
+    long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    public void run() {
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+        long reportedDropped = 0;
+        try {
+            while (this.running || !this.queue.isEmpty()) {
+                final String message = this.queue.poll();
+                if (message != null) {
+                    this.queued.decrementAndGet();
+                    this.output.write(message);
+                    this.output.write(LINE_SEPARATOR);
+                    this.written.incrementAndGet();
+                    unflushed = true;
+                }
+
+                final long now = System.nanoTime();
+                if (unflushed && (message == null || now - lastFlush >= this.flushIntervalNanos)) {
+                    this.output.flush();
+                    unflushed = false;
+                    lastFlush = now;
+
+                    final long droppedNow = this.dropped.get();
+                    if (droppedNow != reportedDropped) {
+                        log.warn("Dropped {} messages for request log {} as the queue was full",
+                            droppedNow - reportedDropped, this.file);
+                        reportedDropped = droppedNow;
+                    }
+                }
+
+                if (message == null && this.running) {
+                    LockSupport.parkNanos(this.flushIntervalNanos);
+                }
+            }
+        } catch (final IOException ioe) {
+            log.error("Cannot write to request log " + this.file + ", dropping further messages", ioe);
+            this.running = false;
+        } finally {
+            try {
+                this.output.close();
+            } catch (final IOException ioe) {
+                // don't care
+            }
+        }
+    }
+}
@@ -19,11 +19,10 @@
 package org.apache.sling.engine.impl.log;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.sling.engine.RequestLog;
@@ -32,53 +31,56 @@ import org.apache.sling.engine.RequestLog;
  * The <code>FileRequestLog</code> class is an implementation of the
  * {@link RequestLog} interface writing the log messages to an plain file. This
  * class supports sharing the files for different log formatters, in that an
- * internal map of log files is kept and access to the <code>PrintWriter</code>s
- * to write to the file is synchronized.
+ * internal map of log files is kept.
  * <p>
  * This class has a defined lifecycle to ensure correct operation: To ensure no
  * log files are kept open, the {@link RequestLoggerFilter} object calls
  * {@link #dispose()} when it is being deactivated.
  * <p>
- * Note: Currently, each log file is kept open from the moment the log file is
- * first moment until the {@link #dispose()} method is called. Future
- * development should probably focus on the following issues: (1) Implement an
- * open/write/close cycle when logging a message, (2) close log files when the
- * last user has closed the log, (3) optimize the first strategy by keeping the
- * files open for some time.
+ * The messages are written asynchronously by an {@link AsyncLogFileWriter}
+ * per file, so request threads neither lock nor wait for the disk. The
+ * settings of the writer are the ones of the first log opening the file.
  * <p>
- * Note: Currently, the <code>PrintWriter</code> used to log the message is
- * flushed after each log message written. Future development should probably
- * implement better buffering in conjunction with the temporary open/close
- * cycles of the files.
+ * Note: Currently, each log file is kept open from the moment the log file is
+ * first moment until the {@link #dispose()} method is called.
  */
 class FileRequestLog implements RequestLog {
 
-    // The map of shared open files (actually PrintWriter instances)
-    private static Map<String, PrintWriter> logFiles = new HashMap<String, PrintWriter>();
+    // The map of shared open files
+    private static Map<String, AsyncLogFileWriter> logFiles = new HashMap<String, AsyncLogFileWriter>();
 
-    // Dispose class by closing all open PrintWeiter instances
+    // Dispose class by writing the pending messages and closing all open files
     static void dispose() {
-        for (final Writer w : logFiles.values()) {
-            try {
+        synchronized (logFiles) {
+            for (final AsyncLogFileWriter w : logFiles.values()) {
                 w.close();
-            } catch (IOException ioe) {
-                // don't care
             }
+            logFiles.clear();
+        }
+    }
+
+    // Returns the writers of the currently open files
+    static List<AsyncLogFileWriter> getWriters() {
+        synchronized (logFiles) {
+            return new ArrayList<AsyncLogFileWriter>(logFiles.values());
         }
-        logFiles.clear();
     }
 
-    // The PrintWriter used by this instance to write the messages
-    private PrintWriter output;
+    // The writer used by this instance to write the messages
+    private volatile AsyncLogFileWriter output;
 
     FileRequestLog(File logFile) throws IOException {
+        this(logFile, RequestLoggerService.DEFAULT_QUEUE_SIZE, RequestLoggerService.DEFAULT_FLUSH_INTERVAL,
+            RequestLoggerService.DEFAULT_BUFFER_SIZE, false);
+    }
+
+    FileRequestLog(File logFile, int queueSize, long flushInterval, int bufferSize, boolean dropOnOverflow)
+            throws IOException {
         synchronized (logFiles) {
             final String fileName = logFile.getAbsolutePath();
             this.output = logFiles.get(fileName);
             if (this.output == null) {
-                logFile.getParentFile().mkdirs();
-                FileWriter fw = new FileWriter(logFile, true);
-                this.output = new PrintWriter(fw);
+                this.output = new AsyncLogFileWriter(logFile, queueSize, flushInterval, bufferSize, dropOnOverflow);
                 logFiles.put(fileName, this.output);
             }
         }
@@ -91,12 +93,9 @@ class FileRequestLog implements RequestLog {
         // use a local copy of the reference to not encounter NPE when this
         // log happens to be closed asynchronously while at the same time not
         // requiring synchronization
-        PrintWriter writer = this.output;
+        AsyncLogFileWriter writer = this.output;
         if (writer != null) {
-            synchronized (writer) {
-                writer.println(message);
-                writer.flush();
-            }
+            writer.write(message);
         }
     }
 
@@ -104,4 +103,8 @@ class FileRequestLog implements RequestLog {
         // just drop the reference to the output
         this.output = null;
     }
+
+    AsyncLogFileWriter getWriter() {
+        return this.output;
+    }
 }
@@ -19,6 +19,8 @@
 package org.apache.sling.engine.impl.log;
 
 import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -29,15 +31,19 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.ConfigurationPolicy;
+import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
+import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
 import org.slf4j.LoggerFactory;
 
 @Component(immediate = true, policy = ConfigurationPolicy.IGNORE)
@@ -61,6 +67,8 @@ public final class RequestLoggerFilter implements Filter {
 
     private RequestLoggerService[] requestExit = NONE;
 
+    private ServiceRegistration printerRegistration;
+
     public void init(FilterConfig filterConfig) {
     }
 
@@ -85,6 +93,27 @@ public final class RequestLoggerFilter implements Filter {
 
     // ---------- SCR Integration ----------------------------------------------
 
+    @Activate
+    protected void activate(final BundleContext bundleContext) {
+        final Dictionary<String, String> serviceProps = new Hashtable<String, String>();
+        serviceProps.put(Constants.SERVICE_DESCRIPTION,
+            "Apache Sling Request Log Configuration Printer");
+        serviceProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        serviceProps.put("felix.webconsole.label", "slingrequestlog");
+        serviceProps.put("felix.webconsole.title", "Sling Request Log");
+        serviceProps.put("felix.webconsole.configprinter.modes", "always");
+        this.printerRegistration = bundleContext.registerService(RequestLogConfigPrinter.class.getName(),
+            new RequestLogConfigPrinter(), serviceProps);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (this.printerRegistration != null) {
+            this.printerRegistration.unregister();
+            this.printerRegistration = null;
+        }
+    }
+
     @SuppressWarnings("unused")
     private void bindRequestLoggerService(RequestLoggerService requestLoggerService) {
         if (requestLoggerService.isOnEntry()) {
@@ -65,6 +65,24 @@ public class RequestLoggerService {
     @Property(boolValue = false)
     public static final String PARAM_ON_ENTRY = "request.log.service.onentry";
 
+    static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    @Property(intValue = DEFAULT_QUEUE_SIZE)
+    public static final String PARAM_QUEUE_SIZE = "request.log.service.queue.size";
+
+    static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+    @Property(longValue = DEFAULT_FLUSH_INTERVAL)
+    public static final String PARAM_FLUSH_INTERVAL = "request.log.service.flush.interval";
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    @Property(intValue = DEFAULT_BUFFER_SIZE)
+    public static final String PARAM_BUFFER_SIZE = "request.log.service.buffer.size";
+
+    @Property(boolValue = false)
+    public static final String PARAM_DROP_ON_OVERFLOW = "request.log.service.drop.on.overflow";
+
     private static final int OUTPUT_TYPE_LOGGER = 0;
 
     private static final int OUTPUT_TYPE_FILE = 1;
@@ -106,7 +124,7 @@ public class RequestLoggerService {
             int outputType = (outputTypeObject instanceof Number)
                     ? ((Number) outputTypeObject).intValue()
                     : OUTPUT_TYPE_LOGGER;
-            this.log = this.getLog(bundleContext, output.toString(), outputType);
+            this.log = this.getLog(bundleContext, output.toString(), outputType, configuration);
         }
     }
 
@@ -130,7 +148,8 @@ public class RequestLoggerService {
         return this.onEntry;
     }
 
-    private RequestLog getLog(BundleContext bundleContext, String output, int outputType) {
+    private RequestLog getLog(BundleContext bundleContext, String output, int outputType,
+            Map<String, Object> configuration) {
         switch (outputType) {
             case OUTPUT_TYPE_FILE:
                 // file logging
@@ -145,7 +164,15 @@ public class RequestLoggerService {
                         file = file.getAbsoluteFile();
                     }
 
-                    return new FileRequestLog(file);
+                    Object queueSize = configuration.get(PARAM_QUEUE_SIZE);
+                    Object flushInterval = configuration.get(PARAM_FLUSH_INTERVAL);
+                    Object bufferSize = configuration.get(PARAM_BUFFER_SIZE);
+                    Object dropOnOverflow = configuration.get(PARAM_DROP_ON_OVERFLOW);
+                    return new FileRequestLog(file,
+                        (queueSize instanceof Number) ? ((Number) queueSize).intValue() : DEFAULT_QUEUE_SIZE,
+                        (flushInterval instanceof Number) ? ((Number) flushInterval).longValue() : DEFAULT_FLUSH_INTERVAL,
+                        (bufferSize instanceof Number) ? ((Number) bufferSize).intValue() : DEFAULT_BUFFER_SIZE,
+                        (dropOnOverflow instanceof Boolean) ? ((Boolean) dropOnOverflow).booleanValue() : false);
                 } catch (IOException ioe) {
                     // TODO: log
                 }
@@ -62,6 +62,38 @@ public interface RequestProcessorMBean {
      */
     double getStandardDeviationDurationMsec();
 
+    /**
+     * Returns the 50th percentile of the processing time in milliseconds of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    long getRequestDurationMsecPercentile50();
+
+    /**
+     * Returns the 95th percentile of the processing time in milliseconds of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    long getRequestDurationMsecPercentile95();
+
+    /**
+     * Returns the 99th percentile of the processing time in milliseconds of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    long getRequestDurationMsecPercentile99();
+
+    /**
+     * Returns the 99.9th percentile of the processing time in milliseconds of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    long getRequestDurationMsecPercentile999();
+
     /**
      * Returns the maximum peak recursive execution depth since last
      * resetting the statistics.
@@ -96,6 +128,38 @@ public interface RequestProcessorMBean {
      * @see #resetStatistics()
      */
     double getStandardDeviationPeakRecursionDepth();
+
+    /**
+     * Returns the 50th percentile of the peak recursive execution depth of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getPeakRecursionDepthPercentile50();
+
+    /**
+     * Returns the 95th percentile of the peak recursive execution depth of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getPeakRecursionDepthPercentile95();
+
+    /**
+     * Returns the 99th percentile of the peak recursive execution depth of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getPeakRecursionDepthPercentile99();
+
+    /**
+     * Returns the 99.9th percentile of the peak recursive execution depth of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getPeakRecursionDepthPercentile999();
     
     /**
      * Returns the maximum servlet call count since last
@@ -130,6 +194,38 @@ public interface RequestProcessorMBean {
      */
     double getStandardDeviationServletCallCount();
 
+    /**
+     * Returns the 50th percentile of the servlet call count of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getServletCallCountPercentile50();
+
+    /**
+     * Returns the 95th percentile of the servlet call count of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getServletCallCountPercentile95();
+
+    /**
+     * Returns the 99th percentile of the servlet call count of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getServletCallCountPercentile99();
+
+    /**
+     * Returns the 99.9th percentile of the servlet call count of the requests
+     * completed within the last minute. The value is accurate to about 6%.
+     *
+     * @since 1.1
+     */
+    int getServletCallCountPercentile999();
+
     /**
      * Resets all statistics values and restarts from zero.
      */
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SlidingWindowHistogramTest {
+
+    @Test
+    public void test_bucket_bounds() {
+        long previous = -1;
+        for (int i = 0; i < 960; i++) {
+            final long highest = SlidingWindowHistogram.highestValue(i);
+            assertTrue("Bucket " + i, highest > previous);
+            assertEquals(i, SlidingWindowHistogram.bucketIndex(previous + 1));
+            assertEquals(i, SlidingWindowHistogram.bucketIndex(highest));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void test_percentiles() {
+        final SlidingWindowHistogram histogram = new SlidingWindowHistogram(60000, 6);
+        assertEquals(0, histogram.getPercentile(0.5, 1000));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i, 1000);
+        }
+        assertWithin(500, histogram.getPercentile(0.5, 1000));
+        assertWithin(950, histogram.getPercentile(0.95, 1000));
+        assertWithin(990, histogram.getPercentile(0.99, 1000));
+        assertWithin(999, histogram.getPercentile(0.999, 1000));
+        assertEquals(1, histogram.getPercentile(0.0001, 1000));
+    }
+
+    @Test
+    public void test_sliding_window() {
+        final SlidingWindowHistogram histogram = new SlidingWindowHistogram(60000, 6);
+        histogram.record(10, 0);
+        histogram.record(2000, 30000);
+
+        // both values are in the window
+        assertEquals(10, histogram.getPercentile(0.5, 50000));
+        assertWithin(2000, histogram.getPercentile(1, 50000));
+
+        // the first period has left the window
+        assertWithin(2000, histogram.getPercentile(0.5, 60000));
+
+        // recording into a reused slot drops the old counts
+        histogram.record(20, 90000);
+        assertEquals(20, histogram.getPercentile(1, 90000));
+
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(1, 90000));
+    }
+
+    private void assertWithin(final long expected, final long actual) {
+        assertTrue("Expected about " + expected + " but got " + actual,
+            actual >= expected && actual <= expected + expected / 16);
+    }
+}
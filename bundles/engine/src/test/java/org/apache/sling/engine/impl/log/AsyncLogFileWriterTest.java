@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncLogFileWriterTest {
+
+    private static final int THREADS = 4;
+
+    private static final int MESSAGES = 2500;
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("request", ".log");
+        file.delete();
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    @Test
+    public void test_all_messages_written() throws Exception {
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 16, 50, 1024, false);
+        runWriters(writer);
+        writer.close();
+
+        final Set<String> lines = readLines();
+        assertEquals(THREADS * MESSAGES, lines.size());
+        assertEquals(THREADS * MESSAGES, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(0, writer.getQueuedCount());
+        assertTrue(lines.contains("thread0-message0"));
+        assertTrue(lines.contains("thread" + (THREADS - 1) + "-message" + (MESSAGES - 1)));
+    }
+
+    @Test
+    public void test_drop_on_overflow() throws Exception {
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 1, 50, 1024, true);
+        runWriters(writer);
+        writer.close();
+
+        final Set<String> lines = readLines();
+        assertEquals(THREADS * MESSAGES, writer.getWrittenCount() + writer.getDroppedCount());
+        assertEquals(writer.getWrittenCount(), lines.size());
+    }
+
+    @Test
+    public void test_flush_without_close() throws Exception {
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 16, 50, 1024, false);
+        try {
+            writer.write("single message");
+            final long end = System.currentTimeMillis() + 5000;
+            while (readLines().isEmpty() && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertTrue(readLines().contains("single message"));
+        } finally {
+            writer.close();
+        }
+        assertFalse(writer.write("after close"));
+    }
+
+    private void runWriters(final AsyncLogFileWriter writer) throws InterruptedException {
+        final Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final String prefix = "thread" + t + "-message";
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < MESSAGES; i++) {
+                        writer.write(prefix + i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private Set<String> readLines() throws IOException {
+        final Set<String> lines = new HashSet<String>();
+        if (file.exists()) {
+            final BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return lines;
+    }
+}
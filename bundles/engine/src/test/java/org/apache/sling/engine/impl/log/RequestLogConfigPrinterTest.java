@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestLogConfigPrinterTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("request", ".log");
+        file.delete();
+    }
+
+    @After
+    public void cleanup() {
+        FileRequestLog.dispose();
+        file.delete();
+    }
+
+    private String print() {
+        final StringWriter out = new StringWriter();
+        new RequestLogConfigPrinter().printConfiguration(new PrintWriter(out));
+        return out.toString();
+    }
+
+    @Test
+    public void test_no_files() {
+        FileRequestLog.dispose();
+        assertTrue(print().contains("No request log files open"));
+    }
+
+    @Test
+    public void test_counters_printed() throws Exception {
+        final FileRequestLog log = new FileRequestLog(file);
+        log.write("message");
+        FileRequestLog.dispose();
+        // the closed writer is not listed anymore
+        assertTrue(print().contains("No request log files open"));
+
+        final FileRequestLog log2 = new FileRequestLog(file);
+        log2.write("message");
+        final String output = print();
+        assertTrue(output.contains(file.getAbsolutePath()));
+        assertTrue(output.contains("Queued messages"));
+        assertTrue(output.contains("Written messages"));
+        assertTrue(output.contains("Dropped messages: 0"));
+    }
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -49,6 +50,9 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
     /** A map of id-> topology connector clients currently registered/activate **/
     private final Map<String, TopologyConnectorClient> outgoingClientsMap = new HashMap<String, TopologyConnectorClient>();
 
+    /** the connection manager shared by all clients, keeping connections alive between pings **/
+    private final MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+
     @Reference
     private AnnouncementRegistry announcementRegistry;
 
@@ -61,6 +65,11 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
     @Activate
     protected void activate(final ComponentContext cc) {
         port = cc.getBundleContext().getProperty("org.osgi.service.http.port");
+        // each client pings its own connector url one at a time
+        connectionManager.getParams().setDefaultMaxConnectionsPerHost(2);
+        connectionManager.getParams().setMaxTotalConnections(200);
+        // set once for all clients - the socket timeout is set per ping
+        connectionManager.getParams().setConnectionTimeout(1000*config.getConnectionTimeout());
     }
     
     @Deactivate
@@ -72,6 +81,7 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
                 it.remove();
             }
         }
+        connectionManager.shutdown();
     }
     
     public TopologyConnectorClientInformation registerOutgoingConnector(
@@ -99,7 +109,7 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
             }
             client = new TopologyConnectorClient(clusterViewService,
                     announcementRegistry, config, connectorUrl,
-                    serverInfo);
+                    serverInfo, connectionManager);
             outgoingClientsMap.put(client.getId(), client);
         }
         client.ping(false);
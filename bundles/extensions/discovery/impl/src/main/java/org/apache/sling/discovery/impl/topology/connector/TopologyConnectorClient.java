@@ -32,6 +32,7 @@ import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnectionManager;
 import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
@@ -106,10 +107,20 @@ public class TopologyConnectorClient implements
 
     /** SLING-3382: unix-time at which point the backoff-period ends and pings can be sent again **/
     private long backoffPeriodEnd = -1;
-    
+
+    /** the connection manager shared by all connectors **/
+    private final HttpConnectionManager connectionManager;
+
+    /** fingerprint of the last announcement the servlet acknowledged - null if a full announcement has to be sent **/
+    private String lastAcknowledgedFingerprint;
+
+    /** whether the last ping was answered for the fingerprint only, without a full announcement **/
+    private boolean lastPingFingerprintOnly;
+
     TopologyConnectorClient(final ClusterViewService clusterViewService,
             final AnnouncementRegistry announcementRegistry, final Config config,
-            final URL connectorUrl, final String serverInfo) {
+            final URL connectorUrl, final String serverInfo,
+            final HttpConnectionManager connectionManager) {
         if (clusterViewService == null) {
             throw new IllegalArgumentException(
                     "clusterViewService must not be null");
@@ -124,12 +135,16 @@ public class TopologyConnectorClient implements
         if (connectorUrl == null) {
             throw new IllegalArgumentException("connectorUrl must not be null");
         }
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("connectionManager must not be null");
+        }
         this.requestValidator = new TopologyRequestValidator(config);
         this.clusterViewService = clusterViewService;
         this.announcementRegistry = announcementRegistry;
         this.config = config;
         this.connectorUrl = connectorUrl;
         this.serverInfo = serverInfo;
+        this.connectionManager = connectionManager;
         this.id = UUID.randomUUID();
     }
 
@@ -154,18 +169,11 @@ public class TopologyConnectorClient implements
     	if (logger.isDebugEnabled()) {
     		logger.debug("ping: connectorUrl=" + connectorUrl + ", complete uri=" + uri);
     	}
-        HttpClient httpClient = new HttpClient();
-        final PutMethod method = new PutMethod(uri);
+        HttpClient httpClient = new HttpClient(connectionManager);
+        PutMethod method = null;
         Announcement resultingAnnouncement = null;
+        String acknowledgedFingerprint = null;
         try {
-            String userInfo = connectorUrl.getUserInfo();
-            if (userInfo != null) {
-                Credentials c = new UsernamePasswordCredentials(userInfo);
-                httpClient.getState().setCredentials(
-                        new AuthScope(method.getURI().getHost(), method
-                                .getURI().getPort()), c);
-            }
-
             Announcement topologyAnnouncement = new Announcement(
                     clusterViewService.getSlingId());
             topologyAnnouncement.setServerInfo(serverInfo);
@@ -196,37 +204,28 @@ public class TopologyConnectorClient implements
                     return false;
                 }
             });
-            final String p = requestValidator.encodeMessage(topologyAnnouncement.asJSON());
-            
-            if (logger.isDebugEnabled()) {
-                logger.debug("ping: topologyAnnouncement json is: " + p);
-            }
-            requestValidator.trustMessage(method, p);
-            if (config.isGzipConnectorRequestsEnabled()) {
-                // tell the server that the content is gzipped:
-                method.addRequestHeader("Content-Encoding", "gzip");
-                // and gzip the body:
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                final GZIPOutputStream gzipOut = new GZIPOutputStream(baos);
-                gzipOut.write(p.getBytes("UTF-8"));
-                gzipOut.close();
-                final byte[] gzippedEncodedJson = baos.toByteArray();
-                method.setRequestEntity(new ByteArrayRequestEntity(gzippedEncodedJson, "application/json"));
-                lastRequestEncoding = "gzip";
-            } else {
-                // otherwise plaintext:
-                method.setRequestEntity(new StringRequestEntity(p, "application/json", "UTF-8"));
-                lastRequestEncoding = "plaintext";
-            }
-            // independent of request-gzipping, we do accept the response to be gzipped,
-            // so indicate this to the server:
-            method.addRequestHeader("Accept-Encoding", "gzip");
+            // unless forced, an unchanged announcement which the servlet already
+            // acknowledged is only sent as its fingerprint
+            final String fingerprint = topologyAnnouncement.getFingerprint();
+            final boolean delta = !force && fingerprint.equals(lastAcknowledgedFingerprint);
             DefaultHttpMethodRetryHandler retryhandler = new DefaultHttpMethodRetryHandler(0, false);
             httpClient.getParams().setParameter(HttpMethodParams.RETRY_HANDLER, retryhandler);
-            httpClient.getHttpConnectionManager().getParams().setConnectionTimeout(1000*config.getConnectionTimeout());
-            httpClient.getHttpConnectionManager().getParams().setSoTimeout(1000*config.getSoTimeout());
-            method.getParams().setSoTimeout(1000*config.getSoTimeout());
-            httpClient.executeMethod(method);
+            // the connection timeout is set on the shared connection manager by the
+            // ConnectorRegistryImpl, the socket timeout is set per method
+            method = new PutMethod(uri);
+            executePing(httpClient, method, topologyAnnouncement, fingerprint, delta);
+            lastPingFingerprintOnly = delta;
+            if (delta && method.getStatusCode()!=HttpServletResponse.SC_OK) {
+                // the servlet does not know the fingerprint (anymore) - send the full announcement
+                if (logger.isDebugEnabled()) {
+                    logger.debug("ping: fingerprint not acknowledged. code=" + method.getStatusCode()
+                            + ", sending full announcement");
+                }
+                method.releaseConnection();
+                method = new PutMethod(uri);
+                executePing(httpClient, method, topologyAnnouncement, fingerprint, false);
+                lastPingFingerprintOnly = false;
+            }
         	if (logger.isDebugEnabled()) {
 	            logger.debug("ping: done. code=" + method.getStatusCode() + " - "
 	                    + method.getStatusText());
@@ -286,6 +285,11 @@ public class TopologyConnectorClient implements
                     }
                     resultingAnnouncement = inheritedAnnouncement;
                     statusDetails = null;
+                    final Header fingerprintHeader = method.getResponseHeader(
+                            TopologyConnectorServlet.FINGERPRINT_HEADER);
+                    if (fingerprintHeader!=null && fingerprint.equals(fingerprintHeader.getValue())) {
+                        acknowledgedFingerprint = fingerprint;
+                    }
                 } else {
                     statusDetails = "no response body received";
                 }
@@ -315,12 +319,69 @@ public class TopologyConnectorClient implements
             logger.warn("ping: got RuntimeException: " + re, re);
             statusDetails = re.toString();
         } finally {
-            method.releaseConnection();
+            if (method != null) {
+                method.releaseConnection();
+            }
+            lastAcknowledgedFingerprint = acknowledgedFingerprint;
             lastInheritedAnnouncement = resultingAnnouncement;
             lastPingedAt = System.currentTimeMillis();
         }
     }
 
+    /**
+     * Send the announcement - or only its fingerprint if delta is true -
+     * with the given method.
+     */
+    private void executePing(final HttpClient httpClient, final PutMethod method,
+            final Announcement topologyAnnouncement, final String fingerprint,
+            final boolean delta) throws IOException, JSONException {
+        String userInfo = connectorUrl.getUserInfo();
+        if (userInfo != null) {
+            Credentials c = new UsernamePasswordCredentials(userInfo);
+            httpClient.getState().setCredentials(
+                    new AuthScope(method.getURI().getHost(), method
+                            .getURI().getPort()), c);
+        }
+        final String p;
+        if (delta) {
+            p = requestValidator.encodeMessage(fingerprint);
+        } else {
+            p = requestValidator.encodeMessage(topologyAnnouncement.asJSON());
+        }
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("ping: topologyAnnouncement json is: " + p);
+        }
+        requestValidator.trustMessage(method, p);
+        method.addRequestHeader(TopologyConnectorServlet.FINGERPRINT_HEADER, fingerprint);
+        if (!delta && config.isGzipConnectorRequestsEnabled()) {
+            // tell the server that the content is gzipped:
+            method.addRequestHeader("Content-Encoding", "gzip");
+            // and gzip the body:
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final GZIPOutputStream gzipOut = new GZIPOutputStream(baos);
+            gzipOut.write(p.getBytes("UTF-8"));
+            gzipOut.close();
+            final byte[] gzippedEncodedJson = baos.toByteArray();
+            method.setRequestEntity(new ByteArrayRequestEntity(gzippedEncodedJson, "application/json"));
+            lastRequestEncoding = "gzip";
+        } else {
+            // otherwise plaintext:
+            method.setRequestEntity(new StringRequestEntity(p, "application/json", "UTF-8"));
+            lastRequestEncoding = "plaintext";
+        }
+        // independent of request-gzipping, we do accept the response to be gzipped,
+        // so indicate this to the server:
+        method.addRequestHeader("Accept-Encoding", "gzip");
+        method.getParams().setSoTimeout(1000*config.getSoTimeout());
+        httpClient.executeMethod(method);
+    }
+
+    /** whether the last ping sent only the fingerprint of an unchanged announcement **/
+    boolean isLastPingFingerprintOnly() {
+        return lastPingFingerprintOnly;
+    }
+
     public int getStatusCode() {
         return lastStatusCode;
     }
@@ -423,7 +484,7 @@ public class TopologyConnectorClient implements
                             .getOwnerId());
         }
 
-        HttpClient httpClient = new HttpClient();
+        HttpClient httpClient = new HttpClient(connectionManager);
         final DeleteMethod method = new DeleteMethod(uri);
 
         try {
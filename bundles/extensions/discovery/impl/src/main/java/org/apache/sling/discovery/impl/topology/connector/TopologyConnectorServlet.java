@@ -24,8 +24,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
@@ -72,6 +74,28 @@ public class TopologyConnectorServlet extends HttpServlet {
      */
     private static final String TOPOLOGY_CONNECTOR_PREFIX = "/libs/sling/topology";
 
+    /**
+     * Request header containing the fingerprint of the announcement. A request
+     * whose body consists of the fingerprint only refers to the announcement
+     * acknowledged before. The servlet acknowledges an announcement by
+     * returning the fingerprint it computed for the announcement in the
+     * response header - the fingerprint sent by the client is not trusted.
+     */
+    public static final String FINGERPRINT_HEADER = "X-SlingTopologyFingerprint";
+
+    /** An announcement acknowledged together with its fingerprint **/
+    private static final class AcknowledgedAnnouncement {
+
+        private final String fingerprint;
+
+        private final Announcement announcement;
+
+        private AcknowledgedAnnouncement(final String fingerprint, final Announcement announcement) {
+            this.fingerprint = fingerprint;
+            this.announcement = announcement;
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Reference
@@ -100,6 +124,10 @@ public class TopologyConnectorServlet extends HttpServlet {
 
     private TopologyRequestValidator requestValidator;
 
+    /** Map of owner id to the last acknowledged announcement of that owner **/
+    private final Map<String, AcknowledgedAnnouncement> acknowledgedAnnouncements =
+            new ConcurrentHashMap<String, AcknowledgedAnnouncement>();
+
     @Activate
     protected void activate(final ComponentContext context) {
         whitelist.clear();
@@ -124,6 +152,7 @@ public class TopologyConnectorServlet extends HttpServlet {
     @Deactivate
     protected void deactivate() {
         httpService.unregister(TOPOLOGY_CONNECTOR_PREFIX);
+        acknowledgedAnnouncements.clear();
     }
 
     void initWhitelist(String[] whitelistConfig) {
@@ -193,9 +222,23 @@ public class TopologyConnectorServlet extends HttpServlet {
         }
         final String selector = pathInfo.length==3 ? pathInfo[1] : "";
 
+        acknowledgedAnnouncements.remove(selector);
         announcementRegistry.unregisterAnnouncement(selector);
     }
     
+    /**
+     * Forget the acknowledged announcements which are no longer registered,
+     * ie which have expired in the meantime.
+     */
+    private void evictInactiveAnnouncements() {
+        final Iterator<String> it = acknowledgedAnnouncements.keySet().iterator();
+        while (it.hasNext()) {
+            if (!announcementRegistry.hasActiveAnnouncement(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
     @Override
     protected void doPut(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -216,15 +259,38 @@ public class TopologyConnectorServlet extends HttpServlet {
         
         final String selector = pathInfo.length==3 ? pathInfo[1] : "";
 
+        final String requestFingerprint = request.getHeader(FINGERPRINT_HEADER);
         String topologyAnnouncementJSON = requestValidator.decodeMessage(request);
     	if (logger.isDebugEnabled()) {
 	        logger.debug("doPost: incoming topology announcement is: "
 	                + topologyAnnouncementJSON);
     	}
         final Announcement incomingTopologyAnnouncement;
+        final String fingerprint;
         try {
-            incomingTopologyAnnouncement = Announcement
-                    .fromJSON(topologyAnnouncementJSON);
+            if (requestFingerprint!=null && requestFingerprint.equals(topologyAnnouncementJSON)) {
+                // the announcement did not change: use the one acknowledged before,
+                // as long as it has neither expired nor been unregistered
+                final AcknowledgedAnnouncement acknowledged = acknowledgedAnnouncements.get(selector);
+                if (acknowledged==null || !acknowledged.fingerprint.equals(requestFingerprint)
+                        || !announcementRegistry.hasActiveAnnouncement(selector)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("doPost: unknown fingerprint, requesting full announcement from "+selector);
+                    }
+                    acknowledgedAnnouncements.remove(selector);
+                    response.sendError(HttpServletResponse.SC_CONFLICT);
+                    return;
+                }
+                incomingTopologyAnnouncement = acknowledged.announcement;
+                fingerprint = acknowledged.fingerprint;
+            } else {
+                incomingTopologyAnnouncement = Announcement
+                        .fromJSON(topologyAnnouncementJSON);
+                // computed before the inherited announcements are removed below,
+                // as the client computed it for the announcement it sent
+                fingerprint = requestFingerprint==null ? null : incomingTopologyAnnouncement.getFingerprint();
+                evictInactiveAnnouncements();
+            }
 
             if (!incomingTopologyAnnouncement.getOwnerId().equals(selector)) {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST);
@@ -281,6 +347,11 @@ public class TopologyConnectorServlet extends HttpServlet {
                     replyAnnouncement.setLoop(true);
                     backoffInterval = config.getBackoffStandbyInterval();
                 } else {
+                    if (fingerprint!=null) {
+                        acknowledgedAnnouncements.put(selector,
+                                new AcknowledgedAnnouncement(fingerprint, incomingTopologyAnnouncement));
+                        response.setHeader(FINGERPRINT_HEADER, fingerprint);
+                    }
                     // normal, successful case: replying with the part of the topology which this instance sees
                     final ClusterView clusterView = clusterViewService
                             .getClusterView();
@@ -299,6 +370,9 @@ public class TopologyConnectorServlet extends HttpServlet {
                             });
                 }
             }
+            if (replyAnnouncement.isLoop()) {
+                acknowledgedAnnouncements.remove(selector);
+            }
             if (backoffInterval>0) {
                 replyAnnouncement.setBackoffInterval(backoffInterval);
                 if (logger.isDebugEnabled()) {
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.discovery.impl.topology.announcement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class AnnouncementTest {
+
+    @Test
+    public void testFingerprint() throws Exception {
+        final String slingId = UUID.randomUUID().toString();
+        final Announcement a1 = new Announcement(slingId);
+        a1.setServerInfo("foo:4502");
+        final Announcement a2 = new Announcement(slingId);
+        a2.setServerInfo("foo:4502");
+        a2.setBackoffInterval(42);
+        // backoffInterval is ignored
+        assertEquals(a1.getFingerprint(), a2.getFingerprint());
+
+        final Announcement a3 = new Announcement(slingId);
+        a3.setServerInfo("bar:4502");
+        assertFalse(a1.getFingerprint().equals(a3.getFingerprint()));
+
+        final Announcement a4 = new Announcement(slingId);
+        a4.setServerInfo("foo:4502");
+        a4.setResetBackoff(true);
+        assertFalse(a1.getFingerprint().equals(a4.getFingerprint()));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.discovery.impl.topology.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sling.discovery.impl.setup.Instance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopologyConnectorFingerprintTest {
+
+    private Instance instance1;
+
+    private Instance instance2;
+
+    @Before
+    public void setUp() throws Throwable {
+        instance1 = Instance.newStandaloneInstance("instance1", true);
+        instance2 = Instance.newStandaloneInstance("instance2", true);
+        instance2.startJetty();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (instance1 != null) {
+            instance1.stop();
+        }
+        if (instance2 != null) {
+            instance2.stop();
+        }
+    }
+
+    @Test
+    public void testFingerprintExchange() throws Throwable {
+        final TopologyConnectorClient client = (TopologyConnectorClient) instance1.connectTo(
+                "http://localhost:" + instance2.getJettyPort() + "/system/console/topology/connector");
+
+        // the first ping sends the full announcement
+        assertEquals(200, client.getStatusCode());
+        assertFalse(client.isLastPingFingerprintOnly());
+        assertTrue(hasAnnouncementOfInstance1());
+
+        // the servlet acknowledged the unchanged announcement - only the fingerprint is sent
+        client.ping(false);
+        assertEquals(200, client.getStatusCode());
+        assertTrue(client.isLastPingFingerprintOnly());
+        assertTrue(hasAnnouncementOfInstance1());
+
+        // the servlet no longer has the announcement (eg it expired): the fingerprint
+        // is answered with 409 and the client sends the full announcement again
+        instance2.getAnnouncementRegistry().unregisterAnnouncement(instance1.getSlingId());
+        client.ping(false);
+        assertEquals(200, client.getStatusCode());
+        assertFalse(client.isLastPingFingerprintOnly());
+        assertTrue(hasAnnouncementOfInstance1());
+
+        client.ping(false);
+        assertEquals(200, client.getStatusCode());
+        assertTrue(client.isLastPingFingerprintOnly());
+
+        // a forced ping always sends the full announcement
+        client.ping(true);
+        assertEquals(200, client.getStatusCode());
+        assertFalse(client.isLastPingFingerprintOnly());
+    }
+
+    private boolean hasAnnouncementOfInstance1() {
+        return instance2.getAnnouncementRegistry().hasActiveAnnouncement(instance1.getSlingId());
+    }
+}
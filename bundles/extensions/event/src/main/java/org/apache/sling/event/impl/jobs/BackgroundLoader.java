@@ -635,4 +635,16 @@ public class BackgroundLoader implements Runnable {
             }
         }
     }
+
+    /**
+     * Add several jobs to the load job queue in one step if the instance is running.
+     */
+    public void addJobs(final List<JobImpl> jobs) {
+        synchronized ( loadLock ) {
+            if ( isRunning() ) {
+                // the action queue is unbounded, so this never blocks
+                this.actionQueue.addAll(jobs);
+            }
+        }
+    }
 }
@@ -40,11 +40,37 @@ public class JobBuilderImpl implements JobBuilder {
 
     private Map<String, Object> properties;
 
+    private String name;
+
     public JobBuilderImpl(final JobManagerImpl manager, final String topic) {
         this.jobManager = manager;
         this.topic = topic;
     }
 
+    /**
+     * Set the optional unique job name.
+     * This is only used internally for the deprecated named jobs.
+     */
+    public JobBuilderImpl name(final String jobName) {
+        this.name = jobName;
+        return this;
+    }
+
+    public String getTopic() {
+        return this.topic;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Map<String, Object> getProperties() {
+        return this.properties;
+    }
+
+    public JobManagerImpl getJobManager() {
+        return this.jobManager;
+    }
 
     @Override
     public JobBuilder properties(final Map<String, Object> props) {
@@ -59,7 +85,7 @@ public class JobBuilderImpl implements JobBuilder {
 
     @Override
     public Job add(final List<String> errors) {
-        return this.jobManager.addJob(this.topic, null, this.properties, errors);
+        return this.jobManager.addJob(this.topic, this.name, this.properties, errors);
     }
 
     @Override
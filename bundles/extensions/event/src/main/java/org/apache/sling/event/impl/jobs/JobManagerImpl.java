@@ -19,6 +19,7 @@
 package org.apache.sling.event.impl.jobs;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -182,6 +183,9 @@ public class JobManagerImpl
     /** Set of paths directly added as jobs - these will be ignored during observation handling. */
     private final Set<String> directlyAddedPaths = new HashSet<String>();
 
+    /** The number of jobs persisted with a single commit when adding a batch of jobs. */
+    private static final int BATCH_COMMIT_SIZE = 100;
+
     /** Job Scheduler. */
     private JobSchedulerImpl jobScheduler;
 
@@ -1269,25 +1273,15 @@ public class JobManagerImpl
         try {
             resolver = this.resourceResolverFactory.getAdministrativeResourceResolver(null);
             final String lockName = ResourceHelper.filterName(id);
-            final StringBuilder sb = new StringBuilder(this.configuration.getLocksPath());
-            sb.append('/');
-            sb.append(jobTopic.replace('/', '.'));
-            sb.append('/');
-            sb.append(lockName);
-            final String path = sb.toString();
+            final String path = this.getLockPath(jobTopic, lockName);
 
             Resource lockResource = resolver.getResource(path);
             if ( lockResource == null ) {
                 resolver.refresh();
                 try {
-                    final Map<String, Object> props = new HashMap<String, Object>();
-                    props.put(Utility.PROPERTY_LOCK_CREATED, Calendar.getInstance());
-                    props.put(Utility.PROPERTY_LOCK_CREATED_APP, Environment.APPLICATION_ID);
-                    props.put(ResourceResolver.PROPERTY_RESOURCE_TYPE, Utility.RESOURCE_TYPE_LOCK);
-
                     lockResource = ResourceHelper.getOrCreateResource(resolver,
                             path,
-                            props);
+                            this.createLockProperties());
 
                     // check if lock resource has correct name (SNS)
                     if ( !lockResource.getName().equals(lockName) ) {
@@ -1323,6 +1317,107 @@ public class JobManagerImpl
         return hasLock;
     }
 
+    /**
+     * Try to get the "locks" for a batch of named jobs.
+     * All locks are created with a single resolver and persisted with a single commit.
+     * If this fails, each lock is tried separately.
+     * @param builders The jobs
+     * @param hasLock For each job whether it can be persisted. This is set to
+     *                <code>false</code> for each named job for which the lock is not acquired.
+     */
+    private void lock(final List<JobBuilderImpl> builders, final boolean[] hasLock) {
+        final Map<Integer, Resource> created = new HashMap<Integer, Resource>();
+        final Set<String> lockPaths = new HashSet<String>();
+        ResourceResolver resolver = null;
+        try {
+            resolver = this.resourceResolverFactory.getAdministrativeResourceResolver(null);
+            try {
+                for(int i=0; i<builders.size(); i++) {
+                    final JobBuilderImpl builder = builders.get(i);
+                    if ( hasLock[i] && builder.getName() != null ) {
+                        final String path = this.getLockPath(builder.getTopic(), ResourceHelper.filterName(builder.getName()));
+                        // the same name used twice in the batch or an existing lock
+                        if ( !lockPaths.add(path) || resolver.getResource(path) != null ) {
+                            hasLock[i] = false;
+                        } else {
+                            created.put(i, ResourceHelper.getOrCreateResource(resolver,
+                                    path,
+                                    this.createLockProperties(),
+                                    false));
+                        }
+                    }
+                }
+                if ( created.isEmpty() ) {
+                    return;
+                }
+                resolver.commit();
+            } catch (final PersistenceException pe) {
+                this.ignoreException(pe);
+                resolver.revert();
+                resolver.refresh();
+                // fall back to getting the locks one by one
+                for(int i=0; i<builders.size(); i++) {
+                    final JobBuilderImpl builder = builders.get(i);
+                    if ( hasLock[i] && builder.getName() != null ) {
+                        hasLock[i] = this.lock(builder.getTopic(), builder.getName());
+                    }
+                }
+                return;
+            }
+
+            // check if lock resources have the correct name (SNS)
+            boolean removedLocks = false;
+            for(final Map.Entry<Integer, Resource> entry : created.entrySet()) {
+                final JobBuilderImpl builder = builders.get(entry.getKey());
+                final Resource lockResource = entry.getValue();
+                if ( !lockResource.getName().equals(ResourceHelper.filterName(builder.getName())) ) {
+                    if ( logger.isDebugEnabled() ) {
+                        logger.debug("Created SNS lock resource on instance {} - discarding", Environment.APPLICATION_ID);
+                    }
+                    resolver.delete(lockResource);
+                    removedLocks = true;
+                    hasLock[entry.getKey()] = false;
+                } else {
+                    final ValueMap vm = lockResource.adaptTo(ValueMap.class);
+                    hasLock[entry.getKey()] = Environment.APPLICATION_ID.equals(vm.get(Utility.PROPERTY_LOCK_CREATED_APP));
+                }
+            }
+            if ( removedLocks ) {
+                resolver.commit();
+            }
+        } catch (final PersistenceException ignore) {
+            this.ignoreException(ignore);
+        } catch (final LoginException ignore) {
+            this.ignoreException(ignore);
+            for(int i=0; i<builders.size(); i++) {
+                if ( builders.get(i) != null && builders.get(i).getName() != null ) {
+                    hasLock[i] = false;
+                }
+            }
+        } finally {
+            if ( resolver != null ) {
+                resolver.close();
+            }
+        }
+    }
+
+    private String getLockPath(final String jobTopic, final String lockName) {
+        final StringBuilder sb = new StringBuilder(this.configuration.getLocksPath());
+        sb.append('/');
+        sb.append(jobTopic.replace('/', '.'));
+        sb.append('/');
+        sb.append(lockName);
+        return sb.toString();
+    }
+
+    private Map<String, Object> createLockProperties() {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Utility.PROPERTY_LOCK_CREATED, Calendar.getInstance());
+        props.put(Utility.PROPERTY_LOCK_CREATED_APP, Environment.APPLICATION_ID);
+        props.put(ResourceResolver.PROPERTY_RESOURCE_TYPE, Utility.RESOURCE_TYPE_LOCK);
+        return props;
+    }
+
     /**
      * Persist the job in the resource tree
      * @param jobTopic The required job topic
@@ -1365,7 +1460,8 @@ public class JobManagerImpl
                             jobTopic,
                             jobName,
                             jobProperties,
-                            info);
+                            info,
+                            true);
                     if ( job != null ) {
                         if ( configuration.isLocalJob(job.getResourcePath()) ) {
                             this.backgroundLoader.addJob(job);
@@ -1391,18 +1487,118 @@ public class JobManagerImpl
         return null;
     }
 
+    /**
+     * Persist a batch of jobs in the resource tree.
+     * All jobs are written with a single resolver which is committed after
+     * every {@link #BATCH_COMMIT_SIZE} jobs. If a commit fails, the jobs of
+     * that chunk are written one by one.
+     * @param builders The jobs
+     * @param infos The queue information for each job
+     * @param persist For each job whether it should be persisted
+     * @param result The persisted jobs are put into this array
+     * @param errors Optional error messages
+     */
+    private void addJobsInternal(final List<JobBuilderImpl> builders,
+            final QueueInfo[] infos,
+            final boolean[] persist,
+            final Job[] result,
+            final List<String> errors) {
+        final List<JobImpl> localJobs = new ArrayList<JobImpl>();
+        ResourceResolver resolver = null;
+        try {
+            resolver = this.resourceResolverFactory.getAdministrativeResourceResolver(null);
+
+            int start = 0;
+            while ( start < builders.size() ) {
+                final int end = Math.min(builders.size(), start + BATCH_COMMIT_SIZE);
+                final List<JobImpl> chunk = new ArrayList<JobImpl>();
+                try {
+                    for(int i=start; i<end; i++) {
+                        if ( persist[i] ) {
+                            final JobBuilderImpl builder = builders.get(i);
+                            final JobImpl job = this.writeJob(resolver,
+                                    builder.getTopic(),
+                                    builder.getName(),
+                                    builder.getProperties(),
+                                    infos[i],
+                                    false);
+                            chunk.add(job);
+                            result[i] = job;
+                        }
+                    }
+                    if ( !chunk.isEmpty() ) {
+                        resolver.commit();
+                    }
+                } catch (final PersistenceException pe) {
+                    this.logger.debug("Unable to persist batch of jobs, persisting them one by one", pe);
+                    resolver.revert();
+                    resolver.refresh();
+                    synchronized ( this.directlyAddedPaths ) {
+                        for(final JobImpl job : chunk) {
+                            this.directlyAddedPaths.remove(job.getResourcePath());
+                        }
+                    }
+                    chunk.clear();
+                    for(int i=start; i<end; i++) {
+                        result[i] = null;
+                        if ( persist[i] ) {
+                            final JobBuilderImpl builder = builders.get(i);
+                            try {
+                                final JobImpl job = this.writeJob(resolver,
+                                        builder.getTopic(),
+                                        builder.getName(),
+                                        builder.getProperties(),
+                                        infos[i],
+                                        true);
+                                chunk.add(job);
+                                result[i] = job;
+                            } catch (final PersistenceException re) {
+                                // something went wrong, so let's log it
+                                this.logger.error("Exception during persisting new job '" + Utility.toString(builder.getTopic(), builder.getName(), builder.getProperties()) + "'", re);
+                                if ( errors != null ) {
+                                    errors.add("Unable to persist new job.");
+                                }
+                            }
+                        }
+                    }
+                }
+                for(final JobImpl job : chunk) {
+                    if ( configuration.isLocalJob(job.getResourcePath()) ) {
+                        localJobs.add(job);
+                    }
+                }
+                start = end;
+            }
+        } catch (final LoginException le) {
+            // there is nothing we can do except log!
+            this.logger.error("Exception during persisting new jobs", le);
+            if ( errors != null ) {
+                errors.add("Unable to persist new jobs.");
+            }
+        } finally {
+            if ( resolver != null ) {
+                resolver.close();
+            }
+        }
+        if ( !localJobs.isEmpty() ) {
+            this.backgroundLoader.addJobs(localJobs);
+        }
+    }
+
     /**
      * Write a job to the resource tree.
      * @param resolver The resolver resolver
      * @param event The event
      * @param info The queue information (queue name etc.)
+     * @param autoCommit Whether the job should be committed
      * @throws PersistenceException
      */
     private JobImpl writeJob(final ResourceResolver resolver,
             final String jobTopic,
             final String jobName,
             final Map<String, Object> jobProperties,
-            final QueueInfo info)
+            final QueueInfo info,
+            final boolean autoCommit)
     throws PersistenceException {
         final String jobId = this.configuration.getUniqueId(jobTopic);
         final String path = this.configuration.getUniquePath(info.targetId, jobTopic, jobId, jobProperties);
@@ -1446,7 +1642,8 @@ public class JobManagerImpl
         }
         ResourceHelper.getOrCreateResource(resolver,
                 path,
-                properties);
+                properties,
+                autoCommit);
 
         // update property types - priority, add path and create job
         properties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
@@ -1639,6 +1836,78 @@ public class JobManagerImpl
         return result;
     }
 
+    /**
+     * @see org.apache.sling.event.jobs.JobManager#addJobs(java.util.List, java.util.List)
+     */
+    @Override
+    public List<Job> addJobs(final List<JobBuilder> jobs, final List<String> errors) {
+        final int size = jobs.size();
+        final List<JobBuilderImpl> builders = new ArrayList<JobBuilderImpl>(size);
+        final QueueInfo[] infos = new QueueInfo[size];
+        final boolean[] persist = new boolean[size];
+        final Job[] result = new Job[size];
+
+        boolean hasNames = false;
+        for(int i=0; i<size; i++) {
+            final JobBuilder jb = jobs.get(i);
+            if ( !(jb instanceof JobBuilderImpl) || ((JobBuilderImpl)jb).getJobManager() != this ) {
+                final String errorMessage = "Job builder has not been created by this job manager: " + jb;
+                logger.warn("{}", errorMessage);
+                if ( errors != null ) {
+                    errors.add(errorMessage);
+                }
+                builders.add(null);
+                continue;
+            }
+            final JobBuilderImpl builder = (JobBuilderImpl)jb;
+            builders.add(builder);
+            final String errorMessage = Utility.checkJob(builder.getTopic(), builder.getProperties());
+            if ( errorMessage != null ) {
+                logger.warn("{}", errorMessage);
+                if ( errors != null ) {
+                    errors.add(errorMessage);
+                }
+                continue;
+            }
+            final QueueInfo info = this.queueConfigManager.getQueueInfo(builder.getTopic());
+            if ( info.queueConfiguration.getType() == QueueConfiguration.Type.DROP ) {
+                if ( logger.isDebugEnabled() ) {
+                    logger.debug("Dropping job due to configuration of queue {} : {}", info.queueName, Utility.toString(builder.getTopic(), builder.getName(), builder.getProperties()));
+                }
+                Utility.sendNotification(this.eventAdmin, NotificationConstants.TOPIC_JOB_CANCELLED, builder.getTopic(), builder.getName(), builder.getProperties(), null);
+                continue;
+            }
+            infos[i] = info;
+            persist[i] = true;
+            hasNames |= builder.getName() != null;
+        }
+
+        // check for unique jobs
+        if ( hasNames ) {
+            final boolean[] hasLock = persist.clone();
+            this.lock(builders, hasLock);
+            for(int i=0; i<size; i++) {
+                if ( persist[i] && !hasLock[i] ) {
+                    logger.debug("Discarding duplicate job {}", Utility.toString(builders.get(i).getTopic(), builders.get(i).getName(), builders.get(i).getProperties()));
+                    persist[i] = false;
+                    // return the existing job like addJob does
+                    result[i] = this.getJobByName(builders.get(i).getName());
+                }
+            }
+        }
+
+        final TopologyCapabilities caps = this.topologyCapabilities;
+        for(int i=0; i<size; i++) {
+            if ( persist[i] && infos[i].queueConfiguration.getType() != QueueConfiguration.Type.IGNORE ) {
+                infos[i].targetId = (caps == null ? null : caps.detectTarget(builders.get(i).getTopic(), builders.get(i).getProperties(), infos[i]));
+            }
+        }
+
+        this.addJobsInternal(builders, infos, persist, result, errors);
+
+        return new ArrayList<Job>(Arrays.asList(result));
+    }
+
     /**
      * @see org.apache.sling.event.jobs.JobManager#retryJobById(java.lang.String)
      */
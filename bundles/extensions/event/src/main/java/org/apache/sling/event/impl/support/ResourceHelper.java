@@ -285,6 +285,17 @@ public abstract class ResourceHelper {
 
     public static Resource getOrCreateResource(final ResourceResolver resolver,
             final String path, final Map<String, Object> props)
+    throws PersistenceException {
+        return getOrCreateResource(resolver, path, props, true);
+    }
+
+    /**
+     * Get or create a resource.
+     * If <code>autoCommit</code> is <code>false</code>, the caller is responsible
+     * for committing the changes, which allows to persist several resources at once.
+     */
+    public static Resource getOrCreateResource(final ResourceResolver resolver,
+            final String path, final Map<String, Object> props, final boolean autoCommit)
     throws PersistenceException {
         // TODO - we should rather fix ResourceUtil.getOrCreateResource:
         //        on concurrent writes, create might fail!
@@ -294,7 +305,7 @@ public abstract class ResourceHelper {
                         path,
                         props,
                         ResourceHelper.RESOURCE_TYPE_FOLDER,
-                        true);
+                        autoCommit);
             } catch ( final PersistenceException pe ) {
                 // ignore
             }
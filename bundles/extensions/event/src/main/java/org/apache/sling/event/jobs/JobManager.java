@@ -19,6 +19,7 @@
 package org.apache.sling.event.jobs;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.osgi.service.event.Event;
@@ -215,6 +216,23 @@ public interface JobManager {
      */
     Collection<ScheduledJobInfo> getScheduledJobs(String topic, long limit, Map<String, Object>... templates);
 
+    /**
+     * Add a batch of new jobs.
+     * The jobs are added as if {@link JobBuilder#add(List)} has been called for each of the
+     * builders, however the jobs are persisted together and handed over to the queues in
+     * one step. Adding many jobs with this method is considerably faster than adding them
+     * one by one.
+     *
+     * The returned job objects are snapshots of the job state taken at the time of creation.
+     *
+     * @param jobs The job builders, created by {@link #createJob(String)}.
+     * @param errors Optional list which will be filled with error messages.
+     * @return A list containing the new job for each builder in the same order. An entry
+     *         is <code>null</code> if the corresponding job could not be created.
+     * @since 1.6
+     */
+    List<Job> addJobs(List<JobBuilder> jobs, List<String> errors);
+
     /**
      * Add a new job
      *
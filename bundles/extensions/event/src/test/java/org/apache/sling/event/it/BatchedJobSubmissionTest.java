@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.it;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.event.impl.jobs.config.ConfigurationConstants;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobBuilder;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.QueueConfiguration;
+import org.apache.sling.event.jobs.consumer.JobConsumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ops4j.pax.exam.junit.PaxExam;
+import org.ops4j.pax.exam.spi.reactors.ExamReactorStrategy;
+import org.ops4j.pax.exam.spi.reactors.PerMethod;
+import org.osgi.framework.ServiceRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the throughput of adding jobs one by one with adding
+ * them as a batch.
+ */
+@RunWith(PaxExam.class)
+@ExamReactorStrategy(PerMethod.class)
+public class BatchedJobSubmissionTest extends AbstractJobHandlingTest {
+
+    private static final String TOPIC = "sling/batchtest";
+
+    private static final int NUM_JOBS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private String queueConfPid;
+
+    @Override
+    @Before
+    public void setup() throws IOException {
+        super.setup();
+
+        final org.osgi.service.cm.Configuration config = this.configAdmin.createFactoryConfiguration("org.apache.sling.event.jobs.QueueConfiguration", null);
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(ConfigurationConstants.PROP_NAME, "batchtest");
+        props.put(ConfigurationConstants.PROP_TYPE, QueueConfiguration.Type.UNORDERED.name());
+        props.put(ConfigurationConstants.PROP_TOPICS, TOPIC);
+        config.update(props);
+
+        this.queueConfPid = config.getPid();
+
+        this.sleep(1000L);
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        this.removeConfiguration(this.queueConfPid);
+        super.cleanup();
+    }
+
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void testSingleVersusBatchedSubmission() throws Exception {
+        final AtomicInteger count = new AtomicInteger(0);
+        final ServiceRegistration jcReg = this.registerJobConsumer(TOPIC,
+                new JobConsumer() {
+
+                    @Override
+                    public JobResult process(final Job job) {
+                        count.incrementAndGet();
+                        return JobResult.OK;
+                    }
+                });
+        try {
+            final JobManager jobManager = this.getJobManager();
+
+            long start = System.currentTimeMillis();
+            for(int i = 0; i < NUM_JOBS; i++ ) {
+                assertNotNull(jobManager.createJob(TOPIC).add());
+            }
+            final long singleTime = Math.max(1, System.currentTimeMillis() - start);
+            waitForCount(count, NUM_JOBS);
+
+            final List<JobBuilder> builders = new ArrayList<JobBuilder>();
+            for(int i = 0; i < NUM_JOBS; i++ ) {
+                builders.add(jobManager.createJob(TOPIC).properties(Collections.<String, Object>singletonMap("index", i)));
+            }
+            final List<String> errors = new ArrayList<String>();
+            start = System.currentTimeMillis();
+            final List<Job> jobs = jobManager.addJobs(builders, errors);
+            final long batchTime = Math.max(1, System.currentTimeMillis() - start);
+
+            assertEquals(NUM_JOBS, jobs.size());
+            assertEquals(0, errors.size());
+            for(int i = 0; i < NUM_JOBS; i++ ) {
+                assertNotNull(jobs.get(i));
+                assertEquals(i, jobs.get(i).getProperty("index"));
+            }
+            waitForCount(count, 2 * NUM_JOBS);
+
+            logger.info("Added {} jobs: single {} jobs/sec, batched {} jobs/sec",
+                    new Object[] {NUM_JOBS, NUM_JOBS * 1000L / singleTime, NUM_JOBS * 1000L / batchTime});
+        } finally {
+            jcReg.unregister();
+        }
+    }
+
+    private void waitForCount(final AtomicInteger count, final int expected) throws InterruptedException {
+        while ( count.get() < expected ) {
+            Thread.sleep(50);
+        }
+    }
+}
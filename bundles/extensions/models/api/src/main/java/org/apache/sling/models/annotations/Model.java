@@ -49,4 +49,12 @@ public @interface Model {
      */
     public String condition() default "";
 
+    /**
+     * @return If true, the created model instances are cached per adaptable for the duration of the
+     *   request, so adapting the same adaptable again returns the same instance without running the
+     *   injectors again. The instances are disposed at the end of the request. Only adaptables providing
+     *   a resource resolver (requests and resources) are cached, and only while a request is processed.
+     */
+    public boolean cache() default false;
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import javax.inject.Named;
+
+import org.apache.commons.lang.ClassUtils;
+import org.apache.sling.models.annotations.Default;
+import org.apache.sling.models.annotations.DefaultInjectionStrategy;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.Optional;
+import org.apache.sling.models.annotations.Required;
+import org.apache.sling.models.annotations.Source;
+import org.apache.sling.models.annotations.Via;
+
+/**
+ * A field, method or constructor parameter to be injected together with the
+ * information derived from its annotations. This information does not depend
+ * on the adaptable, so it is collected once per model class.
+ * Values provided by an inject annotation processor take precedence over the
+ * values stored here.
+ */
+final class InjectableElement {
+
+    private final AnnotatedElement element;
+    private final Type type;
+    private final boolean primitive;
+    private final String source;
+    private final String name;
+    private final String via;
+    private final Default defaultAnnotation;
+    private final boolean optional;
+
+    /**
+     * @param element Field, method or constructor parameter
+     * @param genericType Type of the element
+     * @param modelAnnotation Model annotation of the model class
+     */
+    InjectableElement(AnnotatedElement element, Type genericType, Model modelAnnotation) {
+        this.element = element;
+        this.type = mapPrimitiveClasses(genericType);
+        this.primitive = (this.type != genericType);
+
+        Source sourceAnnotation = ModelClass.getAnnotation(element, Source.class);
+        this.source = (sourceAnnotation != null ? sourceAnnotation.value() : null);
+        this.name = getName(element);
+        Via viaAnnotation = element.getAnnotation(Via.class);
+        this.via = (viaAnnotation != null ? viaAnnotation.value() : null);
+        this.defaultAnnotation = element.getAnnotation(Default.class);
+        if (modelAnnotation.defaultInjectionStrategy() == DefaultInjectionStrategy.REQUIRED) {
+            this.optional = (element.getAnnotation(Optional.class) != null);
+        } else {
+            this.optional = (element.getAnnotation(Required.class) == null);
+        }
+    }
+
+    public AnnotatedElement getElement() {
+        return element;
+    }
+
+    /**
+     * @return Type of the element, primitive types are mapped to their wrapper class
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the element is of a primitive type
+     */
+    public boolean isPrimitive() {
+        return primitive;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Name given by the {@link Named} annotation or derived from the
+     *         field or method, null for constructor parameters without name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getVia() {
+        return via;
+    }
+
+    public Default getDefaultAnnotation() {
+        return defaultAnnotation;
+    }
+
+    /**
+     * @return true if the element is optional according to its annotations
+     *         and the default injection strategy of the model
+     */
+    public boolean isOptional() {
+        return optional;
+    }
+
+    @Override
+    public String toString() {
+        return element.toString();
+    }
+
+    private static String getName(AnnotatedElement element) {
+        Named named = element.getAnnotation(Named.class);
+        if (named != null) {
+            return named.value();
+        }
+        if (element instanceof Method) {
+            return getNameFromMethod((Method) element);
+        } else if (element instanceof Field) {
+            return ((Field) element).getName();
+        } else if (element instanceof ConstructorParameter) {
+            // implicit name not supported for constructor parameters - but do not throw exception because class-based injection is still possible
+            return null;
+        } else {
+            throw new IllegalArgumentException("The given element must be either method or field but is " + element);
+        }
+    }
+
+    private static String getNameFromMethod(Method method) {
+        String methodName = method.getName();
+        if (methodName.startsWith("get")) {
+            return methodName.substring(3, 4).toLowerCase() + methodName.substring(4);
+        } else if (methodName.startsWith("is")) {
+            return methodName.substring(2, 3).toLowerCase() + methodName.substring(3);
+        } else {
+            return methodName;
+        }
+    }
+
+    static Type mapPrimitiveClasses(Type type) {
+        if (type instanceof Class<?>) {
+            return ClassUtils.primitiveToWrapper((Class<?>) type);
+        } else {
+            return type;
+        }
+    }
+
+}
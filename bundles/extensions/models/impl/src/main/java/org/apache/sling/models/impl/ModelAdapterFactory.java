@@ -16,11 +16,9 @@
  */
 package org.apache.sling.models.impl;
 
-import java.lang.annotation.Annotation;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
@@ -44,9 +42,8 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import javax.annotation.PostConstruct;
-import javax.inject.Inject;
-import javax.inject.Named;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.ArrayUtils;
@@ -63,18 +60,13 @@ import org.apache.sling.api.adapter.AdapterFactory;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.commons.osgi.ServiceUtil;
 import org.apache.sling.models.annotations.Default;
-import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Model;
-import org.apache.sling.models.annotations.Optional;
-import org.apache.sling.models.annotations.Required;
-import org.apache.sling.models.annotations.Source;
-import org.apache.sling.models.annotations.Via;
+import org.apache.sling.models.impl.ModelClass.ModelClassConstructor;
 import org.apache.sling.models.spi.AcceptsNullName;
 import org.apache.sling.models.spi.DisposalCallback;
 import org.apache.sling.models.spi.DisposalCallbackRegistry;
 import org.apache.sling.models.spi.ImplementationPicker;
 import org.apache.sling.models.spi.Injector;
-import org.apache.sling.models.spi.injectorspecific.InjectAnnotation;
 import org.apache.sling.models.spi.injectorspecific.InjectAnnotationProcessor;
 import org.apache.sling.models.spi.injectorspecific.InjectAnnotationProcessorFactory;
 import org.osgi.framework.BundleContext;
@@ -85,12 +77,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component(metatype = true)
-public class ModelAdapterFactory implements AdapterFactory, Runnable {
+public class ModelAdapterFactory implements AdapterFactory, Runnable, ServletRequestListener {
 
-    private static class DisposalCallbackRegistryImpl implements DisposalCallbackRegistry {
+    private static class DisposalCallbackRegistryImpl implements DisposalCallbackRegistry, DisposalCallback {
 
         private List<DisposalCallback> callbacks = new ArrayList<DisposalCallback>();
 
+        private boolean disposed;
+
         @Override
         public void addDisposalCallback(DisposalCallback callback) {
             callbacks.add(callback);
@@ -100,7 +94,18 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             callbacks = Collections.unmodifiableList(callbacks);
         }
 
-        private void onDisposed() {
+        /**
+         * Calls the registered callbacks. A cached model is disposed at the end of the request
+         * and again once it is collected, the callbacks are only called the first time.
+         */
+        @Override
+        public void onDisposed() {
+            synchronized (this) {
+                if (disposed) {
+                    return;
+                }
+                disposed = true;
+            }
             for (DisposalCallback callback : callbacks) {
                 callback.onDisposed();
             }
@@ -150,10 +155,16 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
 
     final AdapterImplementations adapterImplementations = new AdapterImplementations();
 
+    final ModelClassCache modelClassCache = new ModelClassCache();
+
+    final ModelCache modelCache = new ModelCache();
+
     private ServiceRegistration jobRegistration;
 
     private ServiceRegistration configPrinterRegistration;
 
+    private ServiceRegistration requestListenerRegistration;
+
     // Use threadlocal to count recursive invocations and break recursing if a max. limit is reached (to avoid cyclic dependencies)
     private ThreadLocal<ThreadInvocationCounter> invocationCountThreadLocal;
 
@@ -173,10 +184,11 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
                 type = (Class<AdapterType>) implementationType;
             }
 
-            Model modelAnnotation = type.getAnnotation(Model.class);
-            if (modelAnnotation == null) {
+            ModelClass<AdapterType> modelClass = this.modelClassCache.get(type);
+            if (modelClass == null) {
                 return null;
             }
+            Model modelAnnotation = modelClass.getModelAnnotation();
             boolean isAdaptable = false;
 
             Class<?>[] declaredAdaptable = modelAnnotation.adaptables();
@@ -189,60 +201,39 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
                 return null;
             }
 
+            if (modelAnnotation.cache()) {
+                Object cached = this.modelCache.get(adaptable, modelClass);
+                if (cached != null) {
+                    return (AdapterType) cached;
+                }
+            }
+
+            DisposalCallbackRegistryImpl registry = new DisposalCallbackRegistryImpl();
+            AdapterType model;
             if (type.isInterface()) {
-                InvocationHandler handler = createInvocationHandler(adaptable, type, modelAnnotation);
+                InvocationHandler handler = createInvocationHandler(adaptable, modelClass, registry);
                 if (handler != null) {
-                    return (AdapterType) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+                    model = (AdapterType) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
                 } else {
                     return null;
                 }
             } else {
                 try {
-                    return createObject(adaptable, type, modelAnnotation);
+                    model = createObject(adaptable, modelClass, registry);
                 } catch (Exception e) {
                     log.error("unable to create object", e);
                     return null;
                 }
             }
+            if (model != null && modelAnnotation.cache()) {
+                model = (AdapterType) this.modelCache.put(adaptable, modelClass, model, registry);
+            }
+            return model;
         } finally {
             threadInvocationCounter.decrease();
         }
     }
 
-    private Set<Field> collectInjectableFields(Class<?> type) {
-        Set<Field> result = new HashSet<Field>();
-        while (type != null) {
-            Field[] fields = type.getDeclaredFields();
-            addAnnotated(fields, result);
-            type = type.getSuperclass();
-        }
-        return result;
-    }
-
-    private Set<Method> collectInjectableMethods(Class<?> type) {
-        Set<Method> result = new HashSet<Method>();
-        while (type != null) {
-            Method[] methods = type.getDeclaredMethods();
-            addAnnotated(methods, result);
-            type = type.getSuperclass();
-        }
-        return result;
-    }
-
-    private <T extends AnnotatedElement> void addAnnotated(T[] elements, Set<T> set) {
-        for (T element : elements) {
-            Inject injection = getAnnotation(element, Inject.class);
-            if (injection != null) {
-                set.add(element);
-            } else {
-                InjectAnnotation modelInject = getAnnotation(element, InjectAnnotation.class);
-                if (modelInject != null) {
-                    set.add(element);
-                }
-            }
-        }
-    }
-
     private static interface InjectCallback {
         /**
          * Is called each time when the given value should be injected into the given element
@@ -295,12 +286,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         }
     }
 
-    private boolean injectElement(final AnnotatedElement element, final Object adaptable, final Type type,
-            final boolean injectPrimitiveInitialValue, final Model modelAnnotation, final DisposalCallbackRegistry registry,
+    private boolean injectElement(final InjectableElement point, final Object adaptable,
+            final boolean injectPrimitiveInitialValue, final DisposalCallbackRegistry registry,
             final InjectCallback callback) {
 
         InjectAnnotationProcessor annotationProcessor = null;
-        String source = getSource(element);
+        AnnotatedElement element = point.getElement();
+        Type type = point.getType();
+        String source = point.getSource();
         boolean wasInjectionSuccessful = false;
 
         // find an appropriate annotation processor
@@ -311,8 +304,8 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             }
         }
 
-        String name = getName(element, annotationProcessor);
-        Object injectionAdaptable = getAdaptable(adaptable, element, annotationProcessor);
+        String name = getName(point, annotationProcessor);
+        Object injectionAdaptable = getAdaptable(adaptable, point, annotationProcessor);
 
         // find the right injector
         for (Injector injector : sortedInjectors) {
@@ -330,14 +323,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         }
         // if injection failed, use default
         if (!wasInjectionSuccessful) {
-            wasInjectionSuccessful = injectDefaultValue(element, type, annotationProcessor, callback);
+            wasInjectionSuccessful = injectDefaultValue(point, annotationProcessor, callback);
         }
 
         // if default is not set, check if mandatory
         if (!wasInjectionSuccessful) {
-            if (isOptional(element, modelAnnotation, annotationProcessor)) {
+            if (isOptional(point, annotationProcessor)) {
                 if (injectPrimitiveInitialValue) {
-                    injectPrimitiveInitialValue(element, type, callback);
+                    injectPrimitiveInitialValue(point, callback);
                 }
             } else {
                 return false;
@@ -347,30 +340,24 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         return true;
     }
 
-    private InvocationHandler createInvocationHandler(final Object adaptable, final Class<?> type, Model modelAnnotation) {
-        Set<Method> injectableMethods = collectInjectableMethods(type);
+    private InvocationHandler createInvocationHandler(final Object adaptable, final ModelClass<?> modelClass,
+            final DisposalCallbackRegistryImpl registry) {
+        InjectableElement[] injectableMethods = modelClass.getInjectableMethods();
         final Map<Method, Object> methods = new HashMap<Method, Object>();
         SetMethodsCallback callback = new SetMethodsCallback(methods);
         MapBackedInvocationHandler handler = new MapBackedInvocationHandler(methods);
 
-        DisposalCallbackRegistryImpl registry = new DisposalCallbackRegistryImpl();
         registerCallbackRegistry(handler, registry);
-        Set<Method> requiredMethods = new HashSet<Method>();
-
-        for (Method method : injectableMethods) {
-            Type genericReturnType = method.getGenericReturnType();
-            Type returnType = mapPrimitiveClasses(genericReturnType);
-            boolean isPrimitive = false;
-            if (returnType != genericReturnType) {
-                isPrimitive = true;
-            }
-            if (!injectElement(method, adaptable, returnType, isPrimitive, modelAnnotation, registry, callback)) {
+        Set<InjectableElement> requiredMethods = new HashSet<InjectableElement>();
+
+        for (InjectableElement method : injectableMethods) {
+            if (!injectElement(method, adaptable, method.isPrimitive(), registry, callback)) {
                 requiredMethods.add(method);
             }
         }
         registry.seal();
         if (!requiredMethods.isEmpty()) {
-            log.warn("Required methods {} on model interface {} were not able to be injected.", requiredMethods, type);
+            log.warn("Required methods {} on model interface {} were not able to be injected.", requiredMethods, modelClass.getType());
             return null;
         }
         return handler;
@@ -381,57 +368,24 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         disposalCallbacks.put(reference, registry);
     }
 
-    private String getSource(AnnotatedElement element) {
-        Source source = getAnnotation(element, Source.class);
-        if (source != null) {
-            return source.value();
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Get an annotation from either the element itself or on any of the
-     * element's annotations (meta-annotations).
-     * 
-     * @param element the element
-     * @param annotationClass the annotation class
-     * @return the found annotation or null
-     */
-    private <T extends Annotation> T getAnnotation(AnnotatedElement element, Class<T> annotationClass) {
-        T annotation = element.getAnnotation(annotationClass);
-        if (annotation != null) {
-            return annotation;
-        } else {
-            for (Annotation ann : element.getAnnotations()) {
-                annotation = ann.annotationType().getAnnotation(annotationClass);
-                if (annotation != null) {
-                    return annotation;
-                }
-            }
-        }
-        return null;
-    }
-
-    private <AdapterType> AdapterType createObject(Object adaptable, Class<AdapterType> type, Model modelAnnotation)
+    private <AdapterType> AdapterType createObject(Object adaptable, ModelClass<AdapterType> modelClass,
+            DisposalCallbackRegistryImpl registry)
             throws InstantiationException, InvocationTargetException, IllegalAccessException {
-        DisposalCallbackRegistryImpl registry = new DisposalCallbackRegistryImpl();
-
-        Constructor<AdapterType> constructorToUse = getBestMatchingConstructor(adaptable, type);
+        ModelClassConstructor<AdapterType> constructorToUse = getBestMatchingConstructor(adaptable, modelClass);
         if (constructorToUse == null) {
-            log.warn("Model class {} does not have a usable constructor", type.getName());
+            log.warn("Model class {} does not have a usable constructor", modelClass.getType().getName());
             return null;
         }
 
         final AdapterType object;
         if (constructorToUse.getParameterTypes().length == 0) {
             // no parameters for constructor injection? instantiate it right away
-            object = constructorToUse.newInstance();
+            object = constructorToUse.getConstructor().newInstance();
         } else {
             // instantiate with constructor injection
             // if this fails, make sure resources that may be claimed by injectors are cleared up again
             try {
-                object = newInstanceWithConstructorInjection(constructorToUse, adaptable, type, modelAnnotation, registry);
+                object = newInstanceWithConstructorInjection(constructorToUse, adaptable, modelClass, registry);
             } catch (InstantiationException ex) {
                 registry.onDisposed();
                 throw ex;
@@ -453,23 +407,22 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
 
         InjectCallback callback = new SetFieldCallback(object);
 
-        Set<Field> requiredFields = new HashSet<Field>();
+        Set<InjectableElement> requiredFields = new HashSet<InjectableElement>();
 
-        Set<Field> injectableFields = collectInjectableFields(type);
-        for (Field field : injectableFields) {
-            Type fieldType = mapPrimitiveClasses(field.getGenericType());
-            if (!injectElement(field, adaptable, fieldType, false, modelAnnotation, registry, callback)) {
+        InjectableElement[] injectableFields = modelClass.getInjectableFields();
+        for (InjectableElement field : injectableFields) {
+            if (!injectElement(field, adaptable, false, registry, callback)) {
                 requiredFields.add(field);
             }
         }
 
         registry.seal();
         if (!requiredFields.isEmpty()) {
-            log.warn("Required properties {} on model class {} were not able to be injected.", requiredFields, type);
+            log.warn("Required properties {} on model class {} were not able to be injected.", requiredFields, modelClass.getType());
             return null;
         }
         try {
-            invokePostConstruct(object);
+            invokePostConstruct(object, modelClass);
             return object;
         } catch (Exception e) {
             log.error("Unable to invoke post construct method.", e);
@@ -481,95 +434,79 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
     /**
      * Gets best matching constructor for constructor injection - or default constructor if none is found.
      * @param adaptable Adaptable instance
-     * @param type Model type
+     * @param modelClass Model class
      * @return Constructor or null if none found
      */
-    @SuppressWarnings("unchecked")
-    private <AdapterType> Constructor<AdapterType> getBestMatchingConstructor(Object adaptable, Class<AdapterType> type) {
-        Constructor<?>[] constructors = type.getConstructors();
+    private <AdapterType> ModelClassConstructor<AdapterType> getBestMatchingConstructor(Object adaptable, ModelClass<AdapterType> modelClass) {
+        // the constructors are sorted from most params to least params, and constructors with @Inject annotation first
+        ModelClassConstructor<AdapterType>[] constructors = modelClass.getConstructors();
 
-        // sort the constructor list in order from most params to least params, and constructors with @Inject annotation first
-        Arrays.sort(constructors, new ParameterCountInjectComparator());
-
-        for (Constructor<?> constructor : constructors) {
+        for (ModelClassConstructor<AdapterType> constructor : constructors) {
             // first try to find the constructor with most parameters and @Inject annotation
-            if (constructor.isAnnotationPresent(Inject.class)) {
-                return (Constructor<AdapterType>) constructor;
+            if (constructor.hasInjectAnnotation()) {
+                return constructor;
             }
             // compatibility mode for sling models implementation <= 1.0.6:
             // support constructor without @Inject if it has exactly one parameter matching the adaptable class
             final Class<?>[] paramTypes = constructor.getParameterTypes();
             if (paramTypes.length == 1) {
-                Class<?> paramType = constructor.getParameterTypes()[0];
+                Class<?> paramType = paramTypes[0];
                 if (paramType.isInstance(adaptable)) {
-                    return (Constructor<AdapterType>) constructor;
+                    return constructor;
                 }
             }
             // if no constructor for injection found use public constructor without any params
-            if (constructor.getParameterTypes().length == 0) {
-                return (Constructor<AdapterType>) constructor;
+            if (paramTypes.length == 0) {
+                return constructor;
             }
         }
         return null;
     }
 
-    private <AdapterType> AdapterType newInstanceWithConstructorInjection(Constructor<AdapterType> constructor, Object adaptable,
-            Class<AdapterType> type, Model modelAnnotation, DisposalCallbackRegistry registry)
+    private <AdapterType> AdapterType newInstanceWithConstructorInjection(ModelClassConstructor<AdapterType> constructor, Object adaptable,
+            ModelClass<AdapterType> modelClass, DisposalCallbackRegistry registry)
             throws InstantiationException, InvocationTargetException, IllegalAccessException {
-        Set<ConstructorParameter> requiredParameters = new HashSet<ConstructorParameter>();
-        Type[] parameterTypes = constructor.getGenericParameterTypes();
-        List<Object> paramValues = new ArrayList<Object>(Arrays.asList(new Object[parameterTypes.length]));
+        Set<InjectableElement> requiredParameters = new HashSet<InjectableElement>();
+        InjectableElement[] parameters = constructor.getParameters();
+        List<Object> paramValues = new ArrayList<Object>(Arrays.asList(new Object[parameters.length]));
         InjectCallback callback = new SetConstructorParameterCallback(paramValues);
 
-        for (int i = 0; i < parameterTypes.length; i++) {
-            Type genericType = mapPrimitiveClasses(parameterTypes[i]);
-
-            boolean isPrimitive = false;
-            if (parameterTypes[i] != genericType) {
-                isPrimitive = true;
-            }
-            ConstructorParameter constructorParameter = new ConstructorParameter(
-                    constructor.getParameterAnnotations()[i], constructor.getParameterTypes()[i], genericType, i);
-            if (!injectElement(constructorParameter, adaptable, genericType, isPrimitive, modelAnnotation, registry, callback)) {
-                requiredParameters.add(constructorParameter);
+        for (InjectableElement parameter : parameters) {
+            if (!injectElement(parameter, adaptable, parameter.isPrimitive(), registry, callback)) {
+                requiredParameters.add(parameter);
             }
         }
         if (!requiredParameters.isEmpty()) {
-            log.warn("Required constructor parameters {} on model class {} were not able to be injected.", requiredParameters, type);
+            log.warn("Required constructor parameters {} on model class {} were not able to be injected.", requiredParameters, modelClass.getType());
             return null;
         }
-        return constructor.newInstance(paramValues.toArray(new Object[paramValues.size()]));
+        return constructor.getConstructor().newInstance(paramValues.toArray(new Object[paramValues.size()]));
     }
 
-    private boolean isOptional(AnnotatedElement point, Model modelAnnotation, InjectAnnotationProcessor annotationProcessor) {
+    private boolean isOptional(InjectableElement point, InjectAnnotationProcessor annotationProcessor) {
         if (annotationProcessor != null) {
             Boolean isOptional = annotationProcessor.isOptional();
             if (isOptional != null) {
                 return isOptional.booleanValue();
             }
         }
-        if (modelAnnotation.defaultInjectionStrategy() == DefaultInjectionStrategy.REQUIRED) {
-            return (point.getAnnotation(Optional.class) != null);
-        } else {
-            return (point.getAnnotation(Required.class) == null);
-        }
-        
+        return point.isOptional();
     }
 
-    private boolean injectDefaultValue(AnnotatedElement point, Type type, InjectAnnotationProcessor processor,
+    private boolean injectDefaultValue(InjectableElement point, InjectAnnotationProcessor processor,
             InjectCallback callback) {
 
         if (processor != null) {
             if (processor.hasDefault()) {
-                return callback.inject(point, processor.getDefault());
+                return callback.inject(point.getElement(), processor.getDefault());
             }
         }
-        Default defaultAnnotation = point.getAnnotation(Default.class);
+        Default defaultAnnotation = point.getDefaultAnnotation();
         if (defaultAnnotation == null) {
             return false;
         }
 
-        type = mapPrimitiveClasses(type);
+        Type type = point.getType();
         Object value = null;
 
         if (type instanceof Class) {
@@ -630,19 +567,18 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             log.warn("Cannot provide default for {}", type);
             return false;
         }
-        return callback.inject(point, value);
+        return callback.inject(point.getElement(), value);
     }
 
     /**
      * Injects the default initial value for the given primitive class which
      * cannot be null (e.g. int = 0, boolean = false).
      * 
-     * @param point Annotated element
-     * @param wrapperType Non-primitive wrapper class for primitive class
+     * @param point Injectable element of a primitive type
      * @param callback Inject callback
      */
-    private void injectPrimitiveInitialValue(AnnotatedElement point, Type wrapperType, InjectCallback callback) {
-        Type primitiveType = mapWrapperClasses(wrapperType);
+    private void injectPrimitiveInitialValue(InjectableElement point, InjectCallback callback) {
+        Type primitiveType = mapWrapperClasses(point.getType());
         Object value = null;
         if (primitiveType == int.class) {
             value = Integer.valueOf(0);
@@ -662,21 +598,20 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             value = Character.valueOf('\u0000');
         }
         if (value != null) {
-            callback.inject(point, value);
+            callback.inject(point.getElement(), value);
         };
     }
     
-    private Object getAdaptable(Object adaptable, AnnotatedElement point, InjectAnnotationProcessor processor) {
+    private Object getAdaptable(Object adaptable, InjectableElement point, InjectAnnotationProcessor processor) {
         String viaPropertyName = null;
         if (processor != null) {
             viaPropertyName = processor.getVia();
         }
         if (viaPropertyName == null) {
-            Via viaAnnotation = point.getAnnotation(Via.class);
-            if (viaAnnotation == null) {
+            viaPropertyName = point.getVia();
+            if (viaPropertyName == null) {
                 return adaptable;
             }
-            viaPropertyName = viaAnnotation.value();
         }
         try {
             return PropertyUtils.getProperty(adaptable, viaPropertyName);
@@ -686,7 +621,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         }
     }
 
-    private String getName(AnnotatedElement element, InjectAnnotationProcessor processor) {
+    private String getName(InjectableElement point, InjectAnnotationProcessor processor) {
         // try to get the name from injector-specific annotation
         if (processor != null) {
             String name = processor.getName();
@@ -694,71 +629,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
                 return name;
             }
         }
-        // alternative for name attribute
-        Named named = element.getAnnotation(Named.class);
-        if (named != null) {
-            return named.value();
-        }
-        if (element instanceof Method) {
-            return getNameFromMethod((Method) element);
-        } else if (element instanceof Field) {
-            return getNameFromField((Field) element);
-        } else if (element instanceof ConstructorParameter) {
-            // implicit name not supported for constructor parameters - but do not throw exception because class-based injection is still possible
-            return null;
-        } else {
-            throw new IllegalArgumentException("The given element must be either method or field but is " + element);
-        }
-    }
-
-    private String getNameFromField(Field field) {
-        return field.getName();
+        // otherwise use the name given by @Named or derived from the field or method
+        return point.getName();
     }
 
-    private String getNameFromMethod(Method method) {
-        String methodName = method.getName();
-        if (methodName.startsWith("get")) {
-            return methodName.substring(3, 4).toLowerCase() + methodName.substring(4);
-        } else if (methodName.startsWith("is")) {
-            return methodName.substring(2, 3).toLowerCase() + methodName.substring(3);
-        } else {
-            return methodName;
-        }
-    }
-
-    private void invokePostConstruct(Object object) throws Exception {
-        Class<?> clazz = object.getClass();
-        List<Method> postConstructMethods = new ArrayList<Method>();
-        while (clazz != null) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.isAnnotationPresent(PostConstruct.class)) {
-                    postConstructMethods.add(method);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        Collections.reverse(postConstructMethods);
-        for (Method method : postConstructMethods) {
-            boolean accessible = method.isAccessible();
-            try {
-                if (!accessible) {
-                    method.setAccessible(true);
-                }
-                method.invoke(object);
-            } finally {
-                if (!accessible) {
-                    method.setAccessible(false);
-                }
-            }
-        }
-    }
-
-    private static Type mapPrimitiveClasses(Type type) {
-        if (type instanceof Class<?>) {
-            return ClassUtils.primitiveToWrapper((Class<?>) type);
-        } else {
-            return type;
+    private void invokePostConstruct(Object object, ModelClass<?> modelClass) throws Exception {
+        // the post construct methods are already made accessible
+        for (Method method : modelClass.getPostConstructMethods()) {
+            method.invoke(object);
         }
     }
 
@@ -777,20 +655,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             if (value == null) {
                 return false;
             }
-            boolean accessible = field.isAccessible();
+            // the field is already made accessible
             try {
-                if (!accessible) {
-                    field.setAccessible(true);
-                }
                 field.set(createdObject, value);
                 return true;
             } catch (Exception e) {
                 log.error("unable to inject field", e);
                 return false;
-            } finally {
-                if (!accessible) {
-                    field.setAccessible(false);
-                }
             }
         } else {
             return false;
@@ -921,7 +792,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
 
         this.jobRegistration = bundleContext.registerService(Runnable.class.getName(), this, properties);
 
-        this.listener = new ModelPackageBundleListener(ctx.getBundleContext(), this, this.adapterImplementations);
+        this.listener = new ModelPackageBundleListener(ctx.getBundleContext(), this, this.adapterImplementations, this.modelClassCache);
 
         Hashtable<Object, Object> printerProps = new Hashtable<Object, Object>();
         printerProps.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
@@ -932,12 +803,20 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
 
         this.configPrinterRegistration = bundleContext.registerService(Object.class.getName(),
                 new ModelConfigurationPrinter(this), printerProps);
+
+        Hashtable<Object, Object> listenerProps = new Hashtable<Object, Object>();
+        listenerProps.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
+        listenerProps.put(Constants.SERVICE_DESCRIPTION, "Sling Models Cache Request Listener");
+        this.requestListenerRegistration = bundleContext.registerService(ServletRequestListener.class.getName(),
+                this, listenerProps);
     }
 
     @Deactivate
     protected void deactivate() {
         this.listener.unregisterAll();
         this.adapterImplementations.removeAll();
+        this.modelClassCache.removeAll();
+        this.modelCache.removeAll();
         if (jobRegistration != null) {
             jobRegistration.unregister();
             jobRegistration = null;
@@ -946,6 +825,10 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
             configPrinterRegistration.unregister();
             configPrinterRegistration = null;
         }
+        if (requestListenerRegistration != null) {
+            requestListenerRegistration.unregister();
+            requestListenerRegistration = null;
+        }
     }
 
     protected void bindInjector(final Injector injector, final Map<String, Object> props) {
@@ -990,6 +873,15 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         }
     }
 
+    public void requestInitialized(ServletRequestEvent sre) {
+        modelCache.requestStarted();
+    }
+
+    public void requestDestroyed(ServletRequestEvent sre) {
+        // release and dispose the models cached during the request
+        modelCache.requestEnded();
+    }
+
     Injector[] getInjectors() {
         return sortedInjectors;
     }
@@ -1002,4 +894,8 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable {
         return adapterImplementations.getImplementationPickers();
     }
 
+    ModelCache getModelCache() {
+        return modelCache;
+    }
+
 }
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.spi.DisposalCallback;
+
+/**
+ * Caches the instances of the model classes with {@link Model#cache()} enabled per adaptable.
+ * The instances are bound to the resource resolver of the adaptable, i.e. the resolver of the
+ * request or of the resource, and are only cached while a request is processed by the current
+ * thread. At the end of the request the instances bound to the resource resolvers used during
+ * the request are released and disposed through their disposal callbacks, so neither the
+ * instances nor the resolvers are held beyond the request, even if the resolver stays open
+ * (e.g. a pooled resolver). Instances adapted from a request are cached per resource of the
+ * request, as includes reuse the request object for a different resource.
+ * <p>
+ * The number of adaptables per resolver is bounded; the least recently used entries are evicted
+ * first and disposed once they are collected. The implementation is thread-safe.
+ */
+final class ModelCache {
+
+    static final int DEFAULT_MAX_ADAPTABLES = 1000;
+
+    private final int maxAdaptables;
+
+    /** The cached instances per resource resolver, per adaptable and per model class. Guarded by itself. */
+    private final Map<ResourceResolver, Map<AdaptableKey, Map<Class<?>, CachedModel>>> cache =
+            new HashMap<ResourceResolver, Map<AdaptableKey, Map<Class<?>, CachedModel>>>();
+
+    /** The resource resolvers with cached instances of the request processed by the current thread. */
+    private final ThreadLocal<Set<ResourceResolver>> requestResolvers = new ThreadLocal<Set<ResourceResolver>>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong injectionsAvoided = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ModelCache() {
+        this(DEFAULT_MAX_ADAPTABLES);
+    }
+
+    ModelCache(final int maxAdaptables) {
+        this.maxAdaptables = maxAdaptables;
+    }
+
+    /**
+     * Start caching for the request processed by the current thread.
+     */
+    public void requestStarted() {
+        requestResolvers.set(new HashSet<ResourceResolver>());
+    }
+
+    /**
+     * Release and dispose the instances bound to the resource resolvers used by the request
+     * processed by the current thread.
+     */
+    public void requestEnded() {
+        Set<ResourceResolver> resolvers = requestResolvers.get();
+        requestResolvers.remove();
+        if (resolvers == null || resolvers.isEmpty()) {
+            return;
+        }
+        List<Map<AdaptableKey, Map<Class<?>, CachedModel>>> released = new ArrayList<Map<AdaptableKey, Map<Class<?>, CachedModel>>>();
+        synchronized (cache) {
+            for (ResourceResolver resolver : resolvers) {
+                Map<AdaptableKey, Map<Class<?>, CachedModel>> adaptables = cache.remove(resolver);
+                if (adaptables != null) {
+                    released.add(adaptables);
+                }
+            }
+        }
+        // dispose outside of the lock, the callbacks might take a while
+        for (Map<AdaptableKey, Map<Class<?>, CachedModel>> adaptables : released) {
+            for (Map<Class<?>, CachedModel> models : adaptables.values()) {
+                for (CachedModel cached : models.values()) {
+                    cached.disposal.onDisposed();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the cached instance of the model class for the adaptable.
+     * @param adaptable Adaptable
+     * @param modelClass Model class
+     * @return Cached instance or null
+     */
+    public Object get(Object adaptable, ModelClass<?> modelClass) {
+        ResourceResolver resolver = getResourceResolver(adaptable);
+        if (resolver == null || requestResolvers.get() == null) {
+            return null;
+        }
+        CachedModel cached = null;
+        synchronized (cache) {
+            Map<AdaptableKey, Map<Class<?>, CachedModel>> adaptables = cache.get(resolver);
+            if (adaptables != null) {
+                Map<Class<?>, CachedModel> models = adaptables.get(new AdaptableKey(adaptable));
+                if (models != null) {
+                    cached = models.get(modelClass.getType());
+                }
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            injectionsAvoided.addAndGet(modelClass.getInjectionPointCount());
+            return cached.model;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache the instance of the model class for the adaptable, if a request is processed
+     * by the current thread. If an instance has been cached concurrently, the already
+     * cached instance is kept.
+     * @param adaptable Adaptable
+     * @param modelClass Model class
+     * @param model Model instance
+     * @param disposal Callback disposing the instance once it is released at the end of the request
+     * @return The cached instance
+     */
+    public Object put(Object adaptable, ModelClass<?> modelClass, Object model, DisposalCallback disposal) {
+        ResourceResolver resolver = getResourceResolver(adaptable);
+        Set<ResourceResolver> resolvers = requestResolvers.get();
+        if (resolver == null || resolvers == null) {
+            return model;
+        }
+        resolvers.add(resolver);
+        synchronized (cache) {
+            Map<AdaptableKey, Map<Class<?>, CachedModel>> adaptables = cache.get(resolver);
+            if (adaptables == null) {
+                adaptables = new LinkedHashMap<AdaptableKey, Map<Class<?>, CachedModel>>(16, 0.75f, true) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<AdaptableKey, Map<Class<?>, CachedModel>> eldest) {
+                        if (size() > maxAdaptables) {
+                            evictions.incrementAndGet();
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+                cache.put(resolver, adaptables);
+            }
+            final AdaptableKey key = new AdaptableKey(adaptable);
+            Map<Class<?>, CachedModel> models = adaptables.get(key);
+            if (models == null) {
+                models = new HashMap<Class<?>, CachedModel>();
+                adaptables.put(key, models);
+            }
+            CachedModel existing = models.get(modelClass.getType());
+            if (existing != null) {
+                return existing.model;
+            }
+            models.put(modelClass.getType(), new CachedModel(model, disposal));
+            return model;
+        }
+    }
+
+    /**
+     * Release all cached instances.
+     */
+    public void removeAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return Number of resource resolvers with cached instances
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of adaptables whose instances were released because the bound was exceeded
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Number of injections not run because a cached instance was returned
+     */
+    public long getInjectionsAvoided() {
+        return injectionsAvoided.get();
+    }
+
+    private static ResourceResolver getResourceResolver(Object adaptable) {
+        if (adaptable instanceof Resource) {
+            return ((Resource) adaptable).getResourceResolver();
+        } else if (adaptable instanceof SlingHttpServletRequest) {
+            return ((SlingHttpServletRequest) adaptable).getResourceResolver();
+        }
+        return null;
+    }
+
+    /**
+     * A cached instance together with the callback disposing it.
+     */
+    private static final class CachedModel {
+
+        private final Object model;
+
+        private final DisposalCallback disposal;
+
+        CachedModel(final Object model, final DisposalCallback disposal) {
+            this.model = model;
+            this.disposal = disposal;
+        }
+    }
+
+    /**
+     * Key of an adaptable, comparing by identity. A request is combined with its current
+     * resource as an include dispatches the same request object for a different resource.
+     */
+    private static final class AdaptableKey {
+
+        private final Object adaptable;
+
+        private final Object resource;
+
+        AdaptableKey(final Object adaptable) {
+            this.adaptable = adaptable;
+            this.resource = adaptable instanceof SlingHttpServletRequest
+                    ? ((SlingHttpServletRequest) adaptable).getResource() : null;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(adaptable) + System.identityHashCode(resource);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof AdaptableKey)) {
+                return false;
+            }
+            final AdaptableKey other = (AdaptableKey) obj;
+            return adaptable == other.adaptable && resource == other.resource;
+        }
+    }
+
+}
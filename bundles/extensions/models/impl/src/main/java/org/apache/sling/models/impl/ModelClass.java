@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.spi.injectorspecific.InjectAnnotation;
+
+/**
+ * The injection metadata of a model class: its constructors, injectable
+ * fields and methods and post construct methods. It is collected once per
+ * model class, so the reflection and annotation lookups are not repeated
+ * on each adaptation.
+ * Fields and post construct methods are made accessible once when the
+ * metadata is collected.
+ */
+final class ModelClass<ModelType> {
+
+    /**
+     * A public constructor of the model class together with its injectable parameters.
+     */
+    static final class ModelClassConstructor<ModelType> {
+
+        private final Constructor<ModelType> constructor;
+        private final boolean hasInjectAnnotation;
+        private final Class<?>[] parameterTypes;
+        private final InjectableElement[] parameters;
+
+        ModelClassConstructor(Constructor<ModelType> constructor, Model modelAnnotation) {
+            this.constructor = constructor;
+            this.hasInjectAnnotation = constructor.isAnnotationPresent(Inject.class);
+            this.parameterTypes = constructor.getParameterTypes();
+
+            Type[] genericParameterTypes = constructor.getGenericParameterTypes();
+            Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+            this.parameters = new InjectableElement[genericParameterTypes.length];
+            for (int i = 0; i < genericParameterTypes.length; i++) {
+                Type genericType = InjectableElement.mapPrimitiveClasses(genericParameterTypes[i]);
+                ConstructorParameter constructorParameter = new ConstructorParameter(
+                        parameterAnnotations[i], parameterTypes[i], genericType, i);
+                this.parameters[i] = new InjectableElement(constructorParameter, genericParameterTypes[i], modelAnnotation);
+            }
+        }
+
+        public Constructor<ModelType> getConstructor() {
+            return constructor;
+        }
+
+        public boolean hasInjectAnnotation() {
+            return hasInjectAnnotation;
+        }
+
+        public Class<?>[] getParameterTypes() {
+            return parameterTypes;
+        }
+
+        public InjectableElement[] getParameters() {
+            return parameters;
+        }
+
+    }
+
+    private final Class<ModelType> type;
+    private final Model modelAnnotation;
+    private final ModelClassConstructor<ModelType>[] constructors;
+    private final InjectableElement[] injectableFields;
+    private final InjectableElement[] injectableMethods;
+    private final Method[] postConstructMethods;
+    private final int injectionPointCount;
+
+    @SuppressWarnings("unchecked")
+    ModelClass(Class<ModelType> type, Model modelAnnotation) {
+        this.type = type;
+        this.modelAnnotation = modelAnnotation;
+
+        if (type.isInterface()) {
+            this.constructors = new ModelClassConstructor[0];
+            this.injectableFields = new InjectableElement[0];
+            this.injectableMethods = collectInjectableMethods(type, modelAnnotation);
+            this.postConstructMethods = new Method[0];
+        } else {
+            // sort the constructor list in order from most params to least params, and constructors with @Inject annotation first
+            Constructor<?>[] publicConstructors = type.getConstructors();
+            Arrays.sort(publicConstructors, new ParameterCountInjectComparator());
+            this.constructors = new ModelClassConstructor[publicConstructors.length];
+            for (int i = 0; i < publicConstructors.length; i++) {
+                this.constructors[i] = new ModelClassConstructor<ModelType>((Constructor<ModelType>) publicConstructors[i], modelAnnotation);
+            }
+            this.injectableFields = collectInjectableFields(type, modelAnnotation);
+            this.injectableMethods = new InjectableElement[0];
+            this.postConstructMethods = collectPostConstructMethods(type);
+        }
+
+        int count = injectableFields.length + injectableMethods.length;
+        for (ModelClassConstructor<ModelType> constructor : constructors) {
+            if (constructor.hasInjectAnnotation()) {
+                count += constructor.getParameters().length;
+                break;
+            }
+        }
+        this.injectionPointCount = count;
+    }
+
+    public Class<ModelType> getType() {
+        return type;
+    }
+
+    public Model getModelAnnotation() {
+        return modelAnnotation;
+    }
+
+    /**
+     * @return Public constructors sorted from most params to least params,
+     *         constructors with @Inject annotation first
+     */
+    public ModelClassConstructor<ModelType>[] getConstructors() {
+        return constructors;
+    }
+
+    /**
+     * @return Injectable fields of the class and its superclasses, already made accessible
+     */
+    public InjectableElement[] getInjectableFields() {
+        return injectableFields;
+    }
+
+    /**
+     * @return Injectable methods of a model interface
+     */
+    public InjectableElement[] getInjectableMethods() {
+        return injectableMethods;
+    }
+
+    /**
+     * @return Post construct methods, the ones of the superclasses first, already made accessible
+     */
+    public Method[] getPostConstructMethods() {
+        return postConstructMethods;
+    }
+
+    /**
+     * @return Number of injectable fields, methods and parameters of the @Inject constructor
+     */
+    public int getInjectionPointCount() {
+        return injectionPointCount;
+    }
+
+    private static InjectableElement[] collectInjectableFields(Class<?> type, Model modelAnnotation) {
+        List<InjectableElement> result = new ArrayList<InjectableElement>();
+        while (type != null) {
+            for (Field field : type.getDeclaredFields()) {
+                if (isInjectable(field)) {
+                    field.setAccessible(true);
+                    result.add(new InjectableElement(field, field.getGenericType(), modelAnnotation));
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return result.toArray(new InjectableElement[result.size()]);
+    }
+
+    private static InjectableElement[] collectInjectableMethods(Class<?> type, Model modelAnnotation) {
+        List<InjectableElement> result = new ArrayList<InjectableElement>();
+        while (type != null) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (isInjectable(method)) {
+                    result.add(new InjectableElement(method, method.getGenericReturnType(), modelAnnotation));
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return result.toArray(new InjectableElement[result.size()]);
+    }
+
+    private static Method[] collectPostConstructMethods(Class<?> type) {
+        List<Method> result = new ArrayList<Method>();
+        while (type != null) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PostConstruct.class)) {
+                    method.setAccessible(true);
+                    result.add(method);
+                }
+            }
+            type = type.getSuperclass();
+        }
+        Collections.reverse(result);
+        return result.toArray(new Method[result.size()]);
+    }
+
+    private static boolean isInjectable(AnnotatedElement element) {
+        return getAnnotation(element, Inject.class) != null || getAnnotation(element, InjectAnnotation.class) != null;
+    }
+
+    /**
+     * Get an annotation from either the element itself or on any of the
+     * element's annotations (meta-annotations).
+     * 
+     * @param element the element
+     * @param annotationClass the annotation class
+     * @return the found annotation or null
+     */
+    static <T extends Annotation> T getAnnotation(AnnotatedElement element, Class<T> annotationClass) {
+        T annotation = element.getAnnotation(annotationClass);
+        if (annotation != null) {
+            return annotation;
+        } else {
+            for (Annotation ann : element.getAnnotations()) {
+                annotation = ann.annotationType().getAnnotation(annotationClass);
+                if (annotation != null) {
+                    return annotation;
+                }
+            }
+        }
+        return null;
+    }
+
+}
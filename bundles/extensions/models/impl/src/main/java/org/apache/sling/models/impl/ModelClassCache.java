@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.sling.models.annotations.Model;
+
+/**
+ * Caches the {@link ModelClass} metadata of the model classes, so it is collected only once per class.
+ * Entries are removed by the {@link ModelPackageBundleListener} when the bundle providing the model class goes away.
+ * The implementation is thread-safe.
+ */
+final class ModelClassCache {
+
+    private final ConcurrentMap<Class<?>, ModelClass<?>> modelClasses = new ConcurrentHashMap<Class<?>, ModelClass<?>>();
+
+    /**
+     * Get the metadata of the model class, collecting it on first access.
+     * @param type Model class
+     * @return Model class metadata or null if the class is not annotated with {@link Model}
+     */
+    @SuppressWarnings("unchecked")
+    public <ModelType> ModelClass<ModelType> get(Class<ModelType> type) {
+        ModelClass<ModelType> modelClass = (ModelClass<ModelType>) modelClasses.get(type);
+        if (modelClass == null) {
+            Model modelAnnotation = type.getAnnotation(Model.class);
+            if (modelAnnotation == null) {
+                return null;
+            }
+            modelClass = new ModelClass<ModelType>(type, modelAnnotation);
+            ModelClass<ModelType> existing = (ModelClass<ModelType>) modelClasses.putIfAbsent(type, modelClass);
+            if (existing != null) {
+                modelClass = existing;
+            }
+        }
+        return modelClass;
+    }
+
+    /**
+     * Remove the metadata of all model classes with the given name.
+     * @param implTypeName Implementation type name
+     */
+    public void remove(String implTypeName) {
+        Iterator<Class<?>> types = modelClasses.keySet().iterator();
+        while (types.hasNext()) {
+            if (types.next().getName().equals(implTypeName)) {
+                types.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove the metadata of all model classes.
+     */
+    public void removeAll() {
+        modelClasses.clear();
+    }
+
+    public int size() {
+        return modelClasses.size();
+    }
+
+}
@@ -69,6 +69,15 @@ public class ModelConfigurationPrinter {
                 printWriter.println();
             }
         }
+        printWriter.println();
+
+        // model cache
+        printWriter.println("Sling Models Cache:");
+        ModelCache modelCache = modelAdapterFactory.getModelCache();
+        printWriter.printf("%d resource resolvers, %d hits, %d misses, %d injections avoided, %d evictions",
+                modelCache.size(), modelCache.getHits(), modelCache.getMisses(), modelCache.getInjectionsAvoided(),
+                modelCache.getEvictions());
+        printWriter.println();
     }
 
 }
\ No newline at end of file
@@ -60,13 +60,17 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
     private final AdapterFactory factory;
     
     private final AdapterImplementations adapterImplementations;
+
+    private final ModelClassCache modelClassCache;
     
     public ModelPackageBundleListener(BundleContext bundleContext,
             AdapterFactory factory,
-            AdapterImplementations adapterImplementations) {
+            AdapterImplementations adapterImplementations,
+            ModelClassCache modelClassCache) {
         this.bundleContext = bundleContext;
         this.factory = factory;
         this.adapterImplementations = adapterImplementations;
+        this.modelClassCache = modelClassCache;
         this.bundleTracker = new BundleTracker(bundleContext, Bundle.ACTIVE, this);
         this.bundleTracker.open();
     }
@@ -139,6 +143,8 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
                 for (String adapterTypeName : adapterTypeNames) {
                     adapterImplementations.remove(adapterTypeName, implTypeName);
                 }
+                // drop the cached metadata, so the classes of the removed bundle are not kept
+                modelClassCache.remove(implTypeName);
                 reg.unregister();
             }
         }
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.models.impl.injectors.ValueMapInjector;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.testmodels.classes.CachedModel;
+import org.apache.sling.models.testmodels.classes.CachedRequestModel;
+import org.apache.sling.models.spi.DisposalCallback;
+import org.apache.sling.models.testmodels.classes.SimplePropertyModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingTest {
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private ResourceResolver resolver;
+
+    private ModelAdapterFactory factory;
+
+    @Before
+    public void setup() {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        factory.bindInjector(new ValueMapInjector(), new ServicePropertiesMap(1, 1));
+        factory.requestInitialized(null);
+    }
+
+    @After
+    public void cleanup() {
+        factory.requestDestroyed(null);
+    }
+
+    private Resource createResource(ResourceResolver resourceResolver) {
+        ValueMap map = new ValueMapDecorator(Collections.<String, Object> singletonMap("testValue", "test"));
+        Resource resource = mock(Resource.class);
+        when(resource.adaptTo(ValueMap.class)).thenReturn(map);
+        when(resource.getResourceResolver()).thenReturn(resourceResolver);
+        return resource;
+    }
+
+    @Test
+    public void testCachedPerAdaptable() {
+        Resource resource = createResource(resolver);
+        CachedModel first = factory.getAdapter(resource, CachedModel.class);
+        assertNotNull(first);
+        assertEquals("test", first.getTestValue());
+        assertSame(first, factory.getAdapter(resource, CachedModel.class));
+        assertSame(first, factory.getAdapter(resource, CachedModel.class));
+
+        // the injector was only called once
+        verify(resource, times(1)).adaptTo(ValueMap.class);
+
+        CachedModel other = factory.getAdapter(createResource(resolver), CachedModel.class);
+        assertNotNull(other);
+        assertNotSame(first, other);
+
+        assertEquals(2, factory.modelCache.getHits());
+        assertEquals(2, factory.modelCache.getMisses());
+        assertEquals(2, factory.modelCache.getInjectionsAvoided());
+    }
+
+    @Test
+    public void testNotCachedWithoutOptIn() {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("first", "first-value");
+        properties.put("third", "third-value");
+        properties.put("intProperty", 3);
+        properties.put("arrayProperty", new String[] { "three", "four" });
+        Resource resource = createResource(resolver);
+        when(resource.adaptTo(ValueMap.class)).thenReturn(new ValueMapDecorator(properties));
+
+        SimplePropertyModel first = factory.getAdapter(resource, SimplePropertyModel.class);
+        assertNotNull(first);
+        assertNotSame(first, factory.getAdapter(resource, SimplePropertyModel.class));
+        assertEquals(0, factory.modelCache.size());
+        assertEquals(0, factory.modelCache.getMisses());
+    }
+
+    @Test
+    public void testNotCachedWithoutResourceResolver() {
+        Resource resource = createResource(null);
+        CachedModel first = factory.getAdapter(resource, CachedModel.class);
+        assertNotNull(first);
+        assertNotSame(first, factory.getAdapter(resource, CachedModel.class));
+        assertEquals(0, factory.modelCache.size());
+    }
+
+    @Test
+    public void testReleasedAtRequestEnd() {
+        Resource resource = createResource(resolver);
+        CachedModel first = factory.getAdapter(resource, CachedModel.class);
+        assertEquals(1, factory.modelCache.size());
+        assertSame(first, factory.getAdapter(resource, CachedModel.class));
+
+        // the resource resolver is still open, e.g. a pooled one
+        factory.requestDestroyed(null);
+        assertEquals(0, factory.modelCache.size());
+
+        factory.requestInitialized(null);
+        assertNotSame(first, factory.getAdapter(resource, CachedModel.class));
+    }
+
+    @Test
+    public void testNotCachedOutsideOfRequest() {
+        factory.requestDestroyed(null);
+        Resource resource = createResource(resolver);
+        CachedModel first = factory.getAdapter(resource, CachedModel.class);
+        assertNotNull(first);
+        assertNotSame(first, factory.getAdapter(resource, CachedModel.class));
+        assertEquals(0, factory.modelCache.size());
+    }
+
+    @Test
+    public void testRequestCachedPerResource() {
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        when(request.getResourceResolver()).thenReturn(resolver);
+        Resource resource = createResource(resolver);
+        when(request.getResource()).thenReturn(resource);
+
+        CachedRequestModel first = factory.getAdapter(request, CachedRequestModel.class);
+        assertNotNull(first);
+        assertSame(first, factory.getAdapter(request, CachedRequestModel.class));
+
+        // an include dispatches the same request for another resource
+        Resource included = createResource(resolver);
+        when(included.adaptTo(ValueMap.class)).thenReturn(
+                new ValueMapDecorator(Collections.<String, Object> singletonMap("testValue", "included")));
+        when(request.getResource()).thenReturn(included);
+        CachedRequestModel other = factory.getAdapter(request, CachedRequestModel.class);
+        assertNotNull(other);
+        assertNotSame(first, other);
+        assertEquals("included", other.getTestValue());
+        assertSame(other, factory.getAdapter(request, CachedRequestModel.class));
+
+        // back in the including component
+        when(request.getResource()).thenReturn(resource);
+        assertSame(first, factory.getAdapter(request, CachedRequestModel.class));
+    }
+
+    @Test
+    public void testDisposedAtRequestEnd() {
+        ModelCache cache = new ModelCache();
+        ModelClass<CachedModel> modelClass = new ModelClass<CachedModel>(CachedModel.class,
+                CachedModel.class.getAnnotation(Model.class));
+        DisposalCallback disposal = mock(DisposalCallback.class);
+        cache.requestStarted();
+        cache.put(createResource(resolver), modelClass, new CachedModel(), disposal);
+        verify(disposal, never()).onDisposed();
+
+        cache.requestEnded();
+        verify(disposal, times(1)).onDisposed();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBoundedPerResourceResolver() {
+        ModelCache cache = new ModelCache(2);
+        ModelClass<CachedModel> modelClass = new ModelClass<CachedModel>(CachedModel.class,
+                CachedModel.class.getAnnotation(Model.class));
+        DisposalCallback disposal = mock(DisposalCallback.class);
+        cache.requestStarted();
+        Resource first = createResource(resolver);
+        Resource second = createResource(resolver);
+        cache.put(first, modelClass, new CachedModel(), disposal);
+        cache.put(second, modelClass, new CachedModel(), disposal);
+        assertNotNull(cache.get(first, modelClass));
+
+        // the least recently used adaptable is evicted, it is disposed once collected
+        cache.put(createResource(resolver), modelClass, new CachedModel(), disposal);
+        assertNotNull(cache.get(first, modelClass));
+        assertNull(cache.get(second, modelClass));
+        assertEquals(1, cache.getEvictions());
+
+        // the other resource resolvers have their own bound
+        cache.put(createResource(mock(ResourceResolver.class)), modelClass, new CachedModel(), disposal);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(first, modelClass));
+
+        cache.requestEnded();
+        verify(disposal, times(3)).onDisposed();
+    }
+
+}
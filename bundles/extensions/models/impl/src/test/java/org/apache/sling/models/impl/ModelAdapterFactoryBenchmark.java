@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.models.impl.injectors.ValueMapInjector;
+import org.apache.sling.models.testmodels.classes.SimplePropertyModel;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+/**
+ * Compares the adaptation throughput with the cached model class metadata
+ * to the throughput when the metadata is collected on each adaptation, as
+ * it was done before the metadata was cached.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=ModelAdapterFactoryBenchmark</code>.
+ */
+public class ModelAdapterFactoryBenchmark {
+
+    private static final int ADAPTATIONS = 200000;
+
+    private static final int RUNS = 5;
+
+    private int adapt(ModelAdapterFactory factory, Resource resource, boolean cached) {
+        int count = 0;
+        for (int i = 0; i < ADAPTATIONS; i++) {
+            if (!cached) {
+                factory.modelClassCache.removeAll();
+            }
+            SimplePropertyModel model = factory.getAdapter(resource, SimplePropertyModel.class);
+            if (model != null && model.isPostConstructCalled()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void compareUncachedAndCached() {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ComponentContext componentCtx = mock(ComponentContext.class);
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+
+        ModelAdapterFactory factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        factory.bindInjector(new ValueMapInjector(), new ServicePropertiesMap(1, 1));
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("first", "first-value");
+        properties.put("third", "third-value");
+        properties.put("intProperty", 42);
+        properties.put("arrayProperty", new String[] { "a", "b" });
+        ValueMap vm = new ValueMapDecorator(properties);
+        Resource resource = mock(Resource.class);
+        when(resource.adaptTo(ValueMap.class)).thenReturn(vm);
+
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            assertEquals(ADAPTATIONS, adapt(factory, resource, false));
+            long uncached = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(ADAPTATIONS, adapt(factory, resource, true));
+            long cached = System.nanoTime() - start;
+
+            System.out.printf("run %d: uncached %d adaptations/s, cached %d adaptations/s%n", i,
+                    ADAPTATIONS * 1000000000L / uncached, ADAPTATIONS * 1000000000L / cached);
+        }
+    }
+
+}
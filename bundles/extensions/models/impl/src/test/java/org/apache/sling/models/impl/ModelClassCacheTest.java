@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Hashtable;
+
+import org.apache.sling.api.adapter.AdapterFactory;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.models.testmodels.classes.SimplePropertyModel;
+import org.apache.sling.models.testmodels.classes.SubClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ModelClassCacheTest {
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private Bundle bundle;
+
+    @Mock
+    private ServiceRegistration registration;
+
+    @Mock
+    private ServiceReference reference;
+
+    private ModelAdapterFactory factory;
+
+    @Before
+    public void setup() {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+    }
+
+    @Test
+    public void testMetadataCollectedOnce() {
+        ModelClass<SimplePropertyModel> modelClass = factory.modelClassCache.get(SimplePropertyModel.class);
+        assertNotNull(modelClass);
+        assertSame(modelClass, factory.modelClassCache.get(SimplePropertyModel.class));
+        assertEquals(5, modelClass.getInjectableFields().length);
+        assertEquals(1, modelClass.getPostConstructMethods().length);
+    }
+
+    @Test
+    public void testNoModelClass() {
+        assertNull(factory.modelClassCache.get(String.class));
+        assertEquals(0, factory.modelClassCache.size());
+    }
+
+    @Test
+    public void testCachedMetadataIsUsed() {
+        Resource r = mock(Resource.class);
+        SubClass first = factory.getAdapter(r, SubClass.class);
+        SubClass second = factory.getAdapter(r, SubClass.class);
+        assertTrue(first.getPostConstructCalledTimestampInSuper() > 0);
+        assertTrue(second.getPostConstructCalledTimestampInSub() > second.getPostConstructCalledTimestampInSuper());
+        assertEquals(1, factory.modelClassCache.size());
+    }
+
+    @Test
+    public void testRemovedBundle() {
+        ModelClass<SimplePropertyModel> modelClass = factory.modelClassCache.get(SimplePropertyModel.class);
+        factory.modelClassCache.get(SubClass.class);
+
+        when(registration.getReference()).thenReturn(reference);
+        when(reference.getProperty(AdapterFactory.ADAPTER_CLASSES)).thenReturn(new String[] { SimplePropertyModel.class.getName() });
+        when(reference.getProperty("models.adapter.implementationClass")).thenReturn(SimplePropertyModel.class.getName());
+
+        factory.listener.removedBundle(bundle, null, new ServiceRegistration[] { registration });
+
+        verify(registration).unregister();
+        assertEquals(1, factory.modelClassCache.size());
+        assertNotSame(modelClass, factory.modelClassCache.get(SimplePropertyModel.class));
+    }
+
+}
@@ -48,6 +48,21 @@ public interface ContentCreator {
                     String[] mixinNodeTypes)
     throws RepositoryException;
 
+    /**
+     * Update the node types of the current node.
+     * This is used if the node types are only known after the node
+     * has been created, e.g. if they follow its first child node.
+     *
+     * @param name The name of the node as passed to {@link #createNode(String, String, String[])}.
+     * @param primaryNodeType The new primary node type or null to keep it.
+     * @param mixinNodeTypes The mixin node types to add or null.
+     * @throws RepositoryException If anything goes wrong.
+     */
+    void updateNodeTypes(String name,
+                         String primaryNodeType,
+                         String[] mixinNodeTypes)
+    throws RepositoryException;
+
     /**
      * Indicates that a node is finished.
      * The parent node of the current node becomes the current node.
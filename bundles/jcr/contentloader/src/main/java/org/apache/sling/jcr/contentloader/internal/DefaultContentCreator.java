@@ -314,6 +314,37 @@ public class DefaultContentCreator implements ContentCreator {
         }
     }
 
+    /**
+     * @see org.apache.sling.jcr.contentloader.internal.ContentCreator#updateNodeTypes(java.lang.String, java.lang.String, java.lang.String[])
+     */
+    public void updateNodeTypes(String name, String primaryNodeType, String[] mixinNodeTypes) throws RepositoryException {
+        // if we are in parent node import mode, the top level node has not been created
+        if (name == null && isParentNodeImport) {
+            return;
+        }
+        final Node node = this.parentNodeStack.peek();
+
+        // like in createNode() the primary type of an existing node is kept
+        if (primaryNodeType != null && node.isNew() && !node.isNodeType(primaryNodeType)) {
+            node.setPrimaryType(primaryNodeType);
+        }
+
+        // amend mixin node types
+        if (mixinNodeTypes != null) {
+            for (final String mixin : mixinNodeTypes) {
+                if (!node.isNodeType(mixin)) {
+                    node.addMixin(mixin);
+                }
+            }
+        }
+
+        // check if node is versionable
+        if (this.configuration.isCheckin() && node.isNodeType("mix:versionable")
+                && !this.versionables.contains(node)) {
+            this.versionables.add(node);
+        }
+    }
+
     /**
      * @see org.apache.sling.jcr.contentloader.internal.ContentCreator#createProperty(java.lang.String, int, java.lang.String)
      */
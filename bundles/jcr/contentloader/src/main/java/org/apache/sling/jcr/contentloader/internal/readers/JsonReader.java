@@ -19,9 +19,12 @@
 package org.apache.sling.jcr.contentloader.internal.readers;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -34,6 +37,7 @@ import javax.jcr.RepositoryException;
 import org.apache.sling.commons.json.JSONArray;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.JSONPullParser;
 import org.apache.sling.jcr.contentloader.internal.ContentCreator;
 import org.apache.sling.jcr.contentloader.internal.ContentReader;
 import org.apache.sling.jcr.contentloader.internal.ImportProvider;
@@ -86,6 +90,12 @@ import org.apache.sling.jcr.contentloader.internal.ImportProvider;
  *   }
  *
  * </pre>
+ *
+ * The document is read with a {@link JSONPullParser} and the nodes are created
+ * while reading, so the memory used does not depend on the size of the document.
+ * The properties of a node are kept until its first child node starts, as the
+ * node is created with its primary and mixin types. Types which only follow
+ * the first child node are applied to the node once they are read.
  */
 public class JsonReader implements ContentReader {
 
@@ -150,59 +160,98 @@ public class JsonReader implements ContentReader {
 
     public void parse(InputStream ins, ContentCreator contentCreator) throws IOException, RepositoryException {
         try {
-            String jsonString = toString(ins).trim();
-            if (!jsonString.startsWith("{")) {
-                jsonString = "{" + jsonString + "}";
+            final JSONPullParser parser = new JSONPullParser(createReader(ins));
+            if (parser.next() != JSONPullParser.Event.START_OBJECT) {
+                throw parser.syntaxError("A JSONObject text must begin with '{'");
             }
-
-            JSONObject json = new JSONObject(jsonString);
-            this.createNode(null, json, contentCreator);
+            this.createNode(null, parser, contentCreator);
         } catch (JSONException je) {
             throw (IOException) new IOException(je.getMessage()).initCause(je);
         }
     }
 
-    protected void createNode(String name, JSONObject obj, ContentCreator contentCreator)
+    /**
+     * Create the node whose start has just been read by the parser, including
+     * its properties and child nodes.
+     */
+    protected void createNode(String name, JSONPullParser parser, ContentCreator contentCreator)
     throws JSONException, RepositoryException {
-        Object primaryTypeObj = obj.opt("jcr:primaryType");
         String primaryType = null;
-        if (primaryTypeObj != null) {
-            primaryType = String.valueOf(primaryTypeObj);
-        }
-
         String[] mixinTypes = null;
-        Object mixinsObject = obj.opt("jcr:mixinTypes");
-        if (mixinsObject instanceof JSONArray) {
-            JSONArray mixins = (JSONArray) mixinsObject;
-            mixinTypes = new String[mixins.length()];
-            for (int i = 0; i < mixins.length(); i++) {
-                mixinTypes[i] = mixins.getString(i);
+        // the members read before the node is created
+        Map<String, Object> pending = new LinkedHashMap<String, Object>();
+
+        while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+            final String n = parser.getKey();
+            if (parser.next() == JSONPullParser.Event.START_OBJECT && !ignoredNames.contains(n)
+                    && !SECURITY_PRINCIPLES.equals(n) && !SECURITY_ACL.equals(n)) {
+                if (pending != null) {
+                    contentCreator.createNode(name, primaryType, mixinTypes);
+                    this.createMembers(pending, contentCreator);
+                    pending = null;
+                }
+                this.createNode(n, parser, contentCreator);
+                continue;
             }
-        }
 
-        contentCreator.createNode(name, primaryType, mixinTypes);
-
-        // add properties and nodes
-        JSONArray names = obj.names();
-        for (int i = 0; names != null && i < names.length(); i++) {
-            final String n = names.getString(i);
-            // skip well known objects
-            if (!ignoredNames.contains(n)) {
-                Object o = obj.get(n);
-                if (SECURITY_PRINCIPLES.equals(n)) {
-                	this.createPrincipals(o, contentCreator);
-                } else if (SECURITY_ACL.equals(n)) {
-                	this.createAcl(o, contentCreator);
-                } else if (o instanceof JSONObject) {
-                    this.createNode(n, (JSONObject) o, contentCreator);
-                } else {
-                    this.createProperty(n, o, contentCreator);
+            final Object o = parser.readValue();
+            if ("jcr:primaryType".equals(n)) {
+                primaryType = String.valueOf(o);
+                if (pending == null) {
+                    // the node has already been created when its first child node started
+                    contentCreator.updateNodeTypes(name, primaryType, null);
+                }
+            } else if ("jcr:mixinTypes".equals(n)) {
+                mixinTypes = null;
+                if (o instanceof JSONArray) {
+                    JSONArray mixins = (JSONArray) o;
+                    mixinTypes = new String[mixins.length()];
+                    for (int i = 0; i < mixins.length(); i++) {
+                        mixinTypes[i] = mixins.getString(i);
+                    }
                 }
+                if (pending == null && mixinTypes != null) {
+                    // the node has already been created when its first child node started
+                    contentCreator.updateNodeTypes(name, null, mixinTypes);
+                }
+            } else if (ignoredNames.contains(n)) {
+                // skip well known objects
+            } else if (pending != null) {
+                pending.put(n, o);
+            } else {
+                this.createMember(n, o, contentCreator);
             }
         }
+
+        if (pending != null) {
+            contentCreator.createNode(name, primaryType, mixinTypes);
+            this.createMembers(pending, contentCreator);
+        }
         contentCreator.finishNode();
     }
 
+    private void createMembers(Map<String, Object> members, ContentCreator contentCreator)
+    throws JSONException, RepositoryException {
+        for (final Map.Entry<String, Object> member : members.entrySet()) {
+            this.createMember(member.getKey(), member.getValue(), contentCreator);
+        }
+    }
+
+    /**
+     * Create the principals, access control entries or property for a member
+     * of a node.
+     */
+    private void createMember(String n, Object o, ContentCreator contentCreator)
+    throws JSONException, RepositoryException {
+        if (SECURITY_PRINCIPLES.equals(n)) {
+            this.createPrincipals(o, contentCreator);
+        } else if (SECURITY_ACL.equals(n)) {
+            this.createAcl(o, contentCreator);
+        } else {
+            this.createProperty(n, o, contentCreator);
+        }
+    }
+
     protected void createProperty(String name, Object value, ContentCreator contentCreator)
     throws JSONException, RepositoryException {
         // assume simple value
@@ -254,7 +303,11 @@ public class JsonReader implements ContentReader {
         return name;
     }
 
-    private String toString(InputStream ins) throws IOException {
+    /**
+     * Create the reader for the document. The document is read as a JSON object,
+     * the enclosing braces may be omitted.
+     */
+    private Reader createReader(InputStream ins) throws IOException {
         if (!ins.markSupported()) {
             ins = new BufferedInputStream(ins);
         }
@@ -274,17 +327,67 @@ public class JsonReader implements ContentReader {
             encoding = "UTF-8";
         }
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buf = new byte[1024];
-        int rd;
-        while ( (rd = ins.read(buf)) >= 0) {
-            bos.write(buf, 0, rd);
+        final PushbackReader reader = new PushbackReader(new InputStreamReader(ins, encoding));
+        do {
+            c = reader.read();
+        } while (c != -1 && c <= ' ');
+        if (c == -1) {
+            return new StringReader("{}");
         }
-        bos.close(); // just to comply with the contract
-
-        return new String(bos.toByteArray(), encoding);
+        reader.unread(c);
+        if (c == '{') {
+            return reader;
+        }
+        return new EnclosingReader(reader);
     }
 
+    /**
+     * Reader adding the braces around a document consisting of the members
+     * of an object only.
+     */
+    private static final class EnclosingReader extends Reader {
+
+        private final Reader reader;
+
+        private int state;
+
+        EnclosingReader(final Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            switch (state) {
+            case 0:
+                state = 1;
+                cbuf[off] = '{';
+                return 1;
+            case 1:
+                final int read = reader.read(cbuf, off, len);
+                if (read != -1) {
+                    return read;
+                }
+                state = 2;
+                // the closing brace on its own line ends a trailing comment
+                cbuf[off] = '\n';
+                return 1;
+            case 2:
+                state = 3;
+                cbuf[off] = '}';
+                return 1;
+            default:
+                return -1;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
 
     /**
      * Create or update one or more user and/or groups
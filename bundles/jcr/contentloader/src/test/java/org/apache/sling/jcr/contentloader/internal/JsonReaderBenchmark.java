@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.jcr.contentloader.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.sling.jcr.contentloader.internal.readers.JsonReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Imports a large generated JSON file with the {@link JsonReader} and reports
+ * the throughput and the heap used while importing. As the reader streams
+ * the document, the used heap does not grow with the size of the file.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=JsonReaderBenchmark</code>.
+ */
+public class JsonReaderBenchmark {
+
+    private static final int PAGES = 20000;
+
+    private static final int CHILDREN = 10;
+
+    private static final int RUNS = 3;
+
+    private File file;
+
+    @Before
+    public void createFile() throws Exception {
+        file = File.createTempFile("content", ".json");
+        final Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            w.write("{\"jcr:primaryType\":\"sling:Folder\"");
+            for (int p = 0; p < PAGES; p++) {
+                w.write(",\"page" + p + "\":{\"jcr:primaryType\":\"nt:unstructured\",\"title\":\"Page " + p + "\"");
+                w.write(",\"tags\":[\"a\",\"b\",\"c\"],\"count\":" + p + ",\"created\":\"2014-01-01T10:00:00.000+01:00\"");
+                for (int c = 0; c < CHILDREN; c++) {
+                    w.write(",\"child" + c + "\":{\"text\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit\",\"index\":" + c + "}");
+                }
+                w.write("}");
+            }
+            w.write("}");
+        } finally {
+            w.close();
+        }
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void importLargeFile() throws Exception {
+        final long[] nodes = new long[1];
+        final ContentCreator creator = (ContentCreator) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { ContentCreator.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("createNode".equals(method.getName())) {
+                            nodes[0]++;
+                        }
+                        return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                    }
+                });
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < RUNS; i++) {
+            nodes[0] = 0;
+            System.gc();
+            final long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+            final long start = System.nanoTime();
+            final InputStream ins = new BufferedInputStream(new FileInputStream(file));
+            try {
+                JsonReader.PROVIDER.getReader().parse(ins, creator);
+            } finally {
+                ins.close();
+            }
+            final long time = System.nanoTime() - start;
+            final long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+            Assert.assertEquals(1 + PAGES * (1 + CHILDREN), nodes[0]);
+
+            System.out.printf("run %d: %d MB, %d nodes in %d ms, %d MB/s, heap growth %d MB%n", i,
+                    file.length() / (1024 * 1024), nodes[0], time / 1000000,
+                    file.length() * 1000 / Math.max(1, time / 1000000) / (1024 * 1024),
+                    (usedAfter - usedBefore) / (1024 * 1024));
+        }
+    }
+}
@@ -260,6 +260,59 @@ public class JsonReaderTest {
         this.parse(json);
     }
 
+    @org.junit.Test public void testPrimaryTypeAfterProperties() throws Exception {
+        String json = "{ " +
+        " p1 : \"v1\"," +
+        " \"jcr:primaryType\" : \"nt:unstructured\"," +
+        " c1 : {}," +
+        " p2 : \"v2\"" +
+        "}";
+        this.mockery.checking(new Expectations() {{
+            allowing(creator).createNode(null, "nt:unstructured", null); inSequence(mySequence);
+            allowing(creator).createProperty("p1", PropertyType.UNDEFINED, "v1"); inSequence(mySequence);
+            allowing(creator).createNode("c1", null, null); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+            allowing(creator).createProperty("p2", PropertyType.UNDEFINED, "v2"); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
+    @org.junit.Test public void testPrimaryTypeAfterChild() throws Exception {
+        String json = "{ " +
+        " c1 : {}," +
+        " \"jcr:primaryType\" : \"nt:unstructured\"" +
+        "}";
+        this.mockery.checking(new Expectations() {{
+            allowing(creator).createNode(null, null, null); inSequence(mySequence);
+            allowing(creator).createNode("c1", null, null); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+            one(creator).updateNodeTypes(null, "nt:unstructured", null); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
+    @org.junit.Test public void testMixinTypesAfterChild() throws Exception {
+        final String[] mixins = new String[]{ "mix:versionable" };
+        String json = "{ " +
+        " c1 : {" +
+        "   c2 : {}," +
+        "   \"jcr:mixinTypes\" : " + this.toJsonArray(mixins) +
+        " }" +
+        "}";
+        this.mockery.checking(new Expectations() {{
+            allowing(creator).createNode(null, null, null); inSequence(mySequence);
+            allowing(creator).createNode("c1", null, null); inSequence(mySequence);
+            allowing(creator).createNode("c2", null, null); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+            one(creator).updateNodeTypes("c1", null, mixins); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+            allowing(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
 
     @org.junit.Test public void testCreateAcl() throws Exception {
     	String json = " { " +
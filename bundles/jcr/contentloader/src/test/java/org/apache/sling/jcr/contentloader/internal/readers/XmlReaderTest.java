@@ -129,6 +129,9 @@ public class XmlReaderTest extends TestCase {
             this.add(name);
         }
 
+        public void updateNodeTypes(String name, String primaryNodeType, String[] mixinNodeTypes) throws RepositoryException {
+        }
+
         public void finishNode() throws RepositoryException {
         }
 
@@ -117,4 +117,37 @@ public class JcrResourceConstants {
      * @since 2.2
      */
     public static final String NT_SLING_ORDERED_FOLDER = "sling:OrderedFolder";
+
+    /**
+     * The topic of the event sent after the resource events of a batch if
+     * the JCR resource listener is configured to dispatch batches. The event
+     * contains the {@link #PROPERTY_PATHS}, {@link #PROPERTY_TOPICS} and
+     * {@link #PROPERTY_RESOURCE_TYPES} properties.
+     * @since 2.3
+     */
+    public static final String TOPIC_RESOURCE_BATCH = "org/apache/sling/jcr/resource/BATCH";
+
+    /**
+     * The paths of the resources of a batch event.
+     * The type of this property is <code>String[]</code>.
+     * @since 2.3
+     */
+    public static final String PROPERTY_PATHS = "paths";
+
+    /**
+     * The topics of the resource events of a batch event, in the same
+     * order as the {@link #PROPERTY_PATHS}.
+     * The type of this property is <code>String[]</code>.
+     * @since 2.3
+     */
+    public static final String PROPERTY_TOPICS = "topics";
+
+    /**
+     * The resource types of the resources of a batch event, in the same
+     * order as the {@link #PROPERTY_PATHS}. An entry is <code>null</code>
+     * for removed resources.
+     * The type of this property is <code>String[]</code>.
+     * @since 2.3
+     */
+    public static final String PROPERTY_RESOURCE_TYPES = "resourceTypes";
 }
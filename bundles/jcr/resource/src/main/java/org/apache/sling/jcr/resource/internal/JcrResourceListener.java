@@ -20,12 +20,17 @@ package org.apache.sling.jcr.resource.internal;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -37,6 +42,7 @@ import org.apache.jackrabbit.api.observation.JackrabbitEvent;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.jcr.resource.JcrResourceConstants;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventProperties;
@@ -47,6 +53,13 @@ import org.slf4j.LoggerFactory;
  * The <code>JcrResourceListener</code> listens for JCR observation
  * events and creates resource events which are sent through the
  * OSGi event admin.
+ * <p>
+ * If a batch window is configured, the events are not dispatched one by
+ * one: the queue processor collects all events arriving within the window,
+ * coalesces the changes per path, looks up the resource types with a
+ * single refreshed resource resolver and sends the per path events
+ * followed by one {@link JcrResourceConstants#TOPIC_RESOURCE_BATCH} event
+ * describing the whole batch.
  */
 public class JcrResourceListener implements EventListener, Closeable {
 
@@ -76,9 +89,52 @@ public class JcrResourceListener implements EventListener, Closeable {
      */
     private final Map<String, Object> TERMINATE_PROCESSING = new HashMap<String, Object>(1);
 
+    /** Internal event property holding the time the event has been queued. */
+    private static final String PROPERTY_QUEUED = "org.apache.sling.jcr.resource.queued";
+
+    /** The maximum number of events processed as one batch. */
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    /** The time in ms events are collected for a batch, 0 to disable batching. */
+    private final long batchWindow;
+
+    /** The time in ms between queueing and dispatching of the last event. */
+    private volatile long lastDispatchLag;
+
+    /** The maximum time in ms between queueing and dispatching of an event. */
+    private volatile long maxDispatchLag;
+
+    /** The number of dispatched batches. */
+    private volatile long batchCount;
+
+    /** The number of queued events processed in batches. */
+    private volatile long batchedEventCount;
+
+    /** The number of queued events coalesced with another event of the same batch. */
+    private volatile long coalescedEventCount;
+
+    /** The thread processing the queue. */
+    private final Thread processorThread;
+
     public JcrResourceListener(
                     final String mountPrefix,
                     final ObservationListenerSupport support)
+    throws RepositoryException {
+        this(mountPrefix, support, 0);
+    }
+
+    /**
+     * Create a new listener.
+     * @param mountPrefix The path the repository is mounted under
+     * @param support The support object
+     * @param batchWindow The time in ms to collect events for a batch. If this
+     *                    is 0 or less, each event is dispatched on its own.
+     * @throws RepositoryException If the listener can't be registered.
+     */
+    public JcrResourceListener(
+                    final String mountPrefix,
+                    final ObservationListenerSupport support,
+                    final long batchWindow)
     throws RepositoryException {
         boolean foundClass = false;
         try {
@@ -89,6 +145,7 @@ public class JcrResourceListener implements EventListener, Closeable {
         }
         this.hasJackrabbitEventClass = foundClass;
         this.mountPrefix = (mountPrefix == null || mountPrefix.length() == 0 || mountPrefix.equals("/") ? null : mountPrefix);
+        this.batchWindow = (batchWindow > 0 ? batchWindow : 0);
 
         this.support = support;
         this.support.getSession().getWorkspace().getObservationManager().addEventListener(this,
@@ -96,12 +153,16 @@ public class JcrResourceListener implements EventListener, Closeable {
                         "/", true, null, null, false);
 
         this.osgiEventQueue = new LinkedBlockingQueue<Map<String,Object>>();
-        final Thread oeqt = new Thread(new Runnable() {
+        this.processorThread = new Thread(new Runnable() {
             public void run() {
-                processOsgiEventQueue();
+                if ( batchWindow > 0 ) {
+                    processOsgiEventQueueBatched();
+                } else {
+                    processOsgiEventQueue();
+                }
             }
         }, "Apache Sling JCR Resource Event Queue Processor");
-        oeqt.start();
+        this.processorThread.start();
     }
 
     /**
@@ -115,9 +176,25 @@ public class JcrResourceListener implements EventListener, Closeable {
             logger.warn("Unable to remove session listener: " + this, e);
         }
 
-        // drop any remaining OSGi Events not processed yet
-        this.osgiEventQueue.clear();
-        this.osgiEventQueue.offer(TERMINATE_PROCESSING);
+        if ( this.batchWindow > 0 ) {
+            // the batch processor dispatches the queued events before terminating
+            this.osgiEventQueue.offer(TERMINATE_PROCESSING);
+            boolean interrupted = false;
+            while ( this.processorThread.isAlive() && this.processorThread != Thread.currentThread() ) {
+                try {
+                    this.processorThread.join();
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // drop any remaining OSGi Events not processed yet
+            this.osgiEventQueue.clear();
+            this.osgiEventQueue.offer(TERMINATE_PROCESSING);
+        }
 
         this.support.dispose();
     }
@@ -296,6 +373,7 @@ public class JcrResourceListener implements EventListener, Closeable {
         // set the path (might have been changed for nt:file content)
         properties.put(SlingConstants.PROPERTY_PATH, path);
         properties.put(EventConstants.EVENT_TOPIC, topic);
+        properties.put(PROPERTY_QUEUED, System.currentTimeMillis());
 
         // enqueue event for dispatching
         this.osgiEventQueue.offer(properties);
@@ -324,63 +402,284 @@ public class JcrResourceListener implements EventListener, Closeable {
                 final EventAdmin localEa = this.support.getEventAdmin();
                 final ResourceResolver resolver = this.support.getResourceResolver();
                 if (localEa != null && resolver != null ) {
-                    final String topic = (String) event.remove(EventConstants.EVENT_TOPIC);
-                    final String path = (String) event.get(SlingConstants.PROPERTY_PATH);
-                    Resource resource = resolver.getResource(path);
-                    boolean sendEvent = true;
-                    if (!SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
-                        if (resource != null) {
-                            // check if this is a JCR backed resource, otherwise it is not visible!
-                            final Node node = resource.adaptTo(Node.class);
-                            if (node != null) {
-                                // check for nt:file nodes
-                                if (path.endsWith("/jcr:content")) {
-                                    try {
-                                        if (node.getParent().isNodeType("nt:file")) {
-                                            final Resource parentResource = resource.getParent();
-                                            if (parentResource != null) {
-                                                resource = parentResource;
-                                                event.put(SlingConstants.PROPERTY_PATH, resource.getPath());
-                                            }
-                                        }
-                                    } catch (final RepositoryException re) {
-                                        // ignore this
-                                    }
-                                }
+                    final String topic = prepareEvent(resolver, event);
+                    if ( topic != null ) {
+                        localEa.sendEvent(new org.osgi.service.event.Event(topic, new EventProperties(event)));
+                    }
+                }
+            } catch (final Exception e) {
+                logger.warn("processOsgiEventQueue: Unexpected problem processing event " + event, e);
+            }
+        }
 
-                                final String resourceType = resource.getResourceType();
-                                if (resourceType != null) {
-                                    event.put(SlingConstants.PROPERTY_RESOURCE_TYPE, resource.getResourceType());
-                                }
-                                final String resourceSuperType = resource.getResourceSuperType();
-                                if (resourceSuperType != null) {
-                                    event.put(SlingConstants.PROPERTY_RESOURCE_SUPER_TYPE, resource.getResourceSuperType());
+        this.osgiEventQueue.clear();
+    }
+
+    /**
+     * Called by the Runnable.run method of the JCR Event Queue processor to
+     * process the {@link #osgiEventQueue} in batches until the
+     * {@link #TERMINATE_PROCESSING} event is received. The events queued
+     * before the termination event are still dispatched.
+     */
+    void processOsgiEventQueueBatched() {
+        boolean running = true;
+        while (running) {
+            final Map<String, Object> first;
+            try {
+                first = this.osgiEventQueue.take();
+            } catch (InterruptedException e) {
+                // interrupted waiting for the event; keep on waiting
+                continue;
+            }
+            if (first == null || first == TERMINATE_PROCESSING) {
+                break;
+            }
+
+            // collect all events arriving within the batch window
+            final EventBatch batch = new EventBatch();
+            batch.add(first);
+            final long end = System.currentTimeMillis() + this.batchWindow;
+            while ( batch.size() < MAX_BATCH_SIZE ) {
+                final long wait = end - System.currentTimeMillis();
+                Map<String, Object> event = null;
+                try {
+                    event = (wait > 0 ? this.osgiEventQueue.poll(wait, TimeUnit.MILLISECONDS) : this.osgiEventQueue.poll());
+                } catch (final InterruptedException ie) {
+                    // ignore and dispatch what we have
+                }
+                if ( event == null ) {
+                    break;
+                }
+                if ( event == TERMINATE_PROCESSING ) {
+                    running = false;
+                    break;
+                }
+                batch.add(event);
+            }
+
+            sendBatch(batch);
+        }
+
+        this.osgiEventQueue.clear();
+    }
+
+    /**
+     * Send the events of a batch followed by the batch event.
+     * The resource resolver is only refreshed once for the whole batch.
+     */
+    private void sendBatch(final EventBatch batch) {
+        this.batchCount++;
+        this.batchedEventCount += batch.size();
+        this.coalescedEventCount += batch.size() - batch.getEvents().size();
+        final EventAdmin localEa = this.support.getEventAdmin();
+        final ResourceResolver resolver = this.support.getResourceResolver();
+        if ( localEa == null || resolver == null ) {
+            return;
+        }
+        final List<String> paths = new ArrayList<String>();
+        final List<String> topics = new ArrayList<String>();
+        final List<String> resourceTypes = new ArrayList<String>();
+        for(final Map<String, Object> event : batch.getEvents()) {
+            try {
+                final String topic = prepareEvent(resolver, event);
+                if ( topic != null ) {
+                    localEa.sendEvent(new org.osgi.service.event.Event(topic, new EventProperties(event)));
+                    paths.add((String) event.get(SlingConstants.PROPERTY_PATH));
+                    topics.add(topic);
+                    resourceTypes.add((String) event.get(SlingConstants.PROPERTY_RESOURCE_TYPE));
+                }
+            } catch (final Exception e) {
+                logger.warn("processOsgiEventQueueBatched: Unexpected problem processing event " + event, e);
+            }
+        }
+        if ( !paths.isEmpty() ) {
+            final Map<String, Object> props = new HashMap<String, Object>();
+            props.put(JcrResourceConstants.PROPERTY_PATHS, paths.toArray(new String[paths.size()]));
+            props.put(JcrResourceConstants.PROPERTY_TOPICS, topics.toArray(new String[topics.size()]));
+            props.put(JcrResourceConstants.PROPERTY_RESOURCE_TYPES, resourceTypes.toArray(new String[resourceTypes.size()]));
+            localEa.postEvent(new org.osgi.service.event.Event(JcrResourceConstants.TOPIC_RESOURCE_BATCH, new EventProperties(props)));
+        }
+        logger.debug("Dispatched batch of {} events for {} resources, {} events queued, lag {} ms",
+                new Object[] {batch.size(), paths.size(), this.osgiEventQueue.size(), this.lastDispatchLag});
+    }
+
+    /**
+     * Prepare an event for dispatching: add the resource type information
+     * and check whether the resource is visible.
+     * @return The topic of the event or {@code null} if the event should not be sent.
+     */
+    private String prepareEvent(final ResourceResolver resolver, final Map<String, Object> event) {
+        final String topic = (String) event.remove(EventConstants.EVENT_TOPIC);
+        final Long queued = (Long) event.remove(PROPERTY_QUEUED);
+        if ( queued != null ) {
+            final long lag = System.currentTimeMillis() - queued;
+            this.lastDispatchLag = lag;
+            if ( lag > this.maxDispatchLag ) {
+                this.maxDispatchLag = lag;
+            }
+        }
+        final String path = (String) event.get(SlingConstants.PROPERTY_PATH);
+        Resource resource = resolver.getResource(path);
+        if (!SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
+            if (resource != null) {
+                // check if this is a JCR backed resource, otherwise it is not visible!
+                final Node node = resource.adaptTo(Node.class);
+                if (node != null) {
+                    // check for nt:file nodes
+                    if (path.endsWith("/jcr:content")) {
+                        try {
+                            if (node.getParent().isNodeType("nt:file")) {
+                                final Resource parentResource = resource.getParent();
+                                if (parentResource != null) {
+                                    resource = parentResource;
+                                    event.put(SlingConstants.PROPERTY_PATH, resource.getPath());
                                 }
-                            } else {
-                                // this is not a jcr backed resource
-                                sendEvent = false;
                             }
-
-                        } else {
-                            // take a quite silent note of not being able to
-                            // resolve the resource
-                            logger.debug(
-                                "processOsgiEventQueue: Resource at {} not found, which is not expected for an added or modified node",
-                                path);
-                            sendEvent = false;
+                        } catch (final RepositoryException re) {
+                            // ignore this
                         }
                     }
 
-                    if ( sendEvent ) {
-                        localEa.sendEvent(new org.osgi.service.event.Event(topic, new EventProperties(event)));
+                    final String resourceType = resource.getResourceType();
+                    if (resourceType != null) {
+                        event.put(SlingConstants.PROPERTY_RESOURCE_TYPE, resource.getResourceType());
                     }
+                    final String resourceSuperType = resource.getResourceSuperType();
+                    if (resourceSuperType != null) {
+                        event.put(SlingConstants.PROPERTY_RESOURCE_SUPER_TYPE, resource.getResourceSuperType());
+                    }
+                } else {
+                    // this is not a jcr backed resource
+                    return null;
                 }
-            } catch (final Exception e) {
-                logger.warn("processOsgiEventQueue: Unexpected problem processing event " + event, e);
+
+            } else {
+                // take a quite silent note of not being able to
+                // resolve the resource
+                logger.debug(
+                    "processOsgiEventQueue: Resource at {} not found, which is not expected for an added or modified node",
+                    path);
+                return null;
             }
         }
+        return topic;
+    }
 
-        this.osgiEventQueue.clear();
+    /**
+     * The number of events waiting to be dispatched.
+     */
+    public int getQueueSize() {
+        return this.osgiEventQueue.size();
+    }
+
+    /**
+     * The time in ms between queueing and dispatching of the last event.
+     */
+    public long getLastDispatchLag() {
+        return this.lastDispatchLag;
+    }
+
+    /**
+     * The maximum time in ms between queueing and dispatching of an event.
+     */
+    public long getMaxDispatchLag() {
+        return this.maxDispatchLag;
+    }
+
+    /**
+     * The time in ms events are collected for a batch, 0 if batching is disabled.
+     */
+    public long getBatchWindow() {
+        return this.batchWindow;
+    }
+
+    /**
+     * The number of dispatched batches.
+     */
+    public long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * The number of queued events processed in batches.
+     */
+    public long getBatchedEventCount() {
+        return this.batchedEventCount;
+    }
+
+    /**
+     * The number of queued events which have been coalesced with another
+     * event for the same path of the same batch.
+     */
+    public long getCoalescedEventCount() {
+        return this.coalescedEventCount;
+    }
+
+    /**
+     * A batch of queued events, coalescing the added and changed events
+     * per path. A remove supersedes all earlier events for the path.
+     * The events are kept in the order their path has been seen first,
+     * only an event following a remove of the same path is added at the end.
+     */
+    private static final class EventBatch {
+
+        private final List<Map<String, Object>> events = new ArrayList<Map<String, Object>>();
+
+        /** The index of the latest event per path. */
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        private int size;
+
+        public void add(final Map<String, Object> event) {
+            this.size++;
+            final String path = (String) event.get(SlingConstants.PROPERTY_PATH);
+            final String topic = (String) event.get(EventConstants.EVENT_TOPIC);
+            final Integer index = this.indexes.get(path);
+            if ( index == null ) {
+                this.indexes.put(path, this.events.size());
+                this.events.add(event);
+                return;
+            }
+            final Map<String, Object> previous = this.events.get(index);
+            if ( SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic) ) {
+                this.events.set(index, event);
+            } else if ( SlingConstants.TOPIC_RESOURCE_REMOVED.equals(previous.get(EventConstants.EVENT_TOPIC)) ) {
+                // added again after the remove
+                this.indexes.put(path, this.events.size());
+                this.events.add(event);
+            } else {
+                if ( SlingConstants.TOPIC_RESOURCE_ADDED.equals(topic) ) {
+                    previous.put(EventConstants.EVENT_TOPIC, topic);
+                }
+                mergeAttributes(previous, event, SlingConstants.PROPERTY_ADDED_ATTRIBUTES);
+                mergeAttributes(previous, event, SlingConstants.PROPERTY_CHANGED_ATTRIBUTES);
+                mergeAttributes(previous, event, SlingConstants.PROPERTY_REMOVED_ATTRIBUTES);
+            }
+        }
+
+        private void mergeAttributes(final Map<String, Object> previous, final Map<String, Object> event, final String key) {
+            final String[] added = (String[]) event.get(key);
+            if ( added != null ) {
+                final String[] existing = (String[]) previous.get(key);
+                if ( existing == null ) {
+                    previous.put(key, added);
+                } else {
+                    final Set<String> merged = new LinkedHashSet<String>(Arrays.asList(existing));
+                    merged.addAll(Arrays.asList(added));
+                    previous.put(key, merged.toArray(new String[merged.size()]));
+                }
+            }
+        }
+
+        /** The number of queued events added to this batch. */
+        public int size() {
+            return this.size;
+        }
+
+        /** The coalesced events in the order of their paths. */
+        public List<Map<String, Object>> getEvents() {
+            return this.events;
+        }
     }
 
     private boolean isExternal(final Event event) {
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import java.io.PrintWriter;
+
+/**
+ * Web console configuration printer for the statistics of the
+ * {@link JcrResourceListener}.
+ */
+public class JcrResourceListenerConfigurationPrinter {
+
+    private final JcrResourceListener listener;
+
+    public JcrResourceListenerConfigurationPrinter(final JcrResourceListener listener) {
+        this.listener = listener;
+    }
+
+    public void printConfiguration(final PrintWriter pw) {
+        pw.println("JCR Resource Listener:");
+        pw.printf("Queued events: %d%n", listener.getQueueSize());
+        pw.printf("Last dispatch lag: %d ms%n", listener.getLastDispatchLag());
+        pw.printf("Max dispatch lag: %d ms%n", listener.getMaxDispatchLag());
+        if ( listener.getBatchWindow() > 0 ) {
+            pw.printf("Batch window: %d ms%n", listener.getBatchWindow());
+            pw.printf("Dispatched batches: %d%n", listener.getBatchCount());
+            pw.printf("Batched events: %d%n", listener.getBatchedEventCount());
+            pw.printf("Coalesced events: %d%n", listener.getCoalescedEventCount());
+        } else {
+            pw.println("Batching disabled");
+        }
+    }
+}
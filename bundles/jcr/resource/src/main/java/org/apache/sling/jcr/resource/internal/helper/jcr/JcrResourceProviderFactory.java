@@ -21,6 +21,7 @@ package org.apache.sling.jcr.resource.internal.helper.jcr;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -52,12 +53,14 @@ import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.jcr.api.SlingRepository;
 import org.apache.sling.jcr.resource.JcrResourceConstants;
 import org.apache.sling.jcr.resource.internal.JcrResourceListener;
+import org.apache.sling.jcr.resource.internal.JcrResourceListenerConfigurationPrinter;
 import org.apache.sling.jcr.resource.internal.OakResourceListener;
 import org.apache.sling.jcr.resource.internal.ObservationListenerSupport;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,6 +91,14 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
               description="If this switch is enabled, and Oak is used as the repository implementation, some optimized components are used.")
     private static final String PROPERTY_OPTIMIZE_FOR_OAK = "optimize.oak";
 
+    private static final long DEFAULT_OBSERVATION_BATCH_WINDOW = 0;
+    @Property(longValue=DEFAULT_OBSERVATION_BATCH_WINDOW,
+              label="Observation Batch Window",
+              description="If this is set to a value higher than 0, resource events of the JCR resource listener are " +
+                          "collected for this number of milliseconds, coalesced per path and dispatched as a batch " +
+                          "followed by a single batch event. This is not used by the optimized listener for Oak.")
+    private static final String PROPERTY_OBSERVATION_BATCH_WINDOW = "observation.batch.window";
+
     private static final String REPOSITORY_REFERNENCE_NAME = "repository";
 
     /** The dynamic class loader */
@@ -106,6 +117,9 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
     /** The JCR observation listener. */
     private Closeable listener;
 
+    /** The configuration printer for the statistics of the listener. */
+    private ServiceRegistration configPrinterRegistration;
+
     @Activate
     protected void activate(final ComponentContext context) throws RepositoryException {
 
@@ -148,7 +162,18 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
                 }
             }
             if ( this.listener == null ) {
-                this.listener = new JcrResourceListener(root, support);
+                final long batchWindow = PropertiesUtil.toLong(context.getProperties().get(PROPERTY_OBSERVATION_BATCH_WINDOW), DEFAULT_OBSERVATION_BATCH_WINDOW);
+                final JcrResourceListener jcrListener = new JcrResourceListener(root, support, batchWindow);
+                this.listener = jcrListener;
+
+                final Hashtable<String, Object> printerProps = new Hashtable<String, Object>();
+                printerProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+                printerProps.put(Constants.SERVICE_DESCRIPTION, "Apache Sling JCR Resource Listener Configuration Printer");
+                printerProps.put("felix.webconsole.label", "jcrresourcelistener");
+                printerProps.put("felix.webconsole.title", "JCR Resource Listener");
+                printerProps.put("felix.webconsole.configprinter.modes", "always");
+                this.configPrinterRegistration = context.getBundleContext().registerService(Object.class.getName(),
+                        new JcrResourceListenerConfigurationPrinter(jcrListener), printerProps);
             }
             closeSupport = false;
         } finally {
@@ -160,6 +185,10 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
 
     @Deactivate
     protected void deactivate() {
+        if ( this.configPrinterRegistration != null ) {
+            this.configPrinterRegistration.unregister();
+            this.configPrinterRegistration = null;
+        }
         if ( this.listener != null ) {
             try {
                 this.listener.close();
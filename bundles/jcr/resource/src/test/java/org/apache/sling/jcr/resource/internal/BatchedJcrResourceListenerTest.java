@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import static java.util.Collections.synchronizedList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.testing.jcr.RepositoryUtil;
+import org.apache.sling.jcr.api.SlingRepository;
+import org.apache.sling.jcr.resource.JcrResourceConstants;
+import org.apache.sling.jcr.resource.internal.helper.jcr.JcrTestNodeResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.util.tracker.ServiceTracker;
+
+/**
+ * Test of JcrResourceListener dispatching batches.
+ */
+public class BatchedJcrResourceListenerTest extends AbstractListenerTest {
+
+    /** Long enough for all events of a test to end up in a single batch, dispatched by {@link #flush()}. */
+    private static final long BATCH_WINDOW = 60000;
+
+    private SynchronousJcrResourceListener listener;
+
+    private Session adminSession;
+
+    private final List<Event> batchEvents = synchronizedList(new ArrayList<Event>());
+
+    private long coalescedEvents;
+
+    @After
+    public void tearDown() throws Exception {
+        if ( adminSession != null ) {
+            adminSession.logout();
+            adminSession = null;
+        }
+        RepositoryUtil.stopRepository();
+        if ( listener != null ) {
+            listener.dispose();
+            listener = null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        RepositoryUtil.startRepository();
+        this.adminSession = RepositoryUtil.getRepository().loginAdministrative(null);
+        RepositoryUtil.registerSlingNodeTypes(adminSession);
+        final ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        Mockito.when(resolver.adaptTo(Mockito.any(Class.class))).thenReturn(this.adminSession);
+        Mockito.when(resolver.getResource(Mockito.anyString())).thenReturn(new JcrTestNodeResource(resolver, this.adminSession.getNode("/"), null));
+
+        final EventAdmin mockEA = new EventAdmin() {
+
+            public void postEvent(final Event event) {
+                handleEvent(event);
+            }
+
+            public void sendEvent(final Event event) {
+                handleEvent(event);
+            }
+        };
+
+        final ServiceTracker tracker = mock(ServiceTracker.class);
+        when(tracker.getService()).thenReturn(mockEA);
+
+        final BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.createFilter(any(String.class))).thenReturn(null);
+        when(bundleContext.getServiceReference(any(String.class))).thenReturn(null);
+        when(bundleContext.getService(null)).thenReturn(mockEA);
+
+        this.listener = new SynchronousJcrResourceListener(RepositoryUtil.getRepository(),
+                        bundleContext, resolver, tracker, BATCH_WINDOW);
+    }
+
+    private void handleEvent(final Event event) {
+        if ( JcrResourceConstants.TOPIC_RESOURCE_BATCH.equals(event.getTopic()) ) {
+            this.batchEvents.add(event);
+        } else {
+            addEvent(event);
+        }
+    }
+
+    @Test public void testCoalescedBatch() throws Exception {
+        final String path = "/test" + System.currentTimeMillis() + "-batch";
+        final Session session = getRepository().loginAdministrative(null);
+        try {
+            final Node node = session.getRootNode().addNode(path.substring(1), "nt:unstructured");
+            session.save();
+            node.setProperty("foo", "bar");
+            session.save();
+            node.setProperty("foo", "baz");
+            session.save();
+        } finally {
+            session.logout();
+        }
+        this.flush();
+
+        final List<String> paths = new ArrayList<String>();
+        final List<String> topics = new ArrayList<String>();
+        this.collect(path, paths, topics);
+        assertTrue("Batch should contain " + path + ": " + paths, paths.contains(path));
+        // the changes are coalesced into the added event
+        final int index = paths.indexOf(path);
+        assertEquals(SlingConstants.TOPIC_RESOURCE_ADDED, topics.get(index));
+        assertEquals(index, paths.lastIndexOf(path));
+        assertTrue(this.coalescedEvents > 0);
+    }
+
+    @Test public void testFirstSeenOrder() throws Exception {
+        final String prefix = "/test" + System.currentTimeMillis() + "-order";
+        final Session session = getRepository().loginAdministrative(null);
+        try {
+            final Node a = session.getRootNode().addNode(prefix.substring(1) + "-a", "nt:unstructured");
+            session.save();
+            session.getRootNode().addNode(prefix.substring(1) + "-b", "nt:unstructured");
+            session.save();
+            a.remove();
+            session.save();
+            session.getRootNode().addNode(prefix.substring(1) + "-c", "nt:unstructured");
+            session.save();
+            session.getRootNode().addNode(prefix.substring(1) + "-a", "nt:unstructured");
+            session.save();
+        } finally {
+            session.logout();
+        }
+        this.flush();
+
+        final List<String> paths = new ArrayList<String>();
+        final List<String> topics = new ArrayList<String>();
+        this.collect(prefix, paths, topics);
+        // the paths keep the order in which they have been seen first
+        assertEquals(Arrays.asList(prefix + "-a", prefix + "-b", prefix + "-c"),
+                new ArrayList<String>(new LinkedHashSet<String>(paths)));
+        // the remove of a replaces its add, the add after the remove follows it
+        final String a = prefix + "-a";
+        assertEquals(SlingConstants.TOPIC_RESOURCE_REMOVED, topics.get(paths.indexOf(a)));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_ADDED, topics.get(paths.lastIndexOf(a)));
+        assertTrue(paths.indexOf(a) < paths.lastIndexOf(a));
+    }
+
+    /**
+     * Close the listener, which dispatches all queued events.
+     */
+    private void flush() {
+        this.listener.dispose();
+        this.coalescedEvents = this.listener.getCoalescedEventCount();
+        this.listener = null;
+    }
+
+    /**
+     * Collect the paths starting with the prefix and their topics from the batch events.
+     */
+    private void collect(final String prefix, final List<String> paths, final List<String> topics) {
+        for(final Event event : this.batchEvents) {
+            final String[] batchPaths = (String[]) event.getProperty(JcrResourceConstants.PROPERTY_PATHS);
+            final String[] batchTopics = (String[]) event.getProperty(JcrResourceConstants.PROPERTY_TOPICS);
+            for(int i=0; i<batchPaths.length; i++) {
+                if ( batchPaths[i].startsWith(prefix) ) {
+                    paths.add(batchPaths[i]);
+                    topics.add(batchTopics[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public SlingRepository getRepository() {
+        return RepositoryUtil.getRepository();
+    }
+}
@@ -44,7 +44,17 @@ public class SynchronousJcrResourceListener extends JcrResourceListener implemen
             final ResourceResolver resolver,
             final ServiceTracker tracker)
             throws LoginException, RepositoryException, NoSuchFieldException {
-        super("/", new ObservationListenerSupport(bundleContext, repo));
+        this(repo, bundleContext, resolver, tracker, 0);
+    }
+
+    public SynchronousJcrResourceListener(
+            final SlingRepository repo,
+            final BundleContext bundleContext,
+            final ResourceResolver resolver,
+            final ServiceTracker tracker,
+            final long batchWindow)
+            throws LoginException, RepositoryException, NoSuchFieldException {
+        super("/", new ObservationListenerSupport(bundleContext, repo), batchWindow);
         PrivateAccessor.setField(this.support, "resourceResolver", resolver);
         PrivateAccessor.setField(this.support, "eventAdminTracker", tracker);
     }
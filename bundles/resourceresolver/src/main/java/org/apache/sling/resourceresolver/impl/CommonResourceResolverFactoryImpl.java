@@ -20,7 +20,9 @@ package org.apache.sling.resourceresolver.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -33,11 +35,18 @@ import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.resourceresolver.impl.console.ResourceResolverWebConsolePlugin;
 import org.apache.sling.resourceresolver.impl.helper.ResourceDecoratorTracker;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
+import org.apache.sling.resourceresolver.impl.helper.ResourceSuperTypeCache;
+import org.apache.sling.resourceresolver.impl.jmx.ResourceSuperTypeCacheMBean;
+import org.apache.sling.resourceresolver.impl.jmx.ResourceSuperTypeCacheMBeanImpl;
 import org.apache.sling.resourceresolver.impl.mapping.MapConfigurationProvider;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
 import org.apache.sling.resourceresolver.impl.mapping.Mapping;
 import org.apache.sling.resourceresolver.impl.tree.RootResourceProviderEntry;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +66,15 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
     /** The activator */
     private final ResourceResolverFactoryActivator activator;
 
+    /** The resource super type cache shared by all resolvers or <code>null</code> */
+    private final ResourceSuperTypeCache superTypeCache;
+
+    /** Event handler registration of the super type cache. */
+    private ServiceRegistration superTypeCacheRegistration;
+
+    /** MBean registration of the super type cache. */
+    private ServiceRegistration superTypeCacheMBeanRegistration;
+
     /**
      * Thread local holding the resource resolver stack
      */
@@ -64,6 +82,11 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
 
     public CommonResourceResolverFactoryImpl(final ResourceResolverFactoryActivator activator) {
         this.activator = activator;
+        if ( activator.isSuperTypeCacheEnabled() ) {
+            this.superTypeCache = new ResourceSuperTypeCache(activator.getSearchPath());
+        } else {
+            this.superTypeCache = null;
+        }
     }
 
     // ---------- Resource Resolver Factory ------------------------------------
@@ -160,6 +183,14 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         return mapEntries;
     }
 
+    /**
+     * Returns the resource super type cache or <code>null</code> if
+     * caching of super types is disabled.
+     */
+    public ResourceSuperTypeCache getSuperTypeCache() {
+        return superTypeCache;
+    }
+
     /** Activates this component */
     protected void activate(final BundleContext bundleContext) {
         final Logger logger = LoggerFactory.getLogger(getClass());
@@ -176,6 +207,23 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         } catch (final Exception e) {
             logger.error("activate: Cannot access repository, failed setting up Mapping Support", e);
         }
+        // keep the super type cache up to date
+        if ( superTypeCache != null ) {
+            final Dictionary<String, Object> props = new Hashtable<String, Object>();
+            props.put(EventConstants.EVENT_TOPIC, ResourceSuperTypeCache.TOPICS);
+            props.put(Constants.SERVICE_DESCRIPTION, "Resource Super Type Cache Observation");
+            props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+            superTypeCacheRegistration = bundleContext.registerService(EventHandler.class.getName(), superTypeCache, props);
+
+            try {
+                final Dictionary<String, String> mbeanProps = new Hashtable<String, String>();
+                mbeanProps.put("jmx.objectname", "org.apache.sling:type=resourceResolver,service=ResourceSuperTypeCache");
+                superTypeCacheMBeanRegistration = bundleContext.registerService(ResourceSuperTypeCacheMBean.class.getName(),
+                        new ResourceSuperTypeCacheMBeanImpl(superTypeCache), mbeanProps);
+            } catch (final Throwable t) {
+                logger.debug("activate: Unable to register super type cache mbean", t);
+            }
+        }
     }
 
     /**
@@ -191,6 +239,17 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
             mapEntries.dispose();
             mapEntries = MapEntries.EMPTY;
         }
+        if (superTypeCacheRegistration != null) {
+            superTypeCacheRegistration.unregister();
+            superTypeCacheRegistration = null;
+        }
+        if (superTypeCacheMBeanRegistration != null) {
+            superTypeCacheMBeanRegistration.unregister();
+            superTypeCacheMBeanRegistration = null;
+        }
+        if (superTypeCache != null) {
+            superTypeCache.flush();
+        }
         resolverStackHolder = null;
     }
 
@@ -206,6 +265,14 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         return this.activator.isMangleNamespacePrefixes();
     }
 
+    /**
+     * Returns the maximum number of resource lookups cached by each
+     * resolver or 0 if caching of resource lookups is disabled.
+     */
+    public int getResourceCacheSize() {
+        return this.activator.getResourceCacheSize();
+    }
+
     public String getMapRoot() {
         return this.activator.getMapRoot();
     }
@@ -213,6 +213,24 @@ public class ResourceResolverFactoryActivator {
               description ="This flag controls whether vanity paths" +
                       " will have precedence over existing /etc/map mapping")
     private static final String PROP_VANITY_PATH_PRECEDENCE = "resource.resolver.vanity.precedence";
+
+    private static final boolean DEFAULT_ENABLE_SUPER_TYPE_CACHE = true;
+    @Property(boolValue = DEFAULT_ENABLE_SUPER_TYPE_CACHE,
+              label = "Cache Resource Super Types",
+              description = "This flag controls whether the resource super types of resource types are " +
+                      "cached for all resource resolvers. The cache is updated on resource change events, " +
+                      "so resource providers which do not send events might return outdated super types.")
+    private static final String PROP_ENABLE_SUPER_TYPE_CACHE = "resource.resolver.supertype.cache";
+
+    private static final int DEFAULT_RESOURCE_CACHE_SIZE = 0;
+    @Property(intValue = DEFAULT_RESOURCE_CACHE_SIZE,
+              label = "Resource Cache Size",
+              description = "The maximum number of resource lookups by path cached by each resource resolver, " +
+                      "including lookups which did not find a resource. Repeated lookups of a path return the " +
+                      "same resource object. The cache is cleared when content is " +
+                      "changed, committed, reverted or refreshed through the resource resolver, changes done " +
+                      "by other means are not seen until then. A value of 0 disables the cache.")
+    private static final String PROP_RESOURCE_CACHE_SIZE = "resource.resolver.resource.cache.size";
  
     /** Tracker for the resource decorators. */
     private final ResourceDecoratorTracker resourceDecoratorTracker = new ResourceDecoratorTracker();
@@ -263,6 +281,12 @@ public class ResourceResolverFactoryActivator {
     /** vanity paths will have precedence over existing /etc/map mapping? */
     private boolean vanityPathPrecedence = DEFAULT_VANITY_PATH_PRECEDENCE;
 
+    /** resource super type cache enabled? */
+    private boolean enableSuperTypeCache = DEFAULT_ENABLE_SUPER_TYPE_CACHE;
+
+    /** maximum number of resource lookups cached per resolver, 0 if disabled */
+    private int resourceCacheSize = DEFAULT_RESOURCE_CACHE_SIZE;
+
 
     /** Vanity path whitelist */
     private String[] vanityPathWhiteList;
@@ -348,6 +372,14 @@ public class ResourceResolverFactoryActivator {
         return this.vanityPathPrecedence;
     }
 
+    public boolean isSuperTypeCacheEnabled() {
+        return this.enableSuperTypeCache;
+    }
+
+    public int getResourceCacheSize() {
+        return this.resourceCacheSize;
+    }
+
     // ---------- SCR Integration ---------------------------------------------
 
     /** Activates this component, called by SCR before registering as a service */
@@ -451,6 +483,9 @@ public class ResourceResolverFactoryActivator {
         this.enableOptimizeAliasResolution = PropertiesUtil.toBoolean(properties.get(PROP_ENABLE_OPTIMIZE_ALIAS_RESOLUTION), DEFAULT_ENABLE_OPTIMIZE_ALIAS_RESOLUTION);
 
         this.vanityPathPrecedence = PropertiesUtil.toBoolean(properties.get(PROP_VANITY_PATH_PRECEDENCE), DEFAULT_VANITY_PATH_PRECEDENCE);
+
+        this.enableSuperTypeCache = PropertiesUtil.toBoolean(properties.get(PROP_ENABLE_SUPER_TYPE_CACHE), DEFAULT_ENABLE_SUPER_TYPE_CACHE);
+        this.resourceCacheSize = PropertiesUtil.toInteger(properties.get(PROP_RESOURCE_CACHE_SIZE), DEFAULT_RESOURCE_CACHE_SIZE);
         
         final BundleContext bc = componentContext.getBundleContext();
 
@@ -21,6 +21,7 @@ package org.apache.sling.resourceresolver.impl;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -48,11 +49,14 @@ import org.apache.sling.api.resource.ResourceWrapper;
 import org.apache.sling.resourceresolver.impl.helper.RedirectResource;
 import org.apache.sling.resourceresolver.impl.helper.ResourceIterator;
 import org.apache.sling.resourceresolver.impl.helper.ResourceIteratorDecorator;
+import org.apache.sling.resourceresolver.impl.helper.ResourceLookupCache;
 import org.apache.sling.resourceresolver.impl.helper.ResourcePathIterator;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
+import org.apache.sling.resourceresolver.impl.helper.ResourceSuperTypeCache;
 import org.apache.sling.resourceresolver.impl.helper.StarResource;
 import org.apache.sling.resourceresolver.impl.helper.URI;
 import org.apache.sling.resourceresolver.impl.helper.URIException;
+import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,12 +83,31 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
 
     public static final String PROP_ALIAS = "sling:alias";
 
+    /**
+     * The name of the resolver attribute providing the number of hits of the
+     * resource lookup cache since the resolver has been created as a
+     * <code>Long</code>, if the cache is enabled. The attribute is not listed
+     * by {@link #getAttributeNames()}.
+     */
+    public static final String ATTR_RESOURCE_CACHE_HITS = "sling.resource.cache.hits";
+
+    /**
+     * The name of the resolver attribute providing the number of misses of
+     * the resource lookup cache since the resolver has been created as a
+     * <code>Long</code>, if the cache is enabled. The attribute is not listed
+     * by {@link #getAttributeNames()}.
+     */
+    public static final String ATTR_RESOURCE_CACHE_MISSES = "sling.resource.cache.misses";
+
     // The suffix of a resource being a content node of some parent
     // such as nt:file. The slash is included to prevent false
     // positives for the String.endsWith check for names like
     // "xyzjcr:content"
     private static final String JCR_CONTENT_LEAF = "/jcr:content";
 
+    /** The maximum number of mapped paths remembered by a resolver */
+    private static final int MAP_CACHE_SIZE = 1000;
+
     /** The factory which created this resource resolver. */
     private final CommonResourceResolverFactoryImpl factory;
 
@@ -94,12 +117,26 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
     /** Resource resolver context. */
     private final ResourceResolverContext context;
 
+    /** The results of map(HttpServletRequest, String), created on demand. */
+    private Map<String, String> mapCache;
+
+    /** The map entries the cached results of map() have been created with */
+    private MapEntries mapCacheEntries;
+
+    /** The change count of the map entries at the time of mapCacheEntries */
+    private long mapCacheChangeCount;
+
+    /** The cached resource lookups or <code>null</code> if disabled. */
+    private final ResourceLookupCache resourceCache;
+
     /**
      * The resource resolver context.
      */
     public ResourceResolverImpl(final CommonResourceResolverFactoryImpl factory, final ResourceResolverContext ctx) {
         this.factory = factory;
         this.context = ctx;
+        final int resourceCacheSize = factory.getResourceCacheSize();
+        this.resourceCache = (resourceCacheSize > 0 ? new ResourceLookupCache(resourceCacheSize) : null);
     }
 
     /**
@@ -141,6 +178,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
     public void close() {
         if (!this.closed) {
             this.closed = true;
+            this.clearCaches();
             this.context.close();
             this.factory.closed(this);
         }
@@ -187,6 +225,14 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         if (name == null) {
             throw new NullPointerException("name");
         }
+        if (this.resourceCache != null) {
+            if (ATTR_RESOURCE_CACHE_HITS.equals(name)) {
+                return this.resourceCache.getHits();
+            }
+            if (ATTR_RESOURCE_CACHE_MISSES.equals(name)) {
+                return this.resourceCache.getMisses();
+            }
+        }
 
         return this.factory.getRootProviderEntry().getAttribute(this.context, this, name);
     }
@@ -382,6 +428,41 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
     public String map(final HttpServletRequest request, final String resourcePath) {
         checkClosed();
 
+        // links are mapped repeatedly while rendering, so the results are
+        // kept until the mappings change or this resolver changes content
+        final MapEntries mapEntries = this.factory.getMapEntries();
+        final long changeCount = mapEntries.getChangeCount();
+        if (this.mapCache == null || this.mapCacheEntries != mapEntries || this.mapCacheChangeCount != changeCount) {
+            this.mapCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                    return size() > MAP_CACHE_SIZE;
+                }
+            };
+            this.mapCacheEntries = mapEntries;
+            this.mapCacheChangeCount = changeCount;
+        }
+        final String key;
+        if (request == null) {
+            key = resourcePath;
+        } else {
+            key = request.getScheme() + "://" + request.getServerName() + ':' + request.getServerPort()
+                + request.getContextPath() + '|' + resourcePath;
+        }
+        String mappedPath = this.mapCache.get(key);
+        if (mappedPath == null) {
+            mappedPath = mapInternal(request, resourcePath, mapEntries);
+            this.mapCache.put(key, mappedPath);
+        } else {
+            logger.debug("map: Returning cached URL {} as mapping for path {}", mappedPath, resourcePath);
+        }
+        return mappedPath;
+    }
+
+    private String mapInternal(final HttpServletRequest request, final String resourcePath, final MapEntries mapEntries) {
         // find a fragment or query
         int fragmentQueryMark = resourcePath.indexOf('#');
         if (fragmentQueryMark < 0) {
@@ -430,14 +511,21 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
             // find aliases for segments. we can't walk the parent chain
             // since the request session might not have permissions to
             // read all parents SLING-2093
+            // with optimized alias resolution, the aliases are taken from
+            // the map entries without accessing the repository
+            final boolean useAliasMap = mapEntries.isOptimizeAliasResolutionEnabled();
             final LinkedList<String> names = new LinkedList<String>();
 
             Resource current = res;
             String path = res.getPath();
             while (path != null) {
                 String alias = null;
-                if (current != null && !path.endsWith(JCR_CONTENT_LEAF)) {
-                    alias = ResourceResolverContext.getProperty(current, PROP_ALIAS);
+                if (!path.endsWith(JCR_CONTENT_LEAF)) {
+                    if (useAliasMap) {
+                        alias = mapEntries.getAlias(path);
+                    } else if (current != null) {
+                        alias = ResourceResolverContext.getProperty(current, PROP_ALIAS);
+                    }
                 }
                 if (alias == null || alias.length() == 0) {
                     alias = ResourceUtil.getName(path);
@@ -446,7 +534,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
                 path = ResourceUtil.getParent(path);
                 if ("/".equals(path)) {
                     path = null;
-                } else if (path != null) {
+                } else if (path != null && !useAliasMap) {
                     current = res.getResourceResolver().resolve(path);
                 }
             }
@@ -477,7 +565,10 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         }
 
         boolean mappedPathIsUrl = false;
-        for (final MapEntry mapEntry : this.factory.getMapEntries().getMapMaps()) {
+        for (final MapEntry mapEntry : mapEntries.getMapMaps()) {
+            if (!mapEntry.mayMatch(mappedPath)) {
+                continue;
+            }
             final String[] mappedPaths = mapEntry.replace(mappedPath);
             if (mappedPaths != null) {
 
@@ -950,10 +1041,27 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      */
     private Resource getAbsoluteResourceInternal(final String path, final boolean isResolve) {
 
-        final Resource resource = this.factory.getRootProviderEntry().getResource(this.context, this, path ,isResolve);
-        if (resource != null) {
-            resource.getResourceMetadata().setResolutionPath(path);
-            return resource;
+        // rendering looks up the same paths repeatedly, so the lookups are
+        // kept until content is changed through this resolver
+        if (this.resourceCache != null && this.resourceCache.contains(path, isResolve)) {
+            // the same resource object is returned for all lookups of the path,
+            // its resolution path has been set by the first lookup and its
+            // metadata has been locked by the decoration afterwards
+            final Resource cached = this.resourceCache.get(path, isResolve);
+            if (cached != null) {
+                return cached;
+            }
+        } else {
+            final Resource resource = this.factory.getRootProviderEntry().getResource(this.context, this, path ,isResolve);
+            if (resource != null) {
+                resource.getResourceMetadata().setResolutionPath(path);
+            }
+            if (this.resourceCache != null) {
+                this.resourceCache.put(path, isResolve, resource);
+            }
+            if (resource != null) {
+                return resource;
+            }
         }
 
         logger.debug("getResourceInternal: Cannot resolve path '{}' to a resource", path);
@@ -1067,6 +1175,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
             return;
         }
         // if resource is null, we get an NPE as stated in the API
+        this.clearCaches();
         this.factory.getRootProviderEntry().delete(this.context, this, resource);
     }
 
@@ -1093,6 +1202,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         if ( ResourceUtil.isSyntheticResource(parent) ) {
             this.create(parent.getParent(), parent.getName(), null);
         }
+        this.clearCaches();
         final Resource rsrc = this.factory.getRootProviderEntry().create(this.context, this, path, properties);
         return this.factory.getResourceDecoratorTracker().decorate(rsrc);
     }
@@ -1101,6 +1211,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#revert()
      */
     public void revert() {
+        this.clearCaches();
         this.context.revert(this);
     }
 
@@ -1108,6 +1219,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#commit()
      */
     public void commit() throws PersistenceException {
+        this.clearCaches();
         this.context.commit(this);
     }
 
@@ -1143,7 +1255,24 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#getParentResourceType(java.lang.String)
      */
     public String getParentResourceType(final String resourceType) {
-        return this.context.getParentResourceType(this.factory, this, resourceType);
+        final ResourceSuperTypeCache cache = this.factory.getSuperTypeCache();
+        // an administrative resolver reads the resource type through itself,
+        // so it has to see its own pending changes
+        if ( cache == null || resourceType == null || (this.context.isAdmin() && this.hasChanges()) ) {
+            return this.context.getParentResourceType(this.factory, this, resourceType);
+        }
+        final ResourceSuperTypeCache.Entry entry = cache.get(resourceType);
+        if ( entry != null ) {
+            return entry.getSuperType();
+        }
+        final int generation = cache.getGeneration();
+        final String resourceSuperType = this.context.getParentResourceType(this.factory, this, resourceType);
+        // only cache what has been read through the resolver of the factory,
+        // changes made by this resolver might still be reverted
+        if ( !this.context.isAdmin() ) {
+            cache.put(resourceType, resourceSuperType, generation);
+        }
+        return resourceSuperType;
     }
 
     /**
@@ -1172,10 +1301,22 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         return result;
     }
 
+    /**
+     * Drop the cached mappings and resource lookups, as content has been
+     * changed, committed, reverted or refreshed through this resolver.
+     */
+    private void clearCaches() {
+        this.mapCache = null;
+        if (this.resourceCache != null) {
+            this.resourceCache.clear();
+        }
+    }
+
     /**
      * @see org.apache.sling.api.resource.ResourceResolver#refresh()
      */
     public void refresh() {
+        this.clearCaches();
         this.context.refresh();
     }
 }
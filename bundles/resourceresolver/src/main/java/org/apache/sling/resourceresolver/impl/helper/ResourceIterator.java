@@ -275,24 +275,19 @@ public class ResourceIterator implements Iterator<Resource> {
             final Set<ProviderHandler> providers) {
 
         // collect providers along the ancestor path segements
-        final String[] elements = ResourceProviderEntry.split(path);
-        ResourceProviderEntry base = rootProviderEntry;
-        for (final String element : elements) {
-            if (base.containsKey(element)) {
-                base = base.get(element);
-                if (log.isDebugEnabled()) {
-                    log.debug("Loading from {}  {} ", element,
-                            base.getResourceProviders().length);
-                }
-                for (final ProviderHandler rp : base.getResourceProviders()) {
-                    log.debug("Adding {} for {} ", rp, path);
-                    providers.add(rp);
-                }
-            } else {
-                log.debug("No container for {} ", element);
-                base = null;
-                break;
+        for (final ResourceProviderEntry entry : rootProviderEntry.getEntries(path)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Loading from {}  {} ", entry.getPath(),
+                        entry.getResourceProviders().length);
             }
+            for (final ProviderHandler rp : entry.getResourceProviders()) {
+                log.debug("Adding {} for {} ", rp, path);
+                providers.add(rp);
+            }
+        }
+        final ResourceProviderEntry base = rootProviderEntry.getEntry(path);
+        if (base == null) {
+            log.debug("No container for {} ", path);
         }
 
         // add in providers at this node in the tree, ie the root provider
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * The <code>ResourceLookupCache</code> caches the results of looking up
+ * resources by their absolute path for a single resource resolver,
+ * including lookups which did not find a resource. The number of cached
+ * paths is bounded, the least recently used paths are removed first.
+ * <p>
+ * Lookups done while resolving are kept apart from other lookups, as only
+ * the latter return synthetic resources for the parents of resource provider
+ * roots. For lookups done while resolving only the paths not found are
+ * cached: resolving modifies the metadata of the resource found, so these
+ * resources must not be shared.
+ * <p>
+ * A cached resource is not copied, all lookups of its path return the same
+ * object until the cache is cleared. Its metadata, including the resolution
+ * path, is the one of the first lookup. As the resource resolver locks the
+ * metadata of the resources it returns, the metadata can not be changed by
+ * a caller for later callers.
+ * <p>
+ * Like a resource resolver itself, this class is not thread safe.
+ */
+public class ResourceLookupCache {
+
+    private final Map<String, Resource> resources;
+
+    private final Map<String, Resource> missingOnResolve;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param maxSize The maximum number of cached paths for lookups and for
+     *            lookups done while resolving
+     */
+    public ResourceLookupCache(final int maxSize) {
+        this.resources = createMap(maxSize);
+        this.missingOnResolve = createMap(maxSize);
+    }
+
+    private static Map<String, Resource> createMap(final int maxSize) {
+        return new LinkedHashMap<String, Resource>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Resource> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Is the result of the lookup of the path cached? A hit or a miss is
+     * counted accordingly.
+     * @param path The absolute path
+     * @param isResolve Whether the lookup is done while resolving
+     */
+    public boolean contains(final String path, final boolean isResolve) {
+        final boolean cached = (isResolve ? this.missingOnResolve : this.resources).containsKey(path);
+        if ( cached ) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return cached;
+    }
+
+    /**
+     * Get the cached resource.
+     * @param path The absolute path
+     * @param isResolve Whether the lookup is done while resolving
+     * @return The resource or <code>null</code> if no resource exists at
+     *         the path or the path is not cached
+     */
+    public Resource get(final String path, final boolean isResolve) {
+        return (isResolve ? this.missingOnResolve : this.resources).get(path);
+    }
+
+    /**
+     * Cache the result of a lookup.
+     * @param path The absolute path
+     * @param isResolve Whether the lookup is done while resolving
+     * @param resource The resource or <code>null</code> if no resource exists at the path
+     */
+    public void put(final String path, final boolean isResolve, final Resource resource) {
+        if ( !isResolve ) {
+            this.resources.put(path, resource);
+        } else if ( resource == null ) {
+            this.missingOnResolve.put(path, null);
+        }
+    }
+
+    /**
+     * Remove all cached lookups, for example after content has been changed
+     * through the resource resolver.
+     */
+    public void clear() {
+        this.resources.clear();
+        this.missingOnResolve.clear();
+    }
+
+    public int getSize() {
+        return this.resources.size() + this.missingOnResolve.size();
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    @Override
+    public String toString() {
+        return this.hits + " hits, " + this.misses + " misses";
+    }
+}
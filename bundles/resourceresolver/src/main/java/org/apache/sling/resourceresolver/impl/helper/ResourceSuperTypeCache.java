@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * The <code>ResourceSuperTypeCache</code> caches the resource super type
+ * of resource types for all resource resolvers of a factory. As the super
+ * type is always read through an administrative resource resolver, the
+ * result does not depend on the resolver asking for it.
+ * <p>
+ * Entries are removed when a resource at the location of the resource type
+ * or one of its ancestors changes. The whole cache is cleared if a resource
+ * provider is added or removed. A super type read while a resource in the
+ * search path or any resource super type property changes is not cached.
+ */
+public class ResourceSuperTypeCache implements EventHandler {
+
+    /** The topics this cache has to be registered for. */
+    public static final String[] TOPICS = new String[] {
+        "org/apache/sling/api/resource/Resource/*",
+        "org/apache/sling/api/resource/ResourceProvider/*"
+    };
+
+    /** The name of the property defining the resource super type. */
+    private static final String PROP_RESOURCE_SUPER_TYPE = "sling:resourceSuperType";
+
+    /** The event properties listing the changed properties of a resource. */
+    private static final String[] ATTRIBUTE_PROPERTIES = new String[] {
+        SlingConstants.PROPERTY_ADDED_ATTRIBUTES,
+        SlingConstants.PROPERTY_CHANGED_ATTRIBUTES,
+        SlingConstants.PROPERTY_REMOVED_ATTRIBUTES
+    };
+
+    /** A cached super type, <code>null</code> if the type has none. */
+    public static final class Entry {
+
+        private final String superType;
+
+        /** The absolute paths at which the resource type is looked up. */
+        private final String[] paths;
+
+        Entry(final String superType, final String[] paths) {
+            this.superType = superType;
+            this.paths = paths;
+        }
+
+        public String getSuperType() {
+            return this.superType;
+        }
+
+        boolean isAffectedBy(final String path) {
+            for (final String p : this.paths) {
+                if (isSameOrDescendant(p, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Incremented on every change which may affect a resource type, so a
+     * super type read before the change is not added to the cache after it.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final String[] searchPath;
+
+    /**
+     * @param searchPath The search path of the resource resolvers, each
+     *            entry ending with a slash.
+     */
+    public ResourceSuperTypeCache(final String[] searchPath) {
+        this.searchPath = (searchPath == null || searchPath.length == 0 ? new String[] {"/"} : searchPath);
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put(String, String, int)}
+     * when the super type is read after this call.
+     */
+    public int getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Returns the cached entry for the resource type or <code>null</code>
+     * if the super type of the resource type is not cached.
+     */
+    public Entry get(final String resourceType) {
+        final Entry entry = this.entries.get(resourceType);
+        if (entry == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the super type of the resource type unless a change happened
+     * since the given generation has been retrieved.
+     */
+    public void put(final String resourceType, final String superType, final int generation) {
+        final String rtPath = ResourceUtil.resourceTypeToPath(resourceType);
+        final String[] paths;
+        if (rtPath.startsWith("/")) {
+            paths = new String[] {rtPath};
+        } else {
+            paths = new String[this.searchPath.length];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = this.searchPath[i] + rtPath;
+            }
+        }
+        this.entries.put(resourceType, new Entry(superType, paths));
+        // remove it again if a change raced with reading the super type
+        if (this.generation.get() != generation) {
+            this.entries.remove(resourceType);
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void flush() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+    }
+
+    public int getSize() {
+        return this.entries.size();
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
+     */
+    public void handleEvent(final Event event) {
+        final String topic = event.getTopic();
+        if (SlingConstants.TOPIC_RESOURCE_PROVIDER_ADDED.equals(topic)
+                || SlingConstants.TOPIC_RESOURCE_PROVIDER_REMOVED.equals(topic)) {
+            this.flush();
+            return;
+        }
+        final Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+        if (path instanceof String) {
+            if (isSuperTypeChange(event)) {
+                // the resource type might be outside of the search path
+                this.generation.incrementAndGet();
+            }
+            this.invalidate((String) path);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the event reports a change of the
+     * resource super type property.
+     */
+    private static boolean isSuperTypeChange(final Event event) {
+        for (final String name : ATTRIBUTE_PROPERTIES) {
+            final Object attributes = event.getProperty(name);
+            if (attributes instanceof String[]) {
+                for (final String attribute : (String[]) attributes) {
+                    if (PROP_RESOURCE_SUPER_TYPE.equals(attribute)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the entries of all resource types located at or below the
+     * given path.
+     */
+    void invalidate(final String path) {
+        for (final String p : this.searchPath) {
+            if (isSameOrDescendant(p, path) || isSameOrDescendant(path, p)) {
+                this.generation.incrementAndGet();
+                break;
+            }
+        }
+        final Iterator<Entry> i = this.entries.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().isAffectedBy(path)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if <code>path</code> equals
+     * <code>ancestor</code> or is located below it.
+     */
+    private static boolean isSameOrDescendant(final String path, final String ancestor) {
+        if (!path.startsWith(ancestor)) {
+            return false;
+        }
+        return path.length() == ancestor.length()
+            || ancestor.endsWith("/")
+            || path.charAt(ancestor.length()) == '/';
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.jmx;
+
+/**
+ * This is the management interface for the cache of resource super types
+ * shared by all resource resolvers.
+ */
+public interface ResourceSuperTypeCacheMBean {
+
+    /**
+     * Get the number of cached resource types
+     *
+     * @return the cache size
+     */
+    int getCacheSize();
+
+    /**
+     * Get the number of super type lookups answered from the cache
+     *
+     * @return the number of cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Get the number of super type lookups which had to read the resource
+     * type resource
+     *
+     * @return the number of cache misses
+     */
+    long getCacheMisses();
+
+    /**
+     * Get the percentage of super type lookups answered from the cache
+     *
+     * @return the hit rate between 0 and 100
+     */
+    double getCacheHitRate();
+
+    /**
+     * Flush the cache.
+     */
+    void flushCache();
+}
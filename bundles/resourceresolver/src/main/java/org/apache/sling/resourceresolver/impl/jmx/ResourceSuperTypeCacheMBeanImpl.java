@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.jmx;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+import org.apache.sling.resourceresolver.impl.helper.ResourceSuperTypeCache;
+
+/**
+ * Exposes the statistics of a {@link ResourceSuperTypeCache}.
+ */
+public class ResourceSuperTypeCacheMBeanImpl extends StandardMBean implements ResourceSuperTypeCacheMBean {
+
+    private final ResourceSuperTypeCache cache;
+
+    public ResourceSuperTypeCacheMBeanImpl(final ResourceSuperTypeCache cache) throws NotCompliantMBeanException {
+        super(ResourceSuperTypeCacheMBean.class);
+        this.cache = cache;
+    }
+
+    public int getCacheSize() {
+        return cache.getSize();
+    }
+
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    public double getCacheHitRate() {
+        final long hits = cache.getHits();
+        final long total = hits + cache.getMisses();
+        if (total == 0) {
+            return 0;
+        }
+        return 100.0 * hits / total;
+    }
+
+    public void flushCache() {
+        cache.flush();
+    }
+}
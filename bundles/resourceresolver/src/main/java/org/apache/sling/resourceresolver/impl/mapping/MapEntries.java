@@ -95,7 +95,7 @@ public class MapEntries implements EventHandler {
 
     private final String mapRoot;
 
-    private Map<String, List<MapEntry>> resolveMapsMap;
+    private ResolveMapsIndex resolveMapsMap;
 
     private Collection<MapEntry> mapMaps;
 
@@ -103,6 +103,12 @@ public class MapEntries implements EventHandler {
 
     private Map<String, Map<String, String>> aliasMap;
 
+    /** The alias to use when mapping a resource, keyed by resource path */
+    private Map<String, String> reverseAliasMap;
+
+    /** Incremented on each change of the mappings */
+    private volatile long changeCount;
+
     private ServiceRegistration registration;
 
     private EventAdmin eventAdmin;
@@ -123,10 +129,12 @@ public class MapEntries implements EventHandler {
         this.resolver = null;
         this.mapRoot = DEFAULT_MAP_ROOT;
 
-        this.resolveMapsMap = Collections.singletonMap(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
+        this.resolveMapsMap = new ResolveMapsIndex();
+        this.resolveMapsMap.put(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
         this.mapMaps = Collections.<MapEntry> emptyList();
         this.vanityTargets = Collections.<String,List <String>>emptyMap();
         this.aliasMap = Collections.<String, Map<String, String>>emptyMap();
+        this.reverseAliasMap = Collections.<String, String>emptyMap();
         this.registration = null;
         this.eventAdmin = null;
         this.enabledVanityPaths = true;
@@ -147,10 +155,12 @@ public class MapEntries implements EventHandler {
         this.vanityPathPrecedence = factory.hasVanityPathPrecedence();
         this.eventAdmin = eventAdmin;
 
-        this.resolveMapsMap = Collections.singletonMap(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
+        this.resolveMapsMap = new ResolveMapsIndex();
+        this.resolveMapsMap.put(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
         this.mapMaps = Collections.<MapEntry> emptyList();
         this.vanityTargets = Collections.<String,List <String>>emptyMap();
         this.aliasMap = Collections.<String, Map<String, String>>emptyMap();
+        this.reverseAliasMap = Collections.<String, String>emptyMap();
 
         doInit();
 
@@ -177,14 +187,17 @@ public class MapEntries implements EventHandler {
                 return;
             }
 
-            final Map<String, List<MapEntry>> newResolveMapsMap = new ConcurrentHashMap<String, List<MapEntry>>();  
+            final ResolveMapsIndex newResolveMapsMap = new ResolveMapsIndex();
  
             final Map<String,List<String>> vanityTargets = (this.enabledVanityPaths ? this.loadVanityPaths(resolver, newResolveMapsMap) : Collections.<String,List <String>>emptyMap());
             
             //optimization made in SLING-2521
             if (enableOptimizeAliasResolution){
-                final Map<String, Map<String, String>> aliasMap = this.loadAliases(resolver);
+                final Map<String, Map<String, String>> aliasMap = new ConcurrentHashMap<String, Map<String, String>>();
+                final Map<String, String> reverseAliasMap = new ConcurrentHashMap<String, String>();
+                this.loadAliases(resolver, aliasMap, reverseAliasMap);
                 this.aliasMap = aliasMap;
+                this.reverseAliasMap = reverseAliasMap;
             }
 
             this.vanityTargets = vanityTargets;
@@ -434,7 +447,7 @@ public class MapEntries implements EventHandler {
 
     private void doAddAlias(String path) {
         Resource resource = resolver.getResource(path);
-        loadAlias(resource, this.aliasMap);
+        loadAlias(resource, this.aliasMap, this.reverseAliasMap);
     }
 
     private void doUpdateAlias(String path, boolean nodeDeletion) {
@@ -507,6 +520,9 @@ public class MapEntries implements EventHandler {
         if (aliasMapEntry != null && aliasMapEntry.isEmpty()) {
             this.aliasMap.remove(path);
         }
+        if (resourceName.length() > 0) {
+            this.reverseAliasMap.remove(("/".equals(path) ? "" : path) + '/' + resourceName);
+        }
     }
 
     public boolean isOptimizeAliasResolutionEnabled() {
@@ -601,6 +617,26 @@ public class MapEntries implements EventHandler {
         return aliasMap.get(parentPath);
     }
 
+    /**
+     * Returns the alias to use for the resource at the given path when
+     * mapping it or <code>null</code> if the resource has no alias. This
+     * is only available if optimized alias resolution is enabled.
+     */
+    public String getAlias(final String resourcePath) {
+        return reverseAliasMap.get(resourcePath);
+    }
+
+    /**
+     * Returns a counter which is incremented whenever the mappings change.
+     * This allows to detect whether results derived from the mappings are
+     * still valid. If optimized alias resolution is disabled, the counter
+     * is also incremented whenever a resource is removed, as the aliases
+     * are then read from the content while mapping.
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
     // ---------- EventListener interface
 
     /**
@@ -645,6 +681,11 @@ public class MapEntries implements EventHandler {
                 //need to update the configuration
                 wasResolverRefreshed = doUpdateConfiguration(wasResolverRefreshed);
             }
+            if (!this.enableOptimizeAliasResolution) {
+                // the aliases are read from the content while mapping and
+                // the removed resource may have had one
+                this.changeCount++;
+            }
         //session.move() is handled differently see also SLING-3713 and    
         } else if (SlingConstants.TOPIC_RESOURCE_ADDED.equals(event.getTopic()) && event.getProperty(SlingConstants.PROPERTY_ADDED_ATTRIBUTES) == null) {
             wasResolverRefreshed = doNodeAdded(path, wasResolverRefreshed);
@@ -738,6 +779,7 @@ public class MapEntries implements EventHandler {
      * Send an OSGi event
      */
     private void sendChangeEvent() {
+        this.changeCount++;
         if (this.eventAdmin != null) {
             final Event event = new Event(SlingConstants.TOPIC_RESOURCE_RESOLVER_MAPPING_CHANGED,
                             (Dictionary<?, ?>) null);
@@ -809,7 +851,7 @@ public class MapEntries implements EventHandler {
     /**
      * Add an entry to the resolve map.
      */
-    private boolean addEntry(final Map<String, List<MapEntry>> entryMap, final String key, final MapEntry entry) {
+    private boolean addEntry(final ResolveMapsIndex entryMap, final String key, final MapEntry entry) {
         if (entry==null){
             return false;
         }
@@ -828,21 +870,20 @@ public class MapEntries implements EventHandler {
      * Load aliases Search for all nodes inheriting the sling:alias
      * property
      */
-    private Map<String, Map<String, String>> loadAliases(final ResourceResolver resolver) {
-        final Map<String, Map<String, String>> map = new ConcurrentHashMap<String, Map<String, String>>();
+    private void loadAliases(final ResourceResolver resolver, final Map<String, Map<String, String>> map,
+            final Map<String, String> reverseMap) {
         final String queryString = "SELECT sling:alias FROM nt:base WHERE sling:alias IS NOT NULL";
         final Iterator<Resource> i = resolver.findResources(queryString, "sql");
         while (i.hasNext()) {
             final Resource resource = i.next();         
-            loadAlias(resource, map);
+            loadAlias(resource, map, reverseMap);
         }
-        return map;
     }
     
     /**
      * Load alias given a resource
      */
-    private void loadAlias(final Resource resource, Map<String, Map<String, String>> map) {
+    private void loadAlias(final Resource resource, Map<String, Map<String, String>> map, Map<String, String> reverseMap) {
         // ignore system tree
         if (resource.getPath().startsWith(JCR_SYSTEM_PREFIX)) {
             log.debug("loadAliases: Ignoring {}", resource);
@@ -858,15 +899,20 @@ public class MapEntries implements EventHandler {
 
         final String resourceName;
         final String parentPath;
-        if (resource.getName().equals("jcr:content")) {
+        final String resourcePath;
+        final boolean onContent = resource.getName().equals("jcr:content");
+        if (onContent) {
             final Resource containingResource = resource.getParent();
             parentPath = containingResource.getParent().getPath();
             resourceName = containingResource.getName();
+            resourcePath = containingResource.getPath();
         } else {
             parentPath = resource.getParent().getPath();
             resourceName = resource.getName();
+            resourcePath = resource.getPath();
         }
         Map<String, String> parentMap = map.get(parentPath);
+        String mappedAlias = null;
         for (final String alias : props.get(ResourceResolverImpl.PROP_ALIAS, String[].class)) {
             if (parentMap != null && parentMap.containsKey(alias)) {
                 log.warn("Encountered duplicate alias {} under parent path {}. Refusing to replace current target {} with {}.", new Object[] {
@@ -896,16 +942,24 @@ public class MapEntries implements EventHandler {
                         map.put(parentPath, parentMap);
                     }
                     parentMap.put(alias, resourceName);
+                    if (mappedAlias == null) {
+                        mappedAlias = alias;
+                    }
                 }
             }
         }
+        // like ResourceResolverImpl.map the alias of the resource
+        // itself takes precedence over the one of jcr:content
+        if (mappedAlias != null && (!onContent || !reverseMap.containsKey(resourcePath))) {
+            reverseMap.put(resourcePath, mappedAlias);
+        }
     }
 
     /**
      * Load vanity paths Search for all nodes inheriting the sling:VanityPath
      * mixin
      */
-    private Map <String, List<String>> loadVanityPaths(final ResourceResolver resolver, final Map<String, List<MapEntry>> entryMap) {
+    private Map <String, List<String>> loadVanityPaths(final ResourceResolver resolver, final ResolveMapsIndex entryMap) {
         // sling:VanityPath (uppercase V) is the mixin name
         // sling:vanityPath (lowercase) is the property name
         final Map <String, List<String>> targetPaths = new ConcurrentHashMap <String, List<String>>();
@@ -923,7 +977,7 @@ public class MapEntries implements EventHandler {
     /**
      * Load vanity path given a resource
      */
-    private void loadVanityPath(final Resource resource, final Map<String, List<MapEntry>> entryMap, final Map <String, List<String>> targetPaths) {
+    private void loadVanityPath(final Resource resource, final ResolveMapsIndex entryMap, final Map <String, List<String>> targetPaths) {
         
         if (!isValidVanityPath(resource)) {            
             return;
@@ -1174,9 +1228,10 @@ public class MapEntries implements EventHandler {
 
     private static final class MapEntryIterator implements Iterator<MapEntry> {
 
-        private final Map<String, List<MapEntry>> resolveMapsMap;
+        /** The entry lists along the request path, the deepest first */
+        private final List<List<MapEntry>> specialLists;
 
-        private String key;
+        private int specialIndex;
 
         private MapEntry next;
 
@@ -1188,10 +1243,9 @@ public class MapEntries implements EventHandler {
         
         private boolean vanityPathPrecedence;
 
-        public MapEntryIterator(final String startKey, final Map<String, List<MapEntry>> resolveMapsMap, final boolean vanityPathPrecedence) {
-            this.key = startKey;
-            this.resolveMapsMap = resolveMapsMap;
-            this.globalListIterator = this.resolveMapsMap.get(GLOBAL_LIST_KEY).iterator();
+        public MapEntryIterator(final String startKey, final ResolveMapsIndex resolveMapsMap, final boolean vanityPathPrecedence) {
+            this.specialLists = resolveMapsMap.getCandidates(startKey);
+            this.globalListIterator = resolveMapsMap.get(GLOBAL_LIST_KEY).iterator();
             this.vanityPathPrecedence = vanityPathPrecedence;
             this.seek();
         }
@@ -1230,27 +1284,11 @@ public class MapEntries implements EventHandler {
                 if (specialIterator != null && !specialIterator.hasNext()) {
                     specialIterator = null;
                 }
-                while (specialIterator == null && key != null) {
-                    // remove selectors and extension
-                    final int lastSlashPos = key.lastIndexOf('/');
-                    final int lastDotPos = key.indexOf('.', lastSlashPos);
-                    if (lastDotPos != -1) {
-                        key = key.substring(0, lastDotPos);
-                    }
-                    final List<MapEntry> special = this.resolveMapsMap.get(key);
-                    if (special != null) {
-                        specialIterator = special.iterator();
-                    }
-                    // recurse to the parent
-                    if (key.length() > 1) {
-                        final int lastSlash = key.lastIndexOf("/");
-                        if (lastSlash == 0) {
-                            key = null;
-                        } else {
-                            key = key.substring(0, lastSlash);
-                        }
-                    } else {
-                        key = null;
+                // continue with the entries of the next parent key
+                while (specialIterator == null && specialIndex < specialLists.size()) {
+                    specialIterator = specialLists.get(specialIndex++).iterator();
+                    if (!specialIterator.hasNext()) {
+                        specialIterator = null;
                     }
                 }
                 if (this.specialIterator != null && this.specialIterator.hasNext()) {
@@ -60,6 +60,9 @@ public class MapEntry implements Comparable<MapEntry> {
 
     private final Pattern urlPattern;
 
+    /** The literal start of every value matched by the url pattern */
+    private final String literalPrefix;
+
     private final String[] redirect;
 
     private final int status;
@@ -259,12 +262,51 @@ public class MapEntry implements Comparable<MapEntry> {
         } catch (Exception e){
         	throw new IllegalArgumentException("Bad url pattern: " + url,e);
         }
+        this.literalPrefix = getLiteralPrefix(url);
 
         this.redirect = redirect;
         this.status = status;
         this.order = order;
     }
 
+    /**
+     * Returns the literal start of the url pattern: all values matched by
+     * the pattern start with this string. This allows to skip the pattern
+     * for values which cannot match without applying the regular expression.
+     * If the pattern starts with a regular expression construct, the empty
+     * string is returned.
+     */
+    static String getLiteralPrefix(final String pattern) {
+        // alternatives may match anything
+        if (pattern.indexOf('|') != -1) {
+            return "";
+        }
+        final StringBuilder prefix = new StringBuilder();
+        for (int i = 1; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == '?' || c == '*' || c == '{') {
+                // the previous character is optional or repeated
+                if (prefix.length() > 0) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            } else if ("\\.[]()+^$".indexOf(c) != -1) {
+                break;
+            }
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Returns <code>true</code> if the value may be matched by this entry.
+     * If this method returns <code>false</code>, {@link #replace(String)}
+     * returns <code>null</code> for the value.
+     */
+    public boolean mayMatch(final String value) {
+        return value.startsWith(literalPrefix);
+    }
+
     // Returns the replacement or null if the value does not match
     public String[] replace(final String value) {
         final Matcher m = urlPattern.matcher(value);
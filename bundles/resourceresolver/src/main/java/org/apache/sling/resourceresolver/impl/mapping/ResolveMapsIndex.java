@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.mapping;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The <code>ResolveMapsIndex</code> holds the resolve map entries keyed by
+ * the path they apply to. Keys starting with a slash are additionally
+ * indexed in a path segment trie, so the entries of all keys along a request
+ * path are found with a single walk over the request path instead of one
+ * substring and hash lookup per ancestor. Other keys, like the one of the
+ * global list, are only kept in the map.
+ * <p>
+ * Readers do not lock: the children of a trie node are replaced by a new
+ * sorted array on each change. Changes are serialized on the index.
+ */
+final class ResolveMapsIndex extends AbstractMap<String, List<MapEntry>> {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+
+        final String segment;
+
+        /** The children sorted by segment */
+        volatile Node[] children = NO_CHILDREN;
+
+        volatile List<MapEntry> entries;
+
+        Node(final String segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * Returns the child whose segment equals the region of the key
+         * from start (inclusive) to end (exclusive).
+         */
+        Node getChild(final String key, final int start, final int end) {
+            final Node[] nodes = this.children;
+            int low = 0;
+            int high = nodes.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compare(nodes[mid].segment, key, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return nodes[mid];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(final String segment) {
+            final Node[] nodes = this.children;
+            int pos = 0;
+            while (pos < nodes.length && nodes[pos].segment.compareTo(segment) < 0) {
+                pos++;
+            }
+            final Node child = new Node(segment);
+            final Node[] newNodes = new Node[nodes.length + 1];
+            System.arraycopy(nodes, 0, newNodes, 0, pos);
+            newNodes[pos] = child;
+            System.arraycopy(nodes, pos, newNodes, pos + 1, nodes.length - pos);
+            this.children = newNodes;
+            return child;
+        }
+
+        void removeChild(final Node child) {
+            final Node[] nodes = this.children;
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] == child) {
+                    final Node[] newNodes = new Node[nodes.length - 1];
+                    System.arraycopy(nodes, 0, newNodes, 0, i);
+                    System.arraycopy(nodes, i + 1, newNodes, i, nodes.length - i - 1);
+                    this.children = newNodes;
+                    return;
+                }
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, List<MapEntry>> map = new ConcurrentHashMap<String, List<MapEntry>>();
+
+    private final Node root = new Node(null);
+
+    /**
+     * Returns the entry lists of the keys to check for the request path, the
+     * one of the deepest key first. This is the trie equivalent of removing
+     * the selectors and extension from the key and looking up the key and
+     * then each parent of it, again without selectors and extension.
+     *
+     * @param key The request path without scheme and host, may be
+     *            <code>null</code>.
+     */
+    public List<List<MapEntry>> getCandidates(final String key) {
+        if (key == null || !key.startsWith("/")) {
+            return Collections.emptyList();
+        }
+        final List<List<MapEntry>> result = new ArrayList<List<MapEntry>>(4);
+        Node node = this.root;
+        int start = 1;
+        while (node != null) {
+            int end = key.indexOf('/', start);
+            if (end == -1) {
+                end = key.length();
+            }
+            int stripped = key.indexOf('.', start);
+            if (stripped == -1 || stripped > end) {
+                stripped = end;
+            }
+
+            final Node candidate = node.getChild(key, start, stripped);
+            if (candidate != null) {
+                final List<MapEntry> entries = candidate.entries;
+                if (entries != null) {
+                    result.add(0, entries);
+                }
+            }
+
+            if (end == key.length()) {
+                break;
+            }
+            node = (stripped == end) ? candidate : node.getChild(key, start, end);
+            start = end + 1;
+        }
+        return result;
+    }
+
+    @Override
+    public List<MapEntry> get(final Object key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return this.map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public synchronized List<MapEntry> put(final String key, final List<MapEntry> entries) {
+        final List<MapEntry> old = this.map.put(key, entries);
+        if (key.startsWith("/")) {
+            Node node = this.root;
+            int start = 1;
+            while (true) {
+                int end = key.indexOf('/', start);
+                if (end == -1) {
+                    end = key.length();
+                }
+                Node child = node.getChild(key, start, end);
+                if (child == null) {
+                    child = node.addChild(key.substring(start, end));
+                }
+                node = child;
+                if (end == key.length()) {
+                    break;
+                }
+                start = end + 1;
+            }
+            node.entries = entries;
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized List<MapEntry> remove(final Object key) {
+        final List<MapEntry> old = this.map.remove(key);
+        if (old != null && ((String) key).startsWith("/")) {
+            final String path = (String) key;
+            final List<Node> nodes = new ArrayList<Node>();
+            Node node = this.root;
+            int start = 1;
+            while (node != null) {
+                nodes.add(node);
+                int end = path.indexOf('/', start);
+                if (end == -1) {
+                    end = path.length();
+                }
+                node = node.getChild(path, start, end);
+                if (end == path.length()) {
+                    break;
+                }
+                start = end + 1;
+            }
+            if (node != null) {
+                node.entries = null;
+                // prune the nodes which are not needed anymore
+                for (int i = nodes.size() - 1; i >= 0 && node.entries == null && node.children.length == 0; i--) {
+                    final Node parent = nodes.get(i);
+                    parent.removeChild(node);
+                    node = parent;
+                }
+            }
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.map.clear();
+        this.root.children = NO_CHILDREN;
+    }
+
+    @Override
+    public Collection<List<MapEntry>> values() {
+        return Collections.unmodifiableCollection(this.map.values());
+    }
+
+    @Override
+    public Set<Entry<String, List<MapEntry>>> entrySet() {
+        return Collections.unmodifiableMap(this.map).entrySet();
+    }
+
+    /**
+     * Compares the segment with the region of the key in the same way
+     * as <code>String.compareTo</code> does.
+     */
+    private static int compare(final String segment, final String key, final int start, final int end) {
+        final int len1 = segment.length();
+        final int len2 = end - start;
+        final int n = Math.min(len1, len2);
+        for (int i = 0; i < n; i++) {
+            final char c1 = segment.charAt(i);
+            final char c2 = key.charAt(start + i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return len1 - len2;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>ProviderPathIndex</code> is an immutable snapshot of the tree of
+ * resource provider entries, mapping the path of each entry below the root
+ * to the entries from the root down to that entry.
+ * <p>
+ * Looking up the entries for a path neither splits the path nor creates
+ * lists: the hash of each path prefix is computed while scanning the path
+ * and compared against the precomputed hashes of the entry paths. The index
+ * is rebuilt by the root entry whenever providers are added or removed.
+ */
+final class ProviderPathIndex {
+
+    private static final ResourceProviderEntry[] NO_ENTRIES = new ResourceProviderEntry[0];
+
+    /** The root entry of the tree */
+    private final ResourceProviderEntry root;
+
+    /** The paths of the entries relative to the root, open addressing */
+    private final String[] keys;
+
+    /** The entries from the root (exclusive) down to the entry of the key */
+    private final ResourceProviderEntry[][] values;
+
+    private final int mask;
+
+    private ProviderPathIndex(final ResourceProviderEntry root, final List<String> paths,
+            final List<ResourceProviderEntry[]> entries) {
+        this.root = root;
+        int capacity = 2;
+        while ( capacity < paths.size() * 2 ) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.values = new ResourceProviderEntry[capacity][];
+        this.mask = capacity - 1;
+        for (int i = 0; i < paths.size(); i++) {
+            final String key = paths.get(i);
+            int slot = spread(key.hashCode()) & mask;
+            while ( keys[slot] != null ) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = entries.get(i);
+        }
+    }
+
+    /**
+     * Create the index for the tree below the root entry.
+     */
+    static ProviderPathIndex build(final ResourceProviderEntry root) {
+        final List<String> paths = new ArrayList<String>();
+        final List<ResourceProviderEntry[]> entries = new ArrayList<ResourceProviderEntry[]>();
+        collect(root, null, NO_ENTRIES, paths, entries);
+        return new ProviderPathIndex(root, paths, entries);
+    }
+
+    private static void collect(final ResourceProviderEntry parent,
+            final String parentPath,
+            final ResourceProviderEntry[] parentEntries,
+            final List<String> paths,
+            final List<ResourceProviderEntry[]> entries) {
+        for (final Map.Entry<String, ResourceProviderEntry> child : parent.children()) {
+            final String path = (parentPath == null ? child.getKey() : parentPath + '/' + child.getKey());
+            final ResourceProviderEntry[] childEntries = new ResourceProviderEntry[parentEntries.length + 1];
+            System.arraycopy(parentEntries, 0, childEntries, 0, parentEntries.length);
+            childEntries[parentEntries.length] = child.getValue();
+            paths.add(path);
+            entries.add(childEntries);
+            collect(child.getValue(), path, childEntries, paths, entries);
+        }
+    }
+
+    /**
+     * Returns the entries from the root (exclusive) down to the deepest entry
+     * matching a prefix of the path. The returned array must not be modified.
+     */
+    ResourceProviderEntry[] getEntries(final String path) {
+        if ( path == null ) {
+            return NO_ENTRIES;
+        }
+        final int start = start(path);
+        final int end = end(path, start);
+        if ( start == end ) {
+            return NO_ENTRIES;
+        }
+        ResourceProviderEntry[] result = NO_ENTRIES;
+        int hash = 0;
+        for (int i = start; i <= end; i++) {
+            final char c = (i < end ? path.charAt(i) : '/');
+            if ( c == '/' ) {
+                final int slot = find(path, start, i, hash);
+                if ( slot == -1 ) {
+                    break;
+                }
+                result = values[slot];
+            }
+            hash = 31 * hash + c;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entry at the path, the root entry for the root path or
+     * <code>null</code> if the tree has no entry at the path.
+     */
+    ResourceProviderEntry getEntry(final String path) {
+        if ( path == null ) {
+            return null;
+        }
+        final int start = start(path);
+        final int end = end(path, start);
+        if ( start == end ) {
+            return root;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        final int slot = find(path, start, end, hash);
+        if ( slot == -1 ) {
+            return null;
+        }
+        final ResourceProviderEntry[] entries = values[slot];
+        return entries[entries.length - 1];
+    }
+
+    /**
+     * Find the slot of the key equal to the section of the path.
+     * @param hash The hash of the section, computed like {@link String#hashCode()}
+     * @return The slot or -1
+     */
+    private int find(final String path, final int start, final int end, final int hash) {
+        final int length = end - start;
+        int slot = spread(hash) & mask;
+        String key;
+        while ( (key = keys[slot]) != null ) {
+            if ( key.length() == length && path.regionMatches(start, key, 0, length) ) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** The index of the first character after the leading slashes */
+    private static int start(final String path) {
+        int start = 0;
+        while ( start < path.length() && path.charAt(start) == '/' ) {
+            start++;
+        }
+        return start;
+    }
+
+    /** The index after the last character before the trailing slashes */
+    private static int end(final String path, final int start) {
+        int end = path.length();
+        while ( end > start && path.charAt(end - 1) == '/' ) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -52,6 +52,10 @@ import org.slf4j.LoggerFactory;
  * of ProviderHanders would be rootProvider.get("a").get("b").get("c").
  * <p>
  * This class is comparable to itself to help keep the child entries list sorted by their prefix.
+ * <p>
+ * As walking down the tree for each resource access is costly, the entry on which providers are
+ * added and removed keeps a {@link ProviderPathIndex} of the tree below it, which is rebuilt on
+ * each change and used to look up the entries for a path.
  */
 public class ResourceProviderEntry implements Comparable<ResourceProviderEntry> {
 
@@ -75,6 +79,10 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
 
     private Collection<ResourceProviderEntry> storageMapValues = new ArrayList<ResourceProviderEntry>();
 
+    // the index of the tree below this entry, replaced whenever providers
+    // are added to or removed from the tree
+    private volatile ProviderPathIndex index = ProviderPathIndex.build(this);
+
     /**
      * Creates an instance of this class with the given path relative to the
      * parent resource provider entry, encapsulating the given ResourceProvider,
@@ -157,6 +165,32 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
         return storageMapValues;
     }
 
+    @SuppressWarnings("unchecked")
+    Set<Map.Entry<String, ResourceProviderEntry>> children() {
+        return storageMap.entrySet();
+    }
+
+    /**
+     * Returns the entries below this entry along the given path, starting with
+     * the child of this entry and ending with the deepest entry matching a prefix
+     * of the path. The returned array is shared and must not be modified.
+     *
+     * @param path
+     *            The path, leading and trailing slashes are ignored.
+     * @return The entries, the array is empty if no child entry matches.
+     */
+    public ResourceProviderEntry[] getEntries(final String path) {
+        return index.getEntries(path);
+    }
+
+    /**
+     * Returns the entry at the given path below this entry, this entry for the
+     * root path or <code>null</code> if there is no entry at the path.
+     */
+    public ResourceProviderEntry getEntry(final String path) {
+        return index.getEntry(path);
+    }
+
     /**
      * @see java.lang.Comparable#compareTo(java.lang.Object)
      */
@@ -225,7 +259,9 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
             entries.add(rpe2);
         }
         // finally add this provider to the last in the list. This might be a new entry, or an existing entry.
-        return entries.get(elements.length).addInternalProvider(provider);
+        final boolean result = entries.get(elements.length).addInternalProvider(provider);
+        this.index = ProviderPathIndex.build(this);
+        return result;
     }
 
     /**
@@ -250,6 +286,7 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
             // so this should be taken care of.
             logger.warn("Unable to remove {} for prefix {}, no matching entry found", resourceProvider, prefix);
         }
+        this.index = ProviderPathIndex.build(this);
         return result;
     }
 
@@ -311,15 +348,13 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
                 logger.debug("Not absolute {}", fullPath);
                 return null; // fullpath must be absolute
             }
-            final String[] elements = split(fullPath);
-            final List<ResourceProviderEntry> entries = new ArrayList<ResourceProviderEntry>();
-            this.populateProviderPath(entries, elements);
+            final ResourceProviderEntry[] entries = this.index.getEntries(fullPath);
 
             Resource fallbackResource = null;
 
             // the path is in reverse order end first
-            for (int i = entries.size() - 1; i >= 0; i--) {
-                final ProviderHandler[] rps = entries.get(i).getResourceProviders();
+            for (int i = entries.length - 1; i >= 0; i--) {
+                final ProviderHandler[] rps = entries[i].getResourceProviders();
                 for (final ProviderHandler rp : rps) {
 
                     boolean foundFallback = false;
@@ -365,8 +400,8 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
             //              as it is important e.g. for servlet resolution
             //              to get the parent resource for resource traversal.
             if ( !isResolve ) {
-                if (entries.size() > 0 && entries.size() == elements.length) {
-                    final ResourceProviderEntry lastEntry = entries.get(entries.size() - 1);
+                final ResourceProviderEntry lastEntry = (entries.length > 0 ? this.index.getEntry(fullPath) : null);
+                if (lastEntry != null) {
                     if (lastEntry.getResourceProviders().length == 0) {
                         logger.debug("Resolved Synthetic {}", fullPath);
                         return new SyntheticResource(resourceResolver, fullPath, ResourceProvider.RESOURCE_TYPE_SYNTHETIC);
@@ -417,12 +452,10 @@ public class ResourceProviderEntry implements Comparable<ResourceProviderEntry>
     private ProviderHandler getModifyingProviderHandler(final ResourceResolverContext ctx,
             final ResourceResolver resourceResolver,
             final String fullPath) {
-        final String[] elements = split(fullPath);
-        final List<ResourceProviderEntry> entries = new ArrayList<ResourceProviderEntry>();
-        this.populateProviderPath(entries, elements);
+        final ResourceProviderEntry[] entries = this.index.getEntries(fullPath);
 
-        for (int i = entries.size() - 1; i >= 0; i--) {
-            final ProviderHandler[] rps = entries.get(i).getResourceProviders();
+        for (int i = entries.length - 1; i >= 0; i--) {
+            final ProviderHandler[] rps = entries[i].getResourceProviders();
             for (final ProviderHandler rp : rps) {
                 final ResourceProvider provider = rp.getResourceProvider(ctx);
                 if ( provider instanceof ModifyingResourceProvider ) {
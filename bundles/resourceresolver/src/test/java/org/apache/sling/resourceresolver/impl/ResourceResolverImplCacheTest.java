@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.resourceresolver.impl.helper.ResourceDecoratorTracker;
+import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
+import org.apache.sling.resourceresolver.impl.tree.RootResourceProviderEntry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests the resource lookup cache of the {@link ResourceResolverImpl}.
+ */
+public class ResourceResolverImplCacheTest {
+
+    private RootResourceProviderEntry rootProviderEntry;
+
+    private ResourceResolverContext context;
+
+    private ResourceResolverImpl resolver;
+
+    @Before public void setup() {
+        final CommonResourceResolverFactoryImpl factory = Mockito.mock(CommonResourceResolverFactoryImpl.class);
+        rootProviderEntry = Mockito.mock(RootResourceProviderEntry.class);
+        Mockito.when(factory.getResourceCacheSize()).thenReturn(10);
+        Mockito.when(factory.getRootProviderEntry()).thenReturn(rootProviderEntry);
+        Mockito.when(factory.getResourceDecoratorTracker()).thenReturn(new ResourceDecoratorTracker());
+
+        context = new ResourceResolverContext(false, null, new ResourceAccessSecurityTracker());
+        resolver = new ResourceResolverImpl(factory, context);
+        Mockito.when(rootProviderEntry.getResource(context, resolver, "/a", false))
+            .thenReturn(new SyntheticResource(resolver, "/a", "type"));
+    }
+
+    private void verifyLookups(final String path, final int count) {
+        Mockito.verify(rootProviderEntry, Mockito.times(count)).getResource(context, resolver, path, false);
+    }
+
+    @Test public void testLookupsAreCached() {
+        final Resource a = resolver.getResource("/a");
+        assertNotNull(a);
+        assertSame(a, resolver.getResource("/a"));
+        assertEquals("/a", a.getResourceMetadata().getResolutionPath());
+        assertNull(resolver.getResource("/b"));
+        assertNull(resolver.getResource("/b"));
+
+        verifyLookups("/a", 1);
+        verifyLookups("/b", 1);
+        assertEquals(2L, resolver.getAttribute(ResourceResolverImpl.ATTR_RESOURCE_CACHE_HITS));
+        assertEquals(2L, resolver.getAttribute(ResourceResolverImpl.ATTR_RESOURCE_CACHE_MISSES));
+    }
+
+    @Test public void testCommitClearsCache() throws Exception {
+        resolver.getResource("/a");
+        resolver.commit();
+        resolver.getResource("/a");
+        verifyLookups("/a", 2);
+    }
+
+    @Test public void testRevertClearsCache() {
+        resolver.getResource("/a");
+        resolver.revert();
+        resolver.getResource("/a");
+        verifyLookups("/a", 2);
+    }
+
+    @Test public void testRefreshClearsCache() {
+        resolver.getResource("/a");
+        resolver.refresh();
+        resolver.getResource("/a");
+        verifyLookups("/a", 2);
+    }
+
+    @Test public void testDeleteClearsCache() throws Exception {
+        final Resource a = resolver.getResource("/a");
+        resolver.delete(a);
+        Mockito.when(rootProviderEntry.getResource(context, resolver, "/a", false)).thenReturn(null);
+
+        assertNull(resolver.getResource("/a"));
+        verifyLookups("/a", 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void testCreateDropsMissingLookups() throws Exception {
+        assertNull(resolver.getResource("/a/b"));
+
+        final Resource parent = Mockito.mock(Resource.class);
+        Mockito.when(parent.getPath()).thenReturn("/a");
+        final Resource created = new SyntheticResource(resolver, "/a/b", "type");
+        Mockito.when(rootProviderEntry.create(Mockito.eq(context), Mockito.eq(resolver),
+                Mockito.eq("/a/b"), Mockito.any(Map.class))).thenReturn(created);
+        Mockito.when(rootProviderEntry.getResource(context, resolver, "/a/b", false))
+            .thenReturn(new SyntheticResource(resolver, "/a/b", "type"));
+        resolver.create(parent, "b", null);
+
+        assertNotNull(resolver.getResource("/a/b"));
+        verifyLookups("/a/b", 2);
+    }
+}
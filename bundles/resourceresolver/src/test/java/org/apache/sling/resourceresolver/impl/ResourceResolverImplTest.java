@@ -377,6 +377,22 @@ public class ResourceResolverImplTest {
         assertNull(resolver.getParentResourceType(r2.getResourceType()));
     }
 
+    @Test public void test_getResourceSuperTypeOfAdminIsNotCached() {
+        final CommonResourceResolverFactoryImpl factory = new CommonResourceResolverFactoryImpl(new ResourceResolverFactoryActivator());
+        final PathBasedResourceResolverImpl admin = new PathBasedResourceResolverImpl(factory,
+                new ResourceResolverContext(true, null, new ResourceAccessSecurityTracker()));
+        final Resource typeResource = Mockito.mock(Resource.class);
+        Mockito.when(typeResource.getResourceSuperType()).thenReturn("t:c");
+        admin.setResource("/a/b", typeResource);
+
+        assertEquals("t:c", admin.getParentResourceType("a:b"));
+        // the super type has been read through the admin resolver itself, e.g. a transient change
+        assertEquals(0, factory.getSuperTypeCache().getSize());
+
+        Mockito.when(typeResource.getResourceSuperType()).thenReturn("t:d");
+        assertEquals("t:d", admin.getParentResourceType("a:b"));
+    }
+
     @Test public void test_isA() {
         final Resource typeResource = Mockito.mock(Resource.class);
         Mockito.when(typeResource.getResourceType()).thenReturn("x:y");
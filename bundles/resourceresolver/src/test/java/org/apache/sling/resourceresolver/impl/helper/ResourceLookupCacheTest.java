@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.junit.Test;
+
+public class ResourceLookupCacheTest {
+
+    private final ResourceLookupCache cache = new ResourceLookupCache(2);
+
+    private Resource resource(final String path) {
+        return new SyntheticResource(null, path, "some/type");
+    }
+
+    @Test public void testCachedLookups() {
+        final Resource a = resource("/a");
+        assertFalse(cache.contains("/a", false));
+        cache.put("/a", false, a);
+        assertFalse(cache.contains("/b", false));
+        cache.put("/b", false, null);
+
+        assertTrue(cache.contains("/a", false));
+        assertSame(a, cache.get("/a", false));
+        assertTrue(cache.contains("/b", false));
+        assertNull(cache.get("/b", false));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals("2 hits, 2 misses", cache.toString());
+    }
+
+    @Test public void testOnlyMissingCachedOnResolve() {
+        cache.put("/a", true, resource("/a"));
+        cache.put("/b", true, null);
+
+        assertFalse(cache.contains("/a", true));
+        assertTrue(cache.contains("/b", true));
+        assertNull(cache.get("/b", true));
+
+        // lookups while resolving and other lookups are kept apart
+        assertFalse(cache.contains("/b", false));
+    }
+
+    @Test public void testLeastRecentlyUsedRemoved() {
+        cache.put("/a", false, resource("/a"));
+        cache.put("/b", false, resource("/b"));
+        assertTrue(cache.contains("/a", false));
+        cache.put("/c", false, resource("/c"));
+
+        assertTrue(cache.contains("/a", false));
+        assertFalse(cache.contains("/b", false));
+        assertTrue(cache.contains("/c", false));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test public void testClear() {
+        cache.put("/a", false, resource("/a"));
+        cache.put("/b", true, null);
+        assertEquals(2, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertFalse(cache.contains("/a", false));
+        assertFalse(cache.contains("/b", true));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+public class ResourceSuperTypeCacheTest {
+
+    private final ResourceSuperTypeCache cache = new ResourceSuperTypeCache(new String[] {"/apps/", "/libs/"});
+
+    private Event event(final String topic, final String path) {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        return new Event(topic, props);
+    }
+
+    @Test public void testCachedSuperType() {
+        assertNull(cache.get("a/b"));
+        cache.put("a/b", "x/y", cache.getGeneration());
+        cache.put("x/y", null, cache.getGeneration());
+
+        assertEquals("x/y", cache.get("a/b").getSuperType());
+        assertNotNull(cache.get("x/y"));
+        assertNull(cache.get("x/y").getSuperType());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test public void testInvalidation() {
+        cache.put("a/b", "x/y", cache.getGeneration());
+        cache.put("a:c", "x/y", cache.getGeneration());
+        cache.put("/content/type", null, cache.getGeneration());
+
+        // changes to unrelated resources
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/apps/a/b/script.jsp"));
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_ADDED, "/apps/a/bc"));
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/content/page"));
+        assertEquals(3, cache.getSize());
+
+        // the type resource overlaid in /apps
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_ADDED, "/apps/a/c"));
+        assertNull(cache.get("a:c"));
+        assertEquals(2, cache.getSize());
+
+        // an ancestor removed in /libs
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/libs/a"));
+        assertNull(cache.get("a/b"));
+
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/content/type"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test public void testProviderChangeFlushes() {
+        cache.put("a/b", "x/y", cache.getGeneration());
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_PROVIDER_ADDED, "/apps/other"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test public void testChangeDuringReadIsNotCached() {
+        final int generation = cache.getGeneration();
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/apps/a/b"));
+        cache.put("a/b", "x/y", generation);
+        assertNull(cache.get("a/b"));
+    }
+
+    @Test public void testSuperTypeChangeDuringReadIsNotCached() {
+        final int generation = cache.getGeneration();
+        // a change outside of the search path
+        cache.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/content/other"));
+        assertEquals(generation, cache.getGeneration());
+
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, "/content/type");
+        props.put(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, new String[] {"jcr:title", "sling:resourceSuperType"});
+        cache.handleEvent(new Event(SlingConstants.TOPIC_RESOURCE_CHANGED, props));
+        cache.put("/content/type", "x/y", generation);
+        assertNull(cache.get("/content/type"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.mapping;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Measures the lookup of the vanity path entries to check for a request
+ * path, which is done by <code>MapEntries.getResolveMapsIterator</code> for
+ * each <code>resolve()</code> call, with 10k, 100k and 1M vanity paths. The
+ * trie index is compared with the former lookup of each parent key in a
+ * hash map. This is not run as part of the build, run it with
+ * <code>mvn test -Dtest=MapEntriesResolveBenchmark</code>.
+ */
+public class MapEntriesResolveBenchmark {
+
+    private static final int[] SIZES = { 10000, 100000, 1000000 };
+
+    private static final int LOOKUPS = 1000000;
+
+    private static final int RUNS = 3;
+
+    /** The entries are shared to keep the heap used by 1M vanity paths low */
+    private static final int DISTINCT_ENTRIES = 1000;
+
+    @Test
+    public void compareTrieAndHashLookup() {
+        final List<List<MapEntry>> entries = new ArrayList<List<MapEntry>>();
+        for (int i = 0; i < DISTINCT_ENTRIES; i++) {
+            final String url = "^[^/]+/[^/]+/content/site/page" + i;
+            final List<MapEntry> list = new ArrayList<MapEntry>();
+            list.add(new MapEntry(url + "$", -1, false, 0, "/content/site/target" + i + ".html"));
+            list.add(new MapEntry(url + "(\\..*)", -1, false, 0, "/content/site/target" + i + "$1"));
+            entries.add(list);
+        }
+
+        for (final int size : SIZES) {
+            final ResolveMapsIndex index = new ResolveMapsIndex();
+            final Map<String, List<MapEntry>> map = new HashMap<String, List<MapEntry>>();
+            index.put("*", Collections.<MapEntry> emptyList());
+            final long startLoad = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                index.put(vanityPath(i), entries.get(i % DISTINCT_ENTRIES));
+            }
+            final long loadMillis = (System.nanoTime() - startLoad) / 1000000;
+            for (int i = 0; i < size; i++) {
+                map.put(vanityPath(i), entries.get(i % DISTINCT_ENTRIES));
+            }
+
+            final String[] requests = new String[1024];
+            for (int i = 0; i < requests.length; i++) {
+                // every other request hits a vanity path
+                requests[i] = (i % 2 == 0)
+                        ? vanityPath((i * 7919) % size) + ".sel.html"
+                        : "/content/site/section" + (i % 100) + "/missing" + i + ".html";
+            }
+
+            for (int run = 0; run < RUNS; run++) {
+                long found = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    found += count(index.getCandidates(requests[i & 1023]));
+                }
+                final long trieNanos = System.nanoTime() - start;
+
+                long expected = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    expected += count(ResolveMapsIndexTest.getCandidates(map, requests[i & 1023]));
+                }
+                final long hashNanos = System.nanoTime() - start;
+
+                assertEquals(expected, found);
+                System.out.printf("%d vanity paths (loaded in %dms), run %d: trie=%dns/lookup, hash=%dns/lookup%n",
+                        size, loadMillis, run, trieNanos / LOOKUPS, hashNanos / LOOKUPS);
+            }
+        }
+    }
+
+    private static String vanityPath(final int i) {
+        return "/content/site/section" + (i % 100) + "/page" + i;
+    }
+
+    private static long count(final List<List<MapEntry>> candidates) {
+        long count = 0;
+        for (final List<MapEntry> list : candidates) {
+            for (final Iterator<MapEntry> i = list.iterator(); i.hasNext(); i.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
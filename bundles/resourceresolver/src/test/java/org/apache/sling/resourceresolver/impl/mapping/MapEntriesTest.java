@@ -34,11 +34,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceUtil;
@@ -52,6 +54,7 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.osgi.framework.BundleContext;
+import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
 public class MapEntriesTest {
@@ -130,6 +133,49 @@ public class MapEntriesTest {
         assertEquals("child", aliasMap.get("alias"));
     }
 
+    @Test
+    public void test_reverse_alias_map() {
+        Resource parent = mock(Resource.class);
+        when(parent.getPath()).thenReturn("/parent");
+
+        final Resource result = mock(Resource.class);
+        when(result.getParent()).thenReturn(parent);
+        when(result.getPath()).thenReturn("/parent/child");
+        when(result.getName()).thenReturn("child");
+        when(result.adaptTo(ValueMap.class)).thenReturn(buildValueMap("sling:alias", new String[] {"alias", "alias2"}));
+
+        final Resource secondResult = mock(Resource.class);
+        when(secondResult.getParent()).thenReturn(parent);
+        when(secondResult.getPath()).thenReturn("/parent/child2");
+        when(secondResult.getName()).thenReturn("child2");
+
+        final Resource jcrContent = mock(Resource.class);
+        when(jcrContent.getParent()).thenReturn(secondResult);
+        when(jcrContent.getPath()).thenReturn("/parent/child2/jcr:content");
+        when(jcrContent.getName()).thenReturn("jcr:content");
+        when(jcrContent.adaptTo(ValueMap.class)).thenReturn(buildValueMap("sling:alias", "contentAlias"));
+
+        when(resourceResolver.findResources(anyString(), eq("sql"))).thenAnswer(new Answer<Iterator<Resource>>() {
+
+            public Iterator<Resource> answer(InvocationOnMock invocation) throws Throwable {
+                if (invocation.getArguments()[0].toString().contains("sling:alias")) {
+                    return Arrays.asList(result, jcrContent).iterator();
+                } else {
+                    return Collections.<Resource> emptySet().iterator();
+                }
+            }
+        });
+
+        final long changeCount = mapEntries.getChangeCount();
+        mapEntries.doInit();
+        assertTrue(mapEntries.getChangeCount() > changeCount);
+
+        assertEquals("alias", mapEntries.getAlias("/parent/child"));
+        assertEquals("contentAlias", mapEntries.getAlias("/parent/child2"));
+        assertNull(mapEntries.getAlias("/parent"));
+        assertNull(mapEntries.getAlias("/parent/child2/jcr:content"));
+    }
+
     @Test
     public void test_that_duplicate_alias_doesnt_replace_first_alias() {
         Resource parent = mock(Resource.class);
@@ -698,6 +744,28 @@ public class MapEntriesTest {
         Map<String, String> aliasMap = mapEntries.getAliasMap("/parent");
         assertNull(aliasMap);
     }    
+
+    @Test
+    public void test_changeCountOnRemoveWithDisableAliasOptimization() throws Exception {
+        final Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, "/parent/child");
+
+        // with the alias map, removing a resource without alias does not change the mappings
+        long changeCount = mapEntries.getChangeCount();
+        mapEntries.handleEvent(new Event(SlingConstants.TOPIC_RESOURCE_REMOVED, props));
+        assertEquals(changeCount, mapEntries.getChangeCount());
+
+        when(resourceResolverFactory.isOptimizeAliasResolutionEnabled()).thenReturn(false);
+        mapEntries = new MapEntries(resourceResolverFactory, bundleContext, eventAdmin);
+        Field field0 = MapEntries.class.getDeclaredField("mapRoot");
+        field0.setAccessible(true);
+        field0.set(mapEntries, MapEntries.DEFAULT_MAP_ROOT);
+
+        // without the alias map, the removed resource might have had an alias
+        changeCount = mapEntries.getChangeCount();
+        mapEntries.handleEvent(new Event(SlingConstants.TOPIC_RESOURCE_REMOVED, props));
+        assertTrue(mapEntries.getChangeCount() > changeCount);
+    }
     
     @Test
     public void test_doAddAlias() throws Exception {
@@ -177,6 +177,24 @@ public class MapEntryTest {
         TestCase.assertEquals(aString, res[0]);
     }
 
+    @Test public void test_literal_prefix() {
+        assertEquals("/content/site/", MapEntry.getLiteralPrefix("^/content/site/(.*)"));
+        assertEquals("/content/site", MapEntry.getLiteralPrefix("^/content/site\\.html$"));
+        assertEquals("/content/sit", MapEntry.getLiteralPrefix("^/content/site?/"));
+        assertEquals("/content/site", MapEntry.getLiteralPrefix("^/content/site+/"));
+        assertEquals("/", MapEntry.getLiteralPrefix("^/[^/]+"));
+        assertEquals("", MapEntry.getLiteralPrefix("^(/content)"));
+        assertEquals("", MapEntry.getLiteralPrefix("^/content|/apps"));
+        assertEquals("", MapEntry.getLiteralPrefix("^"));
+    }
+
+    @Test public void test_may_match() {
+        final MapEntry entry = new MapEntry("^/content/site/(.+)$", -1, false, 0, "/$1");
+        TestCase.assertTrue(entry.mayMatch("/content/site/page.html"));
+        TestCase.assertFalse(entry.mayMatch("/content/other/page.html"));
+        TestCase.assertNull(entry.replace("/content/other/page.html"));
+    }
+
     private void assertEqualUri(String expected, String uriPath) {
         String uri = MapEntry.toURI(uriPath);
         assertNotNull("Failed converting " + uriPath, uri);
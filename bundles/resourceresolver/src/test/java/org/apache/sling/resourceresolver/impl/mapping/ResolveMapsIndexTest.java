@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolveMapsIndexTest {
+
+    private static final String[] KEYS = {
+        "/", "/a", "/a/", "/a/b", "/a/b/c", "/content", "/content/site", "/x.y", "/a/b.c/d"
+    };
+
+    private static final String[] REQUESTS = {
+        "/", "/.html", "/a", "/a.html", "/a/", "/a/.json", "/a/b", "/a/b.sel.html",
+        "/a/b/c", "/a/b/c/d/e.html", "/a/b.c/d", "/a/b.c/d.html", "/a/b.c", "/ab",
+        "/content/site/page.html", "/content/other", "/x.y", "/x", "/x/z", "/unknown/path",
+        "relative", "", null
+    };
+
+    private ResolveMapsIndex index;
+
+    private Map<String, List<MapEntry>> map;
+
+    @Before
+    public void setup() {
+        index = new ResolveMapsIndex();
+        map = new HashMap<String, List<MapEntry>>();
+        for (final String key : KEYS) {
+            final List<MapEntry> entries = new ArrayList<MapEntry>();
+            entries.add(new MapEntry("^[^/]+/[^/]+" + key + "$", -1, false, 0, key));
+            index.put(key, entries);
+            map.put(key, entries);
+        }
+        index.put("*", Collections.<MapEntry> emptyList());
+    }
+
+    @Test
+    public void test_same_candidates_as_parent_walk() {
+        for (final String request : REQUESTS) {
+            assertCandidates(request);
+        }
+    }
+
+    @Test
+    public void test_map_view() {
+        assertEquals(KEYS.length + 1, index.size());
+        assertSame(map.get("/a/b"), index.get("/a/b"));
+        assertTrue(index.containsKey("*"));
+        assertNull(index.get("/a/b/"));
+    }
+
+    @Test
+    public void test_remove() {
+        index.remove("/a/b/c");
+        map.remove("/a/b/c");
+        index.remove("/a/b");
+        map.remove("/a/b");
+        index.remove("/not/there");
+        assertEquals(KEYS.length - 1, index.size());
+        for (final String request : REQUESTS) {
+            assertCandidates(request);
+        }
+
+        // adding again after pruning the nodes
+        final List<MapEntry> entries = new ArrayList<MapEntry>();
+        index.put("/a/b/c", entries);
+        map.put("/a/b/c", entries);
+        for (final String request : REQUESTS) {
+            assertCandidates(request);
+        }
+    }
+
+    @Test
+    public void test_clear() {
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.getCandidates("/a/b/c").size());
+    }
+
+    private void assertCandidates(final String request) {
+        final List<List<MapEntry>> expected = getCandidates(map, request);
+        final List<List<MapEntry>> actual = index.getCandidates(request);
+        assertEquals("Number of candidates for " + request, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame("Candidate " + i + " for " + request, expected.get(i), actual.get(i));
+        }
+    }
+
+    /**
+     * The lookup done by MapEntries before the index was introduced: remove
+     * selectors and extension and look up the key and all its parents.
+     */
+    static List<List<MapEntry>> getCandidates(final Map<String, List<MapEntry>> map, String key) {
+        final List<List<MapEntry>> result = new ArrayList<List<MapEntry>>();
+        while (key != null && key.length() > 0) {
+            final int lastSlashPos = key.lastIndexOf('/');
+            final int lastDotPos = key.indexOf('.', lastSlashPos);
+            if (lastDotPos != -1) {
+                key = key.substring(0, lastDotPos);
+            }
+            final List<MapEntry> special = map.get(key);
+            if (special != null) {
+                result.add(special);
+            }
+            if (key.length() > 1) {
+                final int lastSlash = key.lastIndexOf("/");
+                if (lastSlash <= 0) {
+                    key = null;
+                } else {
+                    key = key.substring(0, lastSlash);
+                }
+            } else {
+                key = null;
+            }
+        }
+        return result;
+    }
+}
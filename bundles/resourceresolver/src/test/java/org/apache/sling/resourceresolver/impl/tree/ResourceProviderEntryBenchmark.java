@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceProvider;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.resourceresolver.impl.ResourceAccessSecurityTracker;
+import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.Constants;
+
+/**
+ * Measures the throughput of {@link ResourceProviderEntry#getResource} with
+ * 5, 50 and 500 mounted resource providers, and compares looking up the
+ * entries along a path through the index to walking down the tree segment
+ * by segment, as it was done before the index was introduced.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=ResourceProviderEntryBenchmark</code>.
+ */
+public class ResourceProviderEntryBenchmark {
+
+    private static final int LOOKUPS = 1000000;
+
+    private static final int RUNS = 5;
+
+    /** A provider returning the same resource for all paths */
+    private static final class FixedResourceProvider implements ResourceProvider {
+
+        private final Resource resource;
+
+        public FixedResourceProvider(final String root) {
+            this.resource = new SyntheticResource(null, root, "sling/benchmark");
+        }
+
+        public Resource getResource(ResourceResolver resourceResolver, HttpServletRequest request, String path) {
+            return resource;
+        }
+
+        public Resource getResource(ResourceResolver resourceResolver, String path) {
+            return resource;
+        }
+
+        public Iterator<Resource> listChildren(Resource parent) {
+            return null;
+        }
+    }
+
+    private ResourceProviderEntry createTree(final int providers) {
+        final ResourceProviderEntry root = new ResourceProviderEntry("/", null);
+        for (int i = 0; i < providers; i++) {
+            final String path = "/content/site" + i + "/en";
+            final Map<String, Object> props = new HashMap<String, Object>();
+            props.put(Constants.SERVICE_ID, (long) i);
+            root.addResourceProvider(path, new ResourceProviderHandler(new FixedResourceProvider(path), props));
+        }
+        return root;
+    }
+
+    private String[] createPaths(final int providers) {
+        final String[] paths = new String[64];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = "/content/site" + (i * 7 % providers) + "/en/products/page" + i + "/jcr:content";
+        }
+        return paths;
+    }
+
+    /** Collects the entries along the path the way it was done before the index */
+    private static List<ResourceProviderEntry> walk(final ResourceProviderEntry root, final String path) {
+        final List<ResourceProviderEntry> entries = new ArrayList<ResourceProviderEntry>();
+        ResourceProviderEntry base = root;
+        for (final String element : ResourceProviderEntry.split(path)) {
+            if (base.containsKey(element)) {
+                base = base.get(element);
+                entries.add(base);
+            } else {
+                break;
+            }
+        }
+        return entries;
+    }
+
+    private void run(final int providers) {
+        final ResourceProviderEntry root = createTree(providers);
+        final String[] paths = createPaths(providers);
+        final ResourceResolverContext ctx = Mockito.mock(ResourceResolverContext.class);
+        Mockito.when(ctx.getResourceAccessSecurityTracker()).thenReturn(new ResourceAccessSecurityTracker());
+
+        for (int r = 0; r < RUNS; r++) {
+            long start = System.nanoTime();
+            int depth = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                depth += walk(root, paths[i & 63]).size();
+            }
+            final long walked = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int indexedDepth = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                indexedDepth += root.getEntries(paths[i & 63]).length;
+            }
+            final long indexed = System.nanoTime() - start;
+            assertEquals(depth, indexedDepth);
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                assertNotNull(root.getResource(ctx, null, paths[i & 63], false));
+            }
+            final long resources = System.nanoTime() - start;
+
+            System.out.printf("%d providers, run %d: tree walk %d lookups/s, index %d lookups/s, getResource %d calls/s%n",
+                    providers, r, LOOKUPS * 1000000000L / walked, LOOKUPS * 1000000000L / indexed,
+                    LOOKUPS * 1000000000L / resources);
+        }
+    }
+
+    @Test
+    public void benchmark5Providers() {
+        run(5);
+    }
+
+    @Test
+    public void benchmark50Providers() {
+        run(50);
+    }
+
+    @Test
+    public void benchmark500Providers() {
+        run(500);
+    }
+}
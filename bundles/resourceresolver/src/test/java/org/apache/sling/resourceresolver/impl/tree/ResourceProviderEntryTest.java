@@ -21,6 +21,7 @@ package org.apache.sling.resourceresolver.impl.tree;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.HashMap;
@@ -211,6 +212,26 @@ public class ResourceProviderEntryTest {
         assertEqualsResolver(secondResolver, root.getResource(ctx, null, "/rootel/child/html.js", false));
     }
 
+    @Test public void testEntriesAlongPath() {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.SERVICE_ID, (long)1);
+        root.addResourceProvider("/apps/sling/sample", new ResourceProviderHandler(Mockito.mock(ResourceProvider.class), props));
+
+        assertEquals(0, root.getEntries("/").length);
+        assertEquals(0, root.getEntries("/content").length);
+        assertEquals(1, root.getEntries("/apps/slingx").length);
+        final ResourceProviderEntry[] entries = root.getEntries("/apps/sling/sample/html.js");
+        assertEquals(3, entries.length);
+        assertEquals("apps", entries[0].getPath());
+        assertEquals("sling", entries[1].getPath());
+        assertEquals("sample", entries[2].getPath());
+
+        assertSame(root, root.getEntry("/"));
+        assertSame(entries[1], root.getEntry("/apps/sling/"));
+        assertNull(root.getEntry("/apps/sling/sample/html.js"));
+        assertNull(root.getEntry("/apps/slingx"));
+    }
+
     @Test public void testRemoveTheOnlyProvider() {
         final ResourceProviderEntry e = new ResourceProviderEntry("/", null);
         long counter = 1;
@@ -46,9 +46,12 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 import javax.servlet.Servlet;
@@ -116,6 +119,9 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
     /** The cache for services. */
     private final ServiceCache cache;
 
+    /** The cache for compiled scripts. */
+    private final ScriptCache scriptCache;
+
     /**
      * Constructor
      * @param bundleContext The bundle context
@@ -123,17 +129,20 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
      * @param scriptEngine The script engine
      * @param bindingsValuesProviders additional bindings values providers
      * @param cache serviceCache
+     * @param scriptCache The cache for compiled scripts, might be <code>null</code>
      */
     DefaultSlingScript(final BundleContext bundleContext,
             final Resource scriptResource,
             final ScriptEngine scriptEngine,
             final Collection<BindingsValuesProvider> bindingsValuesProviders,
-            final ServiceCache cache) {
+            final ServiceCache cache,
+            final ScriptCache scriptCache) {
         this.scriptResource = scriptResource;
         this.scriptEngine = scriptEngine;
         this.bundleContext = bundleContext;
         this.bindingsValuesProviders = bindingsValuesProviders;
         this.cache = cache;
+        this.scriptCache = scriptCache;
         this.scriptName = this.scriptResource.getPath();
         // Now know how to get the input stream, we still have to decide
         // on the encoding of the stream's data. Primarily we assume it is
@@ -352,13 +361,22 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
             ctx.setAttribute(SlingScriptConstants.ATTR_SCRIPT_RESOURCE_RESOLVER,
                     this.scriptResource.getResourceResolver(), SlingScriptConstants.SLING_SCOPE);
 
-            reader = getScriptReader();
-            if ( method != null && !(this.scriptEngine instanceof Invocable)) {
-                reader = getWrapperReader(reader, method, args);
-            }
+            // a method is invoked on the engine which evaluated the script,
+            // so it must not be the engine of a compiled script which is
+            // shared by concurrent requests
+            final CompiledScript compiledScript = (method == null ? getCompiledScript() : null);
 
             // evaluate the script
-            final Object result = scriptEngine.eval(reader, ctx);
+            final Object result;
+            if ( compiledScript != null ) {
+                result = compiledScript.eval(ctx);
+            } else {
+                reader = getScriptReader();
+                if ( method != null && !(this.scriptEngine instanceof Invocable)) {
+                    reader = getWrapperReader(reader, method, args);
+                }
+                result = scriptEngine.eval(reader, ctx);
+            }
 
             // call method - if supplied and script engine supports direct invocation
             if ( method != null && (this.scriptEngine instanceof Invocable)) {
@@ -540,6 +558,45 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
         return new BufferedReader(new InputStreamReader(new LazyInputStream(this.scriptResource), this.scriptEncoding));
     }
 
+    /**
+     * Returns the compiled script from the script cache, compiling the
+     * script if required. If the script engine does not support compiling
+     * scripts or is not thread safe, <code>null</code> is returned and the
+     * script has to be evaluated from its source.
+     */
+    private CompiledScript getCompiledScript() throws IOException, ScriptException {
+        if ( this.scriptCache == null || !(this.scriptEngine instanceof Compilable) ) {
+            return null;
+        }
+        // compiled scripts are shared between threads
+        final ScriptEngineFactory factory = this.scriptEngine.getFactory();
+        if ( factory.getParameter("THREADING") == null ) {
+            return null;
+        }
+        // without modification time we can't detect changes
+        final long lastModified = this.scriptResource.getResourceMetadata().getModificationTime();
+        if ( lastModified <= 0 ) {
+            return null;
+        }
+
+        CompiledScript compiledScript = this.scriptCache.get(this.scriptName, lastModified, factory);
+        if ( compiledScript == null ) {
+            final Reader reader = getScriptReader();
+            try {
+                this.scriptEngine.put(ScriptEngine.FILENAME, this.scriptName);
+                compiledScript = ((Compilable)this.scriptEngine).compile(reader);
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException ignore) {
+                    // don't care
+                }
+            }
+            this.scriptCache.put(this.scriptName, lastModified, factory, compiledScript);
+        }
+        return compiledScript;
+    }
+
     private Reader getWrapperReader(final Reader scriptReader, final String method, final Object... args) {
         final StringBuilder buffer = new StringBuilder(method);
         buffer.append('(');
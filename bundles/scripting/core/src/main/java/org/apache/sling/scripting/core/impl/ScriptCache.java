@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.core.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngineFactory;
+
+/**
+ * The <code>ScriptCache</code> keeps the compiled scripts of
+ * <code>Compilable</code> script engines, so scripts are not parsed again
+ * for each request.
+ * <p>
+ * A compiled script is only returned if the script resource has not been
+ * modified since it has been compiled and if it has been compiled by an
+ * engine of the same script engine factory. The scripts are kept in a
+ * concurrent map keyed by the script path, so looking up and invalidating
+ * a script does not block concurrent requests. The cache is bounded and
+ * removes an arbitrary script once it is full.
+ */
+public class ScriptCache {
+
+    /** The default maximum number of cached scripts */
+    public static final int DEFAULT_SIZE = 1000;
+
+    /** The name of the content node of a file */
+    private static final String CONTENT_NODE = "/jcr:content";
+
+    private static final class Entry {
+
+        final CompiledScript script;
+
+        final long lastModified;
+
+        final ScriptEngineFactory factory;
+
+        Entry(final CompiledScript script, final long lastModified, final ScriptEngineFactory factory) {
+            this.script = script;
+            this.lastModified = lastModified;
+            this.factory = factory;
+        }
+    }
+
+    private final int maxSize;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public ScriptCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the compiled script for the given path or <code>null</code>
+     * if there is no current compiled script.
+     * @param path The script path
+     * @param lastModified The modification time of the script resource
+     * @param factory The factory of the script engine to evaluate the script
+     */
+    public CompiledScript get(final String path, final long lastModified, final ScriptEngineFactory factory) {
+        final Entry entry = this.entries.get(path);
+        if ( entry != null && entry.lastModified == lastModified && entry.factory == factory ) {
+            this.hits.incrementAndGet();
+            return entry.script;
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add a compiled script to the cache.
+     * @param path The script path
+     * @param lastModified The modification time of the script resource
+     * @param factory The factory of the script engine which compiled the script
+     * @param script The compiled script
+     */
+    public void put(final String path, final long lastModified, final ScriptEngineFactory factory, final CompiledScript script) {
+        if ( this.maxSize > 0 ) {
+            if ( this.entries.put(path, new Entry(script, lastModified, factory)) == null ) {
+                // a new script, make room if the cache is full
+                final Iterator<String> i = this.entries.keySet().iterator();
+                while ( this.entries.size() > this.maxSize && i.hasNext() ) {
+                    final String key = i.next();
+                    if ( !key.equals(path) ) {
+                        i.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the script with the given path. As the content of a file is
+     * changed below the file, the script of a content node is removed as well.
+     * Scripts below a removed folder are not removed, they are not resolved
+     * anymore and are only replaced once the cache is full.
+     */
+    public void invalidate(final String path) {
+        this.entries.remove(path);
+        if ( path.endsWith(CONTENT_NODE) ) {
+            this.entries.remove(path.substring(0, path.length() - CONTENT_NODE.length()));
+        }
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public int getSize() {
+        return this.entries.size();
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+}
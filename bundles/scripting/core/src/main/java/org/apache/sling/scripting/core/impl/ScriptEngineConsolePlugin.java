@@ -29,6 +29,7 @@ import javax.script.ScriptEngineManager;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 
 public class ScriptEngineConsolePlugin {
@@ -57,6 +58,8 @@ public class ScriptEngineConsolePlugin {
         }
     }
 
+    private BundleContext bundleContext;
+
     private ServiceRegistration serviceRegistration;
 
     private final ScriptEngineManagerFactory scriptEngineManagerFactory;
@@ -100,6 +103,36 @@ public class ScriptEngineConsolePlugin {
             pw.print("- Names : ");
             printArray(pw, factory.getNames());
         }
+
+        pw.println();
+        pw.println("Compiled Script Cache");
+        pw.println("=====================");
+        final BundleContext context = this.bundleContext;
+        final ServiceReference ref = (context == null ? null : context.getServiceReference(ScriptCache.class.getName()));
+        final ScriptCache scriptCache = (ref == null ? null : (ScriptCache) context.getService(ref));
+        if (scriptCache == null) {
+            pw.println("- disabled");
+        } else {
+            try {
+                final long hits = scriptCache.getHits();
+                final long misses = scriptCache.getMisses();
+                pw.print("- Scripts : ");
+                pw.print(scriptCache.getSize());
+                pw.print(" of ");
+                pw.println(scriptCache.getMaxSize());
+                pw.print("- Hits : ");
+                pw.println(hits);
+                pw.print("- Misses : ");
+                pw.println(misses);
+                if (hits + misses > 0) {
+                    pw.print("- Hit Ratio : ");
+                    pw.print(hits * 100 / (hits + misses));
+                    pw.println("%");
+                }
+            } finally {
+                context.ungetService(ref);
+            }
+        }
     }
 
     private void printArray(PrintWriter pw, List<?> values) {
@@ -127,6 +160,7 @@ public class ScriptEngineConsolePlugin {
         props.put("felix.webconsole.title", "Script Engines");
         props.put("felix.webconsole.configprinter.modes", "always");
 
+        bundleContext = context;
         serviceRegistration = context.registerService(
             this.getClass().getName(), this, props);
     }
@@ -136,5 +170,6 @@ public class ScriptEngineConsolePlugin {
             serviceRegistration.unregister();
             serviceRegistration = null;
         }
+        bundleContext = null;
     }
 }
@@ -26,30 +26,41 @@ import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.adapter.AdapterFactory;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.mime.MimeTypeProvider;
+import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
 import org.apache.sling.scripting.api.BindingsValuesProvidersByContext;
 import org.apache.sling.scripting.core.impl.helper.SlingScriptEngineManager;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
 
 /**
  * AdapterFactory that adapts Resources to the DefaultSlingScript servlet, which
  * executes the Resources as scripts.
  */
 @Component(metatype=false, immediate=true)
-@Service({AdapterFactory.class, MimeTypeProvider.class})
+@Service({AdapterFactory.class, MimeTypeProvider.class, EventHandler.class})
 @Properties({
     @Property(name="service.vendor", value="The Apache Software Foundation"),
     @Property(name="service.description", value="Default SlingScriptResolver"),
     @Property(name="adaptables", value="org.apache.sling.api.resource.Resource"),
     @Property(name="adapters", value={"org.apache.sling.api.scripting.SlingScript",
                                       "javax.servlet.Servlet"}),
-    @Property(name="adapter.condition", value="If the resource's path ends in an extension registered by a script engine.")
+    @Property(name="adapter.condition", value="If the resource's path ends in an extension registered by a script engine."),
+    @Property(name="event.topics", value={SlingConstants.TOPIC_RESOURCE_CHANGED,
+                                          SlingConstants.TOPIC_RESOURCE_REMOVED}),
+    @Property(name=SlingScriptAdapterFactory.PROP_SCRIPT_CACHE_SIZE, intValue=ScriptCache.DEFAULT_SIZE)
 })
-public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvider {
+public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvider, EventHandler {
+
+    /** The maximum number of compiled scripts to cache, 0 disables the cache */
+    public static final String PROP_SCRIPT_CACHE_SIZE = "script.cache.size";
 
     private BundleContext bundleContext;
 
@@ -61,6 +72,16 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
      */
     private ServiceCache serviceCache;
 
+    /**
+     * The cache for compiled scripts.
+     */
+    private volatile ScriptCache scriptCache;
+
+    /**
+     * The registration of the script cache for the script engine console plugin.
+     */
+    private ServiceRegistration scriptCacheRegistration;
+
     /**
      * The script engine manager.
      */
@@ -88,7 +109,7 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
                     bindingsValuesProviderTracker.getBindingsValuesProviders(engine.getFactory(), BINDINGS_CONTEXT);
             // unchecked cast
             return (AdapterType) new DefaultSlingScript(this.bundleContext,
-                    resource, engine, bindingsValuesProviders, this.serviceCache);
+                    resource, engine, bindingsValuesProviders, this.serviceCache, this.scriptCache);
         }
 
         return null;
@@ -142,14 +163,41 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
         return null;
     }
 
+    // ---------- EventHandler
+
+    /**
+     * Removes changed and removed scripts from the script cache.
+     */
+    public void handleEvent(final Event event) {
+        final ScriptCache cache = this.scriptCache;
+        final Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+        if ( cache != null && path instanceof String ) {
+            cache.invalidate((String)path);
+        }
+    }
+
     // ---------- SCR integration ----------------------------------------------
 
     protected void activate(ComponentContext context) {
         bundleContext = context.getBundleContext();
         this.serviceCache = new ServiceCache(this.bundleContext);
+
+        final int cacheSize = PropertiesUtil.toInteger(context.getProperties().get(PROP_SCRIPT_CACHE_SIZE),
+                ScriptCache.DEFAULT_SIZE);
+        if ( cacheSize > 0 ) {
+            this.scriptCache = new ScriptCache(cacheSize);
+            this.scriptCacheRegistration = this.bundleContext.registerService(
+                    ScriptCache.class.getName(), this.scriptCache, null);
+        }
     }
 
     protected void deactivate(ComponentContext context) {
+        if ( this.scriptCache != null ) {
+            this.scriptCacheRegistration.unregister();
+            this.scriptCacheRegistration = null;
+            this.scriptCache.clear();
+            this.scriptCache = null;
+        }
         this.serviceCache.dispose();
         this.serviceCache = null;
         this.bundleContext = null;
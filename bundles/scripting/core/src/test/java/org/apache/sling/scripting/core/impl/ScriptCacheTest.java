@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import org.junit.Test;
+
+public class ScriptCacheTest {
+
+    private final ScriptEngineFactory factory = new DummyScriptEngineFactory();
+
+    @Test
+    public void testGetAndPut() {
+        final ScriptCache cache = new ScriptCache(10);
+        final CompiledScript script = new TestCompiledScript();
+
+        assertNull(cache.get("/apps/test/test.dum", 1000, factory));
+        cache.put("/apps/test/test.dum", 1000, factory, script);
+        assertSame(script, cache.get("/apps/test/test.dum", 1000, factory));
+
+        // modified script
+        assertNull(cache.get("/apps/test/test.dum", 2000, factory));
+        // different script engine
+        assertNull(cache.get("/apps/test/test.dum", 1000, new DummyScriptEngineFactory()));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final ScriptCache cache = new ScriptCache(10);
+        cache.put("/apps/test/test.dum", 1000, factory, new TestCompiledScript());
+        cache.put("/apps/test/other.dum", 1000, factory, new TestCompiledScript());
+        cache.put("/apps/test2/test.dum", 1000, factory, new TestCompiledScript());
+
+        cache.invalidate("/apps/test/test.dum");
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("/apps/test/test.dum", 1000, factory));
+
+        // the content of the file has been changed
+        cache.invalidate("/apps/test/other.dum/jcr:content");
+        assertEquals(1, cache.getSize());
+        assertNull(cache.get("/apps/test/other.dum", 1000, factory));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testBounded() {
+        final ScriptCache cache = new ScriptCache(2);
+        cache.put("/a.dum", 1000, factory, new TestCompiledScript());
+        cache.put("/b.dum", 1000, factory, new TestCompiledScript());
+        final CompiledScript last = new TestCompiledScript();
+        cache.put("/c.dum", 1000, factory, last);
+
+        assertEquals(2, cache.getSize());
+        assertSame(last, cache.get("/c.dum", 1000, factory));
+
+        // replacing a script does not remove another one
+        cache.put("/c.dum", 2000, factory, new TestCompiledScript());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void testDisabled() {
+        final ScriptCache cache = new ScriptCache(0);
+        cache.put("/a.dum", 1000, factory, new TestCompiledScript());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static final class TestCompiledScript extends CompiledScript {
+
+        @Override
+        public Object eval(final ScriptContext context) {
+            return null;
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return null;
+        }
+    }
+}
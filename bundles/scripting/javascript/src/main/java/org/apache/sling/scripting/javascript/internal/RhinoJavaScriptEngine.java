@@ -16,14 +16,18 @@
  */
 package org.apache.sling.scripting.javascript.internal;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
-import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import org.apache.sling.api.scripting.SlingBindings;
@@ -33,6 +37,8 @@ import org.apache.sling.scripting.javascript.io.EspReader;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -44,32 +50,143 @@ import org.slf4j.Logger;
 /**
  * A ScriptEngine that uses the Rhino interpreter to process Sling requests with
  * server-side javascript.
+ * <p>
+ * Scripts can be compiled once into Rhino <code>Script</code> objects, which
+ * are then executed for each request. ESP scripts are converted to javascript
+ * when they are compiled. Each execution uses its own top level scope whose
+ * prototype is the shared and sealed root scope of the engine factory. The
+ * root scope is looked up for each execution, as it is recreated when host
+ * object providers come and go while compiled scripts are kept.
  */
-public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine {
+public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements Compilable {
 
-    private Scriptable rootScope;
+    private static final String NO_SCRIPT_NAME = "NO_SCRIPT_NAME";
 
-    public RhinoJavaScriptEngine(ScriptEngineFactory factory,
-            Scriptable rootScope) {
+    public RhinoJavaScriptEngine(RhinoJavaScriptEngineFactory factory) {
         super(factory);
-        this.rootScope = rootScope;
+    }
+
+    /**
+     * The execution of a script in a prepared Rhino context and scope.
+     */
+    private interface ScriptExecution {
+        Object exec(Context rhinoContext, Scriptable scope) throws IOException;
+    }
+
+    /**
+     * A compiled script, which can be executed concurrently as each
+     * execution uses its own scope.
+     */
+    private static final class RhinoCompiledScript extends CompiledScript {
+
+        private final RhinoJavaScriptEngine engine;
+
+        private final Script script;
+
+        private final String scriptName;
+
+        RhinoCompiledScript(final RhinoJavaScriptEngine engine, final Script script, final String scriptName) {
+            this.engine = engine;
+            this.script = script;
+            this.scriptName = scriptName;
+        }
+
+        @Override
+        public Object eval(final ScriptContext scriptContext) throws ScriptException {
+            return engine.execute(scriptContext, scriptName, new ScriptExecution() {
+                public Object exec(final Context rhinoContext, final Scriptable scope) {
+                    return script.exec(rhinoContext, scope);
+                }
+            });
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return engine;
+        }
     }
 
     public Object eval(Reader scriptReader, ScriptContext scriptContext)
             throws ScriptException {
+        final String scriptName = getScriptName(scriptContext);
+
+        // wrap the reader in an EspReader for ESP scripts
+        final Reader reader = wrapReader(scriptReader, scriptName);
+
+        return execute(scriptContext, scriptName, new ScriptExecution() {
+            public Object exec(final Context rhinoContext, final Scriptable scope) throws IOException {
+                final int lineNumber = 1;
+                final Object securityDomain = null;
+
+                return rhinoContext.evaluateReader(scope, reader, scriptName,
+                        lineNumber, securityDomain);
+            }
+        });
+    }
+
+    public CompiledScript compile(String script) throws ScriptException {
+        return compile(new StringReader(script));
+    }
+
+    public CompiledScript compile(Reader scriptReader) throws ScriptException {
+        final String scriptName = getScriptName(getContext());
+        final Reader reader = wrapReader(scriptReader, scriptName);
+
+        final Context rhinoContext = Context.enter();
+        try {
+            // generate bytecode unless running in interpreted mode
+            rhinoContext.setOptimizationLevel(optimizationLevel());
+
+            final int lineNumber = 1;
+            final Object securityDomain = null;
+            final Script script = rhinoContext.compileReader(reader, scriptName,
+                    lineNumber, securityDomain);
+
+            return new RhinoCompiledScript(this, script, scriptName);
+
+        } catch (RhinoException re) {
+            final ScriptException se = new ScriptException(re.details(),
+                re.sourceName(), re.lineNumber());
+            se.initCause(re);
+            throw se;
+
+        } catch (IOException ioe) {
+            final ScriptException se = new ScriptException(
+                "Failure compiling script " + scriptName + ": " + ioe.getMessage());
+            se.initCause(ioe);
+            throw se;
+
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Returns the script name from the script helper in the bindings or the
+     * {@link ScriptEngine#FILENAME} attribute of the context.
+     */
+    private String getScriptName(ScriptContext scriptContext) {
         Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
-        String scriptName = "NO_SCRIPT_NAME";
-        {
+        if (bindings != null) {
             SlingScriptHelper helper = (SlingScriptHelper) bindings.get(SlingBindings.SLING);
             if (helper != null) {
-                scriptName = helper.getScript().getScriptResource().getPath();
+                return helper.getScript().getScriptResource().getPath();
             }
         }
+        Object fileName = scriptContext.getAttribute(ScriptEngine.FILENAME);
+        return (fileName != null) ? fileName.toString() : NO_SCRIPT_NAME;
+    }
 
-        // wrap the reader in an EspReader for ESP scripts
+    private Reader wrapReader(Reader scriptReader, String scriptName) {
         if (scriptName.endsWith(RhinoJavaScriptEngineFactory.ESP_SCRIPT_EXTENSION)) {
-            scriptReader = new EspReader(scriptReader);
+            return new EspReader(scriptReader);
         }
+        return scriptReader;
+    }
+
+    private Object execute(ScriptContext scriptContext, String scriptName,
+            ScriptExecution execution) throws ScriptException {
+        Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
 
         // container for replaced properties
         Map<String, Object> replacedProperties = null;
@@ -91,8 +208,8 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine {
                 // to support the importPackage and importClasses functions
                 scope = new ImporterTopLevel();
 
-                // Set the global scope to be our prototype
-                scope.setPrototype(rootScope);
+                // Set the current global scope to be our prototype
+                scope.setPrototype(((RhinoJavaScriptEngineFactory) getFactory()).getScope());
 
                 // We want "scope" to be a new top-level scope, so set its
                 // parent scope to null. This means that any variables created
@@ -110,11 +227,7 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine {
             // add initial properties to the scope
             replacedProperties = setBoundProperties(scope, bindings);
 
-            final int lineNumber = 1;
-            final Object securityDomain = null;
-
-            Object result = rhinoContext.evaluateReader(scope, scriptReader, scriptName,
-                    lineNumber, securityDomain);
+            Object result = execution.exec(rhinoContext, scope);
 
             if (result instanceof Wrapper) {
                 result = ((Wrapper) result).unwrap();
@@ -101,7 +101,8 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
 
     private SlingWrapFactory wrapFactory;
 
-    private Scriptable rootScope;
+    /** The shared and sealed root scope, created on demand */
+    private volatile Scriptable rootScope;
 
     private final Set<RhinoHostObjectProvider> hostObjectProvider = new HashSet<RhinoHostObjectProvider>();
 
@@ -109,7 +110,7 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
     private DynamicClassLoaderManager dynamicClassLoaderManager;
 
     public ScriptEngine getScriptEngine() {
-        return new RhinoJavaScriptEngine(this, getRootScope());
+        return new RhinoJavaScriptEngine(this);
     }
 
     public String getLanguageName() {
@@ -148,7 +149,13 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
 
     @SuppressWarnings("unchecked")
     private Scriptable getRootScope() {
-        if (rootScope == null) {
+        if (rootScope != null) {
+            return rootScope;
+        }
+        synchronized (this) {
+            if (rootScope != null) {
+                return rootScope;
+            }
 
             final Context rhinoContext = Context.enter();
             try {
@@ -169,6 +176,10 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
                         provider.getImportedPackages());
                 }
 
+                // the root scope is shared by all requests, which use
+                // their own top level scopes: prevent modifications
+                ((ScriptableObject) tmpScope).sealObject();
+
                 // only assign the root scope when complete set up
                 rootScope = tmpScope;
 
@@ -177,9 +188,9 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
                 // the new root scope
                 Context.exit();
             }
-        }
 
-        return rootScope;
+            return rootScope;
+        }
     }
 
     private void dropRootScope() {
@@ -250,10 +261,10 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
     }
 
     protected void addHostObjectProvider(RhinoHostObjectProvider provider) {
-        hostObjectProvider.add(provider);
-
-        if (rootScope != null) {
-            addHostObjects(rootScope, provider.getHostObjectClasses());
+        // the sealed root scope cannot be extended, so have it recreated
+        // including the new host object classes
+        if (hostObjectProvider.add(provider) && rootScope != null) {
+            dropRootScope();
         }
     }
 
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.javascript.internal;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.scripting.javascript.internal.RhinoJavaScriptEngineTest.MockRhinoJavaScriptEngineFactory;
+import org.apache.sling.scripting.javascript.internal.RhinoJavaScriptEngineTest.TestResponse;
+
+/**
+ * Compares rendering a typical ESP page by evaluating its source for each
+ * request with executing the compiled script.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=EspRenderingBenchmark</code>.
+ */
+public class EspRenderingBenchmark extends TestCase {
+
+    private static final int WARMUP = 500;
+
+    private static final int RUNS = 2000;
+
+    private static final String PAGE =
+        "<html>\n" +
+        "<head><title><%= title %></title></head>\n" +
+        "<body>\n" +
+        "<h1><%= title %></h1>\n" +
+        "<ul>\n" +
+        "<% for (var i = 0; i < items.length; i++) { %>\n" +
+        "  <li class=\"<%= i % 2 == 0 ? 'even' : 'odd' %>\"><%= items[i] %></li>\n" +
+        "<% } %>\n" +
+        "</ul>\n" +
+        "<% if (title.length > 5) { %><p>Long title</p><% } else { %><p>Short title</p><% } %>\n" +
+        "</body>\n" +
+        "</html>\n";
+
+    private static final String[] ITEMS = { "one", "two", "three", "four", "five", "six", "seven", "eight" };
+
+    public void testEspRendering() throws ScriptException {
+        final MockRhinoJavaScriptEngineFactory factory = new MockRhinoJavaScriptEngineFactory();
+        final ScriptEngine engine = factory.getScriptEngine();
+        engine.put(ScriptEngine.FILENAME, "/apps/benchmark/page.esp");
+        final CompiledScript compiled = ((Compilable) engine).compile(PAGE);
+
+        final String expected = render(engine, null);
+        assertEquals(expected, render(engine, compiled));
+
+        for (int i = 0; i < WARMUP; i++) {
+            render(engine, null);
+            render(engine, compiled);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            render(engine, null);
+        }
+        final long evalTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            render(engine, compiled);
+        }
+        final long compiledTime = System.nanoTime() - start;
+
+        System.out.println("ESP rendering of " + RUNS + " pages: eval "
+            + (RUNS * 1000000000L / evalTime) + " pages/sec, compiled "
+            + (RUNS * 1000000000L / compiledTime) + " pages/sec");
+    }
+
+    private String render(final ScriptEngine engine, final CompiledScript compiled) throws ScriptException {
+        final StringWriter writer = new StringWriter();
+        final Bindings bindings = new SimpleBindings();
+        bindings.put("response", new TestResponse(new PrintWriter(writer)));
+        bindings.put("title", "Benchmark");
+        bindings.put("items", ITEMS);
+        final ScriptContext ctx = new SimpleScriptContext();
+        ctx.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+        ctx.setAttribute(ScriptEngine.FILENAME, "/apps/benchmark/page.esp", ScriptContext.ENGINE_SCOPE);
+        if (compiled != null) {
+            compiled.eval(ctx);
+        } else {
+            engine.eval(PAGE, ctx);
+        }
+        return writer.toString();
+    }
+}
@@ -18,17 +18,24 @@
  */
 package org.apache.sling.scripting.javascript.internal;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
 
 import junit.framework.TestCase;
 
+import org.apache.sling.scripting.javascript.RhinoHostObjectProvider;
 import org.apache.sling.scripting.javascript.helper.SlingWrapFactory;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 public class RhinoJavaScriptEngineTest extends TestCase {
 
@@ -47,16 +54,114 @@ public class RhinoJavaScriptEngineTest extends TestCase {
         assertEquals(2.0, result);
     }
 
-    private static class MockRhinoJavaScriptEngineFactory extends RhinoJavaScriptEngineFactory {
+    public void testCompiledScriptUsesOwnScopePerEval() throws ScriptException {
+        MockRhinoJavaScriptEngineFactory factory = new MockRhinoJavaScriptEngineFactory();
+        ScriptEngine engine = factory.getScriptEngine();
+        CompiledScript script = ((Compilable) engine).compile(
+            "var result = (typeof f == 'undefined' ? 0 : 100) + value; var f = 1; result");
+
+        Bindings first = new SimpleBindings();
+        first.put("value", 1);
+        assertEquals(1, ((Number) script.eval(first)).intValue());
 
-        protected SlingWrapFactory wrapFactory;
+        // variables of the first evaluation must not be visible
+        Bindings second = new SimpleBindings();
+        second.put("value", 5);
+        assertEquals(5, ((Number) script.eval(second)).intValue());
+        assertSame(engine, script.getEngine());
+    }
+
+    public void testCompiledEspScript() throws ScriptException {
+        MockRhinoJavaScriptEngineFactory factory = new MockRhinoJavaScriptEngineFactory();
+        ScriptEngine engine = factory.getScriptEngine();
+        engine.put(ScriptEngine.FILENAME, "/apps/test/test.esp");
+        CompiledScript script = ((Compilable) engine).compile("<p><%= title %></p>");
+
+        assertEquals("<p>first</p>", render(script, "first"));
+        assertEquals("<p>second</p>", render(script, "second"));
+    }
+
+    public void testCompileSyntaxError() {
+        MockRhinoJavaScriptEngineFactory factory = new MockRhinoJavaScriptEngineFactory();
+        ScriptEngine engine = factory.getScriptEngine();
+        try {
+            ((Compilable) engine).compile("var = ;");
+            fail("Expected ScriptException");
+        } catch (ScriptException se) {
+            assertEquals(1, se.getLineNumber());
+        }
+    }
+
+    public void testCompiledScriptUsesCurrentRootScope() throws ScriptException {
+        MockRhinoJavaScriptEngineFactory factory = new MockRhinoJavaScriptEngineFactory();
+        ScriptEngine engine = factory.getScriptEngine();
+        CompiledScript script = ((Compilable) engine).compile("typeof TestHostObject");
+        assertEquals("undefined", script.eval(new SimpleBindings()));
+
+        // the root scope is recreated with the host objects of the new provider
+        final TestHostObjectProvider provider = new TestHostObjectProvider();
+        factory.addHostObjectProvider(provider);
+        assertEquals("function", script.eval(new SimpleBindings()));
+
+        factory.removeHostObjectProvider(provider);
+        assertEquals("undefined", script.eval(new SimpleBindings()));
+    }
+
+    static String render(CompiledScript script, String title) throws ScriptException {
+        final StringWriter writer = new StringWriter();
+        final Bindings bindings = new SimpleBindings();
+        bindings.put("response", new TestResponse(new PrintWriter(writer)));
+        bindings.put("title", title);
+        final ScriptContext ctx = new SimpleScriptContext();
+        ctx.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+        script.eval(ctx);
+        return writer.toString();
+    }
+
+    /** Provides the writer used by ESP scripts */
+    public static class TestResponse {
+
+        private final PrintWriter writer;
+
+        public TestResponse(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        public PrintWriter getWriter() {
+            return writer;
+        }
+    }
+
+    /** A host object provided by a {@link RhinoHostObjectProvider} */
+    public static class TestHostObject extends ScriptableObject {
+
+        private static final long serialVersionUID = 1L;
 
         @Override
-        public ScriptEngine getScriptEngine() {
-            final Context rhinoContext = Context.enter();
-            Scriptable scope = rhinoContext.initStandardObjects(new ImporterTopLevel(), false);
-            return new RhinoJavaScriptEngine(this, scope);
+        public String getClassName() {
+            return "TestHostObject";
         }
+    }
+
+    static class TestHostObjectProvider implements RhinoHostObjectProvider {
+
+        @SuppressWarnings("unchecked")
+        public Class<? extends Scriptable>[] getHostObjectClasses() {
+            return new Class[] { TestHostObject.class };
+        }
+
+        public Class<?>[] getImportedClasses() {
+            return null;
+        }
+
+        public String[] getImportedPackages() {
+            return null;
+        }
+    }
+
+    static class MockRhinoJavaScriptEngineFactory extends RhinoJavaScriptEngineFactory {
+
+        protected SlingWrapFactory wrapFactory;
 
         @Override
         SlingWrapFactory getWrapFactory() {
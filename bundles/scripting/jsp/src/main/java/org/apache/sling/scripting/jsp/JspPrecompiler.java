@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>JspPrecompiler</code> compiles all JSPs below the configured
+ * paths in the background, so the first requests do not have to wait
+ * for the compilation. The JSPs are compiled by a number of worker
+ * threads, each using its own administrative resource resolver.
+ */
+class JspPrecompiler {
+
+    /** Default logger */
+    private final Logger logger = LoggerFactory.getLogger(JspPrecompiler.class);
+
+    private final JspScriptEngineFactory engineFactory;
+
+    private final ResourceResolverFactory resolverFactory;
+
+    private final String[] paths;
+
+    private final int threadCount;
+
+    private final Queue<String> jsps = new ConcurrentLinkedQueue<String>();
+
+    private final AtomicInteger compiled = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile boolean stopped;
+
+    JspPrecompiler(final JspScriptEngineFactory engineFactory,
+            final ResourceResolverFactory resolverFactory,
+            final String[] paths,
+            final int threadCount) {
+        this.engineFactory = engineFactory;
+        this.resolverFactory = resolverFactory;
+        this.paths = paths;
+        this.threadCount = (threadCount < 1 ? 1 : threadCount);
+    }
+
+    /**
+     * Start the precompilation in the background.
+     */
+    void start() {
+        final Thread t = new Thread("Apache Sling JSP Precompiler") {
+            @Override
+            public void run() {
+                precompile();
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Stop the precompilation. JSPs currently compiled are finished.
+     */
+    void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Compile all JSPs below the configured paths and wait for the
+     * compilation to finish.
+     */
+    void precompile() {
+        final long start = System.currentTimeMillis();
+        ResourceResolver resolver = null;
+        try {
+            resolver = this.resolverFactory.getAdministrativeResourceResolver(null);
+            for(final String path : this.paths) {
+                final Resource rsrc = resolver.getResource(path);
+                if ( rsrc != null ) {
+                    this.collect(rsrc);
+                }
+            }
+        } catch (final LoginException le) {
+            logger.error("Unable to precompile JSPs: cannot get resource resolver", le);
+            return;
+        } finally {
+            if ( resolver != null ) {
+                resolver.close();
+            }
+        }
+        final int count = this.jsps.size();
+        logger.info("Precompiling {} JSPs with {} threads", count, this.threadCount);
+
+        final List<Thread> workers = new ArrayList<Thread>();
+        for(int i=0; i<this.threadCount && i<count; i++) {
+            final Thread t = new Thread("Apache Sling JSP Precompiler #" + i) {
+                @Override
+                public void run() {
+                    compileQueued();
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        for(final Thread t : workers) {
+            try {
+                t.join();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        logger.info("Precompiled {} JSPs in {} ms, {} failed",
+                new Object[] {this.compiled.get(), System.currentTimeMillis() - start, this.failed.get()});
+    }
+
+    /**
+     * Collect all JSPs below the resource.
+     */
+    private void collect(final Resource rsrc) {
+        if ( this.stopped ) {
+            return;
+        }
+        final String path = rsrc.getPath();
+        if ( path.endsWith(".jsp") || path.endsWith(".jspx") ) {
+            this.jsps.add(path);
+            return;
+        }
+        final Iterator<Resource> children = rsrc.getResourceResolver().listChildren(rsrc);
+        while ( children.hasNext() ) {
+            this.collect(children.next());
+        }
+    }
+
+    private void compileQueued() {
+        ResourceResolver resolver = null;
+        try {
+            resolver = this.resolverFactory.getAdministrativeResourceResolver(null);
+            String path;
+            while ( !this.stopped && (path = this.jsps.poll()) != null ) {
+                if ( this.engineFactory.precompile(path, resolver) ) {
+                    this.compiled.incrementAndGet();
+                } else {
+                    this.failed.incrementAndGet();
+                }
+            }
+        } catch (final LoginException le) {
+            logger.error("Unable to precompile JSPs: cannot get resource resolver", le);
+        } finally {
+            if ( resolver != null ) {
+                resolver.close();
+            }
+        }
+    }
+}
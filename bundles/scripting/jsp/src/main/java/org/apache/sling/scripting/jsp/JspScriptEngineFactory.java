@@ -43,6 +43,8 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.SlingException;
@@ -50,6 +52,7 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingIOException;
 import org.apache.sling.api.SlingServletException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScript;
 import org.apache.sling.api.scripting.SlingScriptConstants;
@@ -60,6 +63,8 @@ import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.scripting.api.AbstractScriptEngineFactory;
 import org.apache.sling.scripting.api.AbstractSlingScriptEngine;
+import org.apache.sling.scripting.jsp.jasper.JasperException;
+import org.apache.sling.scripting.jsp.jasper.compiler.CompiledJspTracker;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext.JspFactoryHandler;
 import org.apache.sling.scripting.jsp.jasper.runtime.AnnotationProcessor;
@@ -106,6 +111,14 @@ public class JspScriptEngineFactory
     @Property(boolValue = true)
     private static final String PROP_DEFAULT_IS_SESSION = "default.is.session";
 
+    @Property(value = {}, cardinality = Integer.MAX_VALUE)
+    private static final String PROP_PRECOMPILE_PATHS = "jsp.precompile.paths";
+
+    private static final int DEFAULT_PRECOMPILE_THREADS = 2;
+
+    @Property(intValue = DEFAULT_PRECOMPILE_THREADS)
+    private static final String PROP_PRECOMPILE_THREADS = "jsp.precompile.threads";
+
     /** Default logger */
     private final Logger logger = LoggerFactory.getLogger(JspScriptEngineFactory.class);
 
@@ -123,6 +136,9 @@ public class JspScriptEngineFactory
     @Reference
     private JavaCompiler javaCompiler;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC)
+    private volatile ResourceResolverFactory resourceResolverFactory;
+
     /** The io provider for reading and writing. */
     private SlingIOProvider ioProvider;
 
@@ -141,6 +157,12 @@ public class JspScriptEngineFactory
     /** The handler for the jsp factories. */
     private JspFactoryHandler jspFactoryHandler;
 
+    /** The JSPs known to be current, kept across runtime contexts. */
+    private CompiledJspTracker compiledJspTracker;
+
+    /** The background compilation of the configured JSPs. */
+    private JspPrecompiler precompiler;
+
     public static final String[] SCRIPT_TYPE = { "jsp", "jspf", "jspx" };
 
     public static final String[] NAMES = { "jsp", "JSP" };
@@ -313,6 +335,42 @@ public class JspScriptEngineFactory
         return getJspWrapper(scriptName, bindings);
     }
 
+    /**
+     * Compile the JSP without executing it.
+     * @param scriptName The path of the JSP
+     * @param resolver The resource resolver to read the JSP and its dependencies
+     * @return <code>true</code> if the JSP is compiled
+     */
+    boolean precompile(final String scriptName, final ResourceResolver resolver) {
+        final SlingIOProvider io = this.ioProvider;
+        final JspFactoryHandler jspfh = this.jspFactoryHandler;
+
+        // abort if JSP Support is shut down concurrently
+        if (io == null || jspfh == null) {
+            return false;
+        }
+
+        final ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(this.dynamicClassLoader);
+        final ResourceResolver oldResolver = io.setRequestResourceResolver(resolver);
+        jspfh.incUsage();
+        try {
+            final JasperException je = getJspWrapper(scriptName, null).compile();
+            if ( je != null ) {
+                logger.warn("precompile: Unable to compile {}: {}", scriptName, je.getMessage());
+                return false;
+            }
+            return true;
+        } catch (final SlingException se) {
+            logger.warn("precompile: Unable to compile " + scriptName, se);
+            return false;
+        } finally {
+            jspfh.decUsage();
+            io.resetRequestResourceResolver(oldResolver);
+            Thread.currentThread().setContextClassLoader(old);
+        }
+    }
+
     // ---------- SCR integration ----------------------------------------------
 
     /**
@@ -321,6 +379,7 @@ public class JspScriptEngineFactory
     protected void activate(final ComponentContext componentContext) {
         final Dictionary<?, ?> properties = componentContext.getProperties();
         this.defaultIsSession = PropertiesUtil.toBoolean(properties.get(PROP_DEFAULT_IS_SESSION), true);
+        this.compiledJspTracker = new CompiledJspTracker();
 
         // set the current class loader as the thread context loader for
         // the setup of the JspRuntimeContext
@@ -355,6 +414,19 @@ public class JspScriptEngineFactory
 
         logger.info("Activating Apache Sling Script Engine for JSP with options {}", options.getProperties());
         logger.debug("IMPORTANT: Do not modify the generated servlet classes directly");
+
+        // compile the configured JSPs in the background
+        final String[] precompilePaths = PropertiesUtil.toStringArray(properties.get(PROP_PRECOMPILE_PATHS));
+        if ( precompilePaths != null && precompilePaths.length > 0 ) {
+            final ResourceResolverFactory rrf = this.resourceResolverFactory;
+            if ( rrf == null ) {
+                logger.warn("Not precompiling JSPs: no resource resolver factory available");
+            } else {
+                this.precompiler = new JspPrecompiler(this, rrf, precompilePaths,
+                        PropertiesUtil.toInteger(properties.get(PROP_PRECOMPILE_THREADS), DEFAULT_PRECOMPILE_THREADS));
+                this.precompiler.start();
+            }
+        }
     }
 
     /**
@@ -363,6 +435,11 @@ public class JspScriptEngineFactory
     protected void deactivate(final ComponentContext componentContext) {
         logger.info("Deactivating Apache Sling Script Engine for JSP");
 
+        if ( this.precompiler != null ) {
+            this.precompiler.stop();
+            this.precompiler = null;
+        }
+
         if ( this.tldLocationsCache != null ) {
             this.tldLocationsCache.deactivate(componentContext.getBundleContext());
             this.tldLocationsCache = null;
@@ -577,7 +654,7 @@ public class JspScriptEngineFactory
                 if ( this.jspRuntimeContext == null ) {
                     // Initialize the JSP Runtime Context
                     this.jspRuntimeContext = new JspRuntimeContext(slingServletContext,
-                            options, ioProvider);
+                            options, ioProvider, compiledJspTracker);
                 }
             }
         }
@@ -613,6 +690,10 @@ public class JspScriptEngineFactory
     public void handleEvent(final Event event) {
         final String path = (String)event.getProperty(SlingConstants.PROPERTY_PATH);
         if ( path != null ) {
+            final CompiledJspTracker tracker = this.compiledJspTracker;
+            if ( tracker != null ) {
+                tracker.invalidate(path);
+            }
             final JspRuntimeContext rctxt = this.jspRuntimeContext;
             if ( rctxt != null && rctxt.handleModification(path) ) {
                 renewJspRuntimeContext();
@@ -686,6 +767,10 @@ public class JspScriptEngineFactory
             if ( req.getMethod().equals("POST") ) {
                 final JspRuntimeContext rctxt = this.jspRuntimeContext;
                 this.classLoaderWriter.delete("/org/apache/jsp");
+                final CompiledJspTracker tracker = this.compiledJspTracker;
+                if ( tracker != null ) {
+                    tracker.clear();
+                }
                 if ( rctxt != null ) {
                     renewJspRuntimeContext();
                 }
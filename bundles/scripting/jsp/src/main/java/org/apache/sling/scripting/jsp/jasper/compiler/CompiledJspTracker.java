@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the JSPs and tag files whose compiled class is known to be
+ * current. The state outlives the {@link JspRuntimeContext}, so JSPs which
+ * did not change do not need to check the time stamps of their class file,
+ * source and dependencies again when the runtime context is renewed.
+ * <p>
+ * A JSP is only known to be current as long as no modification of its
+ * source or of one of its (transitive) dependencies has been reported to
+ * {@link #invalidate(String)}.
+ */
+public class CompiledJspTracker {
+
+    /** The JSPs known to be current. */
+    private final Map<String, Boolean> current = new ConcurrentHashMap<String, Boolean>();
+
+    /** Maps dependencies to the JSPs and tag files using them. */
+    private final Map<String, Set<String>> depToJsp = new HashMap<String, Set<String>>();
+
+    /** Incremented on each invalidation. */
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Returns a stamp to be passed to {@link #markCurrent(String, List, long)}
+     * which has to be taken before checking or compiling a JSP.
+     */
+    public long getStamp() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Is the compiled class of the JSP known to be current?
+     */
+    public boolean isCurrent(final String jspUri) {
+        return current.containsKey(jspUri);
+    }
+
+    /**
+     * Mark the compiled class of the JSP as current. The JSP is not marked if
+     * any modification has been reported since the stamp has been taken, as
+     * the JSP might have been compiled from an outdated source.
+     * @param jspUri The JSP
+     * @param deps The dependencies of the JSP
+     * @param stamp The stamp taken before the JSP has been checked
+     */
+    public void markCurrent(final String jspUri, final List<String> deps, final long stamp) {
+        if ( deps != null ) {
+            synchronized ( depToJsp ) {
+                for(final String dep : deps) {
+                    Set<String> set = depToJsp.get(dep);
+                    if ( set == null ) {
+                        set = new HashSet<String>();
+                        depToJsp.put(dep, set);
+                    }
+                    set.add(jspUri);
+                }
+            }
+        }
+        if ( modificationCount.get() == stamp ) {
+            current.put(jspUri, Boolean.TRUE);
+            // check again in case of a concurrent invalidation
+            if ( modificationCount.get() != stamp ) {
+                current.remove(jspUri);
+            }
+        }
+    }
+
+    /**
+     * The resource at the path has been modified: the path and all JSPs
+     * directly or indirectly depending on it are not current any more.
+     */
+    public void invalidate(final String path) {
+        modificationCount.incrementAndGet();
+        final List<String> pending = new ArrayList<String>();
+        final Set<String> visited = new HashSet<String>();
+        pending.add(path);
+        while ( !pending.isEmpty() ) {
+            final String p = pending.remove(pending.size() - 1);
+            if ( visited.add(p) ) {
+                current.remove(p);
+                final Set<String> users;
+                synchronized ( depToJsp ) {
+                    users = depToJsp.remove(p);
+                }
+                if ( users != null ) {
+                    pending.addAll(users);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget all JSPs, for example after all compiled classes were removed.
+     */
+    public void clear() {
+        modificationCount.incrementAndGet();
+        current.clear();
+        synchronized ( depToJsp ) {
+            depToJsp.clear();
+        }
+    }
+}
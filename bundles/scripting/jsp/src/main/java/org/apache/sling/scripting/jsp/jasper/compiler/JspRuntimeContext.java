@@ -200,10 +200,22 @@ public final class JspRuntimeContext {
      * @param context ServletContext for web application
      */
     public JspRuntimeContext(ServletContext context, Options options, final IOProvider ioProvider) {
+        this(context, options, ioProvider, null);
+    }
+
+    /**
+     * Create a JspRuntimeContext for a web application context.
+     *
+     * @param context ServletContext for web application
+     * @param compiledJspTracker Optional tracker of the current compiled JSPs
+     */
+    public JspRuntimeContext(ServletContext context, Options options, final IOProvider ioProvider,
+            final CompiledJspTracker compiledJspTracker) {
 
         this.context = context;
         this.options = options;
         this.ioProvider = ioProvider;
+        this.compiledJspTracker = compiledJspTracker;
 
         if (Constants.IS_SECURITY_ENABLED) {
             initSecurity();
@@ -229,6 +241,11 @@ public final class JspRuntimeContext {
      */
     private final Map<String, Set<String>> depToJsp = new HashMap<String, Set<String>>();
 
+    /**
+     * The tracker of current compiled JSPs, might be <code>null</code>.
+     */
+    private final CompiledJspTracker compiledJspTracker;
+
     // ------------------------------------------------------ Public Methods
 
     public void addJspDependencies(final JspServletWrapper jsw, final List<String> deps) {
@@ -335,6 +352,13 @@ public final class JspRuntimeContext {
         }
     }
 
+    /**
+     * Returns the tracker of current compiled JSPs or <code>null</code>.
+     */
+    public CompiledJspTracker getCompiledJspTracker() {
+        return compiledJspTracker;
+    }
+
     /**
      * Returns the current {@link IOProvider} of this context.
      */
@@ -51,6 +51,7 @@ import org.apache.sling.scripting.jsp.SlingPageException;
 import org.apache.sling.scripting.jsp.jasper.JasperException;
 import org.apache.sling.scripting.jsp.jasper.JspCompilationContext;
 import org.apache.sling.scripting.jsp.jasper.Options;
+import org.apache.sling.scripting.jsp.jasper.compiler.CompiledJspTracker;
 import org.apache.sling.scripting.jsp.jasper.compiler.ErrorDispatcher;
 import org.apache.sling.scripting.jsp.jasper.compiler.JavacErrorDetail;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext;
@@ -254,6 +255,8 @@ public class JspServletWrapper {
         if ( this.tagFileClass == null ) {
             synchronized (this) {
                 if ( this.tagFileClass == null ) {
+                    final CompiledJspTracker tracker = this.ctxt.getRuntimeContext().getCompiledJspTracker();
+                    final long stamp = (tracker == null ? 0 : tracker.getStamp());
                     if ( log.isDebugEnabled() ) {
                         log.debug("Compiling tagfile " + jspUri);
                     }
@@ -279,6 +282,11 @@ public class JspServletWrapper {
                         if ( !equals(oldDeps, this.dependents) ) {
                             this.persistDependencies();
                         }
+                        // track the dependencies of the tag file for the invalidation of
+                        // the JSPs using it
+                        if ( tracker != null ) {
+                            tracker.markCurrent(this.jspUri, this.dependents, stamp);
+                        }
                     } catch (final Throwable t) {
                         // ignore
                     }
@@ -419,6 +427,23 @@ public class JspServletWrapper {
     private void prepareServlet(final HttpServletRequest request,
             final HttpServletResponse response)
     throws IOException, ServletException {
+        final CompiledJspTracker tracker = this.ctxt.getRuntimeContext().getCompiledJspTracker();
+        long stamp = (tracker == null ? 0 : tracker.getStamp());
+        if ( tracker != null && tracker.isCurrent(this.jspUri) ) {
+            // no modification has been reported since the class has been
+            // compiled, so there is no need to check the time stamps
+            try {
+                this.theServlet = this.loadServlet();
+                return;
+            } catch (final JasperException je) {
+                // the class might have been removed, check again
+                if ( log.isDebugEnabled() ) {
+                    log.debug("Unable to load current servlet " + this.jspUri + ", checking time stamps", je);
+                }
+                tracker.invalidate(this.jspUri);
+                stamp = tracker.getStamp();
+            }
+        }
         if ( isOutDated() ) {
             // Compile...
             if ( log.isDebugEnabled() ) {
@@ -432,6 +457,30 @@ public class JspServletWrapper {
 
         // (Re)load servlet class file
         this.theServlet = this.loadServlet();
+        if ( tracker != null ) {
+            tracker.markCurrent(this.jspUri, this.dependents, stamp);
+        }
+    }
+
+    /**
+     * Compile the JSP if it has not been compiled yet or is out dated,
+     * without loading the servlet. This allows to compile JSPs before
+     * they are requested.
+     * @return The compile exception or <code>null</code> if the JSP
+     *         is compiled.
+     */
+    public JasperException compile() {
+        synchronized ( this ) {
+            if ( this.theServlet == null && this.compileException == null ) {
+                if ( isOutDated() ) {
+                    if ( log.isDebugEnabled() ) {
+                        log.debug("Precompiling servlet " + this.jspUri);
+                    }
+                    this.compileException = ctxt.compile();
+                }
+            }
+            return this.compileException;
+        }
     }
 
     /**
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JspPrecompilerTest {
+
+    private MockResourceResolver resolver;
+
+    private ResourceResolverFactory resolverFactory;
+
+    /** Records the compiled JSPs, JSPs with "broken" in their name fail. */
+    private static class RecordingFactory extends JspScriptEngineFactory {
+
+        final List<String> compiled = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        boolean precompile(final String scriptName, final ResourceResolver resolver) {
+            compiled.add(scriptName);
+            return !scriptName.contains("broken");
+        }
+    }
+
+    @Before
+    public void setup() {
+        resolver = new MockResourceResolver();
+        for(final String path : new String[] {"/apps", "/apps/test", "/apps/test/page.jsp",
+                "/apps/test/page.jspx", "/apps/test/readme.txt", "/apps/test/broken.jsp",
+                "/apps/test/sub", "/apps/test/sub/include.jsp", "/apps/other", "/apps/other/other.jsp"}) {
+            resolver.addResource(new MockResource(resolver, path, "test"));
+        }
+        resolverFactory = new ResourceResolverFactory() {
+
+            public ResourceResolver getResourceResolver(final Map<String, Object> authenticationInfo) {
+                return resolver;
+            }
+
+            public ResourceResolver getAdministrativeResourceResolver(final Map<String, Object> authenticationInfo) {
+                return resolver;
+            }
+        };
+    }
+
+    @Test
+    public void testPrecompile() {
+        final RecordingFactory factory = new RecordingFactory();
+        new JspPrecompiler(factory, resolverFactory, new String[] {"/apps/test"}, 2).precompile();
+        assertEquals(new HashSet<String>(Arrays.asList("/apps/test/page.jsp", "/apps/test/page.jspx",
+                "/apps/test/broken.jsp", "/apps/test/sub/include.jsp")),
+                new HashSet<String>(factory.compiled));
+        assertEquals(4, factory.compiled.size());
+    }
+
+    @Test
+    public void testMissingPathsAreSkipped() {
+        final RecordingFactory factory = new RecordingFactory();
+        new JspPrecompiler(factory, resolverFactory, new String[] {"/libs", "/apps/other"}, 1).precompile();
+        assertEquals(Arrays.asList("/apps/other/other.jsp"), factory.compiled);
+    }
+
+    @Test
+    public void testNoResourceResolver() {
+        final RecordingFactory factory = new RecordingFactory();
+        new JspPrecompiler(factory, new ResourceResolverFactory() {
+
+            public ResourceResolver getResourceResolver(final Map<String, Object> authenticationInfo)
+            throws LoginException {
+                throw new LoginException();
+            }
+
+            public ResourceResolver getAdministrativeResourceResolver(final Map<String, Object> authenticationInfo)
+            throws LoginException {
+                throw new LoginException();
+            }
+        }, new String[] {"/apps"}, 1).precompile();
+        assertTrue(factory.compiled.isEmpty());
+    }
+
+    @Test
+    public void testStopBeforeStart() {
+        final RecordingFactory factory = new RecordingFactory();
+        final JspPrecompiler precompiler = new JspPrecompiler(factory, resolverFactory, new String[] {"/apps"}, 1);
+        precompiler.stop();
+        precompiler.precompile();
+        assertTrue(factory.compiled.isEmpty());
+    }
+
+    @Test
+    public void testStopWhileCompiling() {
+        final JspPrecompiler[] precompiler = new JspPrecompiler[1];
+        final RecordingFactory factory = new RecordingFactory() {
+
+            @Override
+            boolean precompile(final String scriptName, final ResourceResolver resolver) {
+                precompiler[0].stop();
+                return super.precompile(scriptName, resolver);
+            }
+        };
+        precompiler[0] = new JspPrecompiler(factory, resolverFactory, new String[] {"/apps"}, 1);
+        precompiler[0].precompile();
+        // the JSP being compiled is finished, no further JSP is compiled
+        assertEquals(1, factory.compiled.size());
+    }
+}
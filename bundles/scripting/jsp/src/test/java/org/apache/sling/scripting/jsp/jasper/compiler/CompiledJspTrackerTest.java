@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.compiler;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class CompiledJspTrackerTest {
+
+    private static final String PAGE = "/apps/test/page.jsp";
+
+    private static final String OTHER = "/apps/test/other.jsp";
+
+    private static final String INCLUDE = "/apps/test/include.jsp";
+
+    private static final String TAG = "/apps/test/tags/test.tag";
+
+    private final CompiledJspTracker tracker = new CompiledJspTracker();
+
+    @Test
+    public void testMarkCurrent() {
+        assertFalse(tracker.isCurrent(PAGE));
+        tracker.markCurrent(PAGE, null, tracker.getStamp());
+        assertTrue(tracker.isCurrent(PAGE));
+        assertFalse(tracker.isCurrent(OTHER));
+    }
+
+    @Test
+    public void testInvalidate() {
+        tracker.markCurrent(PAGE, null, tracker.getStamp());
+        tracker.markCurrent(OTHER, null, tracker.getStamp());
+        tracker.invalidate(PAGE);
+        assertFalse(tracker.isCurrent(PAGE));
+        assertTrue(tracker.isCurrent(OTHER));
+    }
+
+    @Test
+    public void testStaleStamp() {
+        // a modification reported while the page is compiled
+        final long stamp = tracker.getStamp();
+        tracker.invalidate(OTHER);
+        tracker.markCurrent(PAGE, null, stamp);
+        assertFalse(tracker.isCurrent(PAGE));
+
+        tracker.markCurrent(PAGE, null, tracker.getStamp());
+        assertTrue(tracker.isCurrent(PAGE));
+    }
+
+    @Test
+    public void testInvalidateInclude() {
+        tracker.markCurrent(PAGE, Arrays.asList(INCLUDE), tracker.getStamp());
+        tracker.markCurrent(OTHER, Collections.<String> emptyList(), tracker.getStamp());
+        tracker.markCurrent(INCLUDE, null, tracker.getStamp());
+        tracker.invalidate(INCLUDE);
+        assertFalse(tracker.isCurrent(INCLUDE));
+        assertFalse(tracker.isCurrent(PAGE));
+        assertTrue(tracker.isCurrent(OTHER));
+    }
+
+    @Test
+    public void testInvalidateTransitiveDependency() {
+        // the page includes a JSP which uses a tag file
+        tracker.markCurrent(PAGE, Arrays.asList(INCLUDE), tracker.getStamp());
+        tracker.markCurrent(INCLUDE, Arrays.asList(TAG), tracker.getStamp());
+        tracker.markCurrent(OTHER, Arrays.asList(TAG), tracker.getStamp());
+        tracker.invalidate(TAG);
+        assertFalse(tracker.isCurrent(PAGE));
+        assertFalse(tracker.isCurrent(INCLUDE));
+        assertFalse(tracker.isCurrent(OTHER));
+    }
+
+    @Test
+    public void testDependenciesAreRecordedAgain() {
+        tracker.markCurrent(PAGE, Arrays.asList(INCLUDE), tracker.getStamp());
+        tracker.invalidate(INCLUDE);
+        // recompiled, a second change of the include invalidates it again
+        tracker.markCurrent(PAGE, Arrays.asList(INCLUDE), tracker.getStamp());
+        assertTrue(tracker.isCurrent(PAGE));
+        tracker.invalidate(INCLUDE);
+        assertFalse(tracker.isCurrent(PAGE));
+    }
+
+    @Test
+    public void testClear() {
+        final long stamp = tracker.getStamp();
+        tracker.markCurrent(PAGE, Arrays.asList(INCLUDE), stamp);
+        tracker.clear();
+        assertFalse(tracker.isCurrent(PAGE));
+        tracker.markCurrent(OTHER, null, stamp);
+        assertFalse(tracker.isCurrent(OTHER));
+    }
+}
@@ -62,11 +62,19 @@ public class JsonRendererServlet extends SlingSafeMethodsServlet {
     public static final int INDENT_SPACES = 2;
 
     private long maximumResults;
+
+    /** Whether to stream the resource tree instead of collecting it first */
+    private final boolean streaming;
     
     private final JSONRenderer renderer = new JSONRenderer();
 
     public JsonRendererServlet(long maximumResults) {
+        this(maximumResults, false);
+    }
+
+    public JsonRendererServlet(long maximumResults, boolean streaming) {
         this.maximumResults = maximumResults;
+        this.streaming = streaming;
     }
 
     @Override
@@ -94,6 +102,13 @@ public class JsonRendererServlet extends SlingSafeMethodsServlet {
         int allowedLevel = 0;
         final boolean tidy = isTidy(req);
         final boolean harray = hasSelector(req, HARRAY);
+
+        // the pretty printing options need the complete JSONObject tree
+        if (streaming && !tidy && !harray) {
+            streamResources(r, maxRecursionLevels, resp);
+            return;
+        }
+
         ResourceTraversor traversor = null;
         try {
             traversor = new ResourceTraversor(maxRecursionLevels, maximumResults, r, tidy);
@@ -121,21 +136,52 @@ public class JsonRendererServlet extends SlingSafeMethodsServlet {
 
             } else {
                 // We are not allowed to do the dump.
-                // Send a 300
-                String tidyUrl = (tidy) ? "tidy." : "";
-                resp.setStatus(HttpServletResponse.SC_MULTIPLE_CHOICES);
-                JSONWriter writer = new JSONWriter(resp.getWriter());
-                writer.array();
-                while (allowedLevel >= 0) {
-                    writer.value(r.getResourceMetadata().getResolutionPath() + "." + tidyUrl + allowedLevel + ".json");
-                    allowedLevel--;
-                }
-                writer.endArray();
+                sendAllowedLevels(r, tidy, allowedLevel, resp);
             }
         } catch (JSONException je) {
             reportException(je);
         }
     }
+
+    /**
+     * Writes the resource tree depth-first directly to the response without
+     * collecting it into a <code>JSONObject</code> first.
+     */
+    private void streamResources(final Resource r,
+            final int maxRecursionLevels,
+            final SlingHttpServletResponse resp) throws IOException {
+        final JsonResourceStreamer streamer = new JsonResourceStreamer(maxRecursionLevels, maximumResults);
+        try {
+            final int allowedLevel = streamer.getAllowedLevel(r);
+            if (allowedLevel == -1) {
+                streamer.write(new JSONWriter(resp.getWriter()), r);
+            } else {
+                sendAllowedLevels(r, false, allowedLevel, resp);
+            }
+        } catch (JSONException je) {
+            reportException(je);
+        }
+    }
+
+    /**
+     * Sends a 300 response listing the URLs of the recursion levels which
+     * may be requested instead.
+     */
+    private void sendAllowedLevels(final Resource r,
+            final boolean tidy,
+            int allowedLevel,
+            final SlingHttpServletResponse resp)
+    throws IOException, JSONException {
+        String tidyUrl = (tidy) ? "tidy." : "";
+        resp.setStatus(HttpServletResponse.SC_MULTIPLE_CHOICES);
+        JSONWriter writer = new JSONWriter(resp.getWriter());
+        writer.array();
+        while (allowedLevel >= 0) {
+            writer.value(r.getResourceMetadata().getResolutionPath() + "." + tidyUrl + allowedLevel + ".json");
+            allowedLevel--;
+        }
+        writer.endArray();
+    }
     
     /** Get recursion level from selectors. as per SLING-167: 
      *  the last selector, if present, gives the recursion
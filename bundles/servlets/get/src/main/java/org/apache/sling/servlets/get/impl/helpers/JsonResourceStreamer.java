@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.io.JSONWriter;
+import org.apache.sling.commons.json.sling.JsonObjectCreator;
+
+/**
+ * The <code>JsonResourceStreamer</code> writes a resource tree depth-first
+ * directly to a {@link JSONWriter} instead of collecting the complete tree
+ * into a <code>JSONObject</code> first, as the
+ * {@link org.apache.sling.commons.json.sling.ResourceTraversor} does.
+ * <p>
+ * Only the properties of the resources on the current path are held in
+ * memory, so the memory used is bounded by the depth of the tree. The
+ * output is the same as the one of the <code>ResourceTraversor</code>
+ * rendered with <code>JSONObject.toString()</code>.
+ */
+public class JsonResourceStreamer {
+
+    private final int maxRecursionLevels;
+
+    private final long maxResources;
+
+    public JsonResourceStreamer(final int maxRecursionLevels, final long maxResources) {
+        this.maxRecursionLevels = maxRecursionLevels;
+        this.maxResources = maxResources;
+    }
+
+    /**
+     * Checks whether the tree below the resource may be rendered with the
+     * configured maximum number of resources.
+     * <p>
+     * The return value is the same as the one of
+     * <code>ResourceTraversor.collectResources()</code>: the deepest level
+     * which can be rendered is the level right above the first level at which
+     * the number of resources (counted breadth-first) exceeds the maximum.
+     * As the tree is walked depth-first, the per level counts are kept and
+     * the totals up to each level are checked again whenever a count grows,
+     * as a resource found late on a shallow level is counted before all
+     * deeper resources breadth-first. Subtrees below the level already known
+     * to exceed the limit are not visited anymore.
+     *
+     * @param resource The resource to render
+     * @return -1 if everything can be rendered, the deepest allowed level
+     *         otherwise.
+     */
+    public int getAllowedLevel(final Resource resource) {
+        // SLING-2320: always allow enumeration of one's children;
+        // DOS-limitation is for deeper traversals.
+        if (maxRecursionLevels == 0 || maxRecursionLevels == 1) {
+            return -1;
+        }
+
+        int depthLimit = (maxRecursionLevels < 0) ? Integer.MAX_VALUE : maxRecursionLevels;
+        int exceededDepth = -1;
+        // the deepest level with counted resources
+        int deepest = 0;
+
+        // number of resources per depth, index 0 is the first child level
+        long[] counts = new long[16];
+
+        // the iterator at position n provides the resources at depth n + 1
+        final LinkedList<Iterator<Resource>> stack = new LinkedList<Iterator<Resource>>();
+        stack.addLast(ResourceUtil.listChildren(resource));
+        while (!stack.isEmpty()) {
+            final Iterator<Resource> children = stack.getLast();
+            if (!children.hasNext()) {
+                stack.removeLast();
+                continue;
+            }
+
+            final Resource child = children.next();
+            final int depth = stack.size();
+            if (depth > counts.length) {
+                final long[] newCounts = new long[counts.length * 2];
+                System.arraycopy(counts, 0, newCounts, 0, counts.length);
+                counts = newCounts;
+            }
+            counts[depth - 1]++;
+            deepest = Math.max(deepest, depth);
+
+            // the new resource adds to the total of its level and of all deeper levels
+            long total = 0;
+            for (int i = 0; i < deepest; i++) {
+                total += counts[i];
+                if (total > maxResources) {
+                    // no need to look at this depth and below anymore
+                    exceededDepth = i + 1;
+                    depthLimit = i;
+                    deepest = i + 1;
+                    while (stack.size() > depthLimit) {
+                        stack.removeLast();
+                    }
+                    break;
+                }
+            }
+            if (depth < depthLimit) {
+                stack.addLast(ResourceUtil.listChildren(child));
+            }
+        }
+
+        return (exceededDepth == -1) ? -1 : exceededDepth - 1;
+    }
+
+    /**
+     * Writes the resource and its children up to the maximum recursion level
+     * to the writer.
+     *
+     * @param writer The writer to write the JSON to
+     * @param resource The resource to render
+     * @throws JSONException If an error occurs writing the JSON.
+     */
+    public void write(final JSONWriter writer, final Resource resource)
+    throws JSONException {
+        writeResource(writer, resource, 0);
+    }
+
+    private void writeResource(final JSONWriter writer,
+            final Resource resource,
+            final int currentLevel)
+    throws JSONException {
+        writer.object();
+
+        final JSONObject properties = JsonObjectCreator.create(resource, 0);
+        final Iterator<String> keys = properties.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            writer.key(key).value(properties.get(key));
+        }
+
+        if (maxRecursionLevels == -1 || currentLevel < maxRecursionLevels) {
+            final Iterator<Resource> children = ResourceUtil.listChildren(resource);
+            while (children.hasNext()) {
+                final Resource child = children.next();
+                writer.key(ResourceUtil.getName(child));
+                writeResource(writer, child, currentLevel + 1);
+            }
+        }
+
+        writer.endObject();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Compares the heap used and the time to first byte of the collecting and
+ * the streaming JSON rendering of a synthetic tree with more than 100k
+ * resources. This is not run as part of the build, run it with
+ * <code>mvn test -Dtest=JsonRenderingBenchmark</code>.
+ */
+public class JsonRenderingBenchmark {
+
+    /** 10 + 100 + 1000 + 10000 + 100000 resources below the root */
+    private static final int WIDTH = 10;
+
+    private static final int DEPTH = 5;
+
+    private static final int RUNS = 5;
+
+    /** Writer discarding the output, recording the state at the first write */
+    private static final class FirstByteWriter extends Writer {
+
+        private final long start = System.nanoTime();
+
+        long firstByteNanos = -1;
+
+        long heapAtFirstByte = -1;
+
+        long chars;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            if (firstByteNanos == -1) {
+                firstByteNanos = System.nanoTime() - start;
+                heapAtFirstByte = usedHeap();
+            }
+            chars += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime rt = Runtime.getRuntime();
+        System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private FirstByteWriter render(final Resource root, final boolean streaming) throws Exception {
+        final SlingHttpServletRequest request = Mockito.mock(SlingHttpServletRequest.class);
+        final RequestPathInfo rpi = Mockito.mock(RequestPathInfo.class);
+        Mockito.when(request.getRequestPathInfo()).thenReturn(rpi);
+        Mockito.when(rpi.getSelectors()).thenReturn(new String[] { JsonRendererServlet.INFINITY });
+        Mockito.when(request.getResource()).thenReturn(root);
+        Mockito.when(request.getResponseContentType()).thenReturn("application/json");
+
+        final FirstByteWriter out = new FirstByteWriter();
+        final SlingHttpServletResponse response = Mockito.mock(SlingHttpServletResponse.class);
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(out));
+
+        new JsonRendererServlet(Long.MAX_VALUE, streaming).doGet(request, response);
+        response.getWriter().flush();
+        return out;
+    }
+
+    @Test
+    public void compareCollectingAndStreaming() throws Exception {
+        final Resource root = new SyntheticResourceTree(WIDTH, DEPTH).getRoot();
+        final long baseline = usedHeap();
+
+        long collectedChars = -1;
+        long streamedChars = -1;
+        for (int i = 0; i < RUNS; i++) {
+            final FirstByteWriter collected = render(root, false);
+            final FirstByteWriter streamed = render(root, true);
+            collectedChars = collected.chars;
+            streamedChars = streamed.chars;
+            System.out.printf("run %d: collecting ttfb=%dms heap=%dKB, streaming ttfb=%dms heap=%dKB%n",
+                    i,
+                    collected.firstByteNanos / 1000000, (collected.heapAtFirstByte - baseline) / 1024,
+                    streamed.firstByteNanos / 1000000, (streamed.heapAtFirstByte - baseline) / 1024);
+        }
+        assertEquals(collectedChars, streamedChars);
+    }
+}
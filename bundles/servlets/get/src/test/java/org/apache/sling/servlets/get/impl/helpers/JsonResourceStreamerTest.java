@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.json.io.JSONWriter;
+import org.apache.sling.commons.json.sling.ResourceTraversor;
+import org.junit.Test;
+
+public class JsonResourceStreamerTest {
+
+    private final Resource root = new SyntheticResourceTree(3, 4).getRoot();
+
+    private String stream(int levels) throws Exception {
+        final StringWriter out = new StringWriter();
+        new JsonResourceStreamer(levels, Long.MAX_VALUE).write(new JSONWriter(out), root);
+        return out.toString();
+    }
+
+    private String collect(int levels) throws Exception {
+        final ResourceTraversor traversor = new ResourceTraversor(levels, Long.MAX_VALUE, root, false);
+        traversor.collectResources();
+        return traversor.getJSONObject().toString();
+    }
+
+    @Test
+    public void testSameOutputAsTraversor() throws Exception {
+        for (int levels : new int[] { 0, 1, 2, 4, -1 }) {
+            assertEquals("Output for level " + levels, collect(levels), stream(levels));
+        }
+    }
+
+    @Test
+    public void testSameAllowedLevelAsTraversor() throws Exception {
+        // the tree has 3, 9, 27 and 81 resources on the levels below the root
+        for (int levels : new int[] { 0, 1, 2, 3, -1 }) {
+            for (long max : new long[] { 0, 2, 3, 11, 12, 13, 39, 40, 119, 120, 121 }) {
+                final ResourceTraversor traversor = new ResourceTraversor(levels, max, root, false);
+                assertEquals("Allowed level for level " + levels + " and max " + max,
+                        traversor.collectResources(),
+                        new JsonResourceStreamer(levels, max).getAllowedLevel(root));
+            }
+        }
+    }
+
+    @Test
+    public void testAllowedLevelOfUnbalancedTree() throws Exception {
+        // breadth-first, b is counted before a1 and the limit of 2 is exceeded on the second level
+        final Resource unbalanced = new SyntheticResourceTree("a", "a/a1", "b").getRoot();
+        assertEquals(1, new JsonResourceStreamer(-1, 2).getAllowedLevel(unbalanced));
+        assertEquals(-1, new JsonResourceStreamer(-1, 3).getAllowedLevel(unbalanced));
+    }
+
+    @Test
+    public void testSameAllowedLevelAsTraversorForUnbalancedTree() throws Exception {
+        // deep first subtree, late wide shallow subtrees
+        final Resource unbalanced = new SyntheticResourceTree("a", "a/a1", "a/a1/a2", "a/a1/a2/a3", "a/a1/a2/a3/a4",
+                "a/a1/b2", "b", "b/b1", "c", "c/c1", "c/c2", "c/c3", "c/c1/c11", "d", "e", "f").getRoot();
+        for (int levels : new int[] { 0, 1, 2, 3, 5, -1 }) {
+            for (long max = 0; max <= 17; max++) {
+                final ResourceTraversor traversor = new ResourceTraversor(levels, max, unbalanced, false);
+                assertEquals("Allowed level for level " + levels + " and max " + max,
+                        traversor.collectResources(),
+                        new JsonResourceStreamer(levels, max).getAllowedLevel(unbalanced));
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/** Builds a resource tree of a given width and depth for testing the JSON rendering */
+class SyntheticResourceTree {
+
+    private final Map<String, List<Resource>> children = new HashMap<String, List<Resource>>();
+
+    private final ResourceResolver resolver;
+
+    private final Resource root;
+
+    SyntheticResourceTree(final int width, final int depth) {
+        this();
+        addChildren(root, width, depth);
+    }
+
+    /**
+     * Builds a tree of the given paths relative to the root, parents must be
+     * listed before their children.
+     */
+    SyntheticResourceTree(final String... paths) {
+        this();
+        for (final String path : paths) {
+            final String childPath = root.getPath() + "/" + path;
+            final String parentPath = childPath.substring(0, childPath.lastIndexOf('/'));
+            List<Resource> list = children.get(parentPath);
+            if (list == null) {
+                list = new ArrayList<Resource>();
+                children.put(parentPath, list);
+            }
+            list.add(create(childPath));
+        }
+    }
+
+    private SyntheticResourceTree() {
+        resolver = Mockito.mock(ResourceResolver.class);
+        Mockito.when(resolver.listChildren(Matchers.any(Resource.class))).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                final Resource parent = (Resource) invocation.getArguments()[0];
+                final List<Resource> list = children.get(parent.getPath());
+                if (list == null) {
+                    return Collections.<Resource> emptyList().iterator();
+                }
+                return list.iterator();
+            }
+        });
+        root = create("/content");
+    }
+
+    Resource getRoot() {
+        return root;
+    }
+
+    private void addChildren(final Resource parent, final int width, final int depth) {
+        if (depth == 0) {
+            return;
+        }
+        final List<Resource> list = new ArrayList<Resource>(width);
+        for (int i = 0; i < width; i++) {
+            final Resource child = create(parent.getPath() + "/node" + i);
+            list.add(child);
+            addChildren(child, width, depth - 1);
+        }
+        children.put(parent.getPath(), list);
+    }
+
+    private Resource create(final String path) {
+        final Map<String, Object> props = new LinkedHashMap<String, Object>();
+        props.put("jcr:primaryType", "nt:unstructured");
+        props.put("title", "Title of " + path);
+        props.put("count", Long.valueOf(path.length()));
+        props.put("tags", new String[] { "a", "b" });
+        return new SyntheticResource(resolver, path, "test/type") {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+                if (type == Map.class) {
+                    return (AdapterType) props;
+                }
+                return super.adaptTo(type);
+            }
+        };
+    }
+}
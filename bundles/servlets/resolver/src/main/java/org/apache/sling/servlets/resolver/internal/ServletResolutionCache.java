@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.Servlet;
+
+import org.apache.sling.servlets.resolver.internal.helper.AbstractResourceCollector;
+
+/**
+ * The <code>ServletResolutionCache</code> is a bounded cache of resolved
+ * servlets keyed by the {@link AbstractResourceCollector} used for the
+ * resolution. If the cache is full, the least recently used entry is
+ * evicted.
+ * <p>
+ * Each entry remembers the locations which have been searched for the
+ * servlet, so a change to a resource only invalidates the entries which
+ * searched a location at, below or above the changed path.
+ */
+public class ServletResolutionCache {
+
+    /** A cached servlet together with the locations searched to find it. */
+    private static final class Entry {
+
+        final Servlet servlet;
+
+        final String[] locations;
+
+        Entry(final Servlet servlet, final Collection<String> locations) {
+            this.servlet = servlet;
+            this.locations = locations.toArray(new String[locations.size()]);
+        }
+
+        boolean isAffectedBy(final String path) {
+            for (final String location : locations) {
+                if (isSameOrDescendant(path, location) || isSameOrDescendant(location, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final int maximumSize;
+
+    /** Access ordered map, guarded by itself. */
+    private final LinkedHashMap<AbstractResourceCollector, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ServletResolutionCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<AbstractResourceCollector, Entry>(maximumSize, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<AbstractResourceCollector, Entry> eldest) {
+                if (size() > ServletResolutionCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached servlet for the collector or <code>null</code> if
+     * there is none.
+     */
+    public Servlet get(final AbstractResourceCollector key) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.servlet;
+    }
+
+    /**
+     * Caches the servlet for the collector.
+     *
+     * @param key The collector used to find the servlet
+     * @param servlet The servlet
+     * @param locations The locations searched to find the servlet
+     * @return <code>true</code> if an entry had to be evicted to make room
+     *         for the new one.
+     */
+    public boolean put(final AbstractResourceCollector key,
+            final Servlet servlet,
+            final Collection<String> locations) {
+        synchronized (entries) {
+            final long evicted = evictions.get();
+            entries.put(key, new Entry(servlet, locations));
+            return evictions.get() != evicted;
+        }
+    }
+
+    /**
+     * Removes all entries which searched a location at, below or above
+     * the given path.
+     *
+     * @return The number of removed entries
+     */
+    public int invalidate(final String path) {
+        int removed = 0;
+        synchronized (entries) {
+            final Iterator<Entry> i = entries.values().iterator();
+            while (i.hasNext()) {
+                if (i.next().isAffectedBy(path)) {
+                    i.remove();
+                    removed++;
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Returns <code>true</code> if <code>path</code> equals
+     * <code>ancestor</code> or is located below it.
+     */
+    private static boolean isSameOrDescendant(final String path, final String ancestor) {
+        if (!path.startsWith(ancestor)) {
+            return false;
+        }
+        return path.length() == ancestor.length()
+            || ancestor.endsWith("/")
+            || path.charAt(ancestor.length()) == '/';
+    }
+}
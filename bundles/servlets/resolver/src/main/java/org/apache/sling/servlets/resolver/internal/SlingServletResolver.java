@@ -40,7 +40,6 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
@@ -188,7 +187,7 @@ public class SlingServletResolver
     private Servlet fallbackErrorServlet;
 
     /** The script resolution cache. */
-    private Map<AbstractResourceCollector, Servlet> cache;
+    private ServletResolutionCache cache;
 
     /** The cache size. */
     private int cacheSize;
@@ -631,7 +630,8 @@ public class SlingServletResolver
             return scriptServlet;
         }
 
-        final Collection<Resource> candidates = locationUtil.getServlets(resolver);
+        final List<String> locations = new ArrayList<String>();
+        final Collection<Resource> candidates = locationUtil.getServlets(resolver, locations);
 
         if (LOGGER.isDebugEnabled()) {
             if (candidates.isEmpty()) {
@@ -654,11 +654,9 @@ public class SlingServletResolver
                 boolean servletAcceptsRequest = !isOptingServlet || (request != null && ((OptingServlet) candidate).accepts(request));
                 if (servletAcceptsRequest) {
                     if (!hasOptingServlet && !isOptingServlet && this.cache != null) {
-                        if ( this.cache.size() < this.cacheSize ) {
-                            this.cache.put(locationUtil, candidate);
-                        } else if ( this.logCacheSizeWarning ) {
+                        if ( this.cache.put(locationUtil, candidate, locations) && this.logCacheSizeWarning ) {
                             this.logCacheSizeWarning = false;
-                            LOGGER.warn("Script cache has reached its limit of {}. You might want to increase the cache size for the servlet resolver.",
+                            LOGGER.warn("Script cache has reached its limit of {} and evicts the least recently used entries. You might want to increase the cache size for the servlet resolver.",
                                     this.cacheSize);
                         }
                     }
@@ -836,7 +834,7 @@ public class SlingServletResolver
         // create cache - if a cache size is configured
         this.cacheSize = OsgiUtil.toInteger(properties.get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE);
         if (this.cacheSize > 5) {
-            this.cache = new ConcurrentHashMap<AbstractResourceCollector, Servlet>(cacheSize);
+            this.cache = new ServletResolutionCache(cacheSize);
             this.logCacheSizeWarning = true;
         } else {
             this.cacheSize = 0;
@@ -1036,7 +1034,8 @@ public class SlingServletResolver
      * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
      */
     public void handleEvent(final Event event) {
-        if (this.cache != null) {
+        final ServletResolutionCache cache = this.cache;
+        if (cache != null) {
             boolean flushCache = false;
 
             // we may receive different events
@@ -1055,16 +1054,24 @@ public class SlingServletResolver
                 // this is a resource or resource provider event
 
                 // if the path of the event is a sub path of a search path
-                // we flush the whole cache
+                // we remove the entries which searched a location affected
+                // by the change
                 final String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
                 if ( path != null ) {
                     int index = 0;
-                    while (!flushCache && index < searchPaths.length) {
+                    boolean inSearchPath = false;
+                    while (!inSearchPath && index < searchPaths.length) {
                         if (path.startsWith(this.searchPaths[index])) {
-                            flushCache = true;
+                            inSearchPath = true;
                         }
                         index++;
                     }
+                    if ( inSearchPath ) {
+                        final int removed = cache.invalidate(path);
+                        if ( removed > 0 ) {
+                            LOGGER.debug("Removed {} cached servlets affected by change of {}", removed, path);
+                        }
+                    }
                 }
             }
             if (flushCache) {
@@ -1074,7 +1081,10 @@ public class SlingServletResolver
     }
 
     private void flushCache() {
-        this.cache.clear();
+        final ServletResolutionCache cache = this.cache;
+        if ( cache != null ) {
+            cache.clear();
+        }
         this.logCacheSizeWarning = true;
     }
 
@@ -1372,6 +1382,22 @@ public class SlingServletResolver
             return cache.size();
         }
 
+        public long getCacheHits() {
+            return cache.getHits();
+        }
+
+        public long getCacheMisses() {
+            return cache.getMisses();
+        }
+
+        public long getCacheEvictions() {
+            return cache.getEvictions();
+        }
+
+        public long getCacheInvalidations() {
+            return cache.getInvalidations();
+        }
+
         public void flushCache() {
             SlingServletResolver.this.flushCache();
         }
@@ -65,12 +65,26 @@ public abstract class AbstractResourceCollector {
     }
 
     public final Collection<Resource> getServlets(final ResourceResolver resolver) {
+        return getServlets(resolver, null);
+    }
+
+    /**
+     * Returns the ordered collection of servlet and script resources like
+     * {@link #getServlets(ResourceResolver)} and adds the paths of all
+     * searched locations to the <code>locations</code> collection.
+     *
+     * @param resolver The resource resolver used to find the resources
+     * @param locations The collection to add the searched locations to or
+     *            <code>null</code> if the locations are not needed.
+     */
+    public final Collection<Resource> getServlets(final ResourceResolver resolver,
+            final Collection<String> locations) {
 
         final SortedSet<Resource> resources = new TreeSet<Resource>();
-        final Iterator<String> locations = new LocationIterator(resourceType, resourceSuperType,
-                                                                baseResourceType, resolver);
-        while (locations.hasNext()) {
-            final String location = locations.next();
+        final Iterator<String> locationIterator = new LocationIterator(resourceType, resourceSuperType,
+                                                                       baseResourceType, resolver);
+        while (locationIterator.hasNext()) {
+            final String location = locationIterator.next();
 
             // get the location resource, use a synthetic resource if there
             // is no real location. There may still be children at this
@@ -81,6 +95,9 @@ public abstract class AbstractResourceCollector {
             } else {
                 path = location;
             }
+            if ( locations != null ) {
+                locations.add(path);
+            }
             final Resource locationRes = getResource(resolver, path);
             getWeightedResources(resources, locationRes);
         }
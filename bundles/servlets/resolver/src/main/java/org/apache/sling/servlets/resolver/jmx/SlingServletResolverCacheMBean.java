@@ -37,6 +37,36 @@ public interface SlingServletResolverCacheMBean {
      */
     int getMaximumCacheSize();
 
+    /**
+     * Get the number of servlet resolutions answered from the cache
+     *
+     * @return the number of cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Get the number of servlet resolutions not found in the cache
+     *
+     * @return the number of cache misses
+     */
+    long getCacheMisses();
+
+    /**
+     * Get the number of entries removed from the cache to make room for
+     * more recently used entries
+     *
+     * @return the number of evicted entries
+     */
+    long getCacheEvictions();
+
+    /**
+     * Get the number of entries removed from the cache because of changes
+     * to the resources they were resolved from or because of a flush
+     *
+     * @return the number of invalidated entries
+     */
+    long getCacheInvalidations();
+
     /**
      * Flush the servlet resolver cache.
      */
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+
+import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.servlets.resolver.internal.helper.AbstractResourceCollector;
+import org.apache.sling.servlets.resolver.internal.helper.ResourceCollector;
+import org.junit.Test;
+
+public class ServletResolutionCacheTest {
+
+    private static final Servlet SERVLET = new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private AbstractResourceCollector collector(final String resourceType) {
+        return new ResourceCollector("GET", null, new SyntheticResource(null, "/content", resourceType), null);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        final ServletResolutionCache cache = new ServletResolutionCache(2);
+        assertFalse(cache.put(collector("a"), SERVLET, Arrays.asList("/apps/a")));
+        assertFalse(cache.put(collector("b"), SERVLET, Arrays.asList("/apps/b")));
+
+        // access a, so b is the eldest entry
+        assertSame(SERVLET, cache.get(collector("a")));
+        assertTrue(cache.put(collector("c"), SERVLET, Arrays.asList("/apps/c")));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(collector("b")));
+        assertSame(SERVLET, cache.get(collector("a")));
+        assertSame(SERVLET, cache.get(collector("c")));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidateAffectedLocations() {
+        final ServletResolutionCache cache = new ServletResolutionCache(10);
+        cache.put(collector("a"), SERVLET, Arrays.asList("/apps/a", "/libs/a", "/apps/base"));
+        cache.put(collector("ab"), SERVLET, Arrays.asList("/apps/ab", "/libs/ab"));
+        cache.put(collector("b"), SERVLET, Arrays.asList("/apps/b/c", "/libs/b/c"));
+
+        // sibling with common prefix is not affected
+        assertEquals(0, cache.invalidate("/apps/abc"));
+        // script below a location
+        assertEquals(1, cache.invalidate("/apps/a/GET.jsp"));
+        assertNull(cache.get(collector("a")));
+        // ancestor of a location
+        assertEquals(1, cache.invalidate("/libs/b"));
+        assertNull(cache.get(collector("b")));
+
+        assertSame(SERVLET, cache.get(collector("ab")));
+        assertEquals(2, cache.getInvalidations());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getInvalidations());
+    }
+}
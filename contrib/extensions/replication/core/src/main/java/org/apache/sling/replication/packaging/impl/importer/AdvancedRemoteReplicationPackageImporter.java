@@ -82,6 +82,9 @@ public class AdvancedRemoteReplicationPackageImporter implements ReplicationPack
     @Property
     private static final String CUSTOM_BODY = "customBody";
 
+    @Property(intValue = 0)
+    private static final String CHUNK_SIZE = ReplicationTransportConstants.CHUNK_SIZE;
+
     @Reference
     private ReplicationEventFactory replicationEventFactory;
 
@@ -104,6 +107,7 @@ public class AdvancedRemoteReplicationPackageImporter implements ReplicationPack
         String[] customHeaders = PropertiesUtil.toStringArray(config.get(CUSTOM_HEADERS), new String[0]);
         boolean useCustomBody = PropertiesUtil.toBoolean(config.get(USE_CUSTOM_BODY), false);
         String customBody = PropertiesUtil.toString(config.get(CUSTOM_BODY), "");
+        int chunkSize = PropertiesUtil.toInteger(config.get(CHUNK_SIZE), 0);
 
 
         List<ReplicationTransportHandler> transportHandlers = new ArrayList<ReplicationTransportHandler>();
@@ -113,7 +117,7 @@ public class AdvancedRemoteReplicationPackageImporter implements ReplicationPack
                 transportHandlers.add(new AdvancedHttpReplicationTransportHandler(useCustomHeaders, customHeaders,
                         useCustomBody, customBody,
                         transportAuthenticationProvider,
-                        new ReplicationEndpoint(endpoint), null, -1));
+                        new ReplicationEndpoint(endpoint), null, -1, chunkSize));
             }
         }
         transportHandler = new MultipleEndpointReplicationTransportHandler(transportHandlers,
@@ -58,7 +58,8 @@ public class RemoteReplicationPackageImporter implements ReplicationPackageImpor
     public RemoteReplicationPackageImporter(TransportAuthenticationProviderFactory transportAuthenticationProviderFactory,
                                             Map<String, String> authenticationProperties,
                                             String[] endpoints,
-                                            TransportEndpointStrategyType transportEndpointStrategyType) {
+                                            TransportEndpointStrategyType transportEndpointStrategyType,
+                                            int chunkSize) {
 
 
         TransportAuthenticationProvider<Executor, Executor> transportAuthenticationProvider = (TransportAuthenticationProvider<Executor, Executor>)
@@ -70,7 +71,7 @@ public class RemoteReplicationPackageImporter implements ReplicationPackageImpor
         for (String endpoint : endpoints) {
             if (endpoint != null && endpoint.length() > 0) {
                 transportHandlers.add(new SimpleHttpReplicationTransportHandler(transportAuthenticationProvider,
-                        new ReplicationEndpoint(endpoint), null, -1));
+                        new ReplicationEndpoint(endpoint), null, -1, chunkSize));
             }
         }
         transportHandler = new MultipleEndpointReplicationTransportHandler(transportHandlers,
@@ -72,6 +72,9 @@ public class RemoteReplicationPackageImporterFactory implements ReplicationPacka
     )
     private static final String ENDPOINT_STRATEGY = ReplicationTransportConstants.ENDPOINT_STRATEGY;
 
+    @Property(intValue = 0)
+    private static final String CHUNK_SIZE = ReplicationTransportConstants.CHUNK_SIZE;
+
     @Reference
     private ReplicationEventFactory replicationEventFactory;
 
@@ -98,9 +101,10 @@ public class RemoteReplicationPackageImporterFactory implements ReplicationPacka
                 TransportEndpointStrategyType.One.name());
         TransportEndpointStrategyType transportEndpointStrategyType = TransportEndpointStrategyType.valueOf(endpointStrategyName);
 
+        int chunkSize = PropertiesUtil.toInteger(config.get(CHUNK_SIZE), 0);
 
         return new RemoteReplicationPackageImporter(transportAuthenticationProviderFactory,
-                authenticationProperties, endpoints, transportEndpointStrategyType);
+                authenticationProperties, endpoints, transportEndpointStrategyType, chunkSize);
 
     }
 
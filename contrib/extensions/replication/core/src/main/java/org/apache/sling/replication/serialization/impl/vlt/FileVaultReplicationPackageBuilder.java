@@ -25,7 +25,6 @@ import org.apache.jackrabbit.vault.fs.config.DefaultMetaInf;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.io.ImportOptions;
 import org.apache.jackrabbit.vault.packaging.ExportOptions;
-import org.apache.jackrabbit.vault.packaging.JcrPackage;
 import org.apache.jackrabbit.vault.packaging.Packaging;
 import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.apache.sling.commons.osgi.PropertiesUtil;
@@ -101,10 +100,11 @@ public class FileVaultReplicationPackageBuilder extends AbstractReplicationPacka
 
             opts.setMetaInf(inf);
             opts.setRootPath("/");
+            // the package is assembled into a temporary file which the transport streams from, uploading it
+            // to the repository would only store another copy of it
             File tmpFile = File.createTempFile("rp-vlt-create-" + System.nanoTime(), ".zip");
             packaging.getPackageManager().assemble(session, opts, tmpFile);
-            JcrPackage jcrPackage = packaging.getPackageManager(session).upload(tmpFile, false, true, null);
-            return new FileVaultReplicationPackage(jcrPackage.getPackage());
+            return new FileVaultReplicationPackage(packaging.getPackageManager().open(tmpFile));
         } catch (Exception e) {
             throw new ReplicationPackageBuildingException(e);
         } finally {
@@ -127,8 +127,11 @@ public class FileVaultReplicationPackageBuilder extends AbstractReplicationPacka
         try {
             File tmpFile = File.createTempFile("rp-vlt-read-" + System.nanoTime(), ".zip");
             FileOutputStream fileStream = new FileOutputStream(tmpFile);
-            IOUtils.copy(stream, fileStream);
-            IOUtils.closeQuietly(fileStream);
+            try {
+                IOUtils.copy(stream, fileStream);
+            } finally {
+                IOUtils.closeQuietly(fileStream);
+            }
 
             VaultPackage vaultPackage = packaging.getPackageManager().open(tmpFile);
 
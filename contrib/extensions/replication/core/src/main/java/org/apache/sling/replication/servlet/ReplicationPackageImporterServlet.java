@@ -20,9 +20,12 @@ package org.apache.sling.replication.servlet;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
@@ -33,11 +36,15 @@ import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.replication.packaging.ReplicationPackage;
 import org.apache.sling.replication.packaging.ReplicationPackageImporter;
 import org.apache.sling.replication.resources.ReplicationConstants;
+import org.apache.sling.replication.transport.impl.ChunkedPackageReceiver;
+import org.apache.sling.replication.transport.impl.ReplicationTransportConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Servlet to handle reception of replication content.
+ * <p/>
+ * Content sent in chunks is collected by a {@link ChunkedPackageReceiver} and imported once the last chunk arrived.
  */
 @SuppressWarnings("serial")
 @Component(metatype = false)
@@ -49,6 +56,12 @@ public class ReplicationPackageImporterServlet extends SlingAllMethodsServlet {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    /** incomplete transfers are removed after one day */
+    private static final long TRANSFER_MAX_AGE = 24 * 60 * 60 * 1000L;
+
+    private final ChunkedPackageReceiver chunkedPackageReceiver = new ChunkedPackageReceiver(
+            new File(System.getProperty("java.io.tmpdir"), "rp-chunks"), TRANSFER_MAX_AGE);
+
     @Override
     protected void doPost(SlingHttpServletRequest request, SlingHttpServletResponse response)
             throws ServletException, IOException {
@@ -62,8 +75,27 @@ public class ReplicationPackageImporterServlet extends SlingAllMethodsServlet {
         response.setContentType("text/plain");
         response.setCharacterEncoding("utf-8");
 
+        String transferId = request.getHeader(ReplicationTransportConstants.HEADER_TRANSFER_ID);
+        boolean transferComplete = false;
         InputStream stream = request.getInputStream();
         try {
+            if (transferId != null) {
+                long totalLength = Long.parseLong(request.getHeader(ReplicationTransportConstants.HEADER_TOTAL_LENGTH));
+                long offset = Long.parseLong(request.getHeader(ReplicationTransportConstants.HEADER_CHUNK_OFFSET));
+                long checksum = Long.parseLong(request.getHeader(ReplicationTransportConstants.HEADER_CHUNK_CHECKSUM));
+                if (offset == 0) {
+                    chunkedPackageReceiver.removeExpired();
+                }
+                long received = chunkedPackageReceiver.receive(transferId, offset, totalLength, checksum, stream);
+                response.setHeader(ReplicationTransportConstants.HEADER_RECEIVED, String.valueOf(received));
+                if (received < totalLength) {
+                    success = true;
+                    return;
+                }
+                // the last chunk arrived, read the package from the received file
+                transferComplete = true;
+                stream = new FileInputStream(chunkedPackageReceiver.getFile(transferId));
+            }
             ReplicationPackage replicationPackage = replicationPackageImporter.readPackage(stream);
             if (replicationPackage != null) {
                 success = replicationPackageImporter.importPackage(replicationPackage);
@@ -75,6 +107,10 @@ public class ReplicationPackageImporterServlet extends SlingAllMethodsServlet {
             log.error("Error during replication: {}", e.getMessage(), e);
             response.getWriter().print("error: " + e.toString());
         } finally {
+            if (transferComplete) {
+                IOUtils.closeQuietly(stream);
+                chunkedPackageReceiver.remove(transferId);
+            }
             final long end = System.currentTimeMillis();
             log.info("Processed replication request in {}ms: : {}", new Object[]{end - start, success});
         }
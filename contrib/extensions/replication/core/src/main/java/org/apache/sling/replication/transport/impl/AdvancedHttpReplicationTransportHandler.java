@@ -69,9 +69,22 @@ public class AdvancedHttpReplicationTransportHandler extends SimpleHttpReplicati
                                                    ReplicationEndpoint replicationEndpoint,
                                                    ReplicationPackageBuilder packageBuilder,
                                                    int maxNoOfPackages) {
+        this(useCustomHeaders, customHeaders, useCustomBody, customBody, transportAuthenticationProvider,
+                replicationEndpoint, packageBuilder, maxNoOfPackages, 0);
+    }
+
+    public AdvancedHttpReplicationTransportHandler(boolean useCustomHeaders,
+                                                   String[] customHeaders,
+                                                   boolean useCustomBody,
+                                                   String customBody,
+                                                   TransportAuthenticationProvider<Executor, Executor> transportAuthenticationProvider,
+                                                   ReplicationEndpoint replicationEndpoint,
+                                                   ReplicationPackageBuilder packageBuilder,
+                                                   int maxNoOfPackages,
+                                                   int chunkSize) {
 
 
-        super(transportAuthenticationProvider, replicationEndpoint, packageBuilder, maxNoOfPackages);
+        super(transportAuthenticationProvider, replicationEndpoint, packageBuilder, maxNoOfPackages, chunkSize);
         this.useCustomHeaders = useCustomHeaders;
         this.customHeaders = customHeaders;
         this.useCustomBody = useCustomBody;
@@ -145,13 +158,20 @@ public class AdvancedHttpReplicationTransportHandler extends SimpleHttpReplicati
         String type = replicationPackage.getType();
 
 
+        String[] customizedHeaders = new String[0];
+        if (useCustomHeaders) {
+            customizedHeaders = getCustomizedHeaders(customHeaders, replicationPackage.getAction(), replicationPackage.getPaths());
+        }
+
+        if (!useCustomBody && useChunks(replicationPackage)) {
+            deliverPackageInChunks(executor, replicationPackage, replicationEndpoint.getUri(), customizedHeaders);
+            return;
+        }
+
         Request req = Request.Post(replicationEndpoint.getUri()).useExpectContinue();
 
-        if (useCustomHeaders) {
-            String[] customizedHeaders = getCustomizedHeaders(customHeaders, replicationPackage.getAction(), replicationPackage.getPaths());
-            for (String header : customizedHeaders) {
-                addHeader(req, header);
-            }
+        for (String header : customizedHeaders) {
+            addHeader(req, header);
         }
 
         InputStream inputStream = null;
@@ -181,12 +201,4 @@ public class AdvancedHttpReplicationTransportHandler extends SimpleHttpReplicati
             throw new IOException("response is empty");
         }
     }
-
-    private static void addHeader(Request req, String header) {
-        int idx = header.indexOf(":");
-        if (idx < 0) return;
-        String headerName = header.substring(0, idx).trim();
-        String headerValue = header.substring(idx + 1).trim();
-        req.addHeader(headerName, headerValue);
-    }
 }
\ No newline at end of file
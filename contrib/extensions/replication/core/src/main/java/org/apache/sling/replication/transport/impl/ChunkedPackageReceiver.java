@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.replication.transport.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives {@link org.apache.sling.replication.packaging.ReplicationPackage}s sent in chunks by
+ * {@link SimpleHttpReplicationTransportHandler}.
+ * <p/>
+ * The chunks of a transfer are written to a file as they arrive and are only kept if their checksum matches,
+ * so an interrupted transfer can be resumed at the first missing byte, even after a restart.
+ */
+public class ChunkedPackageReceiver {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+
+    private final long maxAge;
+
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * @param directory the directory for the files of the transfers
+     * @param maxAge the time in ms after which an incomplete transfer is removed
+     */
+    public ChunkedPackageReceiver(File directory, long maxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * receive a chunk of a transfer.
+     * the chunk is ignored if it does not start at the first missing byte of the transfer, it is discarded if its
+     * checksum does not match.
+     *
+     * @param transferId   the id of the transfer
+     * @param offset       the position of the chunk in the package
+     * @param totalLength  the length of the package
+     * @param checksum     the CRC32 checksum of the chunk
+     * @param chunk        the chunk
+     * @return the number of bytes of the package received so far
+     * @throws IOException if the chunk cannot be written
+     */
+    public long receive(String transferId, long offset, long totalLength, long checksum, InputStream chunk)
+            throws IOException {
+        File file = getFile(transferId);
+        synchronized (getLock(file)) {
+            long received = file.length();
+            if (offset != received || offset > totalLength) {
+                log.debug("ignoring chunk at {} of transfer {}, expecting {}", new Object[]{offset, transferId, received});
+                return received;
+            }
+
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            RandomAccessFile output = new RandomAccessFile(file, "rw");
+            boolean valid = false;
+            try {
+                output.seek(offset);
+                CRC32 crc = new CRC32();
+                byte[] buffer = new byte[8192];
+                long length = 0;
+                int bytesRead;
+                while ((bytesRead = chunk.read(buffer)) != -1) {
+                    length += bytesRead;
+                    if (offset + length > totalLength) {
+                        break;
+                    }
+                    crc.update(buffer, 0, bytesRead);
+                    output.write(buffer, 0, bytesRead);
+                }
+                valid = offset + length <= totalLength && crc.getValue() == checksum;
+                if (!valid) {
+                    log.warn("discarding corrupt chunk at {} of transfer {}", offset, transferId);
+                    return offset;
+                }
+                return offset + length;
+            } finally {
+                if (!valid) {
+                    output.setLength(offset);
+                }
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * get the file containing the bytes received for a transfer
+     *
+     * @param transferId the id of the transfer
+     * @return the file, which does not exist if nothing has been received yet
+     */
+    public File getFile(String transferId) {
+        // the id is normalized, so it is safe to be used as file name
+        String name = UUID.fromString(transferId).toString();
+        return new File(directory, name + ".part");
+    }
+
+    /**
+     * remove a transfer, for example after its package has been imported
+     *
+     * @param transferId the id of the transfer
+     */
+    public void remove(String transferId) {
+        File file = getFile(transferId);
+        synchronized (getLock(file)) {
+            if (file.exists() && !file.delete()) {
+                log.warn("could not delete {}", file);
+            }
+            locks.remove(file.getName());
+        }
+    }
+
+    /**
+     * remove the transfers which have not received any chunk for longer than the maximum age
+     */
+    public void removeExpired() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - maxAge;
+        for (File file : files) {
+            if (file.getName().endsWith(".part") && file.lastModified() < oldest) {
+                log.info("removing expired transfer {}", file);
+                synchronized (getLock(file)) {
+                    file.delete();
+                    locks.remove(file.getName());
+                }
+            }
+        }
+    }
+
+    private Object getLock(File file) {
+        Object lock = new Object();
+        Object existing = locks.putIfAbsent(file.getName(), lock);
+        return existing != null ? existing : lock;
+    }
+}
@@ -30,4 +30,16 @@ public class ReplicationTransportConstants {
     public static final String ENDPOINT_STRATEGY = "endpoints.strategy";
 
     public static final String AUTHENTICATION_PROPERTIES = "authentication.properties";
+
+    public static final String CHUNK_SIZE = "chunk.size";
+
+    public static final String HEADER_TRANSFER_ID = "X-Replication-Transfer-Id";
+
+    public static final String HEADER_TOTAL_LENGTH = "X-Replication-Total-Length";
+
+    public static final String HEADER_CHUNK_OFFSET = "X-Replication-Chunk-Offset";
+
+    public static final String HEADER_CHUNK_CHECKSUM = "X-Replication-Chunk-Checksum";
+
+    public static final String HEADER_RECEIVED = "X-Replication-Received";
 }
@@ -19,6 +19,7 @@
 package org.apache.sling.replication.transport.impl;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.fluent.Content;
 import org.apache.http.client.fluent.Executor;
@@ -42,26 +43,48 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * HTTP {@link ReplicationTransportHandler}.
+ * <p/>
+ * If a chunk size is set, packages larger than the chunk size are sent in chunks, each carrying its checksum. A
+ * transfer interrupted by a failure is resumed at the first byte the endpoint did not receive, see
+ * {@link ChunkedPackageReceiver}.
+ */
 public class SimpleHttpReplicationTransportHandler implements ReplicationTransportHandler {
 
+    /** number of consecutive failed chunk deliveries after which a chunked transfer is given up */
+    private static final int MAX_CHUNK_RETRIES = 3;
+
     private static final Logger log = LoggerFactory.getLogger(SimpleHttpReplicationTransportHandler.class);
     private final TransportAuthenticationProvider<Executor, Executor> transportAuthenticationProvider;
     private final ReplicationEndpoint replicationEndpoint;
     private final ReplicationPackageBuilder packageBuilder;
     private final int maxNumberOfPackages;
+    private final int chunkSize;
 
     public SimpleHttpReplicationTransportHandler(TransportAuthenticationProvider<Executor, Executor> transportAuthenticationProvider,
                                                  ReplicationEndpoint replicationEndpoint,
                                                  ReplicationPackageBuilder packageBuilder,
                                                  int maxNumberOfPackages) {
+        this(transportAuthenticationProvider, replicationEndpoint, packageBuilder, maxNumberOfPackages, 0);
+    }
+
+    public SimpleHttpReplicationTransportHandler(TransportAuthenticationProvider<Executor, Executor> transportAuthenticationProvider,
+                                                 ReplicationEndpoint replicationEndpoint,
+                                                 ReplicationPackageBuilder packageBuilder,
+                                                 int maxNumberOfPackages,
+                                                 int chunkSize) {
         this.transportAuthenticationProvider = transportAuthenticationProvider;
         this.replicationEndpoint = replicationEndpoint;
         this.packageBuilder = packageBuilder;
         this.maxNumberOfPackages = maxNumberOfPackages;
+        this.chunkSize = chunkSize;
     }
 
     public void deliverPackage(ReplicationPackage replicationPackage) throws ReplicationTransportException {
@@ -76,6 +99,11 @@ public class SimpleHttpReplicationTransportHandler implements ReplicationTranspo
             context.addAttribute("endpoint", replicationEndpoint);
             executor =  transportAuthenticationProvider.authenticate(executor, context);
 
+            if (useChunks(replicationPackage)) {
+                deliverPackageInChunks(executor, replicationPackage, replicationEndpoint.getUri(), new String[0]);
+                return;
+            }
+
             Request req = Request.Post(replicationEndpoint.getUri()).useExpectContinue();
 
             InputStream inputStream = null;
@@ -108,6 +136,109 @@ public class SimpleHttpReplicationTransportHandler implements ReplicationTranspo
 
     }
 
+    /**
+     * whether the package is to be sent in chunks
+     */
+    protected boolean useChunks(ReplicationPackage replicationPackage) {
+        return chunkSize > 0 && replicationPackage.getLength() > chunkSize;
+    }
+
+    /**
+     * send the package in chunks of at most the chunk size.
+     * after each chunk the endpoint returns the number of bytes received so far, the next chunk starts there. so a
+     * chunk which did not arrive intact is sent again and a transfer which failed before is resumed.
+     */
+    protected void deliverPackageInChunks(Executor executor, ReplicationPackage replicationPackage, URI uri,
+                                          String[] headers) throws IOException {
+        long length = replicationPackage.getLength();
+        // the same package is always sent with the same id, so a retried delivery resumes the transfer
+        String transferId = UUID.nameUUIDFromBytes((replicationPackage.getId() + ':' + length).getBytes("UTF-8")).toString();
+        byte[] buffer = new byte[chunkSize];
+        InputStream inputStream = null;
+        long position = 0;
+        long offset = 0;
+        long bufferOffset = -1;
+        int chunkLength = 0;
+        long checksum = 0;
+        int failures = 0;
+        int chunks = 0;
+        try {
+            while (true) {
+                // the buffer still holds the chunk if it has to be sent again
+                if (bufferOffset != offset) {
+                    if (inputStream == null || position > offset) {
+                        IOUtils.closeQuietly(inputStream);
+                        inputStream = replicationPackage.createInputStream();
+                        position = 0;
+                    }
+                    IOUtils.skipFully(inputStream, offset - position);
+                    chunkLength = IOUtils.read(inputStream, buffer, 0, (int) Math.min(chunkSize, length - offset));
+                    position = offset + chunkLength;
+                    bufferOffset = offset;
+                    CRC32 crc = new CRC32();
+                    crc.update(buffer, 0, chunkLength);
+                    checksum = crc.getValue();
+                }
+
+                Request req = Request.Post(uri)
+                        .addHeader(ReplicationTransportConstants.HEADER_TRANSFER_ID, transferId)
+                        .addHeader(ReplicationTransportConstants.HEADER_TOTAL_LENGTH, String.valueOf(length))
+                        .addHeader(ReplicationTransportConstants.HEADER_CHUNK_OFFSET, String.valueOf(offset))
+                        .addHeader(ReplicationTransportConstants.HEADER_CHUNK_CHECKSUM, String.valueOf(checksum))
+                        .bodyByteArray(buffer, 0, chunkLength, ContentType.APPLICATION_OCTET_STREAM);
+                for (String header : headers) {
+                    addHeader(req, header);
+                }
+
+                HttpResponse response = null;
+                try {
+                    response = executor.execute(req).returnResponse();
+                } catch (IOException e) {
+                    log.warn("could not deliver chunk at {} of package {}: {}", new Object[]{offset, replicationPackage.getId(), e});
+                }
+                long received = -1;
+                if (response != null) {
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status >= 400 && status < 500) {
+                        throw new IOException("delivery of package " + replicationPackage.getId() + " refused: "
+                                + response.getStatusLine());
+                    }
+                    Header receivedHeader = response.getFirstHeader(ReplicationTransportConstants.HEADER_RECEIVED);
+                    if (status == 200 && receivedHeader != null) {
+                        received = Long.parseLong(receivedHeader.getValue());
+                    } else {
+                        log.warn("could not deliver chunk at {} of package {}: {}", new Object[]{offset,
+                                replicationPackage.getId(), response.getStatusLine()});
+                    }
+                }
+                chunks++;
+
+                if (received >= length) {
+                    break;
+                } else if (received > offset) {
+                    failures = 0;
+                } else if (++failures > MAX_CHUNK_RETRIES) {
+                    throw new IOException("giving up delivery of package " + replicationPackage.getId() + " at " + offset);
+                }
+                if (received >= 0) {
+                    offset = received;
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        log.info("Replication content of type {} for {} delivered in {} chunks", new Object[]{
+                replicationPackage.getType(), Arrays.toString(replicationPackage.getPaths()), chunks});
+    }
+
+    protected static void addHeader(Request req, String header) {
+        int idx = header.indexOf(":");
+        if (idx < 0) return;
+        String headerName = header.substring(0, idx).trim();
+        String headerValue = header.substring(idx + 1).trim();
+        req.addHeader(headerName, headerValue);
+    }
+
     public List<ReplicationPackage> retrievePackages(ReplicationRequest replicationRequest) throws ReplicationTransportException {
         log.debug("polling from {}", replicationEndpoint.getUri());
 
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.replication.transport.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Testcase for {@link ChunkedPackageReceiver}
+ */
+public class ChunkedPackageReceiverTest {
+
+    private File directory;
+
+    private ChunkedPackageReceiver receiver;
+
+    private final String transferId = UUID.randomUUID().toString();
+
+    private final byte[] content = new byte[10000];
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("rp-chunks-test", "");
+        directory.delete();
+        receiver = new ChunkedPackageReceiver(directory, 60000);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testReceiveInChunks() throws Exception {
+        assertEquals(4000, receive(0, 4000));
+        assertEquals(8000, receive(4000, 4000));
+        assertEquals(10000, receive(8000, 2000));
+        assertArrayEquals(content, read(receiver.getFile(transferId)));
+    }
+
+    @Test
+    public void testUnexpectedOffsetIsIgnored() throws Exception {
+        assertEquals(4000, receive(0, 4000));
+        // a chunk sent again and a chunk after a missing one
+        assertEquals(4000, receive(0, 4000));
+        assertEquals(4000, receive(8000, 2000));
+        assertEquals(4000, receiver.getFile(transferId).length());
+    }
+
+    @Test
+    public void testCorruptChunkIsDiscarded() throws Exception {
+        assertEquals(4000, receive(0, 4000));
+        byte[] chunk = new byte[4000];
+        System.arraycopy(content, 4000, chunk, 0, chunk.length);
+        long checksum = checksum(chunk);
+        chunk[42]++;
+        assertEquals(4000, receiver.receive(transferId, 4000, content.length, checksum, new ByteArrayInputStream(chunk)));
+        assertEquals(4000, receiver.getFile(transferId).length());
+
+        // resumed with the intact chunk
+        assertEquals(8000, receive(4000, 4000));
+        assertEquals(10000, receive(8000, 2000));
+        assertArrayEquals(content, read(receiver.getFile(transferId)));
+    }
+
+    @Test
+    public void testInterruptedChunkIsDiscarded() throws Exception {
+        assertEquals(4000, receive(0, 4000));
+        InputStream failing = new ByteArrayInputStream(content, 4000, 4000) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > 6000) {
+                    throw new RuntimeException("connection reset");
+                }
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        try {
+            receiver.receive(transferId, 4000, content.length, checksum(4000, 4000), failing);
+            fail("the interruption must be reported");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(4000, receiver.getFile(transferId).length());
+    }
+
+    @Test
+    public void testTooLongChunkIsDiscarded() throws Exception {
+        assertEquals(0, receiver.receive(transferId, 0, 4000, checksum(0, 5000),
+                new ByteArrayInputStream(content, 0, 5000)));
+        assertEquals(0, receiver.getFile(transferId).length());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        receive(0, 4000);
+        receiver.remove(transferId);
+        assertFalse(receiver.getFile(transferId).exists());
+        assertEquals(4000, receive(0, 4000));
+    }
+
+    @Test
+    public void testRemoveExpired() throws Exception {
+        receive(0, 4000);
+        receiver.getFile(transferId).setLastModified(System.currentTimeMillis() - 120000);
+        receiver.removeExpired();
+        assertFalse(receiver.getFile(transferId).exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTransferId() throws Exception {
+        receiver.getFile("../../etc/passwd");
+    }
+
+    private long receive(int offset, int length) throws IOException {
+        return receiver.receive(transferId, offset, content.length, checksum(offset, length),
+                new ByteArrayInputStream(content, offset, length));
+    }
+
+    private long checksum(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(content, offset, length);
+        return crc.getValue();
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(stream);
+        } finally {
+            stream.close();
+        }
+    }
+}
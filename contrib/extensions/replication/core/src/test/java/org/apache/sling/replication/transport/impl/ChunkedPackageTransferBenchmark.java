@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.replication.transport.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.client.fluent.Executor;
+import org.apache.sling.replication.communication.ReplicationActionType;
+import org.apache.sling.replication.communication.ReplicationEndpoint;
+import org.apache.sling.replication.packaging.ReplicationPackage;
+import org.apache.sling.replication.transport.authentication.TransportAuthenticationContext;
+import org.apache.sling.replication.transport.authentication.TransportAuthenticationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the delivery of a large package to a local stand-in endpoint, as a single entity and in chunks, with and
+ * without failing chunk requests.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=ChunkedPackageTransferBenchmark</code>.
+ */
+public class ChunkedPackageTransferBenchmark {
+
+    private static final int PACKAGE_SIZE = 128 * 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private File directory;
+
+    private File packageFile;
+
+    private HttpServer server;
+
+    private URI uri;
+
+    /** every n-th chunk request fails, 0 for none */
+    private volatile int failEvery;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger imported = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("rp-chunks-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+        packageFile = new File(directory, "package.zip");
+        byte[] buffer = new byte[CHUNK_SIZE];
+        Random random = new Random(42);
+        OutputStream out = new FileOutputStream(packageFile);
+        try {
+            for (int i = 0; i < PACKAGE_SIZE / CHUNK_SIZE; i++) {
+                random.nextBytes(buffer);
+                out.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+
+        final ChunkedPackageReceiver receiver = new ChunkedPackageReceiver(new File(directory, "chunks"), 60000);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String transferId = exchange.getRequestHeaders().getFirst(ReplicationTransportConstants.HEADER_TRANSFER_ID);
+                InputStream body = exchange.getRequestBody();
+                if (transferId == null) {
+                    IOUtils.copy(body, new NullOutputStream());
+                    imported.incrementAndGet();
+                    exchange.sendResponseHeaders(200, -1);
+                } else if (failEvery > 0 && requests.incrementAndGet() % failEvery == 0) {
+                    IOUtils.copy(body, new NullOutputStream());
+                    exchange.sendResponseHeaders(503, -1);
+                } else {
+                    long totalLength = Long.parseLong(exchange.getRequestHeaders().getFirst(ReplicationTransportConstants.HEADER_TOTAL_LENGTH));
+                    long received = receiver.receive(transferId,
+                            Long.parseLong(exchange.getRequestHeaders().getFirst(ReplicationTransportConstants.HEADER_CHUNK_OFFSET)),
+                            totalLength,
+                            Long.parseLong(exchange.getRequestHeaders().getFirst(ReplicationTransportConstants.HEADER_CHUNK_CHECKSUM)),
+                            body);
+                    if (received == totalLength) {
+                        receiver.remove(transferId);
+                        imported.incrementAndGet();
+                    }
+                    exchange.getResponseHeaders().add(ReplicationTransportConstants.HEADER_RECEIVED, String.valueOf(received));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        uri = new URI("http://localhost:" + server.getAddress().getPort() + "/importer");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testDelivery() throws Exception {
+        SimpleHttpReplicationTransportHandler single = createHandler(0);
+        SimpleHttpReplicationTransportHandler chunked = createHandler(CHUNK_SIZE);
+        ReplicationPackage replicationPackage = new FilePackage(packageFile);
+
+        // warm up
+        single.deliverPackage(replicationPackage);
+        chunked.deliverPackage(replicationPackage);
+
+        run("single entity", single, replicationPackage);
+        run("1MB chunks", chunked, replicationPackage);
+        failEvery = 10;
+        run("1MB chunks, every 10th chunk request failing", chunked, replicationPackage);
+    }
+
+    private void run(String name, SimpleHttpReplicationTransportHandler handler,
+                     ReplicationPackage replicationPackage) throws Exception {
+        int importedBefore = imported.get();
+        long start = System.nanoTime();
+        handler.deliverPackage(replicationPackage);
+        long time = System.nanoTime() - start;
+        assertEquals(importedBefore + 1, imported.get());
+        System.out.println(name + ": " + (PACKAGE_SIZE / 1024 / 1024) + "MB in " + (time / 1000000) + "ms, "
+                + (PACKAGE_SIZE * 1000000000L / 1024 / 1024 / time) + "MB/s");
+    }
+
+    private SimpleHttpReplicationTransportHandler createHandler(int chunkSize) {
+        TransportAuthenticationProvider<Executor, Executor> authenticationProvider = new TransportAuthenticationProvider<Executor, Executor>() {
+            public boolean canAuthenticate(Class<?> authenticable) {
+                return true;
+            }
+
+            public Executor authenticate(Executor authenticable, TransportAuthenticationContext context) {
+                return authenticable;
+            }
+        };
+        return new SimpleHttpReplicationTransportHandler(authenticationProvider, new ReplicationEndpoint(uri),
+                null, -1, chunkSize);
+    }
+
+    private static final class FilePackage implements ReplicationPackage {
+
+        private final File file;
+
+        private FilePackage(File file) {
+            this.file = file;
+        }
+
+        public String getId() {
+            return file.getAbsolutePath();
+        }
+
+        public String[] getPaths() {
+            return new String[]{"/content/dam"};
+        }
+
+        public String getAction() {
+            return ReplicationActionType.ADD.toString();
+        }
+
+        public String getType() {
+            return "test";
+        }
+
+        public InputStream createInputStream() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        public long getLength() {
+            return file.length();
+        }
+
+        public void close() {
+        }
+
+        public void delete() {
+        }
+    }
+}
@@ -55,35 +55,73 @@ public class HtmlGeneratorFactory implements GeneratorFactory {
 
     public static final class HtmlGenerator implements Generator {
 
-        private final StringWriter writer;
+        /**
+         * Configuration property to parse the output incrementally while it
+         * is written instead of parsing the complete output with the
+         * {@link HtmlParser} once it has been written. The incremental parser
+         * does not add missing <code>html</code>, <code>head</code> or
+         * <code>body</code> elements, so it has to be enabled explicitly.
+         */
+        public static final String PROPERTY_STREAMING = "streaming";
 
         private final HtmlParser htmlParser;
 
+        private StringWriter bufferWriter;
+
+        private HtmlTokenizer tokenizer;
+
+        private PrintWriter writer;
+
+        private boolean streaming;
+
         private ContentHandler contentHandler;
 
         public HtmlGenerator(final HtmlParser parser) {
             this.htmlParser = parser;
-            this.writer = new StringWriter();
         }
 
         /**
          * @see org.apache.sling.rewriter.Generator#finished()
          */
         public void finished() throws IOException, SAXException {
-            this.htmlParser.parse(new ByteArrayInputStream(this.writer.toString().getBytes("UTF-8")), "UTF-8", this.contentHandler);
+            if ( this.writer != null ) {
+                this.writer.flush();
+            }
+            if ( this.streaming ) {
+                if ( this.tokenizer == null ) {
+                    this.tokenizer = new HtmlTokenizer(this.contentHandler);
+                }
+                this.tokenizer.finished();
+            } else {
+                final String content = (this.bufferWriter == null ? "" : this.bufferWriter.toString());
+                this.htmlParser.parse(new ByteArrayInputStream(content.getBytes("UTF-8")), "UTF-8", this.contentHandler);
+            }
         }
 
         /**
          * @see org.apache.sling.rewriter.Generator#getWriter()
          */
         public PrintWriter getWriter() {
-            return new PrintWriter(writer);
+            if ( this.writer == null ) {
+                if ( this.streaming ) {
+                    // the html is parsed while it is written, so the pipeline
+                    // can stream the output without buffering the whole page
+                    this.tokenizer = new HtmlTokenizer(this.contentHandler);
+                    this.writer = new PrintWriter(this.tokenizer);
+                } else {
+                    this.bufferWriter = new StringWriter();
+                    this.writer = new PrintWriter(this.bufferWriter);
+                }
+            }
+            return this.writer;
         }
 
         public void init(ProcessingContext context,
                          ProcessingComponentConfiguration config)
         throws IOException {
-            // nothing to do
+            if ( config != null && config.getConfiguration() != null ) {
+                this.streaming = config.getConfiguration().get(PROPERTY_STREAMING, false);
+            }
         }
 
         /**
@@ -100,4 +138,4 @@ public class HtmlGeneratorFactory implements GeneratorFactory {
             // nothing to do
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,855 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Incremental HTML parser which sends SAX events to a content handler
+ * while the HTML is written to it, so no copy of the page is kept.
+ * <p>
+ * Element and attribute names are reported in lower case in the XHTML
+ * namespace and entities are resolved, like the TagSoup based
+ * {@link org.apache.sling.commons.html.HtmlParser} does. The events are
+ * kept balanced: empty elements are ended immediately, a subset of the
+ * implied end tags of HTML (paragraphs, list items, table rows and cells,
+ * options) is applied, end tags without start tag are ignored and all open
+ * elements are ended when the document is finished. Unlike TagSoup, no
+ * missing <code>html</code>, <code>head</code> or <code>body</code>
+ * elements are added.
+ * <p>
+ * Comments, CDATA sections and the document type are reported to the
+ * content handler if it is a <code>LexicalHandler</code>.
+ */
+class HtmlTokenizer extends Writer {
+
+    static final String NAMESPACE = "http://www.w3.org/1999/xhtml";
+
+    private static final String CDATA_TYPE = "CDATA";
+
+    private static final int STATE_TEXT = 0;
+
+    private static final int STATE_ENTITY = 1;
+
+    private static final int STATE_MARKUP = 2;
+
+    private static final int STATE_RAWTEXT = 3;
+
+    private static final int MARKUP_UNKNOWN = 0;
+
+    private static final int MARKUP_TAG = 1;
+
+    private static final int MARKUP_COMMENT = 2;
+
+    private static final int MARKUP_CDATA = 3;
+
+    private static final int MARKUP_DECLARATION = 4;
+
+    private static final int MARKUP_PI = 5;
+
+    private static final String COMMENT_START = "<!--";
+
+    private static final String CDATA_START = "<![CDATA[";
+
+    private static final int MAX_ENTITY_LENGTH = 32;
+
+    /** Elements without content */
+    private static final Set<String> EMPTY_ELEMENTS = new HashSet<String>(Arrays.asList(
+        "area", "base", "basefont", "br", "col", "embed", "frame", "hr", "img", "input",
+        "isindex", "keygen", "link", "meta", "param", "source", "track", "wbr"));
+
+    /** Elements whose content is not parsed */
+    private static final Set<String> RAWTEXT_ELEMENTS = new HashSet<String>(Arrays.asList(
+        "script", "style"));
+
+    /** Elements which end an open paragraph */
+    private static final Set<String> PARAGRAPH_CLOSERS = new HashSet<String>(Arrays.asList(
+        "address", "article", "aside", "blockquote", "div", "dl", "fieldset", "footer",
+        "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "menu", "nav", "ol",
+        "p", "pre", "section", "table", "ul"));
+
+    private static final Map<String, Integer> ENTITIES = new HashMap<String, Integer>();
+    static {
+        addEntities(34, "quot");
+        addEntities(38, "amp");
+        addEntities(39, "apos");
+        addEntities(60, "lt");
+        addEntities(62, "gt");
+        addEntities(160, "nbsp iexcl cent pound curren yen brvbar sect uml copy ordf laquo not shy reg macr "
+            + "deg plusmn sup2 sup3 acute micro para middot cedil sup1 ordm raquo frac14 frac12 frac34 iquest "
+            + "Agrave Aacute Acirc Atilde Auml Aring AElig Ccedil Egrave Eacute Ecirc Euml Igrave Iacute Icirc Iuml "
+            + "ETH Ntilde Ograve Oacute Ocirc Otilde Ouml times Oslash Ugrave Uacute Ucirc Uuml Yacute THORN szlig "
+            + "agrave aacute acirc atilde auml aring aelig ccedil egrave eacute ecirc euml igrave iacute icirc iuml "
+            + "eth ntilde ograve oacute ocirc otilde ouml divide oslash ugrave uacute ucirc uuml yacute thorn yuml");
+        addEntities(338, "OElig oelig");
+        addEntities(352, "Scaron scaron");
+        addEntities(376, "Yuml");
+        addEntities(402, "fnof");
+        addEntities(710, "circ");
+        addEntities(732, "tilde");
+        addEntities(913, "Alpha Beta Gamma Delta Epsilon Zeta Eta Theta Iota Kappa Lambda Mu Nu Xi Omicron Pi Rho");
+        addEntities(931, "Sigma Tau Upsilon Phi Chi Psi Omega");
+        addEntities(945, "alpha beta gamma delta epsilon zeta eta theta iota kappa lambda mu nu xi omicron pi rho "
+            + "sigmaf sigma tau upsilon phi chi psi omega");
+        addEntities(977, "thetasym upsih");
+        addEntities(982, "piv");
+        addEntities(8194, "ensp emsp");
+        addEntities(8201, "thinsp");
+        addEntities(8204, "zwnj zwj lrm rlm");
+        addEntities(8211, "ndash mdash");
+        addEntities(8216, "lsquo rsquo sbquo");
+        addEntities(8220, "ldquo rdquo bdquo");
+        addEntities(8224, "dagger Dagger bull");
+        addEntities(8230, "hellip");
+        addEntities(8240, "permil");
+        addEntities(8242, "prime Prime");
+        addEntities(8249, "lsaquo rsaquo");
+        addEntities(8254, "oline");
+        addEntities(8260, "frasl");
+        addEntities(8364, "euro");
+        addEntities(8465, "image");
+        addEntities(8472, "weierp");
+        addEntities(8476, "real");
+        addEntities(8482, "trade");
+        addEntities(8501, "alefsym");
+        addEntities(8592, "larr uarr rarr darr harr");
+        addEntities(8629, "crarr");
+        addEntities(8656, "lArr uArr rArr dArr hArr");
+        addEntities(8704, "forall");
+        addEntities(8706, "part exist");
+        addEntities(8709, "empty");
+        addEntities(8711, "nabla isin notin");
+        addEntities(8715, "ni");
+        addEntities(8719, "prod");
+        addEntities(8721, "sum minus");
+        addEntities(8727, "lowast");
+        addEntities(8730, "radic");
+        addEntities(8733, "prop infin");
+        addEntities(8736, "ang");
+        addEntities(8743, "and or cap cup int");
+        addEntities(8756, "there4");
+        addEntities(8764, "sim");
+        addEntities(8773, "cong");
+        addEntities(8776, "asymp");
+        addEntities(8800, "ne equiv");
+        addEntities(8804, "le ge");
+        addEntities(8834, "sub sup nsub");
+        addEntities(8838, "sube supe");
+        addEntities(8853, "oplus");
+        addEntities(8855, "otimes");
+        addEntities(8869, "perp");
+        addEntities(8901, "sdot");
+        addEntities(8968, "lceil rceil lfloor rfloor");
+        addEntities(9001, "lang rang");
+        addEntities(9674, "loz");
+        addEntities(9824, "spades");
+        addEntities(9827, "clubs");
+        addEntities(9829, "hearts diams");
+    }
+
+    /** Add entities for consecutive code points */
+    private static void addEntities(final int firstCodePoint, final String names) {
+        int codePoint = firstCodePoint;
+        for (final String name : names.split(" ")) {
+            ENTITIES.put(name, codePoint);
+            codePoint++;
+        }
+    }
+
+    private final ContentHandler contentHandler;
+
+    private final LexicalHandler lexicalHandler;
+
+    private int state = STATE_TEXT;
+
+    /** Pending text, reported as characters */
+    private final char[] text = new char[4096];
+
+    private int textLength;
+
+    /** The current markup, starting with '&lt;' */
+    private final StringBuilder markup = new StringBuilder();
+
+    private int markupType;
+
+    /** The quote character of the current attribute value in a tag */
+    private char quote;
+
+    /** The last character in a tag which is not white space */
+    private char lastNonSpace;
+
+    /** The current entity name without '&amp;' */
+    private final StringBuilder entity = new StringBuilder();
+
+    /** The element whose raw text content is currently read */
+    private String rawTextElement;
+
+    /** Stack of open elements */
+    private final List<String> openElements = new ArrayList<String>();
+
+    private boolean started;
+
+    private SAXException exception;
+
+    HtmlTokenizer(final ContentHandler contentHandler) {
+        this.contentHandler = contentHandler;
+        this.lexicalHandler = (contentHandler instanceof LexicalHandler ? (LexicalHandler) contentHandler : null);
+    }
+
+    /**
+     * @see java.io.Writer#write(char[], int, int)
+     */
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        checkException();
+        try {
+            for (int i = off; i < off + len; i++) {
+                process(cbuf[i]);
+            }
+        } catch (final SAXException se) {
+            this.exception = se;
+            checkException();
+        }
+    }
+
+    /**
+     * @see java.io.Writer#write(java.lang.String, int, int)
+     */
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        checkException();
+        try {
+            for (int i = off; i < off + len; i++) {
+                process(str.charAt(i));
+            }
+        } catch (final SAXException se) {
+            this.exception = se;
+            checkException();
+        }
+    }
+
+    /**
+     * Reports the pending text.
+     * @see java.io.Writer#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        checkException();
+        try {
+            flushText();
+        } catch (final SAXException se) {
+            this.exception = se;
+            checkException();
+        }
+    }
+
+    /**
+     * @see java.io.Writer#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+    }
+
+    /**
+     * Reports any incomplete markup as text, ends all open elements and the
+     * document.
+     * @throws SAXException If the content handler failed.
+     */
+    void finished() throws SAXException {
+        if (this.exception != null) {
+            throw this.exception;
+        }
+        switch (this.state) {
+            case STATE_ENTITY:
+                appendText('&');
+                appendText(this.entity);
+                break;
+            case STATE_MARKUP:
+                appendText(this.markup);
+                break;
+        }
+        this.state = STATE_TEXT;
+        flushText();
+        for (int i = this.openElements.size() - 1; i >= 0; i--) {
+            final String name = this.openElements.remove(i);
+            this.contentHandler.endElement(NAMESPACE, name, name);
+        }
+        startDocument();
+        this.contentHandler.endDocument();
+    }
+
+    private void checkException() throws IOException {
+        if (this.exception != null) {
+            throw (IOException) new IOException(this.exception.getMessage()).initCause(this.exception);
+        }
+    }
+
+    private void process(final char c) throws SAXException {
+        switch (this.state) {
+            case STATE_TEXT:
+                if (c == '<') {
+                    startMarkup(c);
+                } else if (c == '&') {
+                    this.entity.setLength(0);
+                    this.state = STATE_ENTITY;
+                } else {
+                    appendText(c);
+                }
+                break;
+
+            case STATE_ENTITY:
+                if (c == ';') {
+                    this.state = STATE_TEXT;
+                    final int codePoint = resolveEntity(this.entity);
+                    if (codePoint >= 0) {
+                        appendCodePoint(codePoint);
+                    } else {
+                        appendText('&');
+                        appendText(this.entity);
+                        appendText(';');
+                    }
+                } else if (this.entity.length() < MAX_ENTITY_LENGTH
+                        && (Character.isLetterOrDigit(c) || (c == '#' && this.entity.length() == 0))) {
+                    this.entity.append(c);
+                } else {
+                    // no entity
+                    this.state = STATE_TEXT;
+                    appendText('&');
+                    appendText(this.entity);
+                    process(c);
+                }
+                break;
+
+            case STATE_MARKUP:
+                this.markup.append(c);
+                processMarkup(c);
+                break;
+
+            case STATE_RAWTEXT:
+                processRawText(c);
+                break;
+        }
+    }
+
+    private void startMarkup(final char c) throws SAXException {
+        flushText();
+        this.markup.setLength(0);
+        this.markup.append(c);
+        this.markupType = MARKUP_UNKNOWN;
+        this.quote = 0;
+        this.lastNonSpace = c;
+        this.state = STATE_MARKUP;
+    }
+
+    private void processMarkup(final char c) throws SAXException {
+        final int length = this.markup.length();
+        switch (this.markupType) {
+            case MARKUP_UNKNOWN:
+                detectMarkupType(c, length);
+                break;
+
+            case MARKUP_TAG:
+                if (this.quote != 0) {
+                    if (c == this.quote) {
+                        this.quote = 0;
+                    }
+                } else if ((c == '"' || c == '\'') && this.lastNonSpace == '=') {
+                    this.quote = c;
+                } else if (c == '>') {
+                    this.state = STATE_TEXT;
+                    handleTag();
+                }
+                if (!Character.isWhitespace(c)) {
+                    this.lastNonSpace = c;
+                }
+                break;
+
+            case MARKUP_COMMENT:
+                if (c == '>' && length >= COMMENT_START.length() + 3 && endsWith("-->")) {
+                    this.state = STATE_TEXT;
+                    if (this.lexicalHandler != null) {
+                        startDocument();
+                        final char[] comment = toChars(COMMENT_START.length(), length - 3);
+                        this.lexicalHandler.comment(comment, 0, comment.length);
+                    }
+                }
+                break;
+
+            case MARKUP_CDATA:
+                if (c == '>' && length >= CDATA_START.length() + 3 && endsWith("]]>")) {
+                    this.state = STATE_TEXT;
+                    startDocument();
+                    final char[] content = toChars(CDATA_START.length(), length - 3);
+                    if (this.lexicalHandler != null) {
+                        this.lexicalHandler.startCDATA();
+                    }
+                    this.contentHandler.characters(content, 0, content.length);
+                    if (this.lexicalHandler != null) {
+                        this.lexicalHandler.endCDATA();
+                    }
+                }
+                break;
+
+            case MARKUP_DECLARATION:
+                if (c == '>') {
+                    this.state = STATE_TEXT;
+                    handleDeclaration();
+                }
+                break;
+
+            case MARKUP_PI:
+                if (c == '>') {
+                    this.state = STATE_TEXT;
+                    handleProcessingInstruction();
+                }
+                break;
+        }
+    }
+
+    private void detectMarkupType(final char c, final int length) throws SAXException {
+        final char second = this.markup.charAt(1);
+        if (length == 2) {
+            if (isNameStart(c)) {
+                this.markupType = MARKUP_TAG;
+            } else if (c == '?') {
+                this.markupType = MARKUP_PI;
+            } else if (c != '/' && c != '!') {
+                markupToText();
+            }
+        } else if (second == '/') {
+            if (isNameStart(c)) {
+                this.markupType = MARKUP_TAG;
+                this.lastNonSpace = c;
+            } else if (c == '>') {
+                // ignore "</>"
+                this.state = STATE_TEXT;
+            } else {
+                markupToText();
+            }
+        } else {
+            // "<!" markup
+            if (startsWith(COMMENT_START)) {
+                this.markupType = MARKUP_COMMENT;
+            } else if (startsWith(CDATA_START)) {
+                this.markupType = MARKUP_CDATA;
+            } else if (!COMMENT_START.startsWith(this.markup.toString())
+                    && !CDATA_START.startsWith(this.markup.toString())) {
+                this.markupType = MARKUP_DECLARATION;
+                if (c == '>') {
+                    this.state = STATE_TEXT;
+                    handleDeclaration();
+                }
+            }
+        }
+    }
+
+    /**
+     * The current markup is not markup but text: report the '&lt;' as text
+     * and process the following characters again.
+     */
+    private void markupToText() throws SAXException {
+        final String chars = this.markup.substring(1);
+        this.state = STATE_TEXT;
+        appendText('<');
+        for (int i = 0; i < chars.length(); i++) {
+            process(chars.charAt(i));
+        }
+    }
+
+    /**
+     * Reads the content of script and style elements up to their end tag.
+     */
+    private void processRawText(final char c) throws SAXException {
+        final int length = this.markup.length();
+        final int endTagLength = this.rawTextElement.length() + 2;
+        if (length == 0) {
+            if (c == '<') {
+                this.markup.append(c);
+            } else {
+                appendText(c);
+            }
+        } else if (length < endTagLength) {
+            final char expected = (length == 1 ? '/' : this.rawTextElement.charAt(length - 2));
+            if (Character.toLowerCase(c) == expected) {
+                this.markup.append(c);
+            } else {
+                rawTextMarkupToText(c);
+            }
+        } else if (Character.isWhitespace(c) || c == '>' || c == '/') {
+            // end tag found, continue as tag
+            this.markupType = MARKUP_TAG;
+            this.quote = 0;
+            this.lastNonSpace = this.markup.charAt(length - 1);
+            this.state = STATE_MARKUP;
+            flushText();
+            process(c);
+        } else {
+            rawTextMarkupToText(c);
+        }
+    }
+
+    private void rawTextMarkupToText(final char c) throws SAXException {
+        appendText(this.markup);
+        this.markup.setLength(0);
+        processRawText(c);
+    }
+
+    private void handleTag() throws SAXException {
+        final int end = this.markup.length() - 1;
+        if (this.markup.charAt(1) == '/') {
+            int pos = 2;
+            while (pos < end && isNameChar(this.markup.charAt(pos))) {
+                pos++;
+            }
+            endElement(this.markup.substring(2, pos).toLowerCase(Locale.ENGLISH));
+            return;
+        }
+
+        int pos = 1;
+        while (pos < end && isNameChar(this.markup.charAt(pos))) {
+            pos++;
+        }
+        final String name = this.markup.substring(1, pos).toLowerCase(Locale.ENGLISH);
+
+        final AttributesImpl attributes = new AttributesImpl();
+        boolean endSlash = false;
+        while (pos < end) {
+            final char c = this.markup.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/') {
+                endSlash = (pos == end - 1);
+                pos++;
+            } else {
+                // attribute name
+                final int nameStart = pos;
+                while (pos < end && !Character.isWhitespace(this.markup.charAt(pos))
+                        && this.markup.charAt(pos) != '=' && this.markup.charAt(pos) != '/') {
+                    pos++;
+                }
+                if (pos == nameStart) {
+                    // a '=' without name
+                    pos++;
+                    continue;
+                }
+                final String attrName = this.markup.substring(nameStart, pos).toLowerCase(Locale.ENGLISH);
+                while (pos < end && Character.isWhitespace(this.markup.charAt(pos))) {
+                    pos++;
+                }
+                String value = attrName;
+                if (pos < end && this.markup.charAt(pos) == '=') {
+                    pos++;
+                    while (pos < end && Character.isWhitespace(this.markup.charAt(pos))) {
+                        pos++;
+                    }
+                    final int valueStart;
+                    final int valueEnd;
+                    if (pos < end && (this.markup.charAt(pos) == '"' || this.markup.charAt(pos) == '\'')) {
+                        final char q = this.markup.charAt(pos);
+                        valueStart = pos + 1;
+                        pos = valueStart;
+                        while (pos < end && this.markup.charAt(pos) != q) {
+                            pos++;
+                        }
+                        valueEnd = pos;
+                        pos++;
+                    } else {
+                        valueStart = pos;
+                        while (pos < end && !Character.isWhitespace(this.markup.charAt(pos))) {
+                            pos++;
+                        }
+                        valueEnd = pos;
+                    }
+                    value = resolveEntities(this.markup.substring(valueStart, valueEnd));
+                }
+                if (attributes.getIndex(attrName) == -1) {
+                    attributes.addAttribute("", attrName, attrName, CDATA_TYPE, value);
+                }
+            }
+        }
+        startElement(name, attributes, endSlash);
+    }
+
+    private void startElement(final String name, final AttributesImpl attributes, final boolean endSlash)
+    throws SAXException {
+        closeImpliedElements(name);
+        startDocument();
+        this.contentHandler.startElement(NAMESPACE, name, name, attributes);
+        if (endSlash || EMPTY_ELEMENTS.contains(name)) {
+            this.contentHandler.endElement(NAMESPACE, name, name);
+        } else {
+            this.openElements.add(name);
+            if (RAWTEXT_ELEMENTS.contains(name)) {
+                this.rawTextElement = name;
+                this.markup.setLength(0);
+                this.state = STATE_RAWTEXT;
+            }
+        }
+    }
+
+    private void endElement(final String name) throws SAXException {
+        final int index = this.openElements.lastIndexOf(name);
+        if (index != -1) {
+            endElements(index);
+        }
+    }
+
+    /** End the open element at the index and all elements opened after it */
+    private void endElements(final int index) throws SAXException {
+        for (int i = this.openElements.size() - 1; i >= index; i--) {
+            final String name = this.openElements.remove(i);
+            this.contentHandler.endElement(NAMESPACE, name, name);
+        }
+    }
+
+    private void closeImpliedElements(final String name) throws SAXException {
+        if (PARAGRAPH_CLOSERS.contains(name)) {
+            final int last = this.openElements.size() - 1;
+            if (last >= 0 && "p".equals(this.openElements.get(last))) {
+                endElements(last);
+            }
+        }
+        if ("li".equals(name)) {
+            closeSibling(new String[] {"li"}, "ul", "ol");
+        } else if ("dt".equals(name) || "dd".equals(name)) {
+            closeSibling(new String[] {"dt", "dd"}, "dl");
+        } else if ("tr".equals(name)) {
+            closeSibling(new String[] {"tr"}, "table", "thead", "tbody", "tfoot");
+        } else if ("td".equals(name) || "th".equals(name)) {
+            closeSibling(new String[] {"td", "th"}, "tr", "table");
+        } else if ("thead".equals(name) || "tbody".equals(name) || "tfoot".equals(name)) {
+            closeSibling(new String[] {"thead", "tbody", "tfoot"}, "table");
+        } else if ("option".equals(name)) {
+            closeSibling(new String[] {"option"}, "select", "datalist", "optgroup");
+        }
+    }
+
+    /**
+     * End the last open element with one of the names, unless a
+     * container element has been opened after it.
+     */
+    private void closeSibling(final String[] names, final String... containers) throws SAXException {
+        for (int i = this.openElements.size() - 1; i >= 0; i--) {
+            final String open = this.openElements.get(i);
+            for (final String container : containers) {
+                if (container.equals(open)) {
+                    return;
+                }
+            }
+            for (final String name : names) {
+                if (name.equals(open)) {
+                    endElements(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handleDeclaration() throws SAXException {
+        if (this.lexicalHandler == null || this.markup.length() < 11
+                || !this.markup.substring(2, 9).equalsIgnoreCase("doctype")) {
+            return;
+        }
+        // <!DOCTYPE name PUBLIC "public id" "system id">
+        final List<String> tokens = new ArrayList<String>();
+        final int end = this.markup.length() - 1;
+        int pos = 9;
+        while (pos < end) {
+            final char c = this.markup.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '"' || c == '\'') {
+                final int start = pos + 1;
+                pos = start;
+                while (pos < end && this.markup.charAt(pos) != c) {
+                    pos++;
+                }
+                tokens.add(this.markup.substring(start, pos));
+                pos++;
+            } else {
+                final int start = pos;
+                while (pos < end && !Character.isWhitespace(this.markup.charAt(pos))) {
+                    pos++;
+                }
+                tokens.add(this.markup.substring(start, pos));
+            }
+        }
+        if (tokens.isEmpty()) {
+            return;
+        }
+        String publicId = null;
+        String systemId = null;
+        if (tokens.size() > 2 && "public".equalsIgnoreCase(tokens.get(1))) {
+            publicId = tokens.get(2);
+            if (tokens.size() > 3) {
+                systemId = tokens.get(3);
+            }
+        } else if (tokens.size() > 2 && "system".equalsIgnoreCase(tokens.get(1))) {
+            systemId = tokens.get(2);
+        }
+        startDocument();
+        this.lexicalHandler.startDTD(tokens.get(0).toLowerCase(Locale.ENGLISH), publicId, systemId);
+        this.lexicalHandler.endDTD();
+    }
+
+    private void handleProcessingInstruction() throws SAXException {
+        // <?target data?>
+        int end = this.markup.length() - 1;
+        if (this.markup.charAt(end - 1) == '?') {
+            end--;
+        }
+        int pos = 2;
+        while (pos < end && !Character.isWhitespace(this.markup.charAt(pos))) {
+            pos++;
+        }
+        final String target = this.markup.substring(2, pos);
+        // the xml declaration is not a processing instruction
+        if (target.length() > 0 && !"xml".equalsIgnoreCase(target)) {
+            startDocument();
+            this.contentHandler.processingInstruction(target, this.markup.substring(pos, end).trim());
+        }
+    }
+
+    private void startDocument() throws SAXException {
+        if (!this.started) {
+            this.started = true;
+            this.contentHandler.startDocument();
+        }
+    }
+
+    private void appendText(final char c) throws SAXException {
+        if (this.textLength == this.text.length) {
+            flushText();
+        }
+        this.text[this.textLength++] = c;
+    }
+
+    private void appendText(final CharSequence chars) throws SAXException {
+        for (int i = 0; i < chars.length(); i++) {
+            appendText(chars.charAt(i));
+        }
+    }
+
+    private void appendCodePoint(final int codePoint) throws SAXException {
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            final char[] chars = Character.toChars(codePoint);
+            appendText(chars[0]);
+            appendText(chars[1]);
+        } else {
+            appendText((char) codePoint);
+        }
+    }
+
+    private void flushText() throws SAXException {
+        if (this.textLength > 0) {
+            startDocument();
+            this.contentHandler.characters(this.text, 0, this.textLength);
+            this.textLength = 0;
+        }
+    }
+
+    private boolean startsWith(final String prefix) {
+        return this.markup.length() >= prefix.length() && this.markup.substring(0, prefix.length()).equals(prefix);
+    }
+
+    private boolean endsWith(final String suffix) {
+        final int start = this.markup.length() - suffix.length();
+        return start >= 0 && this.markup.substring(start).equals(suffix);
+    }
+
+    private char[] toChars(final int start, final int end) {
+        final char[] chars = new char[Math.max(0, end - start)];
+        this.markup.getChars(start, start + chars.length, chars, 0);
+        return chars;
+    }
+
+    private static boolean isNameStart(final char c) {
+        return Character.isLetter(c);
+    }
+
+    private static boolean isNameChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':' || c == '.';
+    }
+
+    /**
+     * Returns the code point of the entity with the given name (without
+     * '&amp;' and ';') or -1 if the entity is unknown.
+     */
+    static int resolveEntity(final CharSequence name) {
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                final int codePoint;
+                if (name.charAt(1) == 'x' || name.charAt(1) == 'X') {
+                    codePoint = Integer.parseInt(name.subSequence(2, name.length()).toString(), 16);
+                } else {
+                    codePoint = Integer.parseInt(name.subSequence(1, name.length()).toString());
+                }
+                if (codePoint > 0 && codePoint <= Character.MAX_CODE_POINT) {
+                    return codePoint;
+                }
+            } catch (final NumberFormatException nfe) {
+                // no numeric entity
+            }
+            return -1;
+        }
+        final Integer codePoint = ENTITIES.get(name.toString());
+        return (codePoint == null ? -1 : codePoint);
+    }
+
+    /**
+     * Resolves the entities in an attribute value.
+     */
+    static String resolveEntities(final String value) {
+        int amp = value.indexOf('&');
+        if (amp == -1) {
+            return value;
+        }
+        final StringBuilder sb = new StringBuilder(value.length());
+        int pos = 0;
+        while (amp != -1) {
+            sb.append(value, pos, amp);
+            final int semicolon = value.indexOf(';', amp);
+            final int codePoint = (semicolon != -1 && semicolon - amp <= MAX_ENTITY_LENGTH + 1
+                    ? resolveEntity(value.substring(amp + 1, semicolon)) : -1);
+            if (codePoint >= 0) {
+                sb.appendCodePoint(codePoint);
+                pos = semicolon + 1;
+            } else {
+                sb.append('&');
+                pos = amp + 1;
+            }
+            amp = value.indexOf('&', pos);
+        }
+        sb.append(value, pos, value.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.commons.html.HtmlParser;
+import org.apache.sling.rewriter.impl.ProcessingComponentConfigurationImpl;
+import org.apache.sling.rewriter.impl.components.HtmlGeneratorFactory.HtmlGenerator;
+import org.ccil.cowan.tagsoup.Parser;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compares the buffered html generator, which parses the page with TagSoup
+ * once it has been written completely, to the streaming html generator for
+ * a page of 2 MB. Besides the throughput, the time until the first event
+ * reaches the pipeline is reported.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=HtmlGeneratorBenchmark</code>.
+ */
+public class HtmlGeneratorBenchmark {
+
+    private static final int PAGE_SIZE = 2 * 1024 * 1024;
+
+    /** Size of the chunks written by the "script" */
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final int RUNS = 10;
+
+    /** The TagSoup based parser, like the commons html service */
+    private static final HtmlParser TAGSOUP = new HtmlParser() {
+
+        public void parse(InputStream stream, String encoding, ContentHandler ch) throws SAXException {
+            final Parser parser = new Parser();
+            parser.setContentHandler(ch);
+            final InputSource source = new InputSource(stream);
+            source.setEncoding(encoding);
+            try {
+                parser.parse(source);
+            } catch (final IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        public Document parse(String systemId, InputStream stream, String encoding) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final class Handler extends DefaultHandler {
+
+        private long firstEvent;
+
+        private int paragraphs;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (firstEvent == 0) {
+                firstEvent = System.nanoTime();
+            }
+            if ("p".equals(localName)) {
+                paragraphs++;
+            }
+        }
+    }
+
+    private static String createPage(final int paragraphs) {
+        final StringBuilder sb = new StringBuilder(PAGE_SIZE + 1024);
+        sb.append("<html><head><title>Benchmark</title><script>var a = 1 < 2;</script></head><body>");
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("<div class=\"item\" id=\"item-").append(i).append("\"><p>Paragraph ").append(i)
+                .append(" with <a href=\"/content/page-").append(i).append(".html\">a link</a> &amp; some text")
+                .append("<!-- comment --><br/><img src=\"/image.png\" alt='image'></p></div>\n");
+        }
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    private long[] generate(final String page, final boolean streaming, final int paragraphs) throws Exception {
+        final HtmlGenerator generator = new HtmlGenerator(TAGSOUP);
+        generator.init(null, new ProcessingComponentConfigurationImpl("html-generator",
+            new ValueMapDecorator(Collections.<String, Object> singletonMap(HtmlGenerator.PROPERTY_STREAMING, streaming))));
+        final Handler handler = new Handler();
+        generator.setContentHandler(handler);
+
+        final long start = System.nanoTime();
+        final PrintWriter writer = generator.getWriter();
+        for (int i = 0; i < page.length(); i += CHUNK_SIZE) {
+            writer.write(page, i, Math.min(CHUNK_SIZE, page.length() - i));
+        }
+        generator.finished();
+        final long end = System.nanoTime();
+        assertEquals(paragraphs, handler.paragraphs);
+        return new long[] {end - start, handler.firstEvent - start};
+    }
+
+    @Test
+    public void compareBufferedAndStreaming() throws Exception {
+        final int paragraphs = PAGE_SIZE / createPage(1).length() + 1;
+        final String page = createPage(paragraphs);
+        for (int i = 0; i < RUNS; i++) {
+            final long[] buffered = generate(page, false, paragraphs);
+            final long[] streaming = generate(page, true, paragraphs);
+            System.out.printf("run %d: buffered %d ms (first event after %d ms), streaming %d ms (first event after %d ms)%n",
+                i, buffered[0] / 1000000, buffered[1] / 1000000, streaming[0] / 1000000, streaming[1] / 1000000);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.commons.html.HtmlParser;
+import org.apache.sling.rewriter.impl.ProcessingComponentConfigurationImpl;
+import org.apache.sling.rewriter.impl.components.HtmlGeneratorFactory.HtmlGenerator;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class HtmlGeneratorTest {
+
+    /** Records the parsed content, does not parse it */
+    private static final class RecordingParser implements HtmlParser {
+
+        private String content;
+
+        public void parse(InputStream stream, String encoding, ContentHandler ch) throws SAXException {
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[1024];
+                int l;
+                while ( (l = stream.read(buffer)) > 0 ) {
+                    out.write(buffer, 0, l);
+                }
+                this.content = out.toString(encoding);
+            } catch (final IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        public Document parse(String systemId, InputStream stream, String encoding) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class ElementCounter extends DefaultHandler {
+
+        private int elements;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            elements++;
+        }
+    }
+
+    @Test
+    public void testBufferedByDefault() throws Exception {
+        final RecordingParser parser = new RecordingParser();
+        final ElementCounter counter = new ElementCounter();
+        final HtmlGenerator generator = new HtmlGenerator(parser);
+        generator.init(null, ProcessingComponentConfigurationImpl.EMPTY);
+        generator.setContentHandler(counter);
+
+        final PrintWriter writer = generator.getWriter();
+        writer.write("<p>a</p>");
+        writer.flush();
+        assertNull(parser.content);
+
+        generator.finished();
+        assertEquals("<p>a</p>", parser.content);
+        assertEquals(0, counter.elements);
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        final RecordingParser parser = new RecordingParser();
+        final ElementCounter counter = new ElementCounter();
+        final HtmlGenerator generator = new HtmlGenerator(parser);
+        generator.init(null, new ProcessingComponentConfigurationImpl("html-generator",
+            new ValueMapDecorator(Collections.<String, Object> singletonMap(HtmlGenerator.PROPERTY_STREAMING, true))));
+        generator.setContentHandler(counter);
+
+        final PrintWriter writer = generator.getWriter();
+        writer.write("<p>a</p><p>");
+        writer.flush();
+        // the events are sent while the html is written
+        assertEquals(2, counter.elements);
+
+        writer.write("b</p>");
+        generator.finished();
+        assertEquals(2, counter.elements);
+        assertNull(parser.content);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+
+public class HtmlTokenizerTest {
+
+    /** A document with all kinds of markup */
+    private static final String DOCUMENT = "<!DOCTYPE html PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">"
+        + "<HTML><Head><title>A &amp; B</title>"
+        + "<script type='text/javascript'>if (a<b && c>d) { document.write(\"</p>\"); }</script>"
+        + "<style>p > a { color: red; }</style></head>"
+        + "<body class=main><!-- a comment -->"
+        + "<p>one<p>two &lt; three &#65;&#x42;<br>"
+        + "<![CDATA[<b>not a tag</b>]]>"
+        + "<ul><li>a<li>b</ul><img src=\"a.png\" alt='x > y'/>"
+        + "</body></html>";
+
+    private static final String EXPECTED = "[DOCTYPE html -//W3C//DTD HTML 4.01//EN http://www.w3.org/TR/html4/strict.dtd]"
+        + "<html><head><title>A & B</title>"
+        + "<script type=\"text/javascript\">if (a<b && c>d) { document.write(\"</p>\"); }</script>"
+        + "<style>p > a { color: red; }</style></head>"
+        + "<body class=\"main\">[COMMENT  a comment ]"
+        + "<p>one</p><p>two < three AB<br></br>"
+        + "[CDATA <b>not a tag</b>]"
+        + "</p><ul><li>a</li><li>b</li></ul><img src=\"a.png\" alt=\"x > y\"></img>"
+        + "</body></html>";
+
+    /**
+     * Records the events in a markup like notation, adjacent text events are
+     * combined.
+     */
+    private static final class Recorder extends DefaultHandler2 {
+
+        private final StringBuilder events = new StringBuilder();
+
+        private int documents;
+
+        @Override
+        public void startDocument() {
+            assertEquals("document started once", 0, documents);
+            documents++;
+        }
+
+        @Override
+        public void endDocument() {
+            assertEquals("document ended once", 1, documents);
+            documents++;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            assertEquals(HtmlTokenizer.NAMESPACE, uri);
+            assertEquals(localName, qName);
+            events.append('<').append(localName);
+            for (int i = 0; i < atts.getLength(); i++) {
+                events.append(' ').append(atts.getLocalName(i)).append("=\"").append(atts.getValue(i)).append('"');
+            }
+            events.append('>');
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            events.append("</").append(localName).append('>');
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            events.append(ch, start, length);
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) {
+            events.append("[COMMENT ").append(ch, start, length).append(']');
+        }
+
+        @Override
+        public void startCDATA() {
+            events.append("[CDATA ");
+        }
+
+        @Override
+        public void endCDATA() {
+            events.append(']');
+        }
+
+        @Override
+        public void startDTD(String name, String publicId, String systemId) {
+            events.append("[DOCTYPE ").append(name).append(' ').append(publicId).append(' ').append(systemId);
+        }
+
+        @Override
+        public void endDTD() {
+            events.append(']');
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) {
+            events.append("[PI ").append(target).append(' ').append(data).append(']');
+        }
+
+        String getEvents() {
+            assertEquals("document ended", 2, documents);
+            return events.toString();
+        }
+    }
+
+    private String parse(final String html) throws IOException, SAXException {
+        return parse(html, Math.max(1, html.length()));
+    }
+
+    /** Parse the html, written in chunks of the given size */
+    private String parse(final String html, final int chunkSize) throws IOException, SAXException {
+        final Recorder recorder = new Recorder();
+        final HtmlTokenizer tokenizer = new HtmlTokenizer(recorder);
+        for (int i = 0; i < html.length(); i += chunkSize) {
+            tokenizer.write(html, i, Math.min(chunkSize, html.length() - i));
+        }
+        tokenizer.flush();
+        tokenizer.finished();
+        return recorder.getEvents();
+    }
+
+    @Test
+    public void testDocument() throws Exception {
+        assertEquals(EXPECTED, parse(DOCUMENT));
+    }
+
+    @Test
+    public void testSplitAcrossWrites() throws Exception {
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize++) {
+            assertEquals("chunk size " + chunkSize, EXPECTED, parse(DOCUMENT, chunkSize));
+        }
+    }
+
+    @Test
+    public void testSplitCharacterArrays() throws Exception {
+        final Recorder recorder = new Recorder();
+        final HtmlTokenizer tokenizer = new HtmlTokenizer(recorder);
+        final char[] chars = DOCUMENT.toCharArray();
+        int pos = 0;
+        for (int chunkSize = 1; pos < chars.length; chunkSize = chunkSize * 2 % 61 + 1) {
+            final int len = Math.min(chunkSize, chars.length - pos);
+            tokenizer.write(chars, pos, len);
+            pos += len;
+        }
+        tokenizer.finished();
+        assertEquals(EXPECTED, recorder.getEvents());
+    }
+
+    @Test
+    public void testNamesAndAttributes() throws Exception {
+        // names are lower case, the first of duplicate attributes wins
+        assertEquals("<div class=\"a\" id=\"b\" checked=\"checked\" data-x=\"1 & 2\">x</div>",
+            parse("<DIV Class=\"a\" ID = b checked data-x='1 &amp; 2' class=c>x</Div>"));
+    }
+
+    @Test
+    public void testEntities() throws Exception {
+        assertEquals("a & b < > \" \u00a0\u20ac AB \ud83d\ude00 &unknown; &#xZZ; & c &",
+            parse("a &amp; b &lt; &gt; &quot; &nbsp;&euro; &#65;&#x42; &#128512; &unknown; &#xZZ; & c &"));
+    }
+
+    @Test
+    public void testUnbalancedMarkup() throws Exception {
+        // end tags without start tag are ignored, open elements are ended at the end
+        assertEquals("<div><b><i>bold</i></b>text<span>open</span></div>",
+            parse("</p><div><b><i>bold</b>text</em><span>open"));
+    }
+
+    @Test
+    public void testImpliedEndTags() throws Exception {
+        assertEquals("<p>a</p><div>b</div><table><tr><td>1</td><td>2</td></tr><tr><th>3</th></tr></table>"
+            + "<dl><dt>t</dt><dd>d</dd></dl><select><option>x</option><option>y</option></select>",
+            parse("<p>a<div>b</div><table><tr><td>1<td>2<tr><th>3</table>"
+                + "<dl><dt>t<dd>d</dl><select><option>x<option>y</select>"));
+    }
+
+    @Test
+    public void testNestedListsAreNotClosed() throws Exception {
+        assertEquals("<ul><li>a<ul><li>b</li></ul></li><li>c</li></ul>",
+            parse("<ul><li>a<ul><li>b</ul><li>c</ul>"));
+    }
+
+    @Test
+    public void testMarkupCharactersAsText() throws Exception {
+        // incomplete markup at the end is text as well
+        assertEquals("1 < 2 <> 3 > 2 <3 a</b", parse("1 < 2 <> 3 > 2 <3 a</b"));
+        assertEquals("<p>a<b</p>", parse("<p>a<b"));
+        assertEquals("<p>a</p>", parse("<p>a</>"));
+    }
+
+    @Test
+    public void testComments() throws Exception {
+        assertEquals("a[COMMENT  x -- y > z ]b[COMMENT ]c[COMMENT  <p> ]",
+            parse("a<!-- x -- y > z -->b<!---->c<!-- <p> -->"));
+        // an unterminated comment is text
+        assertEquals("a<!-- b", parse("a<!-- b"));
+    }
+
+    @Test
+    public void testCData() throws Exception {
+        assertEquals("<p>[CDATA a < b ]] > &amp; ]</p>", parse("<p><![CDATA[a < b ]] > &amp; ]]></p>"));
+    }
+
+    @Test
+    public void testScriptAndStyle() throws Exception {
+        assertEquals("<script>var s = '<script>' + \"</scrip\" + '&amp;';</script><p>x</p>",
+            parse("<script>var s = '<script>' + \"</scrip\" + '&amp;';</SCRIPT ><p>x</p>"));
+        assertEquals("<style>a:before { content: '</p>'; }</style>",
+            parse("<style>a:before { content: '</p>'; }</style>"));
+        // an unterminated script contains the rest of the document
+        assertEquals("<script><p>a</p></script>", parse("<script><p>a</p>"));
+    }
+
+    @Test
+    public void testDeclarationsAndProcessingInstructions() throws Exception {
+        assertEquals("[DOCTYPE html null null]<p>[PI php echo 1;]</p>",
+            parse("<?xml version=\"1.0\"?><!doctype HTML><p><?php echo 1;?></p>"));
+        assertEquals("[DOCTYPE html null about:legacy-compat]",
+            parse("<!DOCTYPE html SYSTEM \"about:legacy-compat\">"));
+    }
+
+    @Test
+    public void testEmptyDocument() throws Exception {
+        assertEquals("", parse(""));
+    }
+}
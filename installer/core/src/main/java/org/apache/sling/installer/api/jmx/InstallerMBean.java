@@ -41,4 +41,13 @@ public interface InstallerMBean {
      * Determines the time since when the installer is in suspended state
      */
     long getSuspendedSince();
+
+    /**
+     * The number of executed tasks and the time spent executing them for
+     * each task phase, like bundle installation, since the installer has
+     * been started. The phase is identified by the prefix of the sort key
+     * of the tasks.
+     * @since 1.1.0
+     */
+    String[] getTaskPhaseTimings();
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.sling.installer.core.impl;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -68,6 +70,37 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
         this.resourceId = resourceId;
         this.listener = listener;
     }
+
+    /**
+     * Read a resource group written by {@link #writeTo(DataOutputStream)}.
+     * @param in The input stream
+     * @throws IOException If reading fails
+     */
+    EntityResourceList(final DataInputStream in)
+    throws IOException {
+        final int size = in.readInt();
+        for(int i=0; i < size; i++) {
+            this.resources.add(new RegisteredResourceImpl(in));
+        }
+        this.alias = ResourceListFormat.readString(in);
+        this.resourceId = ResourceListFormat.readString(in);
+    }
+
+    /**
+     * Write the resource group in the compact format.
+     * @param out The output stream
+     * @throws IOException If writing fails
+     */
+    void writeTo(final DataOutputStream out)
+    throws IOException {
+        out.writeInt(resources.size());
+        for(final RegisteredResourceImpl rr : this.resources) {
+            rr.writeTo(out);
+        }
+        ResourceListFormat.writeString(out, this.alias);
+        ResourceListFormat.writeString(out, this.resourceId);
+    }
+
     /**
      * Serialize the object
      * - write version id
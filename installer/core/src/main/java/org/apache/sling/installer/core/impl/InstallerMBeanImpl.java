@@ -26,11 +26,13 @@ import org.apache.sling.installer.api.jmx.InstallerMBean;
 
 public class InstallerMBeanImpl implements InstallationListener, InstallerMBean {
     private final InfoProvider infoProvider;
+    private final TaskStatistics statistics;
     private volatile boolean active;
     private volatile long lastEventTime;
 
-    public InstallerMBeanImpl(InfoProvider infoProvider) {
+    public InstallerMBeanImpl(InfoProvider infoProvider, TaskStatistics statistics) {
         this.infoProvider = infoProvider;
+        this.statistics = statistics;
     }
 
     //~---------------------------------------< InstallationListener >
@@ -64,4 +66,8 @@ public class InstallerMBeanImpl implements InstallationListener, InstallerMBean
     public long getSuspendedSince() {
         return active ? -1 : lastEventTime;
     }
+
+    public String[] getTaskPhaseTimings() {
+        return statistics.getTimings();
+    }
 }
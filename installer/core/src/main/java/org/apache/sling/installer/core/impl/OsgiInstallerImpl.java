@@ -35,6 +35,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.sling.commons.osgi.PropertiesUtil;
@@ -121,6 +126,27 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
     private final InstallListener listener;
     private final AtomicLong backgroundTaskCounter = new AtomicLong();
 
+    /**
+     * The name of the bundle context property defining the number of threads
+     * executing independent tasks in parallel
+     * (value is "sling.installer.parallel.threads").
+     */
+    private static final String PARALLEL_THREADS = "sling.installer.parallel.threads";
+
+    /**
+     * The phases whose tasks may be executed in parallel: bundle installations.
+     * Only the tasks sharing the ordering of their sort key up to the entity
+     * are independent of each other, e.g. the installations of the bundles
+     * with the same start level.
+     */
+    private static final Set<String> PARALLEL_PHASES = Collections.singleton("40-");
+
+    /** The executor for parallel tasks or <code>null</code> if tasks are executed one by one. */
+    private final ExecutorService taskExecutor;
+
+    /** The timings of the task phases. */
+    private final TaskStatistics statistics = new TaskStatistics();
+
 
     /**
      *  Constructor
@@ -131,9 +157,33 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         this.ctx = ctx;
         // Initialize file util
         new FileDataStore(ctx);
-        final File f = FileDataStore.SHARED.getDataFile("RegisteredResourceList.ser");
+        final File f = FileDataStore.SHARED.getDataFile("RegisteredResourceList.dat");
+        final File legacyFile = FileDataStore.SHARED.getDataFile("RegisteredResourceList.ser");
         this.listener = new InstallListener(ctx, logger);
-        this.persistentList = new PersistentResourceList(f, listener);
+        this.persistentList = new PersistentResourceList(f, legacyFile, listener);
+
+        final int parallelThreads = PropertiesUtil.toInteger(ctx.getProperty(PARALLEL_THREADS), 1);
+        if ( parallelThreads > 1 ) {
+            final AtomicLong threadCounter = new AtomicLong();
+            this.taskExecutor = Executors.newFixedThreadPool(parallelThreads, new ThreadFactory() {
+
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "Apache Sling Installer Task #" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            logger.info("Executing independent tasks with {} threads", parallelThreads);
+        } else {
+            this.taskExecutor = null;
+        }
+    }
+
+    /**
+     * Return the timings of the task phases.
+     */
+    public TaskStatistics getTaskStatistics() {
+        return this.statistics;
     }
 
     /**
@@ -182,6 +232,10 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
             logger.debug("Done waiting for background thread");
         }
 
+        if ( this.taskExecutor != null ) {
+            this.taskExecutor.shutdown();
+        }
+
         // remove file util
         FileDataStore.SHARED = null;
 
@@ -730,12 +784,21 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                     t.start();
                     return ACTION.SHUTDOWN;
                 }
+                final String phase = TaskStatistics.getPhase(task);
+                if ( this.taskExecutor != null && getParallelGroup(task) != null ) {
+                    // collect all tasks of the same group and execute them in parallel
+                    final List<InstallTask> group = collectParallelGroup(task, tasks);
+                    this.executeParallel(group, ctx, phase);
+                    continue;
+                }
+                final long start = System.currentTimeMillis();
                 try {
                     logger.debug("Executing task: {}", task);
                     task.execute(ctx);
                 } catch (final Throwable t) {
                     logger.error("Uncaught exception during task execution!", t);
                 }
+                this.statistics.add(phase, 1, System.currentTimeMillis() - start);
             }
             // save new state
             final boolean newCycle = this.cleanupInstallableResources();
@@ -747,6 +810,86 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         return ACTION.SLEEP;
     }
 
+    /**
+     * Get the group of tasks the task may be executed in parallel with: the
+     * sort key up to the entity, for example the phase and the start level
+     * of a bundle installation.
+     * @return The group or <code>null</code> if the task must be executed
+     *         on its own.
+     */
+    static String getParallelGroup(final InstallTask task) {
+        final String phase = TaskStatistics.getPhase(task);
+        if ( !PARALLEL_PHASES.contains(phase) ) {
+            return null;
+        }
+        final String sortKey = task.getSortKey();
+        final int pos = sortKey.indexOf('-', phase.length());
+        return (pos == -1 ? null : sortKey.substring(0, pos + 1));
+    }
+
+    /**
+     * Remove the tasks following the given task from the sorted tasks as
+     * long as they belong to the same parallel group.
+     * @return The task and the tasks of its group in the order of the tasks
+     */
+    static List<InstallTask> collectParallelGroup(final InstallTask task,
+            final SortedSet<InstallTask> tasks) {
+        final String groupKey = getParallelGroup(task);
+        final List<InstallTask> group = new ArrayList<InstallTask>();
+        group.add(task);
+        synchronized ( tasks ) {
+            final Iterator<InstallTask> i = tasks.iterator();
+            while ( i.hasNext() ) {
+                final InstallTask next = i.next();
+                if ( next.isAsynchronousTask() || !groupKey.equals(getParallelGroup(next)) ) {
+                    break;
+                }
+                group.add(next);
+                i.remove();
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Execute independent tasks of the same group in parallel and wait
+     * until all of them are finished.
+     */
+    private void executeParallel(final List<InstallTask> group,
+            final InstallationContext ctx,
+            final String phase) {
+        logger.debug("Executing {} tasks of phase {} in parallel", group.size(), phase);
+        final long start = System.currentTimeMillis();
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for(final InstallTask task : group) {
+            futures.add(this.taskExecutor.submit(new Runnable() {
+
+                public void run() {
+                    logger.debug("Executing task: {}", task);
+                    task.execute(ctx);
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for(final Future<?> future : futures) {
+            while ( true ) {
+                try {
+                    future.get();
+                    break;
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                } catch (final ExecutionException ee) {
+                    logger.error("Uncaught exception during task execution!", ee.getCause());
+                    break;
+                }
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        this.statistics.add(phase, group.size(), System.currentTimeMillis() - start);
+    }
+
     /**
      * Clean up and compact.
      * @return <code>true</code> if another cycle should be started.
@@ -19,13 +19,16 @@
 package org.apache.sling.installer.core.impl;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -33,6 +36,8 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import org.apache.sling.installer.api.InstallableResource;
 import org.apache.sling.installer.api.event.InstallationListener;
@@ -47,8 +52,14 @@ import org.slf4j.LoggerFactory;
  */
 public class PersistentResourceList {
 
-    /** Serialization version. */
-    private static final int VERSION = 2;
+    /** Marker at the start of the persistence file, "SLIR". */
+    private static final int MAGIC = 0x534C4952;
+
+    /** Persistence format version. */
+    private static final int VERSION = 3;
+
+    /** Last version of the persistence file written using serialization. */
+    private static final int LEGACY_VERSION = 2;
 
     /** Entity id for restart active bundles. */
     public static final String RESTART_ACTIVE_BUNDLES_TYPE = "org.apache.sling.installer.core.restart.bundles";
@@ -69,30 +80,94 @@ public class PersistentResourceList {
     /** The persistence file. */
     private final File dataFile;
 
+    /** The temporary file used to replace the persistence file atomically. */
+    private final File tmpDataFile;
+
+    /** The persistence file written by older versions using serialization, might be null. */
+    private final File legacyDataFile;
+
+    /** The checksum of the last persisted state. */
+    private long lastChecksum = -1;
+
+    /** The size of the last persisted state. */
+    private int lastSize = -1;
+
     /** All untransformed resources. */
     private final List<RegisteredResource> untransformedResources;
 
     private final InstallationListener listener;
 
-    @SuppressWarnings("unchecked")
     public PersistentResourceList(final File dataFile, final InstallationListener listener) {
+        this(dataFile, null, listener);
+    }
+
+    /**
+     * Create a new list.
+     * If neither the persistence file nor its temporary file exist, the state
+     * is restored from the legacy file, if provided. The legacy file is
+     * removed once the state has been persisted in the current format.
+     * @param dataFile The persistence file
+     * @param legacyDataFile The persistence file of older versions or <code>null</code>
+     * @param listener The installation listener
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentResourceList(final File dataFile,
+            final File legacyDataFile,
+            final InstallationListener listener) {
         this.dataFile = dataFile;
+        this.tmpDataFile = new File(dataFile.getPath() + ".tmp");
+        this.legacyDataFile = legacyDataFile;
         this.listener = listener;
 
+        // if the persistence file could not be replaced on the last save,
+        // the temporary file contains the last state
+        File restoreFile = (!dataFile.exists() && tmpDataFile.exists() ? tmpDataFile : dataFile);
+        if ( !restoreFile.exists() && legacyDataFile != null && legacyDataFile.exists() ) {
+            restoreFile = legacyDataFile;
+        }
         Map<String, EntityResourceList> restoredData = null;
         List<RegisteredResource> unknownList = null;
-        if ( dataFile.exists() ) {
-            ObjectInputStream ois = null;
+        if ( restoreFile.exists() ) {
+            InputStream is = null;
             try {
-                ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
-                final int version = ois.readInt();
-                if ( version > 0 && version <= VERSION ) {
-                    restoredData = (Map<String, EntityResourceList>)ois.readObject();
+                is = new BufferedInputStream(new FileInputStream(restoreFile));
+                is.mark(4);
+                final DataInputStream dis = new DataInputStream(is);
+                final int magic = dis.readInt();
+                if ( magic == MAGIC ) {
+                    final int version = dis.readInt();
                     if ( version == VERSION ) {
-                        unknownList = (List<RegisteredResource>)ois.readObject();
+                        restoredData = new HashMap<String, EntityResourceList>();
+                        final int groups = dis.readInt();
+                        for(int i=0; i<groups; i++) {
+                            final String entityId = ResourceListFormat.readString(dis);
+                            restoredData.put(entityId, new EntityResourceList(dis));
+                        }
+                        unknownList = new ArrayList<RegisteredResource>();
+                        final int untransformed = dis.readInt();
+                        for(int i=0; i<untransformed; i++) {
+                            unknownList.add(new RegisteredResourceImpl(dis));
+                        }
+                    } else {
+                        logger.warn("Unknown version for persistent resource list: {}", version);
+                    }
+                } else if ( (magic >>> 16) == (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF) ) {
+                    // the list has been written by an older version using serialization,
+                    // it is migrated to the current format and file with the next save
+                    is.reset();
+                    final ObjectInputStream ois = new ObjectInputStream(is);
+                    final int version = ois.readInt();
+                    if ( version > 0 && version <= LEGACY_VERSION ) {
+                        restoredData = (Map<String, EntityResourceList>)ois.readObject();
+                        if ( version == LEGACY_VERSION ) {
+                            unknownList = (List<RegisteredResource>)ois.readObject();
+                        }
+                        logger.info("Migrating persistent resource list from serialized format version {}", version);
+                    } else {
+                        logger.warn("Unknown version for persistent resource list: {}", version);
                     }
                 } else {
-                    logger.warn("Unknown version for persistent resource list: {}", version);
+                    logger.warn("Unknown format for persistent resource list: {}", restoreFile);
                 }
                 logger.debug("Restored resource list: {}", restoredData);
                 logger.debug("Restored unknown resource list: {}", unknownList);
@@ -101,9 +176,9 @@ public class PersistentResourceList {
                 restoredData = null;
                 unknownList = null;
             } finally {
-                if (ois != null) {
+                if (is != null) {
                     try {
-                        ois.close();
+                        is.close();
                     } catch (final IOException ignore) {
                         // ignore
                     }
@@ -156,18 +231,60 @@ public class PersistentResourceList {
     }
 
     /**
-     * Persist the current state
+     * Persist the current state.
+     * Only the resources which changed since the last save are encoded
+     * again, see {@link RegisteredResourceImpl#writeTo(DataOutputStream)}.
+     * The state is only written if it changed since it has been persisted
+     * the last time. The state is written to a temporary file first which
+     * then replaces the persistence file, so a crash while saving does not
+     * corrupt the persisted state.
      */
     public void save() {
         try {
-            final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(this.lastSize, 8192));
+            final CRC32 checksum = new CRC32();
+            final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(bytes, checksum));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(data.size());
+            for(final Map.Entry<String, EntityResourceList> entry : data.entrySet()) {
+                ResourceListFormat.writeString(out, entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+            out.writeInt(untransformedResources.size());
+            for(final RegisteredResource rr : untransformedResources) {
+                ((RegisteredResourceImpl)rr).writeTo(out);
+            }
+            out.close();
+            if ( checksum.getValue() == this.lastChecksum && bytes.size() == this.lastSize
+                 && this.dataFile.exists() ) {
+                logger.debug("Resource list is unchanged.");
+                return;
+            }
+
+            final FileOutputStream fos = new FileOutputStream(this.tmpDataFile);
             try {
-                oos.writeInt(VERSION);
-                oos.writeObject(data);
-                oos.writeObject(untransformedResources);
-                logger.debug("Persisted resource list.");
+                bytes.writeTo(fos);
+                fos.getFD().sync();
             } finally {
-                oos.close();
+                fos.close();
+            }
+            if ( !this.tmpDataFile.renameTo(this.dataFile) ) {
+                // some platforms do not replace an existing file on rename
+                this.dataFile.delete();
+                if ( !this.tmpDataFile.renameTo(this.dataFile) ) {
+                    throw new IOException("Unable to rename " + this.tmpDataFile + " to " + this.dataFile);
+                }
+            }
+            this.lastChecksum = checksum.getValue();
+            this.lastSize = bytes.size();
+            logger.debug("Persisted resource list.");
+            if ( this.legacyDataFile != null && this.legacyDataFile.exists() ) {
+                if ( this.legacyDataFile.delete() ) {
+                    logger.info("Removed legacy persistent resource list {}", this.legacyDataFile);
+                } else {
+                    logger.warn("Unable to remove legacy persistent resource list {}", this.legacyDataFile);
+                }
             }
         } catch (final Exception e) {
             logger.warn("Unable to save persistent list: " + e.getMessage(), e);
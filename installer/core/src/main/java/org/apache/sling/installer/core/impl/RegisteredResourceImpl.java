@@ -19,6 +19,9 @@
 package org.apache.sling.installer.core.impl;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -88,6 +91,12 @@ public class RegisteredResourceImpl
     /** When was the last status change? */
     private long lastChange = -1;
 
+    /**
+     * The fields of this resource except the dictionary in the compact
+     * format, <code>null</code> if they have changed since the last save.
+     */
+    private transient byte[] encodedFields;
+
     /**
      * Serialize the object
      * - write version id
@@ -153,6 +162,64 @@ public class RegisteredResourceImpl
         }
     }
 
+    /**
+     * Read a resource written by {@link #writeTo(DataOutputStream)}.
+     * @param in The input stream
+     * @throws IOException If reading fails
+     */
+    RegisteredResourceImpl(final DataInputStream in)
+    throws IOException {
+        this.url = ResourceListFormat.readString(in);
+        this.urlScheme = ResourceListFormat.readString(in);
+        this.digest = ResourceListFormat.readString(in);
+        this.entity = ResourceListFormat.readString(in);
+        ResourceListFormat.readMap(in, this.attributes);
+        final String dataFileName = ResourceListFormat.readString(in);
+        this.resourceType = ResourceListFormat.readString(in);
+        this.priority = in.readInt();
+        this.state = ResourceState.valueOf(ResourceListFormat.readString(in));
+        this.lastChange = in.readLong();
+        this.dataUri = ResourceListFormat.readString(in);
+        this.dictionary = ResourceListFormat.readDictionary(in);
+        // update file location
+        if ( dataFileName != null ) {
+            this.dataFile = FileDataStore.SHARED.getDataFile(dataFileName);
+        }
+    }
+
+    /**
+     * Write the resource in the compact format.
+     * The fields are only encoded again if they changed since the last
+     * write, the dictionary is always written as it is shared between
+     * the clones of a resource.
+     * @param out The output stream
+     * @throws IOException If writing fails
+     */
+    void writeTo(final DataOutputStream out)
+    throws IOException {
+        byte[] fields = this.encodedFields;
+        if ( fields == null ) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream fieldsOut = new DataOutputStream(bytes);
+            ResourceListFormat.writeString(fieldsOut, url);
+            ResourceListFormat.writeString(fieldsOut, urlScheme);
+            ResourceListFormat.writeString(fieldsOut, digest);
+            ResourceListFormat.writeString(fieldsOut, entity);
+            ResourceListFormat.writeMap(fieldsOut, attributes);
+            ResourceListFormat.writeString(fieldsOut, dataFile == null ? null : dataFile.getName());
+            ResourceListFormat.writeString(fieldsOut, resourceType);
+            fieldsOut.writeInt(priority);
+            ResourceListFormat.writeString(fieldsOut, state.toString());
+            fieldsOut.writeLong(this.lastChange);
+            ResourceListFormat.writeString(fieldsOut, this.dataUri);
+            fieldsOut.flush();
+            fields = bytes.toByteArray();
+            this.encodedFields = fields;
+        }
+        out.write(fields);
+        ResourceListFormat.writeDictionary(out, dictionary);
+    }
+
     /**
      * Try to create a registered resource.
      */
@@ -239,6 +306,7 @@ public class RegisteredResourceImpl
 	 * Remove the data file
 	 */
 	private void removeDataFile() {
+        this.encodedFields = null;
         if ( this.dataFile != null && this.dataFile.exists() ) {
             dataFile.delete();
         }
@@ -320,6 +388,7 @@ public class RegisteredResourceImpl
      * @see org.apache.sling.installer.api.tasks.TaskResource#setAttribute(java.lang.String, java.lang.Object)
      */
     public void setAttribute(final String key, final Object value) {
+        this.encodedFields = null;
         if ( value == null ) {
             this.attributes.remove(key);
         } else {
@@ -352,6 +421,7 @@ public class RegisteredResourceImpl
      * Set the state for the resource.
      */
     public void setState(ResourceState s) {
+        this.encodedFields = null;
         this.lastChange = System.currentTimeMillis();
         this.state = s;
     }
@@ -507,6 +577,7 @@ public class RegisteredResourceImpl
      */
     private void update(final TransformationResult tr)
     throws IOException {
+        this.encodedFields = null;
         final InputStream is = tr.getInputStream();
         if ( tr.getResourceType() != null ) {
             this.resourceType = tr.getResourceType();
@@ -548,6 +619,7 @@ public class RegisteredResourceImpl
      * Update the resource uri - if provided.
      */
     public void update(final InternalResource rsrc) {
+        this.encodedFields = null;
         if ( rsrc.getResourceUri() != null ) {
             FileDataStore.SHARED.removeFromDigestCache(this.url, this.digest);
             this.removeDataFile();
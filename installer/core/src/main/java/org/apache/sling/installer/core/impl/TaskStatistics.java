@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+
+/**
+ * Collects the number of executed tasks and the time spent executing them
+ * per phase. The phase of a task is the prefix of its sort key up to the
+ * first dash, for example "40-" for bundle installations.
+ */
+public class TaskStatistics {
+
+    private static final class Phase {
+        public long tasks;
+        public long time;
+    }
+
+    private final Map<String, Phase> phases = new TreeMap<String, Phase>();
+
+    /**
+     * Get the phase of the task.
+     */
+    public static String getPhase(final InstallTask task) {
+        final String sortKey = task.getSortKey();
+        if ( sortKey == null ) {
+            return "";
+        }
+        final int pos = sortKey.indexOf('-');
+        return (pos == -1 ? sortKey : sortKey.substring(0, pos + 1));
+    }
+
+    /**
+     * Add executed tasks of a phase.
+     * @param phase The phase
+     * @param tasks The number of executed tasks
+     * @param time The time in ms spent executing the tasks
+     */
+    public void add(final String phase, final int tasks, final long time) {
+        synchronized ( this.phases ) {
+            Phase p = this.phases.get(phase);
+            if ( p == null ) {
+                p = new Phase();
+                this.phases.put(phase, p);
+            }
+            p.tasks += tasks;
+            p.time += time;
+        }
+    }
+
+    /**
+     * Return a description of the timings of each phase.
+     */
+    public String[] getTimings() {
+        synchronized ( this.phases ) {
+            final String[] result = new String[this.phases.size()];
+            int index = 0;
+            for(final Map.Entry<String, Phase> entry : this.phases.entrySet()) {
+                result[index] = entry.getKey() + " " + entry.getValue().tasks + " tasks in "
+                        + entry.getValue().time + " ms";
+                index++;
+            }
+            return result;
+        }
+    }
+}
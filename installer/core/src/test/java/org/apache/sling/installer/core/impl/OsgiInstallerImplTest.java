@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.junit.Test;
+
+public class OsgiInstallerImplTest {
+
+    private static InstallTask createTask(final String sortKey) {
+        return new InstallTask(null) {
+
+            @Override
+            public void execute(final InstallationContext ctx) {
+                // nothing to do
+            }
+
+            @Override
+            public String getSortKey() {
+                return sortKey;
+            }
+        };
+    }
+
+    private static List<String> getSortKeys(final List<InstallTask> tasks) {
+        final List<String> result = new ArrayList<String>();
+        for(final InstallTask task : tasks) {
+            result.add(task.getSortKey());
+        }
+        return result;
+    }
+
+    @Test public void testGetParallelGroup() {
+        assertEquals("40-00010-", OsgiInstallerImpl.getParallelGroup(createTask("40-00010-file:/a-b.jar")));
+        assertEquals("40-00001-", OsgiInstallerImpl.getParallelGroup(createTask("40-00001-file:/c.jar")));
+        assertNull(OsgiInstallerImpl.getParallelGroup(createTask("40-")));
+        assertNull(OsgiInstallerImpl.getParallelGroup(createTask("70-00010-file:/a.jar")));
+    }
+
+    @Test public void testStartLevelOrderingPreserved() {
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>();
+        tasks.add(createTask("40-00010-file:/d.jar"));
+        tasks.add(createTask("40-00001-file:/b.jar"));
+        tasks.add(createTask("70-00001-file:/e.jar"));
+        tasks.add(createTask("40-00001-file:/a.jar"));
+        tasks.add(createTask("40-00002-file:/c.jar"));
+
+        final List<List<String>> groups = new ArrayList<List<String>>();
+        while ( !tasks.isEmpty() ) {
+            final InstallTask task = tasks.first();
+            tasks.remove(task);
+            if ( OsgiInstallerImpl.getParallelGroup(task) == null ) {
+                final List<InstallTask> single = new ArrayList<InstallTask>();
+                single.add(task);
+                groups.add(getSortKeys(single));
+            } else {
+                groups.add(getSortKeys(OsgiInstallerImpl.collectParallelGroup(task, tasks)));
+            }
+        }
+
+        // bundles of a lower start level are installed before the ones of a higher start level
+        assertEquals(4, groups.size());
+        assertEquals("[40-00001-file:/a.jar, 40-00001-file:/b.jar]", groups.get(0).toString());
+        assertEquals("[40-00002-file:/c.jar]", groups.get(1).toString());
+        assertEquals("[40-00010-file:/d.jar]", groups.get(2).toString());
+        assertEquals("[70-00001-file:/e.jar]", groups.get(3).toString());
+    }
+}
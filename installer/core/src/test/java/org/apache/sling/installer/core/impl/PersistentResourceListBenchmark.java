@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.apache.sling.installer.core.impl.tasks.MockInstallationListener;
+import org.junit.Test;
+
+/**
+ * Measures saving and restoring the installer state with a large number
+ * of registered resources, as done on every installer cycle and on startup.
+ * This benchmark is not run as part of the build, run it explicitly with
+ * <code>mvn test -Dtest=PersistentResourceListBenchmark</code>.
+ */
+public class PersistentResourceListBenchmark {
+
+    private static final int RESOURCES = 2000;
+
+    private static final int RUNS = 20;
+
+    @Test public void testSaveAndRestore() throws Exception {
+        new FileDataStore(new MockBundleContext());
+        final File dataFile = File.createTempFile("RegisteredResourceList", ".ser");
+        dataFile.delete();
+        try {
+            final PersistentResourceList list = PersistentResourceListTest.createList(dataFile, RESOURCES);
+            list.save();
+
+            long start = System.nanoTime();
+            for(int i=0; i<RUNS; i++) {
+                list.save();
+            }
+            final long unchangedTime = System.nanoTime() - start;
+
+            int entities = 0;
+            start = System.nanoTime();
+            for(int i=0; i<RUNS; i++) {
+                entities = new PersistentResourceList(dataFile, new MockInstallationListener()).getEntityIds().size();
+            }
+            final long restoreTime = System.nanoTime() - start;
+            assertEquals(list.getEntityIds().size(), entities);
+            final long size = dataFile.length();
+
+            PersistentResourceListTest.writeLegacyFormat(list, dataFile);
+            final long legacySize = dataFile.length();
+            start = System.nanoTime();
+            for(int i=0; i<RUNS; i++) {
+                entities = new PersistentResourceList(dataFile, new MockInstallationListener()).getEntityIds().size();
+            }
+            final long legacyRestoreTime = System.nanoTime() - start;
+            assertEquals(list.getEntityIds().size(), entities);
+
+            System.out.println("PersistentResourceList with " + RESOURCES + " resources ("
+                + size + " bytes): unchanged save " + (unchangedTime / RUNS / 1000) + " us, restore "
+                + (restoreTime / RUNS / 1000) + " us; serialized format (" + legacySize + " bytes): restore "
+                + (legacyRestoreTime / RUNS / 1000) + " us");
+        } finally {
+            dataFile.delete();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.installer.api.InstallableResource;
+import org.apache.sling.installer.api.tasks.RegisteredResource;
+import org.apache.sling.installer.api.tasks.ResourceState;
+import org.apache.sling.installer.api.tasks.TaskResource;
+import org.apache.sling.installer.api.tasks.TransformationResult;
+import org.apache.sling.installer.core.impl.tasks.MockInstallationListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentResourceListTest {
+
+    private File dataFile;
+
+    private File legacyDataFile;
+
+    @Before public void setup() throws IOException {
+        new FileDataStore(new MockBundleContext());
+        this.dataFile = File.createTempFile("RegisteredResourceList", ".dat");
+        this.dataFile.delete();
+        this.legacyDataFile = File.createTempFile("RegisteredResourceList", ".ser");
+        this.legacyDataFile.delete();
+    }
+
+    @After public void cleanup() {
+        this.dataFile.delete();
+        new File(this.dataFile.getPath() + ".tmp").delete();
+        this.legacyDataFile.delete();
+    }
+
+    static PersistentResourceList createList(final File dataFile, final int count) throws IOException {
+        final PersistentResourceList list = new PersistentResourceList(dataFile, new MockInstallationListener());
+        for(int i=0; i<count; i++) {
+            final Hashtable<String, Object> dict = new Hashtable<String, Object>();
+            dict.put("key", "value" + i);
+            dict.put("index", i);
+            final RegisteredResource rr = list.addOrUpdate(InternalResource.create("test",
+                    new InstallableResource("configuration:" + i, null, dict, null, null, null)));
+            final TransformationResult result = new TransformationResult();
+            result.setId("pid" + i);
+            result.setResourceType(InstallableResource.TYPE_CONFIG);
+            list.transform(rr, new TransformationResult[] {result});
+        }
+        return list;
+    }
+
+    /**
+     * Write the list like older versions did, using serialization.
+     */
+    static void writeLegacyFormat(final PersistentResourceList list, final File dataFile) throws IOException {
+        final Map<String, EntityResourceList> data = new HashMap<String, EntityResourceList>();
+        for(final String id : list.getEntityIds()) {
+            data.put(id, list.getEntityResourceList(id));
+        }
+        final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(dataFile));
+        try {
+            oos.writeInt(2);
+            oos.writeObject(data);
+            oos.writeObject(list.getUntransformedResources());
+        } finally {
+            oos.close();
+        }
+    }
+
+    private int readMagic() throws IOException {
+        final DataInputStream dis = new DataInputStream(new FileInputStream(this.dataFile));
+        try {
+            return dis.readInt();
+        } finally {
+            dis.close();
+        }
+    }
+
+    @Test public void testRestore() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        list.save();
+        assertTrue(this.dataFile.exists());
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+        assertNotNull(restored.getEntityResourceList("config:pid5"));
+    }
+
+    @Test public void testUnchangedStateIsNotWritten() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        list.save();
+        this.dataFile.setLastModified(1000);
+
+        list.save();
+        assertEquals(1000, this.dataFile.lastModified());
+
+        ((RegisteredResourceImpl)list.getEntityResourceList("config:pid5").getActiveResource()).setState(ResourceState.INSTALLED);
+        list.save();
+        assertFalse(1000 == this.dataFile.lastModified());
+    }
+
+    @Test public void testRestoreFromTemporaryFile() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        list.save();
+        assertTrue(this.dataFile.renameTo(new File(this.dataFile.getPath() + ".tmp")));
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+    }
+
+    @Test public void testMigrateLegacyFormat() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        writeLegacyFormat(list, this.dataFile);
+        final int legacyMagic = readMagic();
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+        assertEquals("value5", restored.getEntityResourceList("config:pid5").getActiveResource().getDictionary().get("key"));
+
+        // the next save writes the current format
+        restored.save();
+        assertFalse(legacyMagic == readMagic());
+
+        final PersistentResourceList migrated = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), migrated.getEntityIds().size());
+        assertEquals("value5", migrated.getEntityResourceList("config:pid5").getActiveResource().getDictionary().get("key"));
+    }
+
+    @Test public void testMigrateLegacyFile() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        writeLegacyFormat(list, this.legacyDataFile);
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.legacyDataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+        assertFalse(this.dataFile.exists());
+        assertTrue(this.legacyDataFile.exists());
+
+        // the next save writes the new file and removes the legacy file
+        restored.save();
+        assertTrue(this.dataFile.exists());
+        assertFalse(this.legacyDataFile.exists());
+
+        final PersistentResourceList migrated = new PersistentResourceList(this.dataFile, this.legacyDataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), migrated.getEntityIds().size());
+        assertEquals("value5", migrated.getEntityResourceList("config:pid5").getActiveResource().getDictionary().get("key"));
+    }
+
+    @Test public void testNewFileTakesPrecedenceOverLegacyFile() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        list.save();
+        writeLegacyFormat(createList(this.legacyDataFile, 2), this.legacyDataFile);
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.legacyDataFile, new MockInstallationListener());
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+    }
+
+    @Test public void testRestoreValues() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 1);
+        final TaskResource rr = list.getEntityResourceList("config:pid0").getActiveResource();
+        rr.getDictionary().put("long", 5L);
+        rr.getDictionary().put("boolean", Boolean.TRUE);
+        rr.getDictionary().put("array", new String[] {"a", null, "\u00e4"});
+        rr.getDictionary().put("object", new char[] {'s', 'b'});
+        rr.setAttribute("attribute", 7);
+        list.save();
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        final TaskResource restoredResource = restored.getEntityResourceList("config:pid0").getActiveResource();
+        assertEquals(rr.getURL(), restoredResource.getURL());
+        assertEquals(rr.getDigest(), restoredResource.getDigest());
+        assertEquals(rr.getEntityId(), restoredResource.getEntityId());
+        assertEquals(rr.getState(), restoredResource.getState());
+        assertEquals(7, restoredResource.getAttribute("attribute"));
+        final Dictionary<String, Object> dict = restoredResource.getDictionary();
+        assertEquals(rr.getDictionary().size(), dict.size());
+        assertEquals("value0", dict.get("key"));
+        assertEquals(0, dict.get("index"));
+        assertEquals(5L, dict.get("long"));
+        assertEquals(Boolean.TRUE, dict.get("boolean"));
+        assertArrayEquals(new String[] {"a", null, "\u00e4"}, (String[])dict.get("array"));
+        assertArrayEquals(new char[] {'s', 'b'}, (char[])dict.get("object"));
+    }
+
+    @Test public void testChangedResourceIsWritten() throws IOException {
+        final PersistentResourceList list = createList(this.dataFile, 10);
+        list.save();
+
+        ((RegisteredResourceImpl)list.getEntityResourceList("config:pid5").getActiveResource()).setState(ResourceState.INSTALLED);
+        list.save();
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, new MockInstallationListener());
+        assertEquals(ResourceState.INSTALLED, restored.getEntityResourceList("config:pid5").getResources().iterator().next().getState());
+        assertEquals(ResourceState.INSTALL, restored.getEntityResourceList("config:pid4").getResources().iterator().next().getState());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.junit.Test;
+
+public class TaskStatisticsTest {
+
+    private static InstallTask createTask(final String sortKey) {
+        return new InstallTask(null) {
+
+            @Override
+            public void execute(final InstallationContext ctx) {
+                // nothing to do
+            }
+
+            @Override
+            public String getSortKey() {
+                return sortKey;
+            }
+        };
+    }
+
+    @Test public void testGetPhase() {
+        assertEquals("40-", TaskStatistics.getPhase(createTask("40-00010-file:/a.jar")));
+        assertEquals("60-", TaskStatistics.getPhase(createTask("60-")));
+        assertEquals("abc", TaskStatistics.getPhase(createTask("abc")));
+    }
+
+    @Test public void testTimings() {
+        final TaskStatistics statistics = new TaskStatistics();
+        statistics.add("70-", 1, 5);
+        statistics.add("40-", 10, 100);
+        statistics.add("70-", 2, 7);
+
+        final String[] timings = statistics.getTimings();
+        assertEquals(2, timings.length);
+        assertEquals("40- 10 tasks in 100 ms", timings[0]);
+        assertEquals("70- 3 tasks in 12 ms", timings[1]);
+    }
+}
@@ -32,6 +32,7 @@ public class Activator implements BundleActivator {
 
     public static final String KEY_DIR = "sling.fileinstall.dir";
     public static final String KEY_DELAY = "sling.fileinstall.interval";
+    public static final String KEY_SETTLE = "sling.fileinstall.settle";
     public static final String KEY_WRITEBACK = "sling.fileinstall.writeback";
 
     /** The services listener will activate the installer. */
@@ -45,20 +46,14 @@ public class Activator implements BundleActivator {
         final List<ScanConfiguration> configs = new ArrayList<ScanConfiguration>();
         final Object dir = getProp(context, KEY_DIR);
         if ( dir != null ) {
-            Long delay = null;
-            final Object interval = getProp(context, KEY_DELAY);
-            if ( interval != null ) {
-                if ( interval instanceof Number ) {
-                    delay = ((Number)interval).longValue();
-                } else {
-                    delay = Long.valueOf(interval.toString());
-                }
-            }
+            final Long delay = getLongProp(context, KEY_DELAY);
+            final Long settle = getLongProp(context, KEY_SETTLE);
             final StringTokenizer st = new StringTokenizer(dir.toString(), ",");
             while ( st.hasMoreTokens() ) {
                 final ScanConfiguration sc = new ScanConfiguration();
                 sc.directory = st.nextToken();
                 sc.scanInterval = delay;
+                sc.settleInterval = settle;
 
                 configs.add(sc);
             }
@@ -74,6 +69,17 @@ public class Activator implements BundleActivator {
         this.servicesListener = null;
     }
 
+    private static Long getLongProp(final BundleContext bundleContext, final String key) {
+        final Object value = getProp(bundleContext, key);
+        if ( value == null ) {
+            return null;
+        }
+        if ( value instanceof Number ) {
+            return ((Number)value).longValue();
+        }
+        return Long.valueOf(value.toString());
+    }
+
     public static Object getProp(final BundleContext bundleContext, final String key) {
         Object o = bundleContext.getProperty(key);
         if (o == null) {
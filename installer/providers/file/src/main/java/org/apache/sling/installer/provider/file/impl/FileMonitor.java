@@ -20,9 +20,9 @@ package org.apache.sling.installer.provider.file.impl;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,33 +30,76 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is a monitor for the file system
  * that periodically checks for changes.
+ * <p>
+ * The first check is done right after the monitor has been started. Changes
+ * are reported as soon as a check detects them. Afterwards the directory is
+ * checked again after the (short) settle interval until no further changes
+ * are detected, and all changes found in the meantime are reported to the
+ * listener as a single batch. This coalesces bursts of writes, like copying
+ * a large number of bundles into the directory. Changes are reported at the
+ * latest after the scan interval even if the directory keeps changing.
  */
-public class FileMonitor extends TimerTask {
+public class FileMonitor implements Runnable {
+
+    /** The default interval between two checks in milliseconds. */
+    private static final long DEFAULT_INTERVAL = 5000;
+
+    /** The default interval between checks while changes settle in milliseconds. */
+    private static final long DEFAULT_SETTLE_INTERVAL = 500;
 
     /** The logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private final Timer timer = new Timer();
-    private boolean stop = false;
-    private boolean stopped = true;
+    private final Thread thread;
+
+    private volatile boolean stop = false;
+
+    private final long interval;
+
+    private final long settleInterval;
 
     private final Monitorable root;
 
     private final FileChangesListener listener;
 
+    /** The changes not reported yet, in the order they have been detected. */
+    private final Map<File, Change> pending = new LinkedHashMap<File, Change>();
+
+    /** The time the oldest pending change has been detected. */
+    private long pendingSince;
+
+    /** Whether changes have been reported and further changes are coalesced. */
+    private boolean settling;
+
     /**
      * Creates a new instance of this class.
      * @param interval The interval between executions of the task, in milliseconds.
      */
     public FileMonitor(final File rootDir, final Long interval, final FileChangesListener listener) {
+        this(rootDir, interval, null, listener);
+    }
+
+    /**
+     * Creates a new instance of this class.
+     * @param interval The interval between executions of the task, in milliseconds.
+     * @param settleInterval The interval between checks while changes are
+     *        detected, in milliseconds.
+     */
+    public FileMonitor(final File rootDir, final Long interval, final Long settleInterval,
+            final FileChangesListener listener) {
         this.listener = listener;
+        this.interval = (interval != null ? interval : DEFAULT_INTERVAL);
+        this.settleInterval = Math.min(this.interval,
+                (settleInterval != null ? settleInterval : DEFAULT_SETTLE_INTERVAL));
         this.root = new Monitorable(rootDir);
         createStatus(this.root);
         final List<File> files = new ArrayList<File>();
         collect(this.root.file, files);
         this.listener.initialSet(files);
-        logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
-        timer.schedule(this, 0, (interval != null ? interval : 5000));
+        logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, this.interval);
+        this.thread = new Thread(this, "Apache Sling File Monitor " + rootDir);
+        this.thread.setDaemon(true);
+        this.thread.start();
     }
 
     public File getRoot() {
@@ -96,61 +139,148 @@ public class FileMonitor extends TimerTask {
         public final List<File> added = new ArrayList<File>();
         public final List<File> removed = new ArrayList<File>();
         public final List<File> changed = new ArrayList<File>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    /** The kind of a pending change. */
+    private enum Change {
+        ADDED,
+        CHANGED,
+        REMOVED
     }
 
     /**
-     * Stop periodically executing this task. If the task is currently executing it
-     * will never be run again after the current execution, otherwise it will simply
-     * never run (again).
+     * Stop checking for changes. If a check is currently executing, this
+     * method waits for it to finish.
      */
     void stop() {
-        synchronized (timer) {
-            if (!stop) {
-                stop = true;
-                cancel();
-                timer.cancel();
-            }
-
-            boolean interrupted = false;
-            while (!stopped) {
-                try {
-                    timer.wait();
-                }
-                catch (InterruptedException e) {
-                    interrupted = true;
-                }
-            }
-            if (interrupted) {
-                Thread.currentThread().interrupt();
+        synchronized ( this.pending ) {
+            this.stop = true;
+            this.pending.notifyAll();
+        }
+        boolean interrupted = false;
+        while ( this.thread.isAlive() && this.thread != Thread.currentThread() ) {
+            try {
+                this.thread.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
         logger.debug("Stopped file monitor for {}", this.root.file);
     }
 
     /**
-     * @see java.util.TimerTask#run()
+     * @see java.lang.Runnable#run()
      */
     public void run() {
-        synchronized (timer) {
-            stopped = false;
-            if (stop) {
-                stopped = true;
-                timer.notifyAll();
-                return;
+        long delay = 0;
+        while ( !this.stop ) {
+            synchronized ( this.pending ) {
+                if ( !this.stop && delay > 0 ) {
+                    try {
+                        this.pending.wait(delay);
+                    } catch (final InterruptedException ie) {
+                        // ignore and check stop flag
+                    }
+                }
+            }
+            if ( this.stop ) {
+                break;
             }
-        }
-        synchronized ( this ) {
             try {
                 final Collector c = new Collector();
                 this.check(this.root, c);
-                this.listener.updated(c.added, c.changed, c.removed);
-            } catch (Exception e) {
+                delay = this.update(c);
+            } catch (final Exception e) {
                 // ignore this
+                delay = this.interval;
+            }
+        }
+    }
+
+    /**
+     * Merge the detected changes into the pending changes and report them.
+     * The first changes are reported immediately, changes detected while
+     * the directory keeps changing are reported once they have settled.
+     * @return The delay until the next check
+     */
+    private long update(final Collector c) {
+        final long now = System.currentTimeMillis();
+        if ( !c.isEmpty() ) {
+            if ( this.pending.isEmpty() ) {
+                this.pendingSince = now;
+            }
+            for(final File f : c.added) {
+                this.merge(f, Change.ADDED);
+            }
+            for(final File f : c.changed) {
+                this.merge(f, Change.CHANGED);
             }
+            for(final File f : c.removed) {
+                this.merge(f, Change.REMOVED);
+            }
+        }
+        if ( c.isEmpty() && this.pending.isEmpty() ) {
+            // quiet again, the next change is reported immediately
+            this.settling = false;
+            return this.interval;
+        }
+        if ( !c.isEmpty() && this.settling && now - this.pendingSince < this.interval ) {
+            // still changing, wait for the changes to settle
+            return this.settleInterval;
         }
-        synchronized (timer) {
-            stopped = true;
-            timer.notifyAll();
+        this.report();
+        this.settling = true;
+        return this.settleInterval;
+    }
+
+    /**
+     * Report the pending changes to the listener.
+     */
+    private void report() {
+        if ( this.pending.isEmpty() ) {
+            return;
+        }
+        final List<File> added = new ArrayList<File>();
+        final List<File> changed = new ArrayList<File>();
+        final List<File> removed = new ArrayList<File>();
+        for(final Map.Entry<File, Change> entry : this.pending.entrySet()) {
+            switch ( entry.getValue() ) {
+                case ADDED : added.add(entry.getKey()); break;
+                case CHANGED : changed.add(entry.getKey()); break;
+                case REMOVED : removed.add(entry.getKey()); break;
+            }
+        }
+        this.pending.clear();
+        logger.debug("Reporting {} added, {} changed and {} removed files",
+                new Object[] {added.size(), changed.size(), removed.size()});
+        this.listener.updated(added, changed, removed);
+    }
+
+    /**
+     * Merge a change of a file with a pending change of the same file.
+     */
+    private void merge(final File file, final Change change) {
+        final Change previous = this.pending.get(file);
+        if ( previous == null ) {
+            this.pending.put(file, change);
+        } else if ( previous == Change.ADDED ) {
+            if ( change == Change.REMOVED ) {
+                // never reported, so nothing to remove
+                this.pending.remove(file);
+            }
+            // changes of an added file are still an addition
+        } else if ( previous == Change.REMOVED ) {
+            // removed and added again
+            this.pending.put(file, Change.CHANGED);
+        } else {
+            this.pending.put(file, change == Change.REMOVED ? Change.REMOVED : Change.CHANGED);
         }
     }
 
@@ -173,8 +303,9 @@ public class FileMonitor extends TimerTask {
                 }
             }
         } else {
-            // check if the file has been removed
-            if ( !monitorable.file.exists() ) {
+            // a last modification time of zero indicates a removed file
+            final long lastModified = monitorable.file.lastModified();
+            if ( lastModified == 0 && !monitorable.file.exists() ) {
                 // removed file and update status
                 final List<File> files = new ArrayList<File>();
                 collectDeleted(monitorable, files);
@@ -186,10 +317,10 @@ public class FileMonitor extends TimerTask {
                 // check for changes
                 final FileStatus fs = (FileStatus)monitorable.status;
                 boolean changed = false;
-                if ( fs.lastModified < monitorable.file.lastModified() ) {
-                    fs.lastModified = monitorable.file.lastModified();
+                if ( fs.lastModified < lastModified ) {
+                    fs.lastModified = lastModified;
                     // changed
-                    if ( monitorable.file.isFile() ) {
+                    if ( !(fs instanceof DirStatus) ) {
                         collector.changed.add(monitorable.file);
                     }
                     changed = true;
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.provider.file.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileMonitorTest {
+
+    private static final long INTERVAL = 1000;
+
+    private static final long SETTLE_INTERVAL = 200;
+
+    private static final int FILES = 1000;
+
+    private static final class Batch {
+        public final Set<File> added;
+        public final Set<File> changed;
+        public final Set<File> removed;
+
+        public Batch(final List<File> added, final List<File> changed, final List<File> removed) {
+            this.added = new HashSet<File>(added);
+            this.changed = new HashSet<File>(changed);
+            this.removed = new HashSet<File>(removed);
+        }
+    }
+
+    /** Records each reported batch of changes. */
+    private static final class RecordingListener implements FileChangesListener {
+
+        public final BlockingQueue<Batch> batches = new LinkedBlockingQueue<Batch>();
+
+        public final List<File> initialSet = new ArrayList<File>();
+
+        public void initialSet(final List<File> files) {
+            this.initialSet.addAll(files);
+        }
+
+        public void updated(final List<File> added, final List<File> changed, final List<File> removed) {
+            this.batches.add(new Batch(added, changed, removed));
+        }
+
+        public String getScheme() {
+            return "test";
+        }
+    }
+
+    private File dir;
+
+    private FileMonitor monitor;
+
+    @Before public void setup() throws IOException {
+        this.dir = File.createTempFile("FileMonitorTest", "");
+        this.dir.delete();
+        assertTrue(this.dir.mkdir());
+        this.pastModification(this.dir);
+    }
+
+    @After public void cleanup() {
+        if ( this.monitor != null ) {
+            this.monitor.stop();
+        }
+        final File[] files = this.dir.listFiles();
+        if ( files != null ) {
+            for(final File f : files) {
+                f.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+    /**
+     * Move the modification time into the past, so the next change is
+     * detected regardless of the resolution of the file system.
+     */
+    private void pastModification(final File file) {
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 10000));
+    }
+
+    private void futureModification(final File file) {
+        assertTrue(file.setLastModified(System.currentTimeMillis() + 10000));
+    }
+
+    private File bundle(final int index) {
+        return new File(this.dir, "bundle-" + index + ".jar");
+    }
+
+    private void write(final File file) throws IOException {
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(file.getName().getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        this.pastModification(file);
+    }
+
+    private Batch nextBatch() throws InterruptedException {
+        return ((RecordingListener)this.monitor.getListener()).batches.poll(10 * INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Collect the batches reported until no further batch arrives.
+     */
+    private List<Batch> collectBatches() throws InterruptedException {
+        final List<Batch> result = new ArrayList<Batch>();
+        Batch batch = this.nextBatch();
+        while ( batch != null ) {
+            result.add(batch);
+            batch = ((RecordingListener)this.monitor.getListener()).batches.poll(INTERVAL + 2 * SETTLE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    @Test public void testBurstIsReportedAsSingleBatch() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        this.monitor = new FileMonitor(this.dir, INTERVAL, SETTLE_INTERVAL, listener);
+        assertTrue(listener.initialSet.isEmpty());
+
+        final Set<File> bundles = new HashSet<File>();
+        for(int i=0; i<FILES; i++) {
+            final File f = this.bundle(i);
+            this.write(f);
+            bundles.add(f);
+        }
+        this.futureModification(this.dir);
+
+        // a check while the files are written reports the files found so
+        // far immediately, the remaining files are coalesced
+        final List<Batch> adds = this.collectBatches();
+        assertTrue(adds.size() >= 1 && adds.size() <= 2);
+        final Set<File> added = new HashSet<File>();
+        for(final Batch batch : adds) {
+            assertTrue(batch.changed.isEmpty());
+            assertTrue(batch.removed.isEmpty());
+            added.addAll(batch.added);
+        }
+        assertEquals(bundles, added);
+
+        // change the first hundred and remove the next hundred bundles
+        final Set<File> changed = new HashSet<File>();
+        final Set<File> removed = new HashSet<File>();
+        for(int i=0; i<100; i++) {
+            final File f = this.bundle(i);
+            this.futureModification(f);
+            changed.add(f);
+        }
+        for(int i=100; i<200; i++) {
+            final File f = this.bundle(i);
+            assertTrue(f.delete());
+            removed.add(f);
+        }
+        // a new modification time, later than the previous one
+        assertTrue(this.dir.setLastModified(System.currentTimeMillis() + 20000));
+
+        final List<Batch> updates = this.collectBatches();
+        assertTrue(updates.size() >= 1 && updates.size() <= 2);
+        final Set<File> updatedChanged = new HashSet<File>();
+        final Set<File> updatedRemoved = new HashSet<File>();
+        for(final Batch updated : updates) {
+            assertTrue(updated.added.isEmpty());
+            updatedChanged.addAll(updated.changed);
+            updatedRemoved.addAll(updated.removed);
+        }
+        assertEquals(changed, updatedChanged);
+        assertEquals(removed, updatedRemoved);
+    }
+
+    @Test public void testChangeIsReportedWhenDetected() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        // the settle interval is as long as the scan interval
+        this.monitor = new FileMonitor(this.dir, INTERVAL, INTERVAL, listener);
+
+        final File f = this.bundle(0);
+        this.write(f);
+        this.futureModification(this.dir);
+
+        // detected within one scan interval and reported without settling
+        final Batch added = ((RecordingListener)this.monitor.getListener()).batches.poll(INTERVAL + SETTLE_INTERVAL, TimeUnit.MILLISECONDS);
+        assertNotNull(added);
+        assertEquals(f, added.added.iterator().next());
+    }
+}